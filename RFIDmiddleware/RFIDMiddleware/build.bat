@@ -31,23 +31,65 @@ if not exist "%BUILD_TMP%\out" mkdir "%BUILD_TMP%\out"
 javac -encoding UTF-8 -cp "%BUILD_TMP%\libs\FixedReaderLib.jar;%BUILD_TMP%\libs\ReaderFinderLib.jar;%BUILD_TMP%\libs\mariadb-java-client-3.5.1.jar;%BUILD_TMP%\libs\caffeine-2.9.3.jar" -d "%BUILD_TMP%\out" ^
   "%BUILD_TMP%\src\com\apulse\middleware\util\HexUtils.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\util\AppLogger.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\util\JsonUtils.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\util\LatencyHistogram.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\util\CircuitBreaker.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\config\LogConfig.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\config\ReaderConfig.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\config\DatabaseConfig.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\config\AppConfig.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\reader\ReaderStatus.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\reader\TagData.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\reader\ReaderConnection.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\reader\ReaderControl.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\reader\ReaderManager.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\ConnectionPool.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\db\DatabaseManager.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\PageCursor.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\AdaptiveBatchController.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\SchemaMigrator.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\ReaderDirectory.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\PartitionManager.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\TagArchiveFile.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\TagArchiver.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\TagJournal.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\TagReadCounters.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\TagWriter.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\db\TagRepository.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\AssetSnapshot.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\AssetSnapshotFile.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\AssetDelta.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\db\AssetRepository.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\RollupRepository.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\LastSeenRepository.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\StorageBackend.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\MariaDbStorage.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\embedded\SegmentLog.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\embedded\RecordStore.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\embedded\EmbeddedStorage.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\db\StorageManager.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\export\RowWriter.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\export\CsvRowWriter.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\export\XlsxRowWriter.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\export\TagExporter.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\reader\WarningLightController.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\api\DashboardHtml.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\engine\TagEvent.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\engine\EngineListener.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\engine\EngineEndpoint.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\engine\AlertLane.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\engine\RollupAggregator.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\engine\StoragePolicyEngine.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\engine\MiddlewareEngine.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\engine\RemoteEngineClient.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\api\EventStream.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\api\ApiServer.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\gui\Theme.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\gui\LazyTableModel.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\gui\ReaderIconComponent.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\gui\ReaderStatusPanel.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\gui\TagDataPanel.java" ^
+  "%BUILD_TMP%\src\com\apulse\middleware\gui\ExportAlertPanel.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\gui\LogPanel.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\gui\ConfigDialog.java" ^
   "%BUILD_TMP%\src\com\apulse\middleware\gui\MainFrame.java" ^
@@ -1,26 +1,67 @@
 package com.apulse.middleware;
 
 import com.apulse.middleware.config.LogConfig;
+import com.apulse.middleware.engine.MiddlewareEngine;
+import com.apulse.middleware.engine.RemoteEngineClient;
 import com.apulse.middleware.gui.MainFrame;
 import com.apulse.middleware.util.AppLogger;
 
 import javax.swing.*;
 
+/**
+ * 실행 모드
+ *   (인자 없음)         엔진 + GUI 한 프로세스 (기존 방식)
+ *   --headless          GUI 없이 엔진만 실행 (서버/서비스용, REST API와 /api/events 제공)
+ *   --remote &lt;url&gt;  원격 엔진에 붙는 GUI 콘솔 (예: --remote http://192.168.0.10:18080)
+ */
 public class Main {
     public static void main(String[] args) {
         // 로그 초기화
         LogConfig logConfig = new LogConfig();
         AppLogger.init(logConfig);
 
+        boolean headless = false;
+        String remoteUrl = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--headless".equals(args[i])) {
+                headless = true;
+            } else if ("--remote".equals(args[i]) && i + 1 < args.length) {
+                remoteUrl = args[++i];
+            }
+        }
+
+        if (headless) {
+            MiddlewareEngine engine = new MiddlewareEngine();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                engine.shutdown();
+                AppLogger.shutdown();
+            }, "Engine-Shutdown"));
+            engine.start();
+            AppLogger.info("Main", "Headless engine started");
+            return;
+        }
+
         // Swing Look & Feel 설정
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
         } catch (Exception ignored) {}
 
+        final String url = remoteUrl;
         // GUI 스레드에서 실행
         SwingUtilities.invokeLater(() -> {
-            MainFrame frame = new MainFrame();
-            frame.setVisible(true);
+            if (url != null) {
+                RemoteEngineClient client = new RemoteEngineClient(url);
+                MainFrame frame = new MainFrame(client);
+                client.addListener(frame);
+                frame.setVisible(true);
+                client.start();
+            } else {
+                MiddlewareEngine engine = new MiddlewareEngine();
+                MainFrame frame = new MainFrame(engine);
+                engine.addListener(frame);
+                frame.setVisible(true);
+                engine.start();
+            }
         });
     }
 }
@@ -3,10 +3,23 @@ package com.apulse.middleware.api;
 import com.apulse.middleware.config.ReaderConfig;
 import com.apulse.middleware.db.AssetRepository;
 import com.apulse.middleware.db.DatabaseManager;
+import com.apulse.middleware.db.LastSeenRepository;
+import com.apulse.middleware.db.PageCursor;
+import com.apulse.middleware.db.PartitionManager;
+import com.apulse.middleware.db.SchemaMigrator;
+import com.apulse.middleware.db.StorageManager;
+import com.apulse.middleware.db.TagArchiver;
+import com.apulse.middleware.db.TagReadCounters;
 import com.apulse.middleware.db.TagRepository;
+import com.apulse.middleware.engine.AlertLane;
+import com.apulse.middleware.engine.MiddlewareEngine;
+import com.apulse.middleware.engine.RollupAggregator;
+import com.apulse.middleware.export.TagExporter;
 import com.apulse.middleware.reader.ReaderConnection;
 import com.apulse.middleware.reader.ReaderManager;
 import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.JsonUtils;
+import com.apulse.middleware.util.LatencyHistogram;
 
 import com.apulse.readerfinderlib.FixedReaderFinder;
 
@@ -21,19 +34,30 @@ import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
 import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class ApiServer {
     private static final int PORT = 18080;
 
     private final HttpServer server;
+    private final MiddlewareEngine engine;
     private final ReaderManager readerManager;
     private final String configFile;
+    private final EventStream eventStream;
 
-    public ApiServer(ReaderManager readerManager, List<ReaderConfig> configs, String configFile) throws IOException {
-        this.readerManager = readerManager;
-        this.configFile = configFile;
+    public ApiServer(MiddlewareEngine engine) throws IOException {
+        this.engine = engine;
+        this.readerManager = engine.getReaderManager();
+        this.configFile = engine.getConfigFile();
+        this.eventStream = new EventStream(engine);
+        engine.addListener(eventStream);
 
         server = HttpServer.create(new InetSocketAddress(PORT), 0);
         server.setExecutor(Executors.newFixedThreadPool(4));
@@ -43,8 +67,14 @@ public class ApiServer {
         server.createContext("/api/export-permissions", new ExportPermissionsHandler());
         server.createContext("/api/export-alerts", new ExportAlertsHandler());
         server.createContext("/api/control", new ControlHandler());
+        server.createContext("/api/events", eventStream);
         server.createContext("/api/tags/recent", new RecentTagsHandler());
+        server.createContext("/api/tags/export", new TagExportHandler());
+        server.createContext("/api/tags/reads", new TagReadsHandler());
+        server.createContext("/api/tags/last-seen", new LastSeenHandler());
         server.createContext("/api/mask", new MaskHandler());
+        server.createContext("/api/metrics", new MetricsHandler());
+        server.createContext("/api/stats/readers", new ReaderStatsHandler());
         server.createContext("/api/reader-finder", new ReaderFinderHandler());
         server.createContext("/swagger", new SwaggerUiHandler());
         server.createContext("/api/openapi.json", new OpenApiHandler());
@@ -57,6 +87,8 @@ public class ApiServer {
     }
 
     public void shutdown() {
+        engine.removeListener(eventStream);
+        eventStream.shutdown();
         server.stop(1);
         AppLogger.info("ApiServer", "Shutdown complete");
     }
@@ -84,14 +116,120 @@ public class ApiServer {
     }
 
     private static String escapeJson(String s) {
-        if (s == null) return "";
-        return s.replace("\\", "\\\\").replace("\"", "\\\"")
-                .replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+        return JsonUtils.escape(s);
     }
 
     private static String toJsonString(String value) {
-        if (value == null) return "null";
-        return "\"" + escapeJson(value) + "\"";
+        return JsonUtils.toJsonString(value);
+    }
+
+    /** keyset 페이지 최대 크기 */
+    private static final int MAX_PAGE_LIMIT = 5000;
+
+    /** 최신순 keyset 목록 쿼리 (limit 0 이하 = 커서 이후 전체, handler가 false면 중단) */
+    private interface RowQuery {
+        long run(PageCursor after, int limit, Predicate<String[]> handler) throws Exception;
+    }
+
+    /**
+     * 기간 목록 응답 (after=시간,id & limit=N).
+     * limit이 있으면 한 페이지와 다음 커서를 {"items":[...],"next":"시간,id"|null}로 응답하고,
+     * 없으면 커서 이후 전체를 기존 형식({"status":"ok","data":[...]}) 그대로 chunked 스트리밍한다.
+     * 스트리밍은 행을 모으지 않고 DB 결과를 읽는 대로 쓰므로 기간 크기와 무관하게 메모리가 일정하다.
+     */
+    private static void sendRows(HttpExchange exchange, Map<String, String> params, RowQuery query,
+                                 Function<String[], String> rowJson,
+                                 Function<String[], String> cursorOf) throws IOException {
+        sendRows(exchange, params, query, rowJson, cursorOf, true);
+    }
+
+    /** needsStorage가 false면 저장소(DB) 상태와 무관하게 조회 (보관 파일 조회) */
+    private static void sendRows(HttpExchange exchange, Map<String, String> params, RowQuery query,
+                                 Function<String[], String> rowJson,
+                                 Function<String[], String> cursorOf, boolean needsStorage) throws IOException {
+        PageCursor after = null;
+        String afterParam = params.get("after");
+        if (afterParam != null && !afterParam.isEmpty()) {
+            after = parseCursor(afterParam);
+            if (after == null) {
+                sendError(exchange, 400, "after format: <yyyy-MM-dd HH:mm:ss[.SSS]>,<id>");
+                return;
+            }
+        }
+        int limit = 0;
+        if (params.containsKey("limit")) {
+            try {
+                limit = Integer.parseInt(params.get("limit"));
+            } catch (NumberFormatException e) {
+                limit = -1;
+            }
+            if (limit < 1 || limit > MAX_PAGE_LIMIT) {
+                sendError(exchange, 400, "limit must be 1.." + MAX_PAGE_LIMIT);
+                return;
+            }
+        }
+        if (needsStorage && !StorageManager.getInstance().isAvailable()) {
+            sendError(exchange, 503, "Database not available");
+            return;
+        }
+
+        if (limit > 0) {
+            List<String[]> rows = new ArrayList<>();
+            try {
+                query.run(after, limit, rows::add);
+            } catch (Exception e) {
+                sendError(exchange, 500, e.getMessage());
+                return;
+            }
+            StringBuilder sb = new StringBuilder("{\"items\":[");
+            for (int i = 0; i < rows.size(); i++) {
+                if (i > 0) sb.append(",");
+                sb.append(rowJson.apply(rows.get(i)));
+            }
+            String next = rows.size() == limit ? cursorOf.apply(rows.get(rows.size() - 1)) : null;
+            sb.append("],\"next\":").append(toJsonString(next)).append("}");
+            sendOk(exchange, sb.toString());
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        // 길이 0 = chunked 전송 (첫 행부터 바로 전송)
+        exchange.sendResponseHeaders(200, 0);
+        try (Writer w = new BufferedWriter(
+                new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8), 64 * 1024)) {
+            w.write("{\"status\":\"ok\",\"data\":[");
+            w.flush();
+            boolean[] first = {true};
+            query.run(after, 0, row -> {
+                try {
+                    if (!first[0]) w.write(',');
+                    first[0] = false;
+                    w.write(rowJson.apply(row));
+                    return true;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            w.write("]}");
+        } catch (Exception e) {
+            // 헤더 전송 후라 오류 응답 불가 - 연결 종료로 클라이언트에 실패 전달 (잘린 JSON)
+            AppLogger.error("ApiServer", "Row stream failed: " + e.getMessage());
+            exchange.close();
+        }
+    }
+
+    /** "시간,id" 커서 파싱 (형식 오류면 null) */
+    private static PageCursor parseCursor(String value) {
+        int comma = value.lastIndexOf(',');
+        if (comma <= 0) return null;
+        try {
+            String key = value.substring(0, comma).trim();
+            Timestamp.valueOf(key);
+            return new PageCursor(key, Long.parseLong(value.substring(comma + 1).trim()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
     }
 
     private static String readRequestBody(HttpExchange exchange) throws IOException {
@@ -108,66 +246,7 @@ public class ApiServer {
 
     /** Simple JSON field extractor (no external library) */
     private static Map<String, String> parseJsonFields(String json) {
-        Map<String, String> fields = new LinkedHashMap<>();
-        if (json == null || json.trim().isEmpty()) return fields;
-
-        json = json.trim();
-        if (json.startsWith("{")) json = json.substring(1);
-        if (json.endsWith("}")) json = json.substring(0, json.length() - 1);
-
-        int i = 0;
-        while (i < json.length()) {
-            // find key
-            int keyStart = json.indexOf('"', i);
-            if (keyStart < 0) break;
-            int keyEnd = json.indexOf('"', keyStart + 1);
-            if (keyEnd < 0) break;
-            String key = json.substring(keyStart + 1, keyEnd);
-
-            // find colon
-            int colon = json.indexOf(':', keyEnd + 1);
-            if (colon < 0) break;
-
-            // find value
-            int valStart = colon + 1;
-            while (valStart < json.length() && json.charAt(valStart) == ' ') valStart++;
-
-            String value;
-            if (valStart < json.length() && json.charAt(valStart) == '"') {
-                // string value
-                int valEnd = findClosingQuote(json, valStart + 1);
-                value = json.substring(valStart + 1, valEnd);
-                // unescape
-                value = value.replace("\\\"", "\"").replace("\\\\", "\\");
-                i = valEnd + 1;
-            } else if (valStart < json.length() && json.substring(valStart).startsWith("null")) {
-                value = null;
-                i = valStart + 4;
-            } else {
-                // number or boolean
-                int valEnd = valStart;
-                while (valEnd < json.length() && json.charAt(valEnd) != ',' && json.charAt(valEnd) != '}') {
-                    valEnd++;
-                }
-                value = json.substring(valStart, valEnd).trim();
-                i = valEnd;
-            }
-
-            fields.put(key, value);
-
-            // skip comma
-            while (i < json.length() && (json.charAt(i) == ',' || json.charAt(i) == ' ')) i++;
-        }
-        return fields;
-    }
-
-    private static int findClosingQuote(String s, int from) {
-        for (int i = from; i < s.length(); i++) {
-            if (s.charAt(i) == '"' && (i == 0 || s.charAt(i - 1) != '\\')) {
-                return i;
-            }
-        }
-        return s.length();
+        return JsonUtils.parseFields(json);
     }
 
     private static Map<String, String> parseQueryParams(String query) {
@@ -369,7 +448,7 @@ public class ApiServer {
 
             boolean success = AssetRepository.getInstance().insertAsset(assetNumber, epc, assetName, department, possession);
             if (success) {
-                AssetRepository.getInstance().refreshCache();
+                AssetRepository.getInstance().syncCache();
                 sendOk(exchange, "{\"message\":\"Asset added\"}");
             } else {
                 sendError(exchange, 500, "Failed to insert asset");
@@ -405,7 +484,7 @@ public class ApiServer {
 
             boolean success = AssetRepository.getInstance().updateAsset(id, assetNumber, epc, assetName, department, possession);
             if (success) {
-                AssetRepository.getInstance().refreshCache();
+                AssetRepository.getInstance().syncCache();
                 sendOk(exchange, "{\"message\":\"Asset updated\"}");
             } else {
                 sendError(exchange, 500, "Failed to update asset (id=" + id + ")");
@@ -484,7 +563,7 @@ public class ApiServer {
 
             boolean success = AssetRepository.getInstance().insertPermission(epc, permitStart, permitEnd, reason);
             if (success) {
-                AssetRepository.getInstance().refreshCache();
+                AssetRepository.getInstance().syncCache();
                 sendOk(exchange, "{\"message\":\"Permission added\"}");
             } else {
                 sendError(exchange, 500, "Failed to insert permission");
@@ -502,7 +581,7 @@ public class ApiServer {
 
             boolean success = AssetRepository.getInstance().deletePermission(id);
             if (success) {
-                AssetRepository.getInstance().refreshCache();
+                AssetRepository.getInstance().syncCache();
                 sendOk(exchange, "{\"message\":\"Permission deleted\"}");
             } else {
                 sendError(exchange, 500, "Failed to delete permission (id=" + id + ")");
@@ -510,7 +589,7 @@ public class ApiServer {
         }
     }
 
-    /** GET /api/export-alerts?from=...&to=... */
+    /** GET /api/export-alerts?from=...&to=...[&after=시간,id][&limit=N] - 최신순 (limit 없으면 전체 스트리밍) */
     private class ExportAlertsHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -533,30 +612,28 @@ public class ApiServer {
                     return;
                 }
 
-                List<String[]> alerts = AssetRepository.getInstance().queryExportAlerts(from, to);
-                StringBuilder sb = new StringBuilder("[");
-                for (int i = 0; i < alerts.size(); i++) {
-                    if (i > 0) sb.append(",");
-                    String[] row = alerts.get(i);
-                    sb.append("{")
-                        .append("\"alertTime\":").append(toJsonString(row[0])).append(",")
-                        .append("\"readerName\":").append(toJsonString(row[1])).append(",")
-                        .append("\"epc\":").append(toJsonString(row[2])).append(",")
-                        .append("\"assetNumber\":").append(toJsonString(row[3])).append(",")
-                        .append("\"assetName\":").append(toJsonString(row[4])).append(",")
-                        .append("\"department\":").append(toJsonString(row[5])).append(",")
-                        .append("\"rssi\":").append(row[6])
-                        .append("}");
-                }
-                sb.append("]");
-                sendOk(exchange, sb.toString());
+                sendRows(exchange, params,
+                    (after, limit, handler) -> AssetRepository.getInstance().streamExportAlerts(from, to, after, limit, handler),
+                    row -> "{"
+                        + "\"alertTime\":" + toJsonString(row[0]) + ","
+                        + "\"readerName\":" + toJsonString(row[1]) + ","
+                        + "\"epc\":" + toJsonString(row[2]) + ","
+                        + "\"assetNumber\":" + toJsonString(row[3]) + ","
+                        + "\"assetName\":" + toJsonString(row[4]) + ","
+                        + "\"department\":" + toJsonString(row[5]) + ","
+                        + "\"rssi\":" + row[6] + ","
+                        + "\"id\":" + row[7]
+                        + "}",
+                    row -> row[0] + "," + row[7]);
             } catch (Exception e) {
                 sendError(exchange, 500, e.getMessage());
             }
         }
     }
 
-    /** POST /api/control/{action} - connect-all, disconnect-all, start-inventory, stop-inventory */
+    /** POST /api/control/{action} - connect-all, disconnect-all, start-inventory, stop-inventory
+     *  POST /api/control/{action}?index=N - connect, disconnect, start-inventory, stop-inventory,
+     *       light-on, light-off, buzzer-on, buzzer-off, antenna (body: antennaPower1~4), dwell (body: onTime, offTime) */
     private class ControlHandler implements HttpHandler {
         @Override
         public void handle(HttpExchange exchange) throws IOException {
@@ -576,21 +653,27 @@ public class ApiServer {
                 String action = path.length() > "/api/control/".length()
                     ? path.substring("/api/control/".length()) : "";
 
+                String indexParam = parseQueryParams(exchange.getRequestURI().getQuery()).get("index");
+                if (indexParam != null) {
+                    handleReaderControl(exchange, action, Integer.parseInt(indexParam));
+                    return;
+                }
+
                 switch (action) {
                     case "connect-all":
-                        readerManager.connectAll();
+                        engine.connectAll();
                         sendOk(exchange, "{\"message\":\"Connect all requested\"}");
                         break;
                     case "disconnect-all":
-                        readerManager.disconnectAll();
+                        engine.disconnectAll();
                         sendOk(exchange, "{\"message\":\"Disconnect all requested\"}");
                         break;
                     case "start-inventory":
-                        readerManager.startInventoryAll();
+                        engine.startInventoryAll();
                         sendOk(exchange, "{\"message\":\"Start inventory requested\"}");
                         break;
                     case "stop-inventory":
-                        readerManager.stopInventoryAll();
+                        engine.stopInventoryAll();
                         sendOk(exchange, "{\"message\":\"Stop inventory requested\"}");
                         break;
                     default:
@@ -601,6 +684,46 @@ public class ApiServer {
                 sendError(exchange, 500, e.getMessage());
             }
         }
+
+        private void handleReaderControl(HttpExchange exchange, String action, int index) throws IOException {
+            if (index < 0 || index >= readerManager.getConnections().size()) {
+                sendError(exchange, 404, "Reader index out of range: " + index);
+                return;
+            }
+            switch (action) {
+                case "connect": engine.connect(index); break;
+                case "disconnect": engine.disconnect(index); break;
+                case "start-inventory": engine.startInventory(index); break;
+                case "stop-inventory": engine.stopInventory(index); break;
+                case "light-on": engine.lightOn(index); break;
+                case "light-off": engine.lightOff(index); break;
+                case "buzzer-on": engine.buzzerOn(index); break;
+                case "buzzer-off": engine.buzzerOff(index); break;
+                case "antenna": {
+                    Map<String, String> fields = parseJsonFields(readRequestBody(exchange));
+                    int[] powers = readerManager.getConnections().get(index).getConfig().getAntennaPowers().clone();
+                    for (int i = 0; i < powers.length; i++) {
+                        String v = fields.get("antennaPower" + (i + 1));
+                        if (v != null) powers[i] = Integer.parseInt(v);
+                    }
+                    engine.setAntennaConfig(index, powers);
+                    break;
+                }
+                case "dwell": {
+                    Map<String, String> fields = parseJsonFields(readRequestBody(exchange));
+                    short onTime = Short.parseShort(fields.getOrDefault("onTime", "0"));
+                    short offTime = Short.parseShort(fields.getOrDefault("offTime", "0"));
+                    engine.setDwellTime(index, onTime, offTime);
+                    break;
+                }
+                default:
+                    sendError(exchange, 404, "Unknown reader action: " + action
+                        + " (available: connect, disconnect, start-inventory, stop-inventory,"
+                        + " light-on, light-off, buzzer-on, buzzer-off, antenna, dwell)");
+                    return;
+            }
+            sendOk(exchange, "{\"message\":\"" + escapeJson(action) + " requested\",\"index\":" + index + "}");
+        }
     }
 
     /** GET /swagger - Swagger UI (CDN-based) */
@@ -812,7 +935,9 @@ public class ApiServer {
                 + "        \"summary\": \"\\ubc18\\ucd9c\\uc54c\\ub9bc \\uc774\\ub825 \\uc870\\ud68c (\\uae30\\uac04 \\uc9c0\\uc815)\",\n"
                 + "        \"parameters\": [\n"
                 + "          {\"name\": \"from\", \"in\": \"query\", \"required\": true, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc2dc\\uc791\\uc77c\\uc2dc (yyyy-MM-dd HH:mm:ss)\", \"example\": \"2026-01-01 00:00:00\"},\n"
-                + "          {\"name\": \"to\", \"in\": \"query\", \"required\": true, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc885\\ub8cc\\uc77c\\uc2dc (yyyy-MM-dd HH:mm:ss)\", \"example\": \"2026-12-31 23:59:59\"}\n"
+                + "          {\"name\": \"to\", \"in\": \"query\", \"required\": true, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc885\\ub8cc\\uc77c\\uc2dc (yyyy-MM-dd HH:mm:ss)\", \"example\": \"2026-12-31 23:59:59\"},\n"
+                + "          {\"name\": \"after\", \"in\": \"query\", \"required\": false, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc774\\uc804 \\ud398\\uc774\\uc9c0\\uc758 next \\ucee4\\uc11c (\\uc2dc\\uac04,id)\"},\n"
+                + "          {\"name\": \"limit\", \"in\": \"query\", \"required\": false, \"schema\": {\"type\": \"integer\", \"minimum\": 1, \"maximum\": 5000}, \"description\": \"\\ud398\\uc774\\uc9c0 \\ud06c\\uae30. \\uc5c6\\uc73c\\uba74 \\uae30\\uac04 \\uc804\\uccb4\\ub97c \\uc2a4\\ud2b8\\ub9ac\\ubc0d (data \\ubc30\\uc5f4)\"}\n"
                 + "        ],\n"
                 + "        \"responses\": {\n"
                 + "          \"200\": {\"description\": \"\\uc131\\uacf5\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/SuccessResponse\"}}}},\n"
@@ -821,6 +946,105 @@ public class ApiServer {
                 + "      }\n"
                 + "    },\n"
 
+                // GET /api/tags/reads
+                + "    \"/api/tags/reads\": {\n"
+                + "      \"get\": {\n"
+                + "        \"tags\": [\"Tags\"],\n"
+                + "        \"summary\": \"\\ud0dc\\uadf8 \\uc774\\ub825 \\uc870\\ud68c (\\ucd5c\\uc2e0\\uc21c keyset \\ud398\\uc774\\uc9d5, limit \\uc5c6\\uc73c\\uba74 \\uc804\\uccb4 \\uc2a4\\ud2b8\\ub9ac\\ubc0d)\",\n"
+                + "        \"parameters\": [\n"
+                + "          {\"name\": \"from\", \"in\": \"query\", \"required\": true, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc2dc\\uc791\\uc77c\\uc2dc (yyyy-MM-dd HH:mm:ss)\"},\n"
+                + "          {\"name\": \"to\", \"in\": \"query\", \"required\": true, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc885\\ub8cc\\uc77c\\uc2dc (yyyy-MM-dd HH:mm:ss)\"},\n"
+                + "          {\"name\": \"epc\", \"in\": \"query\", \"required\": false, \"schema\": {\"type\": \"string\"}, \"description\": \"\\ud2b9\\uc815 EPC\\ub9cc \\uc870\\ud68c (16\\uc9c4\\uc218)\"},\n"
+                + "          {\"name\": \"source\", \"in\": \"query\", \"required\": false, \"schema\": {\"type\": \"string\", \"enum\": [\"auto\", \"archive\"], \"default\": \"auto\"}, \"description\": \"\\uc870\\ud68c \\ub300\\uc0c1: auto(tag_reads, \\ubcf4\\uad00 \\ud6c4 \\uc0ad\\uc81c\\ub41c \\uad6c\\uac04\\uc740 \\ubcf4\\uad00 \\ud30c\\uc77c\\uc5d0\\uc11c \\uc774\\uc5b4\\uc11c) / archive(\\ubcf4\\uad00 \\ud30c\\uc77c\\ub9cc)\"},\n"
+                + "          {\"name\": \"after\", \"in\": \"query\", \"required\": false, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc774\\uc804 \\ud398\\uc774\\uc9c0\\uc758 next \\ucee4\\uc11c (\\uc2dc\\uac04,id)\"},\n"
+                + "          {\"name\": \"limit\", \"in\": \"query\", \"required\": false, \"schema\": {\"type\": \"integer\", \"minimum\": 1, \"maximum\": 5000}, \"description\": \"\\ud398\\uc774\\uc9c0 \\ud06c\\uae30. \\uc5c6\\uc73c\\uba74 \\uae30\\uac04 \\uc804\\uccb4\\ub97c \\uc2a4\\ud2b8\\ub9ac\\ubc0d (data \\ubc30\\uc5f4)\"}\n"
+                + "        ],\n"
+                + "        \"responses\": {\n"
+                + "          \"200\": {\"description\": \"\\uc131\\uacf5\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/SuccessResponse\"}}}},\n"
+                + "          \"400\": {\"description\": \"\\ud30c\\ub77c\\ubbf8\\ud130 \\uc624\\ub958\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/ErrorResponse\"}}}},\n"
+                + "          \"503\": {\"description\": \"DB \\uc0ac\\uc6a9 \\ubd88\\uac00\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/ErrorResponse\"}}}}\n"
+                + "        }\n"
+                + "      }\n"
+                + "    },\n"
+
+                // GET /api/tags/export
+                + "    \"/api/tags/export\": {\n"
+                + "      \"get\": {\n"
+                + "        \"tags\": [\"Tags\"],\n"
+                + "        \"summary\": \"\\ud0dc\\uadf8 \\uc774\\ub825 \\ud30c\\uc77c \\ub0b4\\ubcf4\\ub0b4\\uae30 (CSV/XLSX \\uc2a4\\ud2b8\\ub9ac\\ubc0d)\",\n"
+                + "        \"parameters\": [\n"
+                + "          {\"name\": \"from\", \"in\": \"query\", \"required\": true, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc2dc\\uc791\\uc77c\\uc2dc (yyyy-MM-dd HH:mm:ss)\", \"example\": \"2026-01-01 00:00:00\"},\n"
+                + "          {\"name\": \"to\", \"in\": \"query\", \"required\": true, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc885\\ub8cc\\uc77c\\uc2dc (yyyy-MM-dd HH:mm:ss)\", \"example\": \"2026-01-31 23:59:59\"},\n"
+                + "          {\"name\": \"format\", \"in\": \"query\", \"required\": false, \"schema\": {\"type\": \"string\", \"enum\": [\"csv\", \"xlsx\"], \"default\": \"csv\"}}\n"
+                + "        ],\n"
+                + "        \"responses\": {\n"
+                + "          \"200\": {\"description\": \"\\ud30c\\uc77c \\uc2a4\\ud2b8\\ub9bc\", \"content\": {\"text/csv\": {}, \"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet\": {}}},\n"
+                + "          \"400\": {\"description\": \"\\ud30c\\ub77c\\ubbf8\\ud130 \\uc624\\ub958\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/ErrorResponse\"}}}}\n"
+                + "        }\n"
+                + "      }\n"
+                + "    },\n"
+
+                // GET /api/events
+                + "    \"/api/events\": {\n"
+                + "      \"get\": {\n"
+                + "        \"tags\": [\"Readers\"],\n"
+                + "        \"summary\": \"\\uc5d4\\uc9c4 \\uc774\\ubca4\\ud2b8 \\uc2a4\\ud2b8\\ub9bc (SSE: readers/reader/status/light/buzzer/log/tag/alert)\",\n"
+                + "        \"responses\": {\n"
+                + "          \"200\": {\"description\": \"\\uc774\\ubca4\\ud2b8 \\uc2a4\\ud2b8\\ub9bc\", \"content\": {\"text/event-stream\": {}}}\n"
+                + "        }\n"
+                + "      }\n"
+                + "    },\n"
+
+                // GET /api/stats/readers
+                + "    \"/api/stats/readers\": {\n"
+                + "      \"get\": {\n"
+                + "        \"tags\": [\"Tags\"],\n"
+                + "        \"summary\": \"\\ub9ac\\ub354\\uae30\\ubcc4 \\uc77d\\uae30 \\ud1b5\\uacc4 (\\ubd84 \\ub2e8\\uc704 \\ub864\\uc5c5: \\uc77d\\uae30 \\uc218, \\uace0\\uc720 EPC, \\uc790\\uc0b0 \\uc77d\\uae30, \\ubc18\\ucd9c \\uc54c\\ub9bc, \\ud3c9\\uade0 RSSI)\",\n"
+                + "        \"parameters\": [\n"
+                + "          {\"name\": \"from\", \"in\": \"query\", \"required\": false, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc2dc\\uc791\\uc77c\\uc2dc (yyyy-MM-dd HH:mm:ss, \\uae30\\ubcf8: \\uc624\\ub298 0\\uc2dc)\"},\n"
+                + "          {\"name\": \"to\", \"in\": \"query\", \"required\": false, \"schema\": {\"type\": \"string\"}, \"description\": \"\\uc885\\ub8cc\\uc77c\\uc2dc (yyyy-MM-dd HH:mm:ss, \\uae30\\ubcf8: \\ud604\\uc7ac)\"}\n"
+                + "        ],\n"
+                + "        \"responses\": {\n"
+                + "          \"200\": {\"description\": \"\\uc131\\uacf5\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/SuccessResponse\"}}}},\n"
+                + "          \"400\": {\"description\": \"\\ud30c\\ub77c\\ubbf8\\ud130 \\uc624\\ub958\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/ErrorResponse\"}}}}\n"
+                + "        }\n"
+                + "      }\n"
+                + "    },\n"
+
+                // GET /api/tags/last-seen
+                + "    \"/api/tags/last-seen\": {\n"
+                + "      \"get\": {\n"
+                + "        \"tags\": [\"Tags\"],\n"
+                + "        \"summary\": \"EPC\\ubcc4 \\ub9c8\\uc9c0\\ub9c9 \\uac10\\uc9c0 \\uc704\\uce58 (\\ub9ac\\ub354\\uae30, \\uc548\\ud14c\\ub098, RSSI, \\ucd5c\\ucd08/\\ucd5c\\uc885 \\uac10\\uc9c0, \\uc77d\\uae30 \\uc218)\",\n"
+                + "        \"parameters\": [\n"
+                + "          {\"name\": \"epc\", \"in\": \"query\", \"required\": true, \"schema\": {\"type\": \"string\"}, \"description\": \"\\ud0dc\\uadf8 EPC (16\\uc9c4\\uc218)\"}\n"
+                + "        ],\n"
+                + "        \"responses\": {\n"
+                + "          \"200\": {\"description\": \"\\uc131\\uacf5\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/SuccessResponse\"}}}},\n"
+                + "          \"400\": {\"description\": \"\\ud30c\\ub77c\\ubbf8\\ud130 \\uc624\\ub958\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/ErrorResponse\"}}}},\n"
+                + "          \"404\": {\"description\": \"\\uac10\\uc9c0 \\uae30\\ub85d \\uc5c6\\uc74c\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/ErrorResponse\"}}}}\n"
+                + "        }\n"
+                + "      }\n"
+                + "    },\n"
+
+                // GET/DELETE /api/metrics
+                + "    \"/api/metrics\": {\n"
+                + "      \"get\": {\n"
+                + "        \"tags\": [\"Settings\"],\n"
+                + "        \"summary\": \"\\ubc18\\ucd9c \\uc54c\\ub9bc \\ub9b4\\ub808\\uc774 \\uc9c0\\uc5f0(\\uac10\\uc9c0 \\u2192 \\uacbd\\uad11\\ub4f1 \\uba85\\ub839) \\ubc0f DB \\ucee4\\ub125\\uc158 \\ud480(\\uc4f0\\uae30/\\uc77d\\uae30) \\ud1b5\\uacc4, DB \\uc11c\\ud0b7 \\uc0c1\\ud0dc/\\ubcf4\\ub958 \\uac74\\uc218\",\n"
+                + "        \"responses\": {\n"
+                + "          \"200\": {\"description\": \"\\uc131\\uacf5\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/SuccessResponse\"}}}}\n"
+                + "        }\n"
+                + "      },\n"
+                + "      \"delete\": {\n"
+                + "        \"tags\": [\"Settings\"],\n"
+                + "        \"summary\": \"\\uc9c0\\uc5f0 \\ud1b5\\uacc4 \\ucd08\\uae30\\ud654\",\n"
+                + "        \"responses\": {\n"
+                + "          \"200\": {\"description\": \"\\uc131\\uacf5\", \"content\": {\"application/json\": {\"schema\": {\"$ref\": \"#/components/schemas/SuccessResponse\"}}}}\n"
+                + "        }\n"
+                + "      }\n"
+                + "    },\n"
+
                 // GET/PUT /api/mask
                 + "    \"/api/mask\": {\n"
                 + "      \"get\": {\n"
@@ -1022,6 +1246,61 @@ public class ApiServer {
         }
     }
 
+    /** GET /api/metrics - 반출 알림 릴레이 지연, DB 커넥션 풀 통계, DB 서킷 상태; DELETE /api/metrics - 릴레이 지연 통계 초기화 */
+    private class MetricsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                String method = exchange.getRequestMethod();
+                if ("OPTIONS".equals(method)) {
+                    sendJson(exchange, 204, "");
+                    return;
+                }
+                AlertLane lane = engine.getAlertLane();
+                if ("DELETE".equals(method)) {
+                    lane.getRelayLatency().reset();
+                    sendOk(exchange, "{\"message\":\"Reset\"}");
+                    return;
+                }
+                if (!"GET".equals(method)) {
+                    sendError(exchange, 405, "Method not allowed");
+                    return;
+                }
+
+                LatencyHistogram h = lane.getRelayLatency();
+                DatabaseManager db = DatabaseManager.getInstance();
+                String pools = db.isEnabled()
+                    ? "{\"writer\":" + db.getWriterPool().toJson() + ",\"reader\":" + db.getReaderPool().toJson() + "}"
+                    : "null";
+                String database = db.isEnabled()
+                    ? "{\"circuit\":" + db.getCircuitBreaker().toJson()
+                        + ",\"schema\":" + SchemaMigrator.getInstance().toJson()
+                        + ",\"partitions\":" + PartitionManager.getInstance().toJson()
+                        + ",\"tagReadCounts\":" + TagReadCounters.getInstance().toJson()
+                        + ",\"tagJournal\":" + TagRepository.getInstance().getJournalJson()
+                        + ",\"tagWriter\":" + TagRepository.getInstance().getWriterJson()
+                        + ",\"pendingAlerts\":" + AssetRepository.getInstance().getPendingAlertCount()
+                        + ",\"rollup\":" + RollupAggregator.getInstance().toJson()
+                        + ",\"lastSeen\":" + LastSeenRepository.getInstance().toJson()
+                        + ",\"archive\":" + TagArchiver.getInstance().toJson() + "}"
+                    : "null";
+                sendOk(exchange, "{\"alertRelay\":{"
+                    + "\"targetMs\":" + AlertLane.TARGET_LATENCY_MS
+                    + ",\"overTarget\":" + h.countAbove(AlertLane.TARGET_LATENCY_MS * 1000)
+                    + ",\"pending\":" + lane.getPendingRelays()
+                    + ",\"latency\":" + h.toJson()
+                    + "},\"dbPools\":" + pools
+                    + ",\"database\":" + database
+                    + ",\"storage\":" + StorageManager.getInstance().toJson()
+                    + ",\"assetCache\":" + AssetRepository.getInstance().toJson()
+                    + ",\"persistPolicy\":" + (engine.getStoragePolicy() != null ? engine.getStoragePolicy().toJson() : "null")
+                    + "}");
+            } catch (Exception e) {
+                sendError(exchange, 500, e.getMessage());
+            }
+        }
+    }
+
     /** GET /api/tags/recent - recent tag data; DELETE /api/tags/recent - clear */
     private class RecentTagsHandler implements HttpHandler {
         @Override
@@ -1068,6 +1347,202 @@ public class ApiServer {
         }
     }
 
+    /** GET /api/tags/export?from=...&to=...&format=csv|xlsx - tag_reads 기간 데이터 파일 다운로드 (chunked 스트리밍) */
+    private class TagExportHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                    sendJson(exchange, 204, "");
+                    return;
+                }
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    sendError(exchange, 405, "Method not allowed");
+                    return;
+                }
+                if (!StorageManager.getInstance().isAvailable()) {
+                    sendError(exchange, 503, "Database not available");
+                    return;
+                }
+
+                Map<String, String> params = parseQueryParams(exchange.getRequestURI().getQuery());
+                String from = params.get("from");
+                String to = params.get("to");
+                if (from == null || to == null) {
+                    sendError(exchange, 400, "from and to parameters are required (format: yyyy-MM-dd HH:mm:ss)");
+                    return;
+                }
+                TagExporter.Format format = TagExporter.Format.parse(params.getOrDefault("format", "csv"));
+                if (format == null) {
+                    sendError(exchange, 400, "format must be csv or xlsx");
+                    return;
+                }
+
+                String fileName = "tags_" + from.replaceAll("[^0-9]", "") + "." + format.getExtension();
+                exchange.getResponseHeaders().set("Content-Type", format.getContentType());
+                exchange.getResponseHeaders().set("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+                exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+                // 길이 0 = chunked 전송 (전체 파일을 메모리에 만들지 않고 바로 스트리밍)
+                exchange.sendResponseHeaders(200, 0);
+                try (OutputStream os = new BufferedOutputStream(exchange.getResponseBody(), 64 * 1024)) {
+                    long rows = TagExporter.export(TagExporter.fromDatabase(from, to), format, os, null);
+                    AppLogger.info("ApiServer", "Tag export " + format.getExtension() + ": " + rows + " rows");
+                } catch (Exception e) {
+                    // 헤더 전송 후라 오류 응답 불가 - 연결 종료로 클라이언트에 실패 전달
+                    AppLogger.error("ApiServer", "Tag export failed: " + e.getMessage());
+                    exchange.close();
+                }
+            } catch (Exception e) {
+                sendError(exchange, 500, e.getMessage());
+            }
+        }
+    }
+
+    /** GET /api/tags/reads?from=...&to=...[&epc=...][&source=auto|archive][&after=시간,id][&limit=N] - 태그 이력 최신순 (limit 없으면 전체 스트리밍) */
+    private class TagReadsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                    sendJson(exchange, 204, "");
+                    return;
+                }
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    sendError(exchange, 405, "Method not allowed");
+                    return;
+                }
+
+                Map<String, String> params = parseQueryParams(exchange.getRequestURI().getQuery());
+                String from = params.get("from");
+                String to = params.get("to");
+                if (from == null || to == null) {
+                    sendError(exchange, 400, "from and to parameters are required (format: yyyy-MM-dd HH:mm:ss)");
+                    return;
+                }
+
+                String epc = params.get("epc");
+                if (epc != null && !epc.matches("[0-9A-Fa-f]{1,64}")) {
+                    sendError(exchange, 400, "epc must be a hex string");
+                    return;
+                }
+                String epcFilter = epc != null ? epc.toUpperCase() : null;
+
+                String source = params.getOrDefault("source", "auto");
+                boolean archiveOnly = "archive".equals(source);
+                if (!archiveOnly && !"auto".equals(source)) {
+                    sendError(exchange, 400, "source must be auto or archive");
+                    return;
+                }
+                if (archiveOnly && !TagArchiver.getInstance().isEnabled()) {
+                    sendError(exchange, 503, "Archive not enabled (archive.enabled)");
+                    return;
+                }
+
+                // readTime은 커서와 같은 밀리초 정밀도 (row[6])
+                sendRows(exchange, params,
+                    (after, limit, handler) -> archiveOnly
+                        ? TagArchiver.getInstance().streamTagReadsPage(from, to, epcFilter, after, limit, handler)
+                        : TagRepository.getInstance().streamTagReadsPage(from, to, epcFilter, after, limit, handler),
+                    row -> "{"
+                        + "\"readTime\":" + toJsonString(row[6]) + ","
+                        + "\"readerName\":" + toJsonString(row[1]) + ","
+                        + "\"epc\":" + toJsonString(row[2]) + ","
+                        + "\"rssi\":" + row[3] + ","
+                        + "\"antenna\":" + row[4] + ","
+                        + "\"id\":" + row[5]
+                        + "}",
+                    row -> row[6] + "," + row[5],
+                    !archiveOnly);
+            } catch (Exception e) {
+                sendError(exchange, 500, e.getMessage());
+            }
+        }
+    }
+
+    /** GET /api/tags/last-seen?epc=... - EPC의 마지막 감지 위치 (tag_last_seen + 아직 기록 전인 읽기) */
+    private class LastSeenHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                    sendJson(exchange, 204, "");
+                    return;
+                }
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    sendError(exchange, 405, "Method not allowed");
+                    return;
+                }
+
+                Map<String, String> params = parseQueryParams(exchange.getRequestURI().getQuery());
+                String epc = params.get("epc");
+                if (epc == null || epc.isEmpty()) {
+                    sendError(exchange, 400, "Missing epc parameter");
+                    return;
+                }
+                String json = LastSeenRepository.getInstance().getLastSeenJson(epc.toUpperCase());
+                if (json == null) {
+                    sendError(exchange, 404, "EPC not seen: " + epc);
+                    return;
+                }
+                sendOk(exchange, json);
+            } catch (Exception e) {
+                sendError(exchange, 500, e.getMessage());
+            }
+        }
+    }
+
+    /** GET /api/stats/readers?from=...&to=... - 리더기별 읽기 통계 (분 단위 롤업 합산, 기본: 오늘 0시 ~ 현재) */
+    private class ReaderStatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if ("OPTIONS".equals(exchange.getRequestMethod())) {
+                    sendJson(exchange, 204, "");
+                    return;
+                }
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    sendError(exchange, 405, "Method not allowed");
+                    return;
+                }
+
+                Map<String, String> params = parseQueryParams(exchange.getRequestURI().getQuery());
+                DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+                LocalDateTime from;
+                LocalDateTime to;
+                try {
+                    from = params.containsKey("from")
+                        ? LocalDateTime.parse(params.get("from"), fmt) : LocalDate.now().atStartOfDay();
+                    to = params.containsKey("to") ? LocalDateTime.parse(params.get("to"), fmt) : LocalDateTime.now();
+                } catch (DateTimeParseException e) {
+                    sendError(exchange, 400, "from/to format: yyyy-MM-dd HH:mm:ss");
+                    return;
+                }
+
+                Map<String, long[]> totals = RollupAggregator.getInstance().getReaderTotals(from, to);
+                StringBuilder sb = new StringBuilder("{\"from\":").append(toJsonString(fmt.format(from)))
+                    .append(",\"to\":").append(toJsonString(fmt.format(to)))
+                    .append(",\"readers\":[");
+                boolean first = true;
+                for (Map.Entry<String, long[]> e : totals.entrySet()) {
+                    long[] t = e.getValue();
+                    if (!first) sb.append(",");
+                    first = false;
+                    sb.append("{\"readerName\":").append(toJsonString(e.getKey()))
+                        .append(",\"reads\":").append(t[0])
+                        .append(",\"uniqueEpcs\":").append(t[1])
+                        .append(",\"assetReads\":").append(t[2])
+                        .append(",\"alerts\":").append(t[3])
+                        .append(",\"avgRssi\":").append(t[0] > 0 ? String.format(Locale.ROOT, "%.1f", (double) t[4] / t[0]) : "null")
+                        .append("}");
+                }
+                sb.append("]}");
+                sendOk(exchange, sb.toString());
+            } catch (Exception e) {
+                sendError(exchange, 500, e.getMessage());
+            }
+        }
+    }
+
     /** POST /api/reader-finder/discover - discover readers on network
      *  GET  /api/reader-finder/config/{mac} - get reader network config
      *  PUT  /api/reader-finder/config/{mac} - set reader IP/subnet/gateway
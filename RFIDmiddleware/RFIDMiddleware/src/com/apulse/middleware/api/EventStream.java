@@ -0,0 +1,227 @@
+package com.apulse.middleware.api;
+
+import com.apulse.middleware.config.ReaderConfig;
+import com.apulse.middleware.engine.EngineListener;
+import com.apulse.middleware.engine.MiddlewareEngine;
+import com.apulse.middleware.engine.TagEvent;
+import com.apulse.middleware.reader.ReaderConnection;
+import com.apulse.middleware.reader.ReaderStatus;
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.JsonUtils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GET /api/events - 엔진 이벤트 push 채널 (Server-Sent Events).
+ * 원격 콘솔은 접속 시 리더기 스냅샷(readers/reader)을 받고 이후 status/light/buzzer/log/tag/alert 이벤트를 수신한다.
+ * 각 클라이언트는 전용 송신 스레드와 제한된 큐를 가지며, 큐가 넘치는 느린 클라이언트는 끊어
+ * 엔진 콜백 스레드와 HTTP 작업 스레드가 소켓 쓰기에 묶이지 않도록 한다.
+ */
+class EventStream implements HttpHandler, EngineListener {
+    private static final int CLIENT_QUEUE_SIZE = 10000;
+    private static final long HEARTBEAT_SEC = 15;
+
+    private final MiddlewareEngine engine;
+    private final List<Client> clients = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "SSE-Heartbeat");
+        t.setDaemon(true);
+        return t;
+    });
+
+    EventStream(MiddlewareEngine engine) {
+        this.engine = engine;
+        heartbeat.scheduleAtFixedRate(() -> {
+            for (Client c : clients) c.offer(": ping\n\n");
+        }, HEARTBEAT_SEC, HEARTBEAT_SEC, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream; charset=UTF-8");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.getResponseHeaders().set("Access-Control-Allow-Origin", "*");
+        exchange.sendResponseHeaders(200, 0);
+
+        // 핸들러 스레드는 바로 반환하고 응답 스트림은 클라이언트 전용 스레드가 계속 사용
+        Client client = new Client(exchange);
+        client.offer(readersSnapshot());
+        clients.add(client);
+        client.start();
+        AppLogger.info("EventStream", "Client connected: " + exchange.getRemoteAddress()
+            + " (total " + clients.size() + ")");
+    }
+
+    /** 접속 직후 전송하는 리더기 목록 + 현재 상태 */
+    private String readersSnapshot() {
+        List<ReaderConnection> connections = engine.getReaderManager().getConnections();
+        StringBuilder sb = new StringBuilder();
+        sb.append(event("readers", "{\"count\":" + connections.size() + "}"));
+        for (int i = 0; i < connections.size(); i++) {
+            ReaderConnection conn = connections.get(i);
+            sb.append(event("reader", readerJson(i, conn.getConfig(), conn.getStatus())));
+        }
+        return sb.toString();
+    }
+
+    private static String readerJson(int index, ReaderConfig cfg, ReaderStatus status) {
+        int[] powers = cfg.getAntennaPowers();
+        return "{\"index\":" + index
+            + ",\"name\":" + JsonUtils.toJsonString(cfg.getName())
+            + ",\"ip\":" + JsonUtils.toJsonString(cfg.getIp())
+            + ",\"port\":" + cfg.getPort()
+            + ",\"buzzer\":" + cfg.isBuzzerEnabled()
+            + ",\"warningLight\":" + cfg.isWarningLightEnabled()
+            + ",\"beepEnabled\":" + cfg.isBeepEnabled()
+            + ",\"dwellTime\":" + cfg.getDwellTime()
+            + ",\"antennaPower1\":" + powers[0]
+            + ",\"antennaPower2\":" + powers[1]
+            + ",\"antennaPower3\":" + powers[2]
+            + ",\"antennaPower4\":" + powers[3]
+            + ",\"status\":" + JsonUtils.toJsonString(status.name())
+            + "}";
+    }
+
+    private static String tagJson(TagEvent e) {
+        return "{\"time\":" + JsonUtils.toJsonString(e.time)
+            + ",\"readerName\":" + JsonUtils.toJsonString(e.readerName)
+            + ",\"epc\":" + JsonUtils.toJsonString(e.epc)
+            + ",\"rssi\":" + e.rssi
+            + ",\"antenna\":" + e.antenna
+            + ",\"assetNumber\":" + JsonUtils.toJsonString(e.assetNumber)
+            + ",\"assetName\":" + JsonUtils.toJsonString(e.assetName)
+            + ",\"department\":" + JsonUtils.toJsonString(e.department)
+            + ",\"status\":" + JsonUtils.toJsonString(e.status)
+            + ",\"isNew\":" + e.isNew
+            + "}";
+    }
+
+    private static String event(String name, String json) {
+        return "event: " + name + "\ndata: " + json + "\n\n";
+    }
+
+    private void broadcast(String name, String json) {
+        if (clients.isEmpty()) return;
+        String msg = event(name, json);
+        for (Client c : clients) c.offer(msg);
+    }
+
+    // --- EngineListener ---
+
+    @Override
+    public void onReadersReloaded(List<ReaderConfig> configs) {
+        if (clients.isEmpty()) return;
+        String msg = readersSnapshot();
+        for (Client c : clients) c.offer(msg);
+    }
+
+    @Override
+    public void onReaderStatus(int index, ReaderStatus status, boolean beepEnabled) {
+        broadcast("status", "{\"index\":" + index + ",\"status\":" + JsonUtils.toJsonString(status.name())
+            + ",\"beepEnabled\":" + beepEnabled + "}");
+    }
+
+    @Override
+    public void onLightChanged(int index, boolean lightOn) {
+        broadcast("light", "{\"index\":" + index + ",\"on\":" + lightOn + "}");
+    }
+
+    @Override
+    public void onBuzzerChanged(int index, boolean buzzerOn) {
+        broadcast("buzzer", "{\"index\":" + index + ",\"on\":" + buzzerOn + "}");
+    }
+
+    @Override
+    public void onLog(String source, String message) {
+        broadcast("log", "{\"source\":" + JsonUtils.toJsonString(source)
+            + ",\"message\":" + JsonUtils.toJsonString(message) + "}");
+    }
+
+    @Override
+    public void onTag(TagEvent event) {
+        broadcast("tag", tagJson(event));
+    }
+
+    @Override
+    public void onAlert(TagEvent event) {
+        broadcast("alert", tagJson(event));
+    }
+
+    void shutdown() {
+        heartbeat.shutdownNow();
+        for (Client c : clients) c.close();
+        clients.clear();
+    }
+
+    /** SSE 클라이언트 1개 (전용 송신 스레드) */
+    private class Client implements Runnable {
+        private final HttpExchange exchange;
+        private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(CLIENT_QUEUE_SIZE);
+        private final Thread thread;
+        private volatile boolean open = true;
+
+        Client(HttpExchange exchange) {
+            this.exchange = exchange;
+            this.thread = new Thread(this, "SSE-" + exchange.getRemoteAddress());
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        void offer(String msg) {
+            if (open && !queue.offer(msg)) {
+                AppLogger.warn("EventStream", "Slow client dropped: " + exchange.getRemoteAddress());
+                close();
+            }
+        }
+
+        @Override
+        public void run() {
+            try (OutputStream os = exchange.getResponseBody()) {
+                while (open) {
+                    String msg = queue.poll(1, TimeUnit.SECONDS);
+                    if (msg == null) continue;
+                    os.write(msg.getBytes(StandardCharsets.UTF_8));
+                    // 큐에 쌓인 이벤트는 한 번에 보내고 flush
+                    String next;
+                    while ((next = queue.poll()) != null) {
+                        os.write(next.getBytes(StandardCharsets.UTF_8));
+                    }
+                    os.flush();
+                }
+            } catch (IOException e) {
+                AppLogger.info("EventStream", "Client disconnected: " + exchange.getRemoteAddress());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                open = false;
+                clients.remove(this);
+                exchange.close();
+            }
+        }
+
+        void close() {
+            open = false;
+            thread.interrupt();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.apulse.middleware.config;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Properties;
+
+public class AppConfig {
+    private static final String CONFIG_FILE = "config" + File.separator + "app.cfg";
+
+    // 반출 알림 패널: 화면에 유지하는 최대 행 수, 같은 EPC 재알림을 한 행으로 합치는 시간(초)
+    private int alertMaxRows = 500;
+    private int alertAggregateSeconds = 60;
+
+    public AppConfig() {
+        load();
+    }
+
+    private void load() {
+        File file = new File(CONFIG_FILE);
+        if (!file.exists()) {
+            System.out.println("[AppConfig] Config file not found: " + CONFIG_FILE + " (using defaults)");
+            return;
+        }
+
+        Properties props = new Properties();
+        try (FileInputStream fis = new FileInputStream(file)) {
+            props.load(fis);
+            alertMaxRows = Integer.parseInt(props.getProperty("ui.alert.max.rows", String.valueOf(alertMaxRows)).trim());
+            alertAggregateSeconds = Integer.parseInt(props.getProperty("ui.alert.aggregate.seconds", String.valueOf(alertAggregateSeconds)).trim());
+            System.out.println("[AppConfig] Loaded from " + CONFIG_FILE);
+        } catch (Exception e) {
+            System.out.println("[AppConfig] Error loading config: " + e.getMessage() + " (using defaults)");
+        }
+    }
+
+    public int getAlertMaxRows() { return alertMaxRows; }
+    public int getAlertAggregateSeconds() { return alertAggregateSeconds; }
+}
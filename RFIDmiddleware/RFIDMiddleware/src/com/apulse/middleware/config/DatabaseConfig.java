@@ -4,7 +4,9 @@ import com.apulse.middleware.util.AppLogger;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
 
 public class DatabaseConfig {
     private static final String CONFIG_FILE = "config" + File.separator + "database.cfg";
@@ -16,6 +18,68 @@ public class DatabaseConfig {
     private String password = "rfid1234";
     private int cacheTtlSeconds = 30;
     private int cacheMaxSize = 10000;
+    // 커넥션 풀 (쓰기: 태그 배치/알림 기록, 읽기: 캐시 갱신/API/GUI 조회)
+    private int writerPoolMin = 1;
+    private int writerPoolMax = 3;
+    private int readerPoolMin = 1;
+    private int readerPoolMax = 6;
+    private int poolBorrowTimeoutMs = 3000;
+    private int poolValidationIntervalSeconds = 30;
+    private int poolIdleTimeoutSeconds = 300;
+    private int poolLeakThresholdSeconds = 60;
+    // 장애 대응 (드라이버 접속 타임아웃, 서킷 브레이커)
+    private int connectTimeoutMs = 3000;
+    private int breakerFailureThreshold = 3;
+    private int breakerRetryInitialMs = 1000;
+    private int breakerRetryMaxMs = 30000;
+    // 태그 기록 선행 저널 (DB 장애 중 디스크에 보관)
+    private String journalDir = "journal";
+    private int journalSegmentMb = 16;
+    private int journalMaxSegments = 64;
+    // 태그 이력 writer (bulk: 다중 행 INSERT, batch: JDBC 배치) - 배치는 행 수/바이트/지연 중 먼저 닿는 한도로 자름
+    private String writerMode = "bulk";
+    private int writerBatchMaxRows = 2000;
+    private int writerBatchMaxBytes = 262144;
+    private int writerBatchMaxDelayMs = 200;
+    // 배치 크기 적응 제어 (minRows~maxRows, 커밋 지연 목표)
+    private boolean writerAdaptive = true;
+    private int writerBatchMinRows = 50;
+    private int writerCommitTargetMs = 100;
+    // 병렬 writer 샤드 수와 분배 기준 (reader: 리더기 이름, epc: EPC 해시)
+    private int writerShards = 1;
+    private String writerPartition = "reader";
+    // tag_reads 기간 파티션 (day/week), 미리 만들 파티션 수, 보존 기간(일, 0이면 삭제 안 함), 점검 주기(분)
+    private String partitionGranularity = "day";
+    private int partitionPrecreate = 7;
+    private int partitionRetentionDays = 0;
+    private int partitionMaintenanceMinutes = 60;
+    // 분 단위 읽기 통계 롤업 보존 기간 (일, 시/일 롤업은 유지)
+    private int rollupMinuteRetentionDays = 7;
+    // EPC별 마지막 감지 위치(tag_last_seen) 일괄 upsert 주기 (ms)
+    private int lastSeenFlushMs = 5000;
+    // 저장소 백엔드 (mariadb / embedded) 와 내장 저장소 디렉토리, 세그먼트 크기(MB), 디스크 반영 주기(ms), 보존 기간(일)
+    private String storageBackend = "mariadb";
+    private String embeddedStorageDir = "data";
+    private int embeddedSegmentMb = 64;
+    private int embeddedSyncMs = 1000;
+    private int embeddedRetentionDays = 0;
+    // 오래된 tag_reads 하루 단위 열 지향 파일 보관 (디렉토리, 끝난 뒤 지나야 하는 일수, 실행 주기(분), 블록 행 수)
+    private boolean archiveEnabled = false;
+    private String archiveDir = "archive";
+    private int archiveMinAgeDays = 1;
+    private int archiveIntervalMinutes = 60;
+    private int archiveBlockRows = 50000;
+    // 자산/반출허용 캐시 동기화 주기(초)와 전체 재적재 주기(분)
+    private int assetSyncSeconds = 30;
+    private int assetFullSyncMinutes = 10;
+    // 자산/반출허용 캐시 로컬 스냅샷 디렉토리 (빈 값이면 사용 안 함)
+    private String assetSnapshotDir = "cache";
+    // 증분 동기화 후 스냅샷 파일을 다시 기록하는 최소 간격(초)
+    private int assetSnapshotPersistSeconds = 60;
+    // 자산 색인을 스냅샷 파일 매핑(오프힙)으로만 조회
+    private boolean assetIndexOffHeap = false;
+    // 리더기/구역별 태그 이력 저장 정책 (persist. 접두어를 뺀 키 → 값, StoragePolicyEngine 참고)
+    private final Map<String, String> persistPolicies = new TreeMap<>();
 
     public DatabaseConfig() {
         load();
@@ -38,6 +102,56 @@ public class DatabaseConfig {
             password = props.getProperty("db.password", password);
             cacheTtlSeconds = Integer.parseInt(props.getProperty("cache.ttl.seconds", String.valueOf(cacheTtlSeconds)));
             cacheMaxSize = Integer.parseInt(props.getProperty("cache.max.size", String.valueOf(cacheMaxSize)));
+            writerPoolMin = Integer.parseInt(props.getProperty("pool.writer.min", String.valueOf(writerPoolMin)));
+            writerPoolMax = Integer.parseInt(props.getProperty("pool.writer.max", String.valueOf(writerPoolMax)));
+            readerPoolMin = Integer.parseInt(props.getProperty("pool.reader.min", String.valueOf(readerPoolMin)));
+            readerPoolMax = Integer.parseInt(props.getProperty("pool.reader.max", String.valueOf(readerPoolMax)));
+            poolBorrowTimeoutMs = Integer.parseInt(props.getProperty("pool.borrow.timeout.ms", String.valueOf(poolBorrowTimeoutMs)));
+            poolValidationIntervalSeconds = Integer.parseInt(props.getProperty("pool.validation.interval.seconds", String.valueOf(poolValidationIntervalSeconds)));
+            poolIdleTimeoutSeconds = Integer.parseInt(props.getProperty("pool.idle.timeout.seconds", String.valueOf(poolIdleTimeoutSeconds)));
+            poolLeakThresholdSeconds = Integer.parseInt(props.getProperty("pool.leak.threshold.seconds", String.valueOf(poolLeakThresholdSeconds)));
+            connectTimeoutMs = Integer.parseInt(props.getProperty("db.connect.timeout.ms", String.valueOf(connectTimeoutMs)));
+            breakerFailureThreshold = Integer.parseInt(props.getProperty("breaker.failure.threshold", String.valueOf(breakerFailureThreshold)));
+            breakerRetryInitialMs = Integer.parseInt(props.getProperty("breaker.retry.initial.ms", String.valueOf(breakerRetryInitialMs)));
+            breakerRetryMaxMs = Integer.parseInt(props.getProperty("breaker.retry.max.ms", String.valueOf(breakerRetryMaxMs)));
+            journalDir = props.getProperty("journal.dir", journalDir);
+            journalSegmentMb = Integer.parseInt(props.getProperty("journal.segment.mb", String.valueOf(journalSegmentMb)));
+            journalMaxSegments = Integer.parseInt(props.getProperty("journal.max.segments", String.valueOf(journalMaxSegments)));
+            writerMode = props.getProperty("writer.mode", writerMode);
+            writerBatchMaxRows = Integer.parseInt(props.getProperty("writer.batch.max.rows", String.valueOf(writerBatchMaxRows)));
+            writerBatchMaxBytes = Integer.parseInt(props.getProperty("writer.batch.max.bytes", String.valueOf(writerBatchMaxBytes)));
+            writerBatchMaxDelayMs = Integer.parseInt(props.getProperty("writer.batch.max.delay.ms", String.valueOf(writerBatchMaxDelayMs)));
+            writerAdaptive = Boolean.parseBoolean(props.getProperty("writer.adaptive", String.valueOf(writerAdaptive)));
+            writerBatchMinRows = Integer.parseInt(props.getProperty("writer.batch.min.rows", String.valueOf(writerBatchMinRows)));
+            writerCommitTargetMs = Integer.parseInt(props.getProperty("writer.commit.target.ms", String.valueOf(writerCommitTargetMs)));
+            writerShards = Integer.parseInt(props.getProperty("writer.shards", String.valueOf(writerShards)));
+            writerPartition = props.getProperty("writer.partition", writerPartition);
+            partitionGranularity = props.getProperty("partition.granularity", partitionGranularity);
+            partitionPrecreate = Integer.parseInt(props.getProperty("partition.precreate", String.valueOf(partitionPrecreate)));
+            partitionRetentionDays = Integer.parseInt(props.getProperty("partition.retention.days", String.valueOf(partitionRetentionDays)));
+            partitionMaintenanceMinutes = Integer.parseInt(props.getProperty("partition.maintenance.minutes", String.valueOf(partitionMaintenanceMinutes)));
+            rollupMinuteRetentionDays = Integer.parseInt(props.getProperty("rollup.minute.retention.days", String.valueOf(rollupMinuteRetentionDays)));
+            lastSeenFlushMs = Integer.parseInt(props.getProperty("lastseen.flush.ms", String.valueOf(lastSeenFlushMs)));
+            storageBackend = props.getProperty("storage.backend", storageBackend).trim();
+            embeddedStorageDir = props.getProperty("storage.embedded.dir", embeddedStorageDir);
+            embeddedSegmentMb = Integer.parseInt(props.getProperty("storage.embedded.segment.mb", String.valueOf(embeddedSegmentMb)));
+            embeddedSyncMs = Integer.parseInt(props.getProperty("storage.embedded.sync.ms", String.valueOf(embeddedSyncMs)));
+            embeddedRetentionDays = Integer.parseInt(props.getProperty("storage.embedded.retention.days", String.valueOf(embeddedRetentionDays)));
+            archiveEnabled = Boolean.parseBoolean(props.getProperty("archive.enabled", String.valueOf(archiveEnabled)));
+            archiveDir = props.getProperty("archive.dir", archiveDir);
+            archiveMinAgeDays = Integer.parseInt(props.getProperty("archive.min.age.days", String.valueOf(archiveMinAgeDays)));
+            archiveIntervalMinutes = Integer.parseInt(props.getProperty("archive.interval.minutes", String.valueOf(archiveIntervalMinutes)));
+            archiveBlockRows = Integer.parseInt(props.getProperty("archive.block.rows", String.valueOf(archiveBlockRows)));
+            assetSyncSeconds = Integer.parseInt(props.getProperty("asset.sync.seconds", String.valueOf(assetSyncSeconds)));
+            assetFullSyncMinutes = Integer.parseInt(props.getProperty("asset.full.sync.minutes", String.valueOf(assetFullSyncMinutes)));
+            assetSnapshotDir = props.getProperty("asset.snapshot.dir", assetSnapshotDir).trim();
+            assetSnapshotPersistSeconds = Integer.parseInt(props.getProperty("asset.snapshot.persist.seconds", String.valueOf(assetSnapshotPersistSeconds)));
+            assetIndexOffHeap = Boolean.parseBoolean(props.getProperty("asset.index.offheap", String.valueOf(assetIndexOffHeap)));
+            for (String key : props.stringPropertyNames()) {
+                if (key.startsWith("persist.")) {
+                    persistPolicies.put(key.substring("persist.".length()), props.getProperty(key).trim());
+                }
+            }
             AppLogger.info("DatabaseConfig", "Loaded from " + CONFIG_FILE);
         } catch (Exception e) {
             AppLogger.error("DatabaseConfig", "Error loading config: " + e.getMessage() + " (using defaults)");
@@ -51,8 +165,54 @@ public class DatabaseConfig {
     public String getPassword() { return password; }
     public int getCacheTtlSeconds() { return cacheTtlSeconds; }
     public int getCacheMaxSize() { return cacheMaxSize; }
+    public int getWriterPoolMin() { return writerPoolMin; }
+    public int getWriterPoolMax() { return writerPoolMax; }
+    public int getReaderPoolMin() { return readerPoolMin; }
+    public int getReaderPoolMax() { return readerPoolMax; }
+    public int getPoolBorrowTimeoutMs() { return poolBorrowTimeoutMs; }
+    public int getPoolValidationIntervalSeconds() { return poolValidationIntervalSeconds; }
+    public int getPoolIdleTimeoutSeconds() { return poolIdleTimeoutSeconds; }
+    public int getPoolLeakThresholdSeconds() { return poolLeakThresholdSeconds; }
+    public int getConnectTimeoutMs() { return connectTimeoutMs; }
+    public int getBreakerFailureThreshold() { return breakerFailureThreshold; }
+    public int getBreakerRetryInitialMs() { return breakerRetryInitialMs; }
+    public int getBreakerRetryMaxMs() { return breakerRetryMaxMs; }
+    public String getJournalDir() { return journalDir; }
+    public int getJournalSegmentMb() { return journalSegmentMb; }
+    public int getJournalMaxSegments() { return journalMaxSegments; }
+    public String getWriterMode() { return writerMode; }
+    public int getWriterBatchMaxRows() { return writerBatchMaxRows; }
+    public int getWriterBatchMaxBytes() { return writerBatchMaxBytes; }
+    public int getWriterBatchMaxDelayMs() { return writerBatchMaxDelayMs; }
+    public boolean isWriterAdaptive() { return writerAdaptive; }
+    public int getWriterBatchMinRows() { return writerBatchMinRows; }
+    public int getWriterCommitTargetMs() { return writerCommitTargetMs; }
+    public int getWriterShards() { return writerShards; }
+    public String getWriterPartition() { return writerPartition; }
+    public String getPartitionGranularity() { return partitionGranularity; }
+    public int getPartitionPrecreate() { return partitionPrecreate; }
+    public int getPartitionRetentionDays() { return partitionRetentionDays; }
+    public int getPartitionMaintenanceMinutes() { return partitionMaintenanceMinutes; }
+    public int getRollupMinuteRetentionDays() { return rollupMinuteRetentionDays; }
+    public int getLastSeenFlushMs() { return lastSeenFlushMs; }
+    public String getStorageBackend() { return storageBackend; }
+    public String getEmbeddedStorageDir() { return embeddedStorageDir; }
+    public int getEmbeddedSegmentMb() { return embeddedSegmentMb; }
+    public int getEmbeddedSyncMs() { return embeddedSyncMs; }
+    public int getEmbeddedRetentionDays() { return embeddedRetentionDays; }
+    public boolean isArchiveEnabled() { return archiveEnabled; }
+    public String getArchiveDir() { return archiveDir; }
+    public int getArchiveMinAgeDays() { return archiveMinAgeDays; }
+    public int getArchiveIntervalMinutes() { return archiveIntervalMinutes; }
+    public int getArchiveBlockRows() { return archiveBlockRows; }
+    public int getAssetSyncSeconds() { return assetSyncSeconds; }
+    public int getAssetFullSyncMinutes() { return assetFullSyncMinutes; }
+    public String getAssetSnapshotDir() { return assetSnapshotDir; }
+    public int getAssetSnapshotPersistSeconds() { return assetSnapshotPersistSeconds; }
+    public boolean isAssetIndexOffHeap() { return assetIndexOffHeap; }
+    public Map<String, String> getPersistPolicies() { return persistPolicies; }
 
     public String getJdbcUrl() {
-        return "jdbc:mariadb://" + host + ":" + port + "/" + dbName;
+        return "jdbc:mariadb://" + host + ":" + port + "/" + dbName + "?connectTimeout=" + connectTimeoutMs;
     }
 }
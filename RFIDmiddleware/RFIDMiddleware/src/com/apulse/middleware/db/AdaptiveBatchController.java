@@ -0,0 +1,131 @@
+package com.apulse.middleware.db;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 태그 writer 배치 크기/대기시간 적응 제어 (writer 스레드 전용, 조회만 다른 스레드).
+ * - 커밋 지연이 목표를 넘거나 행당 비용이 급증하면 배치를 절반으로 줄인다.
+ * - 저널 backlog가 한 배치보다 많으면 1.5배, 행당 비용이 줄어들면 1/8씩 키운다.
+ * - 유입이 적어 대기해도 더 모일 것이 없으면 즉시 기록하고, 그렇지 않으면 목표 행 수가 모일
+ *   예상 시간만큼(최대 maxDelayMs) 기다린다.
+ * 배치 크기는 [minRows, maxRows] 범위를 벗어나지 않는다.
+ */
+public class AdaptiveBatchController {
+    /** EWMA 가중치 */
+    private static final double ALPHA = 0.2;
+
+    private final boolean enabled;
+    private final int minRows;
+    private final int maxRows;
+    private final long maxDelayMs;
+    private final long targetCommitMs;
+
+    private volatile int targetRows;
+    private volatile long lingerMs;
+    private volatile double perRowUs = 0;
+    private volatile double arrivalPerSec = 0;
+    private volatile String lastDecision = "init";
+    private volatile long grows = 0;
+    private volatile long shrinks = 0;
+    private volatile long holds = 0;
+
+    private long lastAppended = -1;
+    private long lastSampleNanos = System.nanoTime();
+
+    public AdaptiveBatchController(boolean enabled, int minRows, int maxRows, long maxDelayMs, long targetCommitMs) {
+        this.enabled = enabled;
+        this.maxRows = Math.max(1, maxRows);
+        this.minRows = Math.max(1, Math.min(minRows, this.maxRows));
+        this.maxDelayMs = Math.max(0, maxDelayMs);
+        this.targetCommitMs = Math.max(1, targetCommitMs);
+        this.targetRows = enabled ? this.minRows : this.maxRows;
+        this.lingerMs = enabled ? 0 : this.maxDelayMs;
+    }
+
+    /** 이번 배치 목표 행 수 */
+    public int getTargetRows() {
+        return targetRows;
+    }
+
+    /** 첫 레코드 이후 추가 유입을 기다릴 시간 (0이면 즉시 기록) */
+    public long getLingerMs() {
+        return lingerMs;
+    }
+
+    /**
+     * 저널 누적 추가 건수로 유입률을 갱신하고 대기시간을 다시 계산 (배치를 채우기 전에 호출).
+     */
+    public void sampleArrivals(long appendedTotal) {
+        long now = System.nanoTime();
+        if (lastAppended >= 0) {
+            long elapsed = now - lastSampleNanos;
+            if (elapsed <= 0) return;
+            double rate = (appendedTotal - lastAppended) * 1e9 / elapsed;
+            arrivalPerSec = arrivalPerSec == 0 ? rate : arrivalPerSec + ALPHA * (rate - arrivalPerSec);
+        }
+        lastAppended = appendedTotal;
+        lastSampleNanos = now;
+        if (!enabled) return;
+
+        // maxDelay 동안 2건도 안 들어올 유입이면 기다리지 않음
+        double expected = arrivalPerSec * maxDelayMs / 1000.0;
+        if (expected < 2) {
+            lingerMs = 0;
+        } else {
+            long fillMs = (long) Math.ceil(targetRows * 1000.0 / arrivalPerSec);
+            lingerMs = Math.min(maxDelayMs, fillMs);
+        }
+    }
+
+    /**
+     * 커밋 결과 반영.
+     * @param rows 기록한 행 수
+     * @param commitNanos 배치 기록 소요 시간
+     * @param backlogRows 커밋 후 저널에 남은 (추정) 행 수
+     */
+    public void onCommit(int rows, long commitNanos, long backlogRows) {
+        if (rows <= 0) return;
+        double rowUs = commitNanos / 1000.0 / rows;
+        double prev = perRowUs;
+        perRowUs = prev == 0 ? rowUs : prev + ALPHA * (rowUs - prev);
+        if (!enabled) return;
+
+        long commitMs = TimeUnit.NANOSECONDS.toMillis(commitNanos);
+        int current = targetRows;
+        if (commitMs > targetCommitMs || (prev > 0 && rowUs > prev * 1.5 && rows >= current / 2)) {
+            targetRows = Math.max(minRows, current / 2);
+            lastDecision = commitMs > targetCommitMs ? "shrink:latency" : "shrink:perRowCost";
+            shrinks++;
+        } else if (backlogRows > current) {
+            targetRows = Math.min(maxRows, Math.max(current + 1, current * 3 / 2));
+            lastDecision = "grow:backlog";
+            grows++;
+        } else if (prev > 0 && rowUs < prev * 0.9 && rows >= current) {
+            targetRows = Math.min(maxRows, current + Math.max(1, current / 8));
+            lastDecision = "grow:efficiency";
+            grows++;
+        } else {
+            lastDecision = "hold";
+            holds++;
+        }
+    }
+
+    /** 제어 상태 JSON (/api/metrics) */
+    public String toJson() {
+        return "{\"enabled\":" + enabled
+            + ",\"targetRows\":" + targetRows
+            + ",\"minRows\":" + minRows
+            + ",\"maxRows\":" + maxRows
+            + ",\"lingerMs\":" + lingerMs
+            + ",\"maxDelayMs\":" + maxDelayMs
+            + ",\"targetCommitMs\":" + targetCommitMs
+            + ",\"perRowUs\":" + String.format(Locale.ROOT, "%.2f", perRowUs)
+            + ",\"arrivalPerSec\":" + String.format(Locale.ROOT, "%.1f", arrivalPerSec)
+            + ",\"lastDecision\":\"" + lastDecision + "\""
+            + ",\"grows\":" + grows
+            + ",\"shrinks\":" + shrinks
+            + ",\"holds\":" + holds
+            + "}";
+    }
+}
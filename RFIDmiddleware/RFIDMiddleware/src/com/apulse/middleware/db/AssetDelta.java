@@ -0,0 +1,33 @@
+package com.apulse.middleware.db;
+
+import java.sql.Timestamp;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 자산/반출허용 캐시 증분 동기화 결과 (StorageBackend.loadAssetDelta).
+ * EPC는 저장된 그대로이며 정규화는 AssetRepository가 수행한다.
+ */
+public final class AssetDelta {
+    /** 다음 동기화의 기준 변경 로그 seq */
+    public final long seq;
+    /** 조회 시점의 DB 시각 (다음 동기화 때 늦게 커밋된 변경을 다시 읽는 기준) */
+    public final Timestamp dbTime;
+    /** 변경된 자산 EPC → 현재 자산 (삭제/EPC 변경으로 없어졌으면 null) */
+    public final Map<String, AssetRepository.AssetInfo> assets = new HashMap<>();
+    /**
+     * 반출허용이 바뀐 EPC(정규화 후 같은 키가 되는 다른 EPC 포함) → 종료가 지나지 않은 기간 전체
+     * (모두 삭제되었으면 빈 목록). 캐시는 정규화 키 단위로 통째로 교체하므로 같은 키의 EPC를 모두 담는다.
+     */
+    public final Map<String, List<AssetRepository.PermitWindow>> permissions = new HashMap<>();
+    /** 읽은 변경 로그 행 수 */
+    public int changeRows;
+    /** 변경이 너무 많거나 로그가 이미 정리되어 증분으로 따라갈 수 없음 (전체 재적재 필요) */
+    public boolean overflow;
+
+    public AssetDelta(long seq, Timestamp dbTime) {
+        this.seq = seq;
+        this.dbTime = dbTime;
+    }
+}
@@ -1,33 +1,82 @@
 package com.apulse.middleware.db;
 
 import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.CircuitBreaker;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.File;
+import java.io.IOException;
 import java.sql.Timestamp;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
 
 public class AssetRepository {
     private static final AssetRepository INSTANCE = new AssetRepository();
 
-    private final ConcurrentHashMap<String, AssetInfo> assetMap = new ConcurrentHashMap<>();
-    private final Set<String> permittedEpcs = ConcurrentHashMap.newKeySet();
+    /** 자산 + 반출허용 캐시 (갱신 시 새 스냅샷으로 통째로 교체) */
+    private volatile AssetSnapshot snapshot = AssetSnapshot.EMPTY;
     private ScheduledExecutorService scheduler;
 
+    /**
+     * 동기화 기준점 (syncCache/refreshCache 안에서만 변경).
+     * 백엔드가 변경 로그를 지원하면 syncSeq 이후 변경만 다시 읽고, fullSyncIntervalMs마다 전체 재적재
+     */
+    private long syncSeq = -1;
+    private Timestamp syncDbTime;
+    private long fullSyncIntervalMs = 10 * 60_000L;
+    private volatile long lastFullSyncMs;
+    private volatile long lastSyncMs;
+    private volatile long lastSyncDurationMs;
+    private volatile long fullSyncCount;
+    private volatile long deltaSyncCount;
+    private volatile long deltaChangeRows;
+    private volatile long syncFailureCount;
+    private volatile int lastDeltaAssets;
+    private volatile int lastDeltaPermissions;
+    private volatile String lastSyncError;
+
+    /**
+     * 로컬 스냅샷 파일 (AssetSnapshotFile). 새 스냅샷을 동기화 스레드가 파일로 남겨 두고,
+     * 기동 시 매핑해 DB를 기다리지 않고 바로 판정한다 (DB 장애 중 재기동해도 알림 유지).
+     * snapshotDir가 null이면 사용하지 않는다
+     */
+    private File snapshotDir;
+    /**
+     * 오프힙 색인: 전체 재적재 때 DB 자산 행을 스트리밍으로 바로 스냅샷 파일에 쓰고 그 매핑으로 조회해
+     * 자산 객체를 만들지도, 힙에 두지도 않는다.
+     * 증분 변경은 매핑 위 힙 오버레이로 얹었다가 다음 파일 기록 때 새 매핑으로 합친다 (snapshotDir 필요)
+     */
+    private boolean offHeap;
+    /** 증분 동기화 후 파일 재기록 최소 간격 (기록은 전체 자산을 다시 쓰므로 변경마다 하지 않음) */
+    private long persistIntervalMs = 60_000L;
+    /** 마지막으로 파일에 기록했거나 파일에서 복원한 스냅샷 (같으면 다시 쓰지 않음) */
+    private volatile AssetSnapshot persistedSnapshot;
+    private volatile String snapshotFileName;
+    private volatile long snapshotFileBytes;
+    private volatile long lastPersistAtMs;
+    private volatile long lastPersistDurationMs;
+    private volatile long persistCount;
+    private volatile long persistFailureCount;
+    private volatile long restoreDurationMs = -1;
+
+    /** DB 장애 중 보류된 반출 알림 (서킷이 닫히면 기록) */
+    private static final int PENDING_ALERT_MAX = 10000;
+    private final ConcurrentLinkedQueue<AlertRecord> pendingAlerts = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingAlertCount = new AtomicInteger();
+
     /** 같은 EPC 30초 내 재알림 방지 */
     private final Cache<String, Boolean> alertDedup = Caffeine.newBuilder()
         .expireAfterWrite(30, TimeUnit.SECONDS)
@@ -45,7 +94,7 @@ public class AssetRepository {
      * 리더기는 워드 단위로 읽기 때문에 DB의 22자리 EPC가 24자리로 패딩되어 수신됨.
      * 예: "0420100420250910000006" (22자) → "042010042025091000000600" (24자)
      */
-    private String normalizeEpc(String epc) {
+    static String normalizeEpc(String epc) {
         if (epc == null) return null;
         epc = epc.toUpperCase().trim();
         int remainder = epc.length() % 4;
@@ -55,82 +104,335 @@ public class AssetRepository {
         return sb.toString();
     }
 
-    public void start(int refreshIntervalSeconds) {
-        refreshCache();
+    /**
+     * @param refreshIntervalSeconds 동기화 주기 (변경 로그 지원 백엔드는 증분)
+     * @param fullSyncMinutes 전체 재적재 주기 (변경 로그 밖에서 DB를 직접 고친 경우 대비)
+     * @param snapshotDirPath 로컬 스냅샷 파일 디렉토리 (비어 있으면 사용 안 함)
+     * @param snapshotPersistSeconds 증분 변경을 파일에 다시 기록하는 최소 간격 (전체 재적재/종료 때는 바로 기록)
+     * @param offHeapIndex 자산을 스냅샷 파일 매핑으로만 조회 (스냅샷 디렉토리가 없으면 무시)
+     */
+    public void start(int refreshIntervalSeconds, int fullSyncMinutes, String snapshotDirPath,
+                      int snapshotPersistSeconds, boolean offHeapIndex) {
+        fullSyncIntervalMs = Math.max(1, fullSyncMinutes) * 60_000L;
+        persistIntervalMs = Math.max(0, snapshotPersistSeconds) * 1000L;
+        snapshotDir = snapshotDirPath != null && !snapshotDirPath.trim().isEmpty() ? new File(snapshotDirPath.trim()) : null;
+        offHeap = offHeapIndex && snapshotDir != null;
+        if (offHeapIndex && !offHeap) {
+            AppLogger.warn("AssetRepository", "Off-heap asset index needs asset.snapshot.dir - using heap index");
+        }
+        // 스냅샷 파일이 있으면 그것으로 바로 시작하고 DB 적재는 백그라운드, 없으면 예전처럼 DB 적재를 기다림
+        boolean restored = restoreSnapshot();
+        if (!restored) refreshCache();
         scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
             Thread t = new Thread(r, "AssetRepo-Refresh");
             t.setDaemon(true);
             return t;
         });
-        scheduler.scheduleAtFixedRate(() -> {
-            try {
+        scheduler.execute(() -> runSync(restored));
+        scheduler.scheduleAtFixedRate(() -> runSync(false),
+            refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
+        // DB 복구 시 보류 알림 기록 + 캐시 즉시 갱신 (장애 동안 놓친 변경이 많을 수 있어 전체 재적재)
+        DatabaseManager.getInstance().addStateListener((from, to, reason) -> {
+            if (to == CircuitBreaker.State.CLOSED && !scheduler.isShutdown()) {
+                scheduler.execute(() -> {
+                    flushPendingAlerts();
+                    runSync(true);
+                });
+            }
+        });
+        AppLogger.info("AssetRepository", "Started (sync every " + refreshIntervalSeconds
+            + "s, full reload every " + fullSyncMinutes + "min"
+            + (snapshotDir != null ? ", snapshot dir " + snapshotDir.getPath() : "")
+            + (offHeap ? ", off-heap index" : "") + ")");
+    }
+
+    /** 동기화 후 바뀐 스냅샷을 파일로 기록 (동기화 스레드, 증분은 persistIntervalMs 간격으로 몰아서) */
+    private void runSync(boolean full) {
+        try {
+            if (full) {
                 refreshCache();
-            } catch (Throwable t) {
-                // scheduleAtFixedRate는 예외 발생 시 이후 실행을 중단하므로 반드시 catch
-                AppLogger.error("AssetRepository", "Cache refresh FATAL: " + t.getMessage(), t);
+            } else {
+                syncCache();
             }
-        }, refreshIntervalSeconds, refreshIntervalSeconds, TimeUnit.SECONDS);
-        AppLogger.info("AssetRepository", "Started (refresh every " + refreshIntervalSeconds + "s)");
+            persistSnapshot(full);
+        } catch (Throwable t) {
+            // scheduleAtFixedRate는 예외 발생 시 이후 실행을 중단하므로 반드시 catch
+            AppLogger.error("AssetRepository", "Cache refresh FATAL: " + t.getMessage(), t);
+        }
     }
 
-    public void refreshCache() {
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return;
+    /** 가장 최근의 온전한 스냅샷 파일로 캐시 복원 (깨진 파일은 건너뜀) */
+    private boolean restoreSnapshot() {
+        if (snapshotDir == null) return false;
+        File[] files = snapshotDir.listFiles((d, name) ->
+            name.startsWith(AssetSnapshotFile.PREFIX) && name.endsWith(AssetSnapshotFile.SUFFIX));
+        if (files == null || files.length == 0) return false;
+        Arrays.sort(files, Comparator.comparing(File::getName).reversed());
+        for (File f : files) {
+            long start = System.currentTimeMillis();
+            try {
+                AssetSnapshot s = AssetSnapshotFile.open(f);
+                snapshot = s;
+                persistedSnapshot = s;
+                snapshotFileName = f.getName();
+                snapshotFileBytes = f.length();
+                restoreDurationMs = System.currentTimeMillis() - start;
+                AppLogger.info("AssetRepository", "Restored cache from " + f.getName()
+                    + ": assets=" + s.getAssetCount() + ", permitEpcs=" + s.getPermitEpcCount()
+                    + ", age=" + (System.currentTimeMillis() - s.getBuiltAtMs()) / 1000 + "s"
+                    + " (" + restoreDurationMs + "ms)");
+                return true;
+            } catch (Exception e) {
+                AppLogger.warn("AssetRepository", "Skipping snapshot file " + f.getName() + ": " + e.getMessage());
+            }
+        }
+        return false;
+    }
 
+    /**
+     * 현재 스냅샷이 마지막 기록 이후 바뀌었으면 새 파일로 기록하고 이전 파일 정리.
+     * 오프힙 색인이면 기록한 파일의 매핑으로 교체해 힙 오버레이를 비운다
+     * @param force false면 마지막 기록 후 persistIntervalMs가 지나지 않았을 때 다음 기회로 미룸
+     */
+    private void persistSnapshot(boolean force) {
+        AssetSnapshot s = snapshot;
+        if (snapshotDir == null || s == persistedSnapshot || s.getBuiltAtMs() == 0) return;
+        if (!force && System.currentTimeMillis() - lastPersistAtMs < persistIntervalMs) return;
         try {
-            // assets 전체 로드 (EPC 정규화하여 캐시 키로 사용)
-            ConcurrentHashMap<String, AssetInfo> newAssetMap = new ConcurrentHashMap<>();
-            try (PreparedStatement pstmt = conn.prepareStatement(
-                    "SELECT epc, asset_number, asset_name, department, possession FROM assets");
-                 ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String rawEpc = rs.getString("epc");
-                    String normalizedEpc = normalizeEpc(rawEpc);
-                    newAssetMap.put(normalizedEpc, new AssetInfo(
-                        normalizedEpc,
-                        rs.getString("asset_number"),
-                        rs.getString("asset_name"),
-                        rs.getString("department"),
-                        rs.getInt("possession") == 1
-                    ));
-                }
+            AssetSnapshot written = writeSnapshotFile(s, offHeap);
+            // 기록하는 동안 다른 변경이 들어왔으면 교체하지 않음 (다음 주기에 그 스냅샷을 다시 기록)
+            if (written != s && !replaceSnapshot(s, written)) written = s;
+            persistedSnapshot = written;
+        } catch (Exception e) {
+            persistFailureCount++;
+            AppLogger.error("AssetRepository", "Snapshot write failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 스냅샷을 새 파일로 기록하고 이전 파일 정리
+     * @param map true면 기록한 파일을 매핑한 스냅샷을 돌려줌 (false면 s)
+     */
+    private AssetSnapshot writeSnapshotFile(AssetSnapshot s, boolean map) throws IOException {
+        long start = System.currentTimeMillis();
+        File file = AssetSnapshotFile.write(snapshotDir, s);
+        AssetSnapshot written = map ? AssetSnapshotFile.open(file) : s;
+        snapshotFileWritten(file, start);
+        return written;
+    }
+
+    private void snapshotFileWritten(File file, long startMs) {
+        snapshotFileName = file.getName();
+        snapshotFileBytes = file.length();
+        lastPersistAtMs = System.currentTimeMillis();
+        lastPersistDurationMs = lastPersistAtMs - startMs;
+        persistCount++;
+        deleteOldSnapshots(file);
+    }
+
+    /** 현재 스냅샷이 아직 expected일 때만 교체 (동기화 메서드와 같은 잠금) */
+    private synchronized boolean replaceSnapshot(AssetSnapshot expected, AssetSnapshot next) {
+        if (snapshot != expected) return false;
+        snapshot = next;
+        return true;
+    }
+
+    /** 매핑이 아직 남은 파일은 (Windows에서) 지워지지 않으므로 다음 기록 때 다시 시도 */
+    private void deleteOldSnapshots(File keep) {
+        File[] files = snapshotDir.listFiles((d, name) -> name.startsWith(AssetSnapshotFile.PREFIX));
+        if (files == null) return;
+        for (File f : files) {
+            if (!f.equals(keep) && !f.delete()) {
+                AppLogger.debug("AssetRepository", "Old snapshot file still in use: " + f.getName());
+            }
+        }
+    }
+
+    /**
+     * 마지막 동기화 이후 바뀐 자산/반출허용만 반영 (자산/반출허용 변경 직후, 주기 실행).
+     * 변경 로그를 지원하지 않는 백엔드, 기준점이 없을 때, 전체 재적재 주기가 되었을 때,
+     * 변경이 너무 많을 때는 전체 재적재
+     */
+    public synchronized void syncCache() {
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isAvailable()) return;
+
+        long start = System.currentTimeMillis();
+        if (!storage.supportsAssetDelta() || syncDbTime == null || start - lastFullSyncMs >= fullSyncIntervalMs) {
+            reloadAll(storage);
+            return;
+        }
+        try {
+            AssetDelta delta = storage.loadAssetDelta(syncSeq, syncDbTime);
+            if (delta.overflow) {
+                AppLogger.info("AssetRepository", "Delta sync overflow (" + delta.changeRows + " changes) - full reload");
+                reloadAll(storage);
+                return;
+            }
+
+            // 제거를 먼저 넣고 남아 있는 항목으로 덮는다 (정규화 후 같은 키가 되는 EPC 대비)
+            Map<String, AssetInfo> assetChanges = new HashMap<>();
+            for (Map.Entry<String, AssetInfo> e : delta.assets.entrySet()) {
+                if (e.getValue() == null) assetChanges.put(normalizeEpc(e.getKey()), null);
+            }
+            for (AssetInfo a : delta.assets.values()) {
+                if (a == null) continue;
+                String normalizedEpc = normalizeEpc(a.getEpc());
+                assetChanges.put(normalizedEpc, new AssetInfo(
+                    normalizedEpc, a.getAssetNumber(), a.getAssetName(), a.getDepartment(), a.isPossession()));
+            }
+            Map<String, List<PermitWindow>> windowsByEpc = new HashMap<>();
+            for (Map.Entry<String, List<PermitWindow>> e : delta.permissions.entrySet()) {
+                List<PermitWindow> list = windowsByEpc.computeIfAbsent(normalizeEpc(e.getKey()), k -> new ArrayList<>());
+                for (PermitWindow w : e.getValue()) list.add(normalizeWindow(w));
             }
-            assetMap.clear();
-            assetMap.putAll(newAssetMap);
-
-            // export_permissions 유효기간 체크 (EPC 정규화)
-            Set<String> newPermitted = ConcurrentHashMap.newKeySet();
-            try (PreparedStatement pstmt = conn.prepareStatement(
-                    "SELECT epc FROM export_permissions WHERE permit_start <= NOW() AND permit_end >= NOW()");
-                 ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    newPermitted.add(normalizeEpc(rs.getString("epc")));
+            Map<String, long[]> permissionChanges = new HashMap<>();
+            for (Map.Entry<String, List<PermitWindow>> e : windowsByEpc.entrySet()) {
+                permissionChanges.put(e.getKey(), AssetSnapshot.intervals(e.getValue()));
+            }
+
+            snapshot = snapshot.withChanges(assetChanges, permissionChanges);
+            syncSeq = delta.seq;
+            syncDbTime = delta.dbTime;
+            lastSyncMs = System.currentTimeMillis();
+            lastSyncDurationMs = lastSyncMs - start;
+            lastDeltaAssets = assetChanges.size();
+            lastDeltaPermissions = permissionChanges.size();
+            deltaChangeRows += delta.changeRows;
+            deltaSyncCount++;
+            lastSyncError = null;
+
+            if (!assetChanges.isEmpty() || !permissionChanges.isEmpty()) {
+                AppLogger.debug("AssetRepository", "Cache delta applied: assets=" + assetChanges.size()
+                    + ", permissions=" + permissionChanges.size() + ", seq=" + syncSeq);
+            }
+        } catch (Exception e) {
+            syncFailureCount++;
+            lastSyncError = e.getMessage();
+            AppLogger.error("AssetRepository", "Cache delta sync failed: " + e.getMessage());
+        }
+    }
+
+    /** 자산/반출허용 전체 재적재 (기동, DB 복구, 수동 새로고침, 주기적 안전망) */
+    public synchronized void refreshCache() {
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isAvailable()) return;
+        reloadAll(storage);
+    }
+
+    private void reloadAll(StorageBackend storage) {
+        long start = System.currentTimeMillis();
+        try {
+            // 적재 전 변경 로그 위치를 잡아 두면 적재 도중의 변경은 다음 증분에서 다시 반영된다
+            AssetDelta mark = null;
+            if (storage.supportsAssetDelta()) {
+                try {
+                    mark = storage.markAssetChanges();
+                } catch (Exception e) {
+                    AppLogger.error("AssetRepository", "Asset change log unavailable: " + e.getMessage());
                 }
             }
-            permittedEpcs.clear();
-            permittedEpcs.addAll(newPermitted);
 
-            AppLogger.debug("AssetRepository", "Cache refreshed: assets=" + assetMap.size()
-                + ", permitted=" + permittedEpcs.size() + " " + permittedEpcs);
+            // 다 만든 뒤 한 번에 교체 (조회 스레드는 이전 또는 새 스냅샷 중 하나만 본다)
+            AssetSnapshot next = offHeap ? loadOffHeap(storage) : null;
+            if (next == null) next = loadHeap(storage);
+            snapshot = next;
+
+            syncSeq = mark != null ? mark.seq : -1;
+            syncDbTime = mark != null ? mark.dbTime : null;
+            lastFullSyncMs = lastSyncMs = System.currentTimeMillis();
+            lastSyncDurationMs = lastSyncMs - start;
+            fullSyncCount++;
+            lastSyncError = null;
+
+            AppLogger.debug("AssetRepository", "Cache refreshed: assets=" + next.getAssetCount()
+                + ", permitEpcs=" + next.getPermitEpcCount() + ", permitWindows=" + next.getPermitWindowCount());
         } catch (Exception e) {
+            syncFailureCount++;
+            lastSyncError = e.getMessage();
             AppLogger.error("AssetRepository", "Cache refresh failed: " + e.getMessage());
         }
     }
 
+    /** 자산 전체를 힙 색인으로 적재 (EPC 정규화하여 캐시 키로 사용) */
+    private AssetSnapshot loadHeap(StorageBackend storage) throws Exception {
+        List<AssetInfo> assets = storage.loadAssets();
+        List<AssetInfo> normalized = new ArrayList<>(assets.size());
+        for (AssetInfo a : assets) {
+            String normalizedEpc = normalizeEpc(a.getEpc());
+            normalized.add(new AssetInfo(
+                normalizedEpc, a.getAssetNumber(), a.getAssetName(), a.getDepartment(), a.isPossession()));
+        }
+        return AssetSnapshot.build(normalized, loadPermitIntervals(storage));
+    }
+
+    /**
+     * 자산 행을 DB에서 스트리밍으로 받아 바로 스냅샷 파일에 쓰고 그 매핑을 돌려줌 (자산 객체를 만들지 않음).
+     * 파일 기록에 실패하면 null (호출자가 힙 색인으로 적재), DB 오류는 그대로 던진다
+     */
+    private AssetSnapshot loadOffHeap(StorageBackend storage) throws Exception {
+        long start = System.currentTimeMillis();
+        try (AssetSnapshotFile.Writer writer = new AssetSnapshotFile.Writer(snapshotDir, start)) {
+            storage.streamAssets(row -> {
+                writer.add(normalizeEpc(row[0]), row[1], row[2], row[3], "1".equals(row[4]));
+                return true;
+            });
+            File file = writer.finish(loadPermitIntervals(storage));
+            AssetSnapshot mapped = AssetSnapshotFile.open(file);
+            persistedSnapshot = mapped;
+            snapshotFileWritten(file, start);
+            return mapped;
+        } catch (IOException e) {
+            persistFailureCount++;
+            AppLogger.error("AssetRepository", "Off-heap index write failed, using heap index: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /** export_permissions 현재/예정 기간 (EPC 정규화, 유효 여부는 읽기 시각으로 판정) */
+    private Map<String, long[]> loadPermitIntervals(StorageBackend storage) throws Exception {
+        List<PermitWindow> windows = storage.loadPermitWindows();
+        List<PermitWindow> normalizedWindows = new ArrayList<>(windows.size());
+        for (PermitWindow w : windows) {
+            normalizedWindows.add(normalizeWindow(w));
+        }
+        return AssetSnapshot.groupWindows(normalizedWindows);
+    }
+
+    private PermitWindow normalizeWindow(PermitWindow w) {
+        return new PermitWindow(normalizeEpc(w.getEpc()), w.getStartMs(), w.getEndMs());
+    }
+
     /** EPC로 자산정보 조회 (자산이 아니면 null) */
     public AssetInfo getAssetInfo(String epc) {
-        return assetMap.get(epc);
+        return snapshot.getAsset(epc);
+    }
+
+    /** 지금 시각 기준 미허가 반출 체크 */
+    public AssetInfo checkUnauthorizedExport(String epc) {
+        return checkUnauthorizedExport(epc, System.currentTimeMillis());
     }
 
     /**
-     * 미허가 반출 체크
+     * 미허가 반출 체크 (허용 기간은 읽기 시각으로 판정)
+     * @param readTimeMs 태그를 읽은 시각 (epoch ms)
      * @return 미허가 자산이면 AssetInfo 반환, 자산이 아니거나 허용된 경우 null
      */
-    public AssetInfo checkUnauthorizedExport(String epc) {
-        AssetInfo asset = assetMap.get(epc);
+    public AssetInfo checkUnauthorizedExport(String epc, long readTimeMs) {
+        ExportCheck check = checkExport(epc, readTimeMs);
+        return (check != null && check.isUnauthorized()) ? check.getAsset() : null;
+    }
+
+    /**
+     * 자산 조회와 반출 허용 판정을 한 스냅샷에서 함께 수행 (태그 파이프라인용)
+     * @param readTimeMs 태그를 읽은 시각 (epoch ms)
+     * @return 자산이 아니면 null
+     */
+    public ExportCheck checkExport(String epc, long readTimeMs) {
+        AssetSnapshot s = snapshot;  // 자산/허용 여부를 같은 스냅샷에서 판정
+        AssetInfo asset = s.getAsset(epc);
         if (asset == null) return null;  // 자산이 아님
-        if (permittedEpcs.contains(epc)) return null;  // 반출 허용됨
-        return asset;  // 미허가 반출
+        return new ExportCheck(asset, !s.isPermitted(epc, readTimeMs));
     }
 
     /**
@@ -145,37 +447,72 @@ public class AssetRepository {
         return true;
     }
 
-    /** 반출알림 이력 DB 기록 */
+    /** 반출 알림 기록. DB 장애 중이면 보류했다가 서킷이 닫힌 뒤 기록 */
     public void insertAlert(String epc, String assetNumber, String readerName, int rssi, String alertTime) {
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return;
-
-        String sql = "INSERT INTO export_alerts (epc, asset_number, reader_name, rssi, alert_time) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, epc);
-            pstmt.setString(2, assetNumber);
-            pstmt.setString(3, readerName);
-            pstmt.setInt(4, rssi);
-            pstmt.setTimestamp(5, Timestamp.valueOf(alertTime));
-            pstmt.executeUpdate();
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isEnabled()) return;
+
+        AlertRecord rec = new AlertRecord(epc, assetNumber, readerName, rssi, alertTime);
+        if (!storage.isAvailable()) {
+            bufferAlert(rec);
+            return;
+        }
+        try {
+            writeAlert(rec);
         } catch (Exception e) {
-            AppLogger.error("AssetRepository", "Insert alert failed: " + e.getMessage());
+            if (DatabaseManager.isConnectionFailure(e)) {
+                bufferAlert(rec);
+            } else {
+                AppLogger.error("AssetRepository", "Insert alert failed: " + e.getMessage());
+            }
         }
     }
 
+    private void writeAlert(AlertRecord rec) throws Exception {
+        StorageManager.getInstance().getBackend()
+            .insertAlert(rec.epc, rec.assetNumber, rec.readerName, rec.rssi, rec.alertTime);
+    }
+
+    private void bufferAlert(AlertRecord rec) {
+        pendingAlerts.offer(rec);
+        if (pendingAlertCount.incrementAndGet() > PENDING_ALERT_MAX) {
+            if (pendingAlerts.poll() != null) pendingAlertCount.decrementAndGet();
+            AppLogger.warn("AssetRepository", "Pending alert buffer full - dropped oldest alert");
+        }
+    }
+
+    /** 보류된 알림 기록 (연결 오류가 나면 남은 것은 다음 복구 때) */
+    private void flushPendingAlerts() {
+        int written = 0;
+        AlertRecord rec;
+        while ((rec = pendingAlerts.peek()) != null) {
+            try {
+                writeAlert(rec);
+            } catch (Exception e) {
+                if (DatabaseManager.isConnectionFailure(e)) break;
+                AppLogger.error("AssetRepository", "Insert pending alert failed: " + e.getMessage());
+            }
+            pendingAlerts.poll();
+            pendingAlertCount.decrementAndGet();
+            written++;
+        }
+        if (written > 0) {
+            AppLogger.info("AssetRepository", "Flushed " + written + " pending alerts after reconnect");
+        }
+    }
+
+    /** DB 장애로 보류 중인 알림 수 */
+    public int getPendingAlertCount() {
+        return pendingAlertCount.get();
+    }
+
     /** 반출허용 추가 */
     public boolean insertPermission(String epc, String permitStart, String permitEnd, String reason) {
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return false;
-
-        String sql = "INSERT INTO export_permissions (epc, permit_start, permit_end, reason) VALUES (?, ?, ?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, epc);
-            pstmt.setTimestamp(2, Timestamp.valueOf(permitStart));
-            pstmt.setTimestamp(3, Timestamp.valueOf(permitEnd));
-            pstmt.setString(4, reason);
-            pstmt.executeUpdate();
-            return true;
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isAvailable()) return false;
+
+        try {
+            return storage.insertPermission(epc, permitStart, permitEnd, reason);
         } catch (Exception e) {
             AppLogger.error("AssetRepository", "Insert permission failed: " + e.getMessage());
             return false;
@@ -184,14 +521,11 @@ public class AssetRepository {
 
     /** 반출허용 삭제 */
     public boolean deletePermission(long id) {
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return false;
-
-        String sql = "DELETE FROM export_permissions WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setLong(1, id);
-            int affected = pstmt.executeUpdate();
-            return affected > 0;
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isAvailable()) return false;
+
+        try {
+            return storage.deletePermission(id);
         } catch (Exception e) {
             AppLogger.error("AssetRepository", "Delete permission failed: " + e.getMessage());
             return false;
@@ -202,78 +536,37 @@ public class AssetRepository {
 
     /** 자산 목록 전체 조회 */
     public List<String[]> queryAssets() {
-        List<String[]> results = new ArrayList<>();
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return results;
-
-        try (PreparedStatement pstmt = conn.prepareStatement(
-                "SELECT id, asset_number, epc, asset_name, department, possession, created_at FROM assets ORDER BY asset_number");
-             ResultSet rs = pstmt.executeQuery()) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            while (rs.next()) {
-                Timestamp ts = rs.getTimestamp("created_at");
-                results.add(new String[] {
-                    rs.getString("asset_number"),
-                    rs.getString("epc"),
-                    rs.getString("asset_name") != null ? rs.getString("asset_name") : "",
-                    rs.getString("department") != null ? rs.getString("department") : "",
-                    ts != null ? sdf.format(ts) : "",
-                    rs.getInt("possession") == 1 ? "보유" : "미보유",
-                    String.valueOf(rs.getLong("id"))
-                });
-            }
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isAvailable()) return new ArrayList<>();
+
+        try {
+            return storage.queryAssets();
         } catch (Exception e) {
             AppLogger.error("AssetRepository", "Query assets failed: " + e.getMessage());
+            return new ArrayList<>();
         }
-        return results;
     }
 
     /** 자산 추가 */
     public boolean insertAsset(String assetNumber, String epc, String assetName, String department, int possession) {
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return false;
-
-        String sql = "INSERT INTO assets (asset_number, epc, asset_name, department, possession) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            pstmt.setString(1, assetNumber);
-            pstmt.setString(2, epc);
-            pstmt.setString(3, assetName);
-            pstmt.setString(4, department);
-            pstmt.setInt(5, possession);
-            pstmt.executeUpdate();
-            return true;
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isAvailable()) return false;
+
+        try {
+            return storage.insertAsset(assetNumber, epc, assetName, department, possession);
         } catch (Exception e) {
             AppLogger.error("AssetRepository", "Insert asset failed: " + e.getMessage());
             return false;
         }
     }
 
-    /** 자산 수정 */
+    /** 자산 수정 (null인 필드는 유지) */
     public boolean updateAsset(long id, String assetNumber, String epc, String assetName, String department, Integer possession) {
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return false;
-
-        // 동적 UPDATE 쿼리 생성 (전달된 필드만 수정)
-        List<String> setClauses = new ArrayList<>();
-        List<Object> params = new ArrayList<>();
-        if (assetNumber != null) { setClauses.add("asset_number = ?"); params.add(assetNumber); }
-        if (epc != null) { setClauses.add("epc = ?"); params.add(epc); }
-        if (assetName != null) { setClauses.add("asset_name = ?"); params.add(assetName); }
-        if (department != null) { setClauses.add("department = ?"); params.add(department); }
-        if (possession != null) { setClauses.add("possession = ?"); params.add(possession); }
-
-        if (setClauses.isEmpty()) return false;
-
-        String sql = "UPDATE assets SET " + String.join(", ", setClauses) + " WHERE id = ?";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            for (int i = 0; i < params.size(); i++) {
-                Object p = params.get(i);
-                if (p instanceof String) pstmt.setString(i + 1, (String) p);
-                else if (p instanceof Integer) pstmt.setInt(i + 1, (Integer) p);
-            }
-            pstmt.setLong(params.size() + 1, id);
-            int affected = pstmt.executeUpdate();
-            return affected > 0;
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isAvailable()) return false;
+
+        try {
+            return storage.updateAsset(id, assetNumber, epc, assetName, department, possession);
         } catch (Exception e) {
             AppLogger.error("AssetRepository", "Update asset failed: " + e.getMessage());
             return false;
@@ -282,87 +575,109 @@ public class AssetRepository {
 
     /** 반출허용 목록 전체 조회 */
     public List<String[]> queryExportPermissions() {
-        List<String[]> results = new ArrayList<>();
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return results;
-
-        try (PreparedStatement pstmt = conn.prepareStatement(
-                "SELECT ep.id, ep.epc, a.asset_number, a.asset_name, ep.permit_start, ep.permit_end, ep.reason, "
-                + "CASE WHEN ep.permit_start <= NOW() AND ep.permit_end >= NOW() THEN '유효' ELSE '만료' END AS status "
-                + "FROM export_permissions ep LEFT JOIN assets a ON ep.epc = a.epc "
-                + "ORDER BY ep.permit_end DESC");
-             ResultSet rs = pstmt.executeQuery()) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            while (rs.next()) {
-                Timestamp start = rs.getTimestamp("permit_start");
-                Timestamp end = rs.getTimestamp("permit_end");
-                results.add(new String[] {
-                    rs.getString("epc"),
-                    rs.getString("asset_number") != null ? rs.getString("asset_number") : "",
-                    rs.getString("asset_name") != null ? rs.getString("asset_name") : "",
-                    start != null ? sdf.format(start) : "",
-                    end != null ? sdf.format(end) : "",
-                    rs.getString("reason") != null ? rs.getString("reason") : "",
-                    rs.getString("status"),
-                    String.valueOf(rs.getLong("id"))
-                });
-            }
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isAvailable()) return new ArrayList<>();
+
+        try {
+            return storage.queryExportPermissions();
         } catch (Exception e) {
             AppLogger.error("AssetRepository", "Query permissions failed: " + e.getMessage());
+            return new ArrayList<>();
         }
-        return results;
     }
 
-    /** 반출알림 이력 조회 (기간 지정) */
-    public List<String[]> queryExportAlerts(String fromTime, String toTime) {
+    /**
+     * 반출알림 이력 페이지 조회 (최신순 keyset 페이징).
+     * after가 null이면 첫 페이지, 아니면 커서 행보다 이전 행부터 limit건.
+     * 각 행의 마지막 원소(index 7)는 export_alerts.id (다음 페이지 커서용)
+     */
+    public List<String[]> queryExportAlertsPage(String fromTime, String toTime, PageCursor after, int limit) {
         List<String[]> results = new ArrayList<>();
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return results;
-
-        String sql = "SELECT ea.alert_time, ea.reader_name, ea.epc, ea.asset_number, "
-            + "a.asset_name, a.department, ea.rssi "
-            + "FROM export_alerts ea LEFT JOIN assets a ON ea.epc = a.epc "
-            + "WHERE ea.alert_time BETWEEN ? AND ? ORDER BY ea.alert_time DESC";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            pstmt.setTimestamp(1, new Timestamp(sdf.parse(fromTime).getTime()));
-            pstmt.setTimestamp(2, new Timestamp(sdf.parse(toTime).getTime()));
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    Timestamp alertTime = rs.getTimestamp("alert_time");
-                    results.add(new String[] {
-                        alertTime != null ? sdf.format(alertTime) : "",
-                        rs.getString("reader_name"),
-                        rs.getString("epc"),
-                        rs.getString("asset_number") != null ? rs.getString("asset_number") : "",
-                        rs.getString("asset_name") != null ? rs.getString("asset_name") : "",
-                        rs.getString("department") != null ? rs.getString("department") : "",
-                        String.valueOf(rs.getInt("rssi"))
-                    });
-                }
-            }
+        if (!StorageManager.getInstance().isAvailable()) return results;
+
+        try {
+            streamExportAlerts(fromTime, toTime, after, limit, results::add);
         } catch (Exception e) {
-            AppLogger.error("AssetRepository", "Query alerts failed: " + e.getMessage());
+            AppLogger.error("AssetRepository", "Query alerts page failed: " + e.getMessage());
         }
         return results;
     }
 
+    /**
+     * 반출알림 이력을 최신순 keyset 순서로 스트리밍 조회 (행 형식은 queryExportAlertsPage와 같음).
+     * 결과를 모으지 않고 바로 handler에 넘긴다. limit이 0 이하면 커서 이후 기간 전체.
+     * handler가 false를 반환하면 중단
+     * @return 전달한 행 수
+     */
+    public long streamExportAlerts(String fromTime, String toTime, PageCursor after, int limit,
+                                   Predicate<String[]> handler) throws Exception {
+        return StorageManager.getInstance().getBackend().streamExportAlerts(fromTime, toTime, after, limit, handler);
+    }
+
+    /** 기간 내 반출알림 추정 건수 (실패 시 -1) */
+    public long estimateExportAlertCount(String fromTime, String toTime) {
+        return StorageManager.getInstance().getBackend().estimateExportAlertCount(fromTime, toTime);
+    }
+
+    /**
+     * 자산 목록 페이지 조회 (자산번호순 keyset 페이징).
+     * 행 형식은 queryAssets()와 동일 (마지막 원소는 자산 id)
+     */
+    public List<String[]> queryAssetsPage(PageCursor after, int limit) {
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isAvailable()) return new ArrayList<>();
+
+        try {
+            return storage.queryAssetsPage(after, limit);
+        } catch (Exception e) {
+            AppLogger.error("AssetRepository", "Query assets page failed: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /** 자산 추정 건수 (실패 시 -1) */
+    public long estimateAssetRowCount() {
+        return StorageManager.getInstance().getBackend().estimateAssetRowCount();
+    }
+
+    /**
+     * 반출허용 목록 페이지 조회 (허용종료 최신순 keyset 페이징).
+     * 행 형식은 queryExportPermissions()와 동일 (마지막 원소는 반출허용 id)
+     */
+    public List<String[]> queryExportPermissionsPage(PageCursor after, int limit) {
+        StorageBackend storage = StorageManager.getInstance().getBackend();
+        if (!storage.isAvailable()) return new ArrayList<>();
+
+        try {
+            return storage.queryExportPermissionsPage(after, limit);
+        } catch (Exception e) {
+            AppLogger.error("AssetRepository", "Query permissions page failed: " + e.getMessage());
+            return new ArrayList<>();
+        }
+    }
+
+    /** 반출허용 추정 건수 (실패 시 -1) */
+    public long estimatePermissionRowCount() {
+        return StorageManager.getInstance().getBackend().estimatePermissionRowCount();
+    }
+
     public int getAssetCount() {
-        return assetMap.size();
+        return snapshot.getAssetCount();
     }
 
+    /** 지금 반출이 허용된 EPC 수 */
     public int getPermittedCount() {
-        return permittedEpcs.size();
+        return snapshot.countPermittedAt(System.currentTimeMillis());
     }
 
-    /** 자산 캐시 복사본 (조회용) */
-    public Map<String, AssetInfo> getAssetMapCopy() {
-        return new HashMap<>(assetMap);
+    /** 자산 캐시 앞에서부터 최대 limit건 (조회 화면용, 전체 복사 없이 그만큼만 만듦) */
+    public List<AssetInfo> getAssetsPreview(int limit) {
+        return snapshot.listAssets(limit);
     }
 
-    /** 반출허용 EPC 캐시 복사본 (조회용) */
+    /** 지금 반출이 허용된 EPC (조회용) */
     public Set<String> getPermittedEpcsCopy() {
-        return new HashSet<>(permittedEpcs);
+        return snapshot.toPermittedSet(System.currentTimeMillis());
     }
 
     /** 알림 중복제거 캐시 키 목록 (조회용) */
@@ -374,13 +689,98 @@ public class AssetRepository {
         return alertDedup.estimatedSize();
     }
 
+    /** 캐시 동기화 상태 JSON (/api/metrics). ageMs는 마지막 성공한 동기화 이후 경과 시간 */
+    public String toJson() {
+        AssetSnapshot s = snapshot;
+        long now = System.currentTimeMillis();
+        long last = lastSyncMs;
+        String error = lastSyncError;
+        return "{\"assets\":" + s.getAssetCount()
+            + ",\"source\":\"" + (s.isFileBacked() ? "file" : "memory") + "\""
+            + ",\"offHeapIndex\":" + offHeap
+            + ",\"overlayAssets\":" + s.getOverlaySize()
+            + ",\"snapshotAgeMs\":" + (s.getBuiltAtMs() > 0 ? now - s.getBuiltAtMs() : -1)
+            + ",\"permitted\":" + s.countPermittedAt(now)
+            + ",\"permitEpcs\":" + s.getPermitEpcCount()
+            + ",\"permitWindows\":" + s.getPermitWindowCount()
+            + ",\"deltaSync\":" + StorageManager.getInstance().getBackend().supportsAssetDelta()
+            + ",\"ageMs\":" + (last > 0 ? now - last : -1)
+            + ",\"lastSyncDurationMs\":" + lastSyncDurationMs
+            + ",\"lastFullSyncAgeMs\":" + (lastFullSyncMs > 0 ? now - lastFullSyncMs : -1)
+            + ",\"fullSyncIntervalMs\":" + fullSyncIntervalMs
+            + ",\"fullSyncs\":" + fullSyncCount
+            + ",\"deltaSyncs\":" + deltaSyncCount
+            + ",\"deltaChangeRows\":" + deltaChangeRows
+            + ",\"lastDeltaAssets\":" + lastDeltaAssets
+            + ",\"lastDeltaPermissions\":" + lastDeltaPermissions
+            + ",\"failures\":" + syncFailureCount
+            + ",\"lastError\":" + (error != null
+                ? "\"" + error.replace("\\", "\\\\").replace("\"", "\\\"") + "\"" : "null")
+            + ",\"snapshotFile\":" + snapshotFileJson(now)
+            + "}";
+    }
+
+    private String snapshotFileJson(long now) {
+        if (snapshotDir == null) return "null";
+        String name = snapshotFileName;
+        return "{\"dir\":\"" + snapshotDir.getPath().replace("\\", "\\\\").replace("\"", "\\\"") + "\""
+            + ",\"file\":" + (name != null ? "\"" + name + "\"" : "null")
+            + ",\"bytes\":" + snapshotFileBytes
+            + ",\"restoreMs\":" + restoreDurationMs
+            + ",\"writes\":" + persistCount
+            + ",\"writeFailures\":" + persistFailureCount
+            + ",\"lastWriteMs\":" + lastPersistDurationMs
+            + ",\"lastWriteAgeMs\":" + (lastPersistAtMs > 0 ? now - lastPersistAtMs : -1)
+            + "}";
+    }
+
     public void shutdown() {
         if (scheduler != null) {
             scheduler.shutdownNow();
+            try {
+                scheduler.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
         }
+        // 간격 때문에 미뤄 둔 증분 변경을 남겨 둠
+        persistSnapshot(true);
         AppLogger.info("AssetRepository", "Shutdown complete");
     }
 
+    private static class AlertRecord {
+        final String epc;
+        final String assetNumber;
+        final String readerName;
+        final int rssi;
+        final String alertTime;
+
+        AlertRecord(String epc, String assetNumber, String readerName, int rssi, String alertTime) {
+            this.epc = epc;
+            this.assetNumber = assetNumber;
+            this.readerName = readerName;
+            this.rssi = rssi;
+            this.alertTime = alertTime;
+        }
+    }
+
+    /** 반출허용 기간 (시작/종료 모두 포함, epoch ms) */
+    public static class PermitWindow {
+        private final String epc;
+        private final long startMs;
+        private final long endMs;
+
+        public PermitWindow(String epc, long startMs, long endMs) {
+            this.epc = epc;
+            this.startMs = startMs;
+            this.endMs = endMs;
+        }
+
+        public String getEpc() { return epc; }
+        public long getStartMs() { return startMs; }
+        public long getEndMs() { return endMs; }
+    }
+
     /** 자산 정보 모델 */
     public static class AssetInfo {
         private final String epc;
@@ -403,4 +803,18 @@ public class AssetRepository {
         public String getDepartment() { return department; }
         public boolean isPossession() { return possession; }
     }
+
+    /** 반출 판정 결과 (자산 정보 + 미허가 여부, 같은 스냅샷 기준) */
+    public static class ExportCheck {
+        private final AssetInfo asset;
+        private final boolean unauthorized;
+
+        public ExportCheck(AssetInfo asset, boolean unauthorized) {
+            this.asset = asset;
+            this.unauthorized = unauthorized;
+        }
+
+        public AssetInfo getAsset() { return asset; }
+        public boolean isUnauthorized() { return unauthorized; }
+    }
 }
@@ -0,0 +1,416 @@
+package com.apulse.middleware.db;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * 자산/반출허용 캐시의 불변 스냅샷.
+ * 갱신 때마다 새로 만들어 volatile 참조 하나로 교체하므로, 리더기 스레드는 잠금 없이
+ * 항상 한 시점의 자산 목록과 반출허용 목록을 함께 본다 (갱신 도중 빈 캐시가 보이지 않음).
+ *
+ * 조회 구조는 고정 크기 개방 주소(선형 탐사) 해시 테이블: 키/값 배열 두 개, 적재율 0.5 이하.
+ * 만든 뒤에는 바뀌지 않으므로 삭제 표시나 크기 조정이 없다.
+ *
+ * 반출허용은 EPC별 허용 기간 목록(구간 인덱스)으로 들고 있다가 읽기 시각으로 판정하므로,
+ * 허용 시작/종료가 갱신 주기와 무관하게 밀리초 단위로 정확히 반영된다.
+ * 기간 목록은 long[] {시작0, 종료0, 시작1, 종료1, ...} (시작순, 겹치거나 맞닿은 기간은 병합, 양 끝 포함).
+ *
+ * 자산 조회는 AssetIndex 뒤에 두어, 기동 직후에는 로컬 스냅샷 파일(AssetSnapshotFile)을 매핑한 채로
+ * 객체를 만들지 않고 바로 쓸 수 있다.
+ * 매핑 위에서 증분이 들어오면 바뀐 자산만 힙 오버레이(OverlayAssets)로 얹고, 전체를 힙으로 옮기지 않는다
+ * (오버레이는 다음 파일 기록 때 새 매핑으로 합쳐짐).
+ */
+final class AssetSnapshot {
+    static final AssetSnapshot EMPTY = new AssetSnapshot(new HeapAssets(new Table(0)), new Table(0), 0);
+
+    private final AssetIndex assets;
+    private final Table permits;
+    private final long builtAtMs;
+
+    private AssetSnapshot(AssetIndex assets, Table permits, long builtAtMs) {
+        this.assets = assets;
+        this.permits = permits;
+        this.builtAtMs = builtAtMs;
+    }
+
+    /**
+     * @param assetList EPC가 정규화된 자산 (같은 EPC가 여러 번이면 마지막 것)
+     * @param permitWindows 정규화 EPC → 허용 기간 목록 (intervals()로 만든 것)
+     */
+    static AssetSnapshot build(Collection<AssetRepository.AssetInfo> assetList, Map<String, long[]> permitWindows) {
+        Table assets = new Table(assetList.size());
+        for (AssetRepository.AssetInfo a : assetList) {
+            if (a.getEpc() != null) assets.put(a.getEpc(), a);
+        }
+        Table permits = new Table(permitWindows.size());
+        for (Map.Entry<String, long[]> e : permitWindows.entrySet()) {
+            if (e.getKey() != null && e.getValue() != null) permits.put(e.getKey(), e.getValue());
+        }
+        return new AssetSnapshot(new HeapAssets(assets), permits, System.currentTimeMillis());
+    }
+
+    /** 스냅샷 파일에서 복원 (생성 시각은 파일에 기록된 원래 시각) */
+    static AssetSnapshot restore(AssetIndex assets, Map<String, long[]> permitWindows, long builtAtMs) {
+        Table permits = new Table(permitWindows.size());
+        for (Map.Entry<String, long[]> e : permitWindows.entrySet()) permits.put(e.getKey(), e.getValue());
+        return new AssetSnapshot(assets, permits, builtAtMs);
+    }
+
+    /**
+     * 바뀐 EPC만 반영한 새 스냅샷 (나머지 항목은 그대로 옮김). 변경이 없으면 this.
+     * @param assetChanges 정규화 EPC → 자산 (null이면 제거)
+     * @param permitChanges 정규화 EPC → 허용 기간 목록 (null이면 제거)
+     */
+    AssetSnapshot withChanges(Map<String, AssetRepository.AssetInfo> assetChanges, Map<String, long[]> permitChanges) {
+        if (assetChanges.isEmpty() && permitChanges.isEmpty()) return this;
+        AssetIndex nextAssets = assetChanges.isEmpty() ? assets
+            : isFileBacked() ? overlay(assets, assetChanges) : mergeAssets(assets, assetChanges);
+        Table nextPermits = permitChanges.isEmpty() ? permits : merge(permits, permitChanges);
+        return new AssetSnapshot(nextAssets, nextPermits, System.currentTimeMillis());
+    }
+
+    private static AssetIndex mergeAssets(AssetIndex base, Map<String, AssetRepository.AssetInfo> changes) {
+        Table t = new Table(base.size() + changes.size());
+        base.forEach(a -> {
+            if (!changes.containsKey(a.getEpc())) t.put(a.getEpc(), a);
+        });
+        for (Map.Entry<String, AssetRepository.AssetInfo> e : changes.entrySet()) {
+            if (e.getValue() != null) t.put(e.getKey(), e.getValue());
+        }
+        return new HeapAssets(t);
+    }
+
+    /** 매핑 기반 색인에 변경만 얹음 (이전 오버레이가 있으면 그 변경과 합침) */
+    private static AssetIndex overlay(AssetIndex current, Map<String, AssetRepository.AssetInfo> changes) {
+        AssetIndex base = current;
+        Table previous = null;
+        if (current instanceof OverlayAssets) {
+            base = ((OverlayAssets) current).base;
+            previous = ((OverlayAssets) current).changes;
+        }
+        Table t = new Table((previous != null ? previous.size : 0) + changes.size());
+        if (previous != null) {
+            for (int i = 0; i < previous.keys.length; i++) {
+                String k = previous.keys[i];
+                if (k != null && !changes.containsKey(k)) t.put(k, previous.values[i]);
+            }
+        }
+        for (Map.Entry<String, AssetRepository.AssetInfo> e : changes.entrySet()) {
+            t.put(e.getKey(), e.getValue() != null ? e.getValue() : OverlayAssets.REMOVED);
+        }
+        return new OverlayAssets(base, t);
+    }
+
+    private static Table merge(Table base, Map<String, ?> changes) {
+        Table t = new Table(base.size + changes.size());
+        for (int i = 0; i < base.keys.length; i++) {
+            String k = base.keys[i];
+            if (k != null && !changes.containsKey(k)) t.put(k, base.values[i]);
+        }
+        for (Map.Entry<String, ?> e : changes.entrySet()) {
+            if (e.getValue() != null) t.put(e.getKey(), e.getValue());
+        }
+        return t;
+    }
+
+    /**
+     * EPC별로 묶어 병합한 허용 기간 목록 (EPC는 이미 정규화된 것).
+     * 시작이 종료보다 늦은 잘못된 기간은 버린다
+     */
+    static Map<String, long[]> groupWindows(Collection<AssetRepository.PermitWindow> windows) {
+        Map<String, List<AssetRepository.PermitWindow>> byEpc = new HashMap<>();
+        for (AssetRepository.PermitWindow w : windows) {
+            if (w.getEpc() != null) byEpc.computeIfAbsent(w.getEpc(), k -> new ArrayList<>()).add(w);
+        }
+        Map<String, long[]> result = new HashMap<>(byEpc.size() * 2);
+        for (Map.Entry<String, List<AssetRepository.PermitWindow>> e : byEpc.entrySet()) {
+            long[] iv = intervals(e.getValue());
+            if (iv != null) result.put(e.getKey(), iv);
+        }
+        return result;
+    }
+
+    /** 한 EPC의 허용 기간을 시작순으로 병합 (유효한 기간이 없으면 null) */
+    static long[] intervals(List<AssetRepository.PermitWindow> windows) {
+        List<AssetRepository.PermitWindow> sorted = new ArrayList<>(windows.size());
+        for (AssetRepository.PermitWindow w : windows) {
+            if (w.getStartMs() <= w.getEndMs()) sorted.add(w);
+        }
+        if (sorted.isEmpty()) return null;
+        sorted.sort((a, b) -> Long.compare(a.getStartMs(), b.getStartMs()));
+        long[] iv = new long[sorted.size() * 2];
+        int n = 0;
+        for (AssetRepository.PermitWindow w : sorted) {
+            if (n > 0 && w.getStartMs() <= iv[n - 1] + 1) {
+                iv[n - 1] = Math.max(iv[n - 1], w.getEndMs());
+            } else {
+                iv[n++] = w.getStartMs();
+                iv[n++] = w.getEndMs();
+            }
+        }
+        return n == iv.length ? iv : Arrays.copyOf(iv, n);
+    }
+
+    AssetRepository.AssetInfo getAsset(String epc) {
+        return assets.get(epc);
+    }
+
+    /** timeMs 시각에 반출이 허용되는지 (시작이 timeMs 이하인 마지막 기간을 이진 탐색) */
+    boolean isPermitted(String epc, long timeMs) {
+        return covers((long[]) permits.get(epc), timeMs);
+    }
+
+    private static boolean covers(long[] iv, long timeMs) {
+        if (iv == null) return false;
+        int lo = 0;
+        int hi = iv.length / 2 - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (iv[mid * 2] <= timeMs) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found >= 0 && timeMs <= iv[found * 2 + 1];
+    }
+
+    int getAssetCount() {
+        return assets.size();
+    }
+
+    /** 자산을 스냅샷 파일 매핑에서 바로 읽고 있는지 */
+    boolean isFileBacked() {
+        return !(assets instanceof HeapAssets);
+    }
+
+    /** 매핑 위에 힙으로 얹힌 변경 자산 수 (힙 색인이면 0) */
+    int getOverlaySize() {
+        return assets instanceof OverlayAssets ? ((OverlayAssets) assets).changes.size : 0;
+    }
+
+    void forEachAsset(Consumer<AssetRepository.AssetInfo> action) {
+        assets.forEach(action);
+    }
+
+    /** 자산 앞에서부터 최대 limit건 (조회 화면용, 순서 없음) */
+    List<AssetRepository.AssetInfo> listAssets(int limit) {
+        return assets.head(Math.max(0, limit));
+    }
+
+    void forEachPermit(BiConsumer<String, long[]> action) {
+        for (int i = 0; i < permits.keys.length; i++) {
+            if (permits.keys[i] != null) action.accept(permits.keys[i], (long[]) permits.values[i]);
+        }
+    }
+
+    /** 허용 기간(현재/예정)이 있는 EPC 수 */
+    int getPermitEpcCount() {
+        return permits.size;
+    }
+
+    /** 병합 후 허용 기간 수 */
+    int getPermitWindowCount() {
+        int n = 0;
+        for (Object v : permits.values) {
+            if (v != null) n += ((long[]) v).length / 2;
+        }
+        return n;
+    }
+
+    /** timeMs 시각에 반출이 허용된 EPC 수 */
+    int countPermittedAt(long timeMs) {
+        int n = 0;
+        for (Object v : permits.values) {
+            if (v != null && covers((long[]) v, timeMs)) n++;
+        }
+        return n;
+    }
+
+    /** 스냅샷 생성 시각 (ms, EMPTY는 0) */
+    long getBuiltAtMs() {
+        return builtAtMs;
+    }
+
+    /** timeMs 시각에 반출이 허용된 EPC */
+    Set<String> toPermittedSet(long timeMs) {
+        Set<String> set = new HashSet<>();
+        for (int i = 0; i < permits.keys.length; i++) {
+            if (permits.keys[i] != null && covers((long[]) permits.values[i], timeMs)) set.add(permits.keys[i]);
+        }
+        return set;
+    }
+
+    /** 자산 조회 구조 (힙 테이블 또는 AssetSnapshotFile.MappedAssets) */
+    interface AssetIndex {
+        /** 정규화 EPC로 조회 (없으면 null) */
+        AssetRepository.AssetInfo get(String epc);
+
+        int size();
+
+        /** 모든 자산 (순서 없음) */
+        void forEach(Consumer<AssetRepository.AssetInfo> action);
+
+        /** forEach 순서로 최대 limit건만 만듦 */
+        List<AssetRepository.AssetInfo> head(int limit);
+    }
+
+    private static final class HeapAssets implements AssetIndex {
+        private final Table table;
+
+        HeapAssets(Table table) {
+            this.table = table;
+        }
+
+        @Override
+        public AssetRepository.AssetInfo get(String epc) {
+            return (AssetRepository.AssetInfo) table.get(epc);
+        }
+
+        @Override
+        public int size() {
+            return table.size;
+        }
+
+        @Override
+        public void forEach(Consumer<AssetRepository.AssetInfo> action) {
+            for (int i = 0; i < table.keys.length; i++) {
+                if (table.keys[i] != null) action.accept((AssetRepository.AssetInfo) table.values[i]);
+            }
+        }
+
+        @Override
+        public List<AssetRepository.AssetInfo> head(int limit) {
+            List<AssetRepository.AssetInfo> list = new ArrayList<>(Math.min(limit, table.size));
+            for (int i = 0; i < table.keys.length && list.size() < limit; i++) {
+                if (table.keys[i] != null) list.add((AssetRepository.AssetInfo) table.values[i]);
+            }
+            return list;
+        }
+    }
+
+    /**
+     * 매핑 색인 + 힙 변경분. 변경 테이블에 있는 EPC는 매핑을 보지 않는다 (REMOVED면 삭제된 자산).
+     * 크기는 만들 때 한 번 계산 (변경 EPC마다 매핑 조회 한 번)
+     */
+    private static final class OverlayAssets implements AssetIndex {
+        static final Object REMOVED = new Object();
+
+        final AssetIndex base;
+        final Table changes;
+        private final int size;
+
+        OverlayAssets(AssetIndex base, Table changes) {
+            this.base = base;
+            this.changes = changes;
+            int n = base.size();
+            for (int i = 0; i < changes.keys.length; i++) {
+                if (changes.keys[i] == null) continue;
+                boolean inBase = base.get(changes.keys[i]) != null;
+                if (changes.values[i] == REMOVED) {
+                    if (inBase) n--;
+                } else if (!inBase) {
+                    n++;
+                }
+            }
+            this.size = n;
+        }
+
+        @Override
+        public AssetRepository.AssetInfo get(String epc) {
+            Object v = changes.get(epc);
+            if (v == REMOVED) return null;
+            if (v != null) return (AssetRepository.AssetInfo) v;
+            return base.get(epc);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void forEach(Consumer<AssetRepository.AssetInfo> action) {
+            base.forEach(a -> {
+                if (changes.get(a.getEpc()) == null) action.accept(a);
+            });
+            for (int i = 0; i < changes.keys.length; i++) {
+                if (changes.keys[i] != null && changes.values[i] != REMOVED) {
+                    action.accept((AssetRepository.AssetInfo) changes.values[i]);
+                }
+            }
+        }
+
+        @Override
+        public List<AssetRepository.AssetInfo> head(int limit) {
+            // 가려진 EPC 수만큼 더 읽으면 limit을 채울 수 있다
+            List<AssetRepository.AssetInfo> list = new ArrayList<>();
+            for (AssetRepository.AssetInfo a : base.head(limit + changes.size)) {
+                if (list.size() >= limit) return list;
+                if (changes.get(a.getEpc()) == null) list.add(a);
+            }
+            for (int i = 0; i < changes.keys.length && list.size() < limit; i++) {
+                if (changes.keys[i] != null && changes.values[i] != REMOVED) {
+                    list.add((AssetRepository.AssetInfo) changes.values[i]);
+                }
+            }
+            return list;
+        }
+    }
+
+    /** 문자열 키 개방 주소 테이블 (생성 중에만 put) */
+    private static final class Table {
+        final String[] keys;
+        final Object[] values;
+        final int mask;
+        int size;
+
+        Table(int expected) {
+            int capacity = 2;
+            while (capacity < expected * 2) capacity <<= 1;
+            keys = new String[capacity];
+            values = new Object[capacity];
+            mask = capacity - 1;
+        }
+
+        void put(String key, Object value) {
+            int i = slot(key);
+            while (keys[i] != null) {
+                if (keys[i].equals(key)) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+        }
+
+        Object get(String key) {
+            if (key == null) return null;
+            int i = slot(key);
+            String k;
+            while ((k = keys[i]) != null) {
+                if (k.equals(key)) return values[i];
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        private int slot(String key) {
+            int h = key.hashCode();
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
@@ -0,0 +1,568 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.util.AppLogger;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 자산/반출허용 캐시 스냅샷 파일 (assets-&lt;생성 ms&gt;.snap). 기동 시 매핑해 DB 없이 바로 쓴다.
+ *
+ * 헤더(64) = [magic(4)][version(4)][생성 ms(8)][자산 수(4)][자산 키 폭(4)][자산 레코드 크기(4)]
+ *            [허용 EPC 수(4)][허용 키 폭(4)][허용 레코드 크기(4)][기간 수(4)][문자열 영역 길이(4)]
+ *            [플래그(4)][예약(4)][crc32(4)][예약(4)]
+ * 뒤로 자산 레코드, 허용 레코드, 기간(long 시작/종료), 문자열 영역이 이어진다.
+ * crc32는 헤더 앞 56바이트와 헤더 뒤 전체를 덮는다.
+ *
+ * 자산 레코드 = [키 길이(1)][키(키 폭, 0 채움)][자산번호][자산명][부서](문자열 영역 오프셋 int, 없으면 -1)[보유(1)]
+ * 허용 레코드 = [키 길이(1)][키(키 폭)][첫 기간 번호(4)][기간 수(4)]
+ * 문자열 = [UTF-8 길이(2)][바이트], 반복되는 문자열(부서 등)은 한 번만 기록 (앞쪽에서 나온 값 일부만 기억).
+ * 레코드는 키 바이트(부호 없는 비교) → 키 길이 순으로 정렬되어 있어 이진 탐색한다.
+ * EPC가 모두 짝수 길이 16진수면 키를 바이트로 줄여 저장한다 (플래그 bit0).
+ *
+ * 매핑 중인 파일은 Windows에서 덮어쓸 수 없으므로 매번 새 이름으로 쓰고 이전 파일은 지울 수 있을 때 지운다.
+ */
+final class AssetSnapshotFile {
+    static final String PREFIX = "assets-";
+    static final String SUFFIX = ".snap";
+
+    private static final int MAGIC = 0x41534E31; // "ASN1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int CRC_OFFSET = 56;
+    private static final int FLAG_HEX_KEYS = 1;
+    private static final int MAX_KEY_BYTES = 255;
+    private static final int MAX_STRING_BYTES = 0xFFFF;
+    /** 자산 레코드 중 키 뒤 고정 부분 (오프셋 3개 + 보유) */
+    private static final int ASSET_TAIL = 13;
+    /** 허용 레코드 중 키 뒤 고정 부분 (첫 기간 번호 + 기간 수) */
+    private static final int PERMIT_TAIL = 8;
+
+    private AssetSnapshotFile() {}
+
+    /** 스냅샷 파일 이름 (생성 시각 순으로 정렬되도록 고정 폭) */
+    static String fileName(long builtAtMs) {
+        return PREFIX + String.format("%013d", builtAtMs) + SUFFIX;
+    }
+
+    /**
+     * 스냅샷을 dir에 새 파일로 기록 (임시 파일에 쓰고 fsync 후 이름 변경)
+     * @return 기록한 파일
+     */
+    static File write(File dir, AssetSnapshot snapshot) throws IOException {
+        try (Writer writer = new Writer(dir, snapshot.getBuiltAtMs())) {
+            snapshot.forEachAsset(a ->
+                writer.add(a.getEpc(), a.getAssetNumber(), a.getAssetName(), a.getDepartment(), a.isPossession()));
+            Map<String, long[]> permits = new HashMap<>();
+            snapshot.forEachPermit(permits::put);
+            return writer.finish(permits);
+        }
+    }
+
+    /**
+     * 자산을 한 건씩 받아 스냅샷 파일을 만드는 기록기 (DB 행을 바로 흘려 넣을 수 있음).
+     * 자산마다 객체를 남기지 않도록 키는 바이트 배열 하나에 이어 붙이고 문자열은 임시 파일에 바로 쓰며,
+     * 정렬은 int 색인으로만 한다. 같은 EPC가 여러 번 오면 마지막 것을 쓴다.
+     * add()에서 난 기록 오류는 finish()에서 던진다. 끝나면 반드시 close() (임시 파일 정리)
+     */
+    static final class Writer implements Closeable {
+        /** 중복 제거용으로 기억할 문자열 수 (부서처럼 반복되는 값은 앞쪽에서 잡힌다) */
+        private static final int STRING_CACHE_MAX = 4096;
+
+        private final File dir;
+        private final long builtAtMs;
+        private final File stringsFile;
+        private final DataOutputStream strings;
+        private final Map<String, Integer> stringOffsets = new HashMap<>();
+        private int stringsSize;
+        /** 저장된 그대로의 EPC 바이트. 자산 i의 키는 keys[keyStart[i], keyStart[i + 1]) */
+        private byte[] keys = new byte[1 << 16];
+        private int[] keyStart = new int[1025];
+        /** 자산 i의 자산번호/자산명/부서 문자열 오프셋 */
+        private int[] fields = new int[1024 * 3];
+        private byte[] possession = new byte[1024];
+        private int count;
+        private boolean hex = true;
+        private IOException error;
+
+        Writer(File dir, long builtAtMs) throws IOException {
+            if (!dir.exists() && !dir.mkdirs()) throw new IOException("Cannot create " + dir);
+            this.dir = dir;
+            this.builtAtMs = builtAtMs;
+            stringsFile = new File(dir, fileName(builtAtMs) + ".strings.tmp");
+            strings = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(stringsFile), 1 << 16));
+        }
+
+        /** @param epc 정규화된 EPC (null이면 건너뜀) */
+        void add(String epc, String assetNumber, String assetName, String department, boolean possessed) {
+            if (epc == null || error != null) return;
+            try {
+                byte[] key = epc.getBytes(StandardCharsets.UTF_8);
+                if (key.length > MAX_KEY_BYTES * 2) throw new IOException("EPC longer than " + MAX_KEY_BYTES + " bytes");
+                grow(key.length);
+                System.arraycopy(key, 0, keys, keyStart[count], key.length);
+                keyStart[count + 1] = keyStart[count] + key.length;
+                if (hex && !isHexKey(epc)) hex = false;
+                fields[count * 3] = addString(assetNumber);
+                fields[count * 3 + 1] = addString(assetName);
+                fields[count * 3 + 2] = addString(department);
+                possession[count] = (byte) (possessed ? 1 : 0);
+                count++;
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+
+        private void grow(int keyLength) throws IOException {
+            long needed = (long) keyStart[count] + keyLength;
+            if (needed > Integer.MAX_VALUE - 8) throw new IOException("Too many assets for one snapshot");
+            if (needed > keys.length) keys = Arrays.copyOf(keys, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(needed, keys.length * 2L)));
+            if (count + 1 >= possession.length) {
+                int capacity = possession.length * 2;
+                keyStart = Arrays.copyOf(keyStart, capacity + 1);
+                fields = Arrays.copyOf(fields, capacity * 3);
+                possession = Arrays.copyOf(possession, capacity);
+            }
+        }
+
+        private int addString(String s) throws IOException {
+            if (s == null) return -1;
+            Integer known = stringOffsets.get(s);
+            if (known != null) return known;
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            if (b.length > MAX_STRING_BYTES) throw new IOException("String too long for snapshot: " + b.length + " bytes");
+            int offset = stringsSize;
+            if ((long) offset + 2 + b.length > Integer.MAX_VALUE) throw new IOException("Snapshot strings too large");
+            strings.writeShort(b.length);
+            strings.write(b);
+            stringsSize += 2 + b.length;
+            if (stringOffsets.size() < STRING_CACHE_MAX) stringOffsets.put(s, offset);
+            return offset;
+        }
+
+        /**
+         * 파일 완성 (임시 파일에 쓰고 fsync 후 이름 변경)
+         * @param permits 정규화 EPC → 허용 기간 목록
+         * @return 기록한 파일
+         */
+        File finish(Map<String, long[]> permits) throws IOException {
+            if (error != null) throw error;
+            strings.close();
+
+            List<String> permitEpcs = new ArrayList<>(permits.keySet());
+            boolean hexKeys = hex;
+            for (String epc : permitEpcs) {
+                if (hexKeys && !isHexKey(epc)) hexKeys = false;
+            }
+            // 16진 키면 EPC 바이트를 절반 길이로 변환 (같은 배열 안에서 앞으로 당김)
+            byte[] encoded = keys;
+            int[] start = keyStart;
+            if (hexKeys) {
+                start = new int[count + 1];
+                for (int i = 0; i < count; i++) {
+                    int from = keyStart[i];
+                    int to = start[i];
+                    for (int k = from; k < keyStart[i + 1]; k += 2) {
+                        encoded[to++] = (byte) ((Character.digit(keys[k], 16) << 4) | Character.digit(keys[k + 1], 16));
+                    }
+                    start[i + 1] = to;
+                }
+            }
+            int width = 1;
+            for (int i = 0; i < count; i++) {
+                int len = start[i + 1] - start[i];
+                if (len > MAX_KEY_BYTES) throw new IOException("EPC longer than " + MAX_KEY_BYTES + " bytes");
+                width = Math.max(width, len);
+            }
+            byte[][] permitKeys = encodeKeys(permitEpcs, hexKeys);
+            if (permitKeys == null) throw new IOException("EPC longer than " + MAX_KEY_BYTES + " bytes");
+            int permitWidth = keyWidth(permitKeys);
+            Integer[] permitOrder = sortedOrder(permitKeys);
+
+            // 안정 정렬 후 같은 키가 이어지면 마지막(나중에 들어온) 것만 남김
+            int[] order = new int[count];
+            for (int i = 0; i < count; i++) order[i] = i;
+            sortKeys(order, new int[count], 0, count, encoded, start);
+            int kept = 0;
+            for (int i = 0; i < count; i++) {
+                if (i + 1 < count && compareKeys(encoded, start, order[i], order[i + 1]) == 0) continue;
+                order[kept++] = order[i];
+            }
+            int windowCount = 0;
+            for (long[] iv : permits.values()) windowCount += iv.length / 2;
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(builtAtMs)
+                .putInt(kept).putInt(width).putInt(1 + width + ASSET_TAIL)
+                .putInt(permitEpcs.size()).putInt(permitWidth).putInt(1 + permitWidth + PERMIT_TAIL)
+                .putInt(windowCount).putInt(stringsSize)
+                .putInt(hexKeys ? FLAG_HEX_KEYS : 0).putInt(0);
+            CRC32 crc = new CRC32();
+            crc.update(header.array(), 0, CRC_OFFSET);
+
+            File target = new File(dir, fileName(builtAtMs));
+            File tmp = new File(dir, target.getName() + ".tmp");
+            try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                fos.write(header.array());
+                // 버퍼를 crc 계산 위에 두어야 crc가 바이트 단위가 아니라 버퍼 단위로 갱신된다
+                DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new CheckedOutputStream(fos, crc), 1 << 16));
+                for (int n = 0; n < kept; n++) {
+                    int i = order[n];
+                    int len = start[i + 1] - start[i];
+                    out.writeByte(len);
+                    out.write(encoded, start[i], len);
+                    for (int k = len; k < width; k++) out.writeByte(0);
+                    out.writeInt(fields[i * 3]);
+                    out.writeInt(fields[i * 3 + 1]);
+                    out.writeInt(fields[i * 3 + 2]);
+                    out.writeByte(possession[i]);
+                }
+                int windowIndex = 0;
+                for (Integer i : permitOrder) {
+                    long[] iv = permits.get(permitEpcs.get(i));
+                    writeKey(out, permitKeys[i], permitWidth);
+                    out.writeInt(windowIndex);
+                    out.writeInt(iv.length / 2);
+                    windowIndex += iv.length / 2;
+                }
+                for (Integer i : permitOrder) {
+                    for (long v : permits.get(permitEpcs.get(i))) out.writeLong(v);
+                }
+                Files.copy(stringsFile.toPath(), out);
+                out.flush();
+
+                ByteBuffer crcBytes = ByteBuffer.allocate(4);
+                crcBytes.putInt(0, (int) crc.getValue());
+                fos.getChannel().write(crcBytes, CRC_OFFSET);
+                fos.getFD().sync();
+            } catch (IOException e) {
+                Files.deleteIfExists(tmp.toPath());
+                throw e;
+            }
+            Files.move(tmp.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return target;
+        }
+
+        @Override
+        public void close() {
+            try {
+                strings.close();
+            } catch (IOException ignore) {
+                // 이미 닫힘
+            }
+            if (!stringsFile.delete() && stringsFile.exists()) {
+                AppLogger.debug("AssetSnapshotFile", "Cannot delete " + stringsFile.getName());
+            }
+        }
+    }
+
+    /**
+     * 스냅샷 파일을 매핑해 복원 (자산은 매핑에서 바로 조회, 반출허용 기간만 힙으로 읽음).
+     * 형식이나 crc가 맞지 않으면 IOException
+     */
+    static AssetSnapshot open(File file) throws IOException {
+        MappedByteBuffer buf;
+        try (FileChannel ch = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            if (ch.size() < HEADER_SIZE || ch.size() > Integer.MAX_VALUE) {
+                throw new IOException("Bad snapshot size " + ch.size());
+            }
+            buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        if (buf.getInt(0) != MAGIC) throw new IOException("Not an asset snapshot");
+        if (buf.getInt(4) != VERSION) throw new IOException("Unsupported snapshot version " + buf.getInt(4));
+        long builtAtMs = buf.getLong(8);
+        int assetCount = buf.getInt(16);
+        int assetWidth = buf.getInt(20);
+        int assetRecord = buf.getInt(24);
+        int permitCount = buf.getInt(28);
+        int permitWidth = buf.getInt(32);
+        int permitRecord = buf.getInt(36);
+        int windowCount = buf.getInt(40);
+        int stringsLength = buf.getInt(44);
+        boolean hex = (buf.getInt(48) & FLAG_HEX_KEYS) != 0;
+        if (assetCount < 0 || permitCount < 0 || windowCount < 0 || stringsLength < 0
+                || assetRecord != 1 + assetWidth + ASSET_TAIL || permitRecord != 1 + permitWidth + PERMIT_TAIL) {
+            throw new IOException("Corrupt snapshot header");
+        }
+        long assetsAt = HEADER_SIZE;
+        long permitsAt = assetsAt + (long) assetCount * assetRecord;
+        long windowsAt = permitsAt + (long) permitCount * permitRecord;
+        long stringsAt = windowsAt + (long) windowCount * 16;
+        if (stringsAt + stringsLength != buf.capacity()) throw new IOException("Snapshot size mismatch");
+
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[1 << 16];
+        ByteBuffer view = buf.duplicate();
+        view.limit(CRC_OFFSET);
+        while (view.hasRemaining()) {
+            int n = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        view.limit(view.capacity()).position(HEADER_SIZE);
+        while (view.hasRemaining()) {
+            int n = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        if ((int) crc.getValue() != buf.getInt(CRC_OFFSET)) throw new IOException("Snapshot checksum mismatch");
+
+        Map<String, long[]> permits = new HashMap<>(permitCount * 2);
+        for (int i = 0; i < permitCount; i++) {
+            int rec = (int) permitsAt + i * permitRecord;
+            int first = buf.getInt(rec + 1 + permitWidth);
+            int count = buf.getInt(rec + 5 + permitWidth);
+            if (first < 0 || count < 0 || (long) first + count > windowCount) throw new IOException("Corrupt permit record");
+            long[] iv = new long[count * 2];
+            for (int k = 0; k < iv.length; k++) iv[k] = buf.getLong((int) windowsAt + first * 16 + k * 8);
+            permits.put(decodeKey(buf, rec, hex), iv);
+        }
+        MappedAssets assets = new MappedAssets(buf, (int) assetsAt, assetCount, assetWidth, assetRecord,
+            (int) stringsAt, stringsLength, hex);
+        return AssetSnapshot.restore(assets, permits, builtAtMs);
+    }
+
+    /** 스냅샷 파일을 매핑한 채로 조회하는 자산 색인 (조회 때마다 AssetInfo를 만든다) */
+    static final class MappedAssets implements AssetSnapshot.AssetIndex {
+        private final ByteBuffer buf;
+        private final int base;
+        private final int count;
+        private final int width;
+        private final int record;
+        private final int stringsAt;
+        private final int stringsLength;
+        private final boolean hex;
+
+        MappedAssets(ByteBuffer buf, int base, int count, int width, int record,
+                     int stringsAt, int stringsLength, boolean hex) {
+            this.buf = buf;
+            this.base = base;
+            this.count = count;
+            this.width = width;
+            this.record = record;
+            this.stringsAt = stringsAt;
+            this.stringsLength = stringsLength;
+            this.hex = hex;
+        }
+
+        @Override
+        public AssetRepository.AssetInfo get(String epc) {
+            byte[] key = encodeKey(epc, hex);
+            if (key == null || key.length > width) return null;
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int c = compareAt(base + mid * record, key);
+                if (c < 0) {
+                    lo = mid + 1;
+                } else if (c > 0) {
+                    hi = mid - 1;
+                } else {
+                    return materialize(base + mid * record, epc);
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+
+        @Override
+        public void forEach(Consumer<AssetRepository.AssetInfo> action) {
+            for (int i = 0; i < count; i++) {
+                int rec = base + i * record;
+                action.accept(materialize(rec, decodeKey(buf, rec, hex)));
+            }
+        }
+
+        @Override
+        public List<AssetRepository.AssetInfo> head(int limit) {
+            int n = Math.min(limit, count);
+            List<AssetRepository.AssetInfo> list = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                int rec = base + i * record;
+                list.add(materialize(rec, decodeKey(buf, rec, hex)));
+            }
+            return list;
+        }
+
+        /** 레코드 키와 조회 키 비교 (키 바이트, 같으면 키 길이) */
+        private int compareAt(int rec, byte[] key) {
+            int len = buf.get(rec) & 0xFF;
+            for (int i = 0; i < width; i++) {
+                int a = buf.get(rec + 1 + i) & 0xFF;
+                int b = i < key.length ? key[i] & 0xFF : 0;
+                if (a != b) return a < b ? -1 : 1;
+            }
+            return Integer.compare(len, key.length);
+        }
+
+        private AssetRepository.AssetInfo materialize(int rec, String epc) {
+            int p = rec + 1 + width;
+            return new AssetRepository.AssetInfo(epc,
+                readString(buf.getInt(p)),
+                readString(buf.getInt(p + 4)),
+                readString(buf.getInt(p + 8)),
+                buf.get(p + 12) == 1);
+        }
+
+        private String readString(int offset) {
+            if (offset < 0 || offset + 2 > stringsLength) return null;
+            int at = stringsAt + offset;
+            int len = buf.getShort(at) & 0xFFFF;
+            byte[] bytes = new byte[len];
+            ByteBuffer view = buf.duplicate();
+            view.position(at + 2);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    /** 키 바이트 목록 (변환할 수 없는 EPC가 있으면 null) */
+    private static byte[][] encodeKeys(List<String> epcs, boolean hex) {
+        byte[][] keys = new byte[epcs.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = encodeKey(epcs.get(i), hex);
+            if (keys[i] == null) return null;
+        }
+        return keys;
+    }
+
+    private static int keyWidth(byte[][] keys) {
+        int width = 1;
+        for (byte[] k : keys) width = Math.max(width, k.length);
+        return width;
+    }
+
+    private static Integer[] sortedOrder(byte[][] keys) {
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> compareKeys(keys[x], keys[y]));
+        return order;
+    }
+
+    /** 0으로 채운 키 바이트(부호 없음) → 키 길이 순 (MappedAssets.compareAt과 같은 순서) */
+    private static int compareKeys(byte[] a, byte[] b) {
+        int n = Math.max(a.length, b.length);
+        for (int i = 0; i < n; i++) {
+            int x = i < a.length ? a[i] & 0xFF : 0;
+            int y = i < b.length ? b[i] & 0xFF : 0;
+            if (x != y) return x < y ? -1 : 1;
+        }
+        return Integer.compare(a.length, b.length);
+    }
+
+    /** compareKeys와 같은 순서로 바이트 배열 안의 두 키 비교 (키 i = keys[start[i], start[i + 1])) */
+    private static int compareKeys(byte[] keys, int[] start, int x, int y) {
+        int ax = start[x];
+        int lx = start[x + 1] - ax;
+        int ay = start[y];
+        int ly = start[y + 1] - ay;
+        int n = Math.max(lx, ly);
+        for (int i = 0; i < n; i++) {
+            int a = i < lx ? keys[ax + i] & 0xFF : 0;
+            int b = i < ly ? keys[ay + i] & 0xFF : 0;
+            if (a != b) return a < b ? -1 : 1;
+        }
+        return Integer.compare(lx, ly);
+    }
+
+    /** order[lo, hi)를 키 순으로 안정 정렬 (병합 정렬, 박싱 없음) */
+    private static void sortKeys(int[] order, int[] tmp, int lo, int hi, byte[] keys, int[] start) {
+        if (hi - lo <= 16) {
+            for (int i = lo + 1; i < hi; i++) {
+                int v = order[i];
+                int j = i - 1;
+                while (j >= lo && compareKeys(keys, start, order[j], v) > 0) {
+                    order[j + 1] = order[j];
+                    j--;
+                }
+                order[j + 1] = v;
+            }
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        sortKeys(order, tmp, lo, mid, keys, start);
+        sortKeys(order, tmp, mid, hi, keys, start);
+        if (compareKeys(keys, start, order[mid - 1], order[mid]) <= 0) return;
+        int i = lo;
+        int j = mid;
+        int k = lo;
+        while (i < mid && j < hi) {
+            tmp[k++] = compareKeys(keys, start, order[j], order[i]) < 0 ? order[j++] : order[i++];
+        }
+        while (i < mid) tmp[k++] = order[i++];
+        while (j < hi) tmp[k++] = order[j++];
+        System.arraycopy(tmp, lo, order, lo, hi - lo);
+    }
+
+    private static void writeKey(DataOutputStream out, byte[] key, int width) throws IOException {
+        out.writeByte(key.length);
+        out.write(key);
+        for (int i = key.length; i < width; i++) out.writeByte(0);
+    }
+
+    private static boolean isHexKey(String epc) {
+        if (epc == null || epc.isEmpty() || (epc.length() & 1) != 0) return false;
+        for (int i = 0; i < epc.length(); i++) {
+            if (Character.digit(epc.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    /** EPC → 키 바이트 (16진 키 파일에 16진이 아닌 EPC를 조회하거나 너무 길면 null) */
+    private static byte[] encodeKey(String epc, boolean hex) {
+        if (epc == null) return null;
+        byte[] key;
+        if (hex) {
+            if (!isHexKey(epc)) return null;
+            key = new byte[epc.length() / 2];
+            for (int i = 0; i < key.length; i++) {
+                key[i] = (byte) ((Character.digit(epc.charAt(i * 2), 16) << 4) | Character.digit(epc.charAt(i * 2 + 1), 16));
+            }
+        } else {
+            key = epc.getBytes(StandardCharsets.UTF_8);
+        }
+        return key.length <= MAX_KEY_BYTES ? key : null;
+    }
+
+    private static String decodeKey(ByteBuffer buf, int rec, boolean hex) {
+        int len = buf.get(rec) & 0xFF;
+        if (hex) {
+            char[] chars = new char[len * 2];
+            for (int i = 0; i < len; i++) {
+                int b = buf.get(rec + 1 + i) & 0xFF;
+                chars[i * 2] = Character.toUpperCase(Character.forDigit(b >>> 4, 16));
+                chars[i * 2 + 1] = Character.toUpperCase(Character.forDigit(b & 0xF, 16));
+            }
+            return new String(chars);
+        }
+        byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) bytes[i] = buf.get(rec + 1 + i);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,503 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.LatencyHistogram;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 경량 JDBC 커넥션 풀.
+ * borrow()가 반환하는 Connection은 프록시이며 close() 시 실제 연결을 닫지 않고 풀로 돌려준다
+ * (try-with-resources로 사용). 유휴 연결 검증(isValid)은 대여할 때마다 하지 않고
+ * 백그라운드 유지보수 스레드가 주기적으로 수행하며, 같은 스레드가 최소 연결 수 보충,
+ * 유휴 초과 연결 정리, 장시간 반납되지 않은 연결(누수 의심) 경고를 담당한다.
+ * 연결에서 만든 Statement/PreparedStatement/ResultSet도 프록시로 감싸, 어디서 연결 오류가 나든
+ * 그 연결은 반납 시 폐기된다. 연결 생성 실패/연결 오류와 실제로 실행에 성공한 대여는
+ * HealthListener로 통지되며(서킷 브레이커 연동, 아무것도 실행하지 않은 반납은 통지하지 않음),
+ * suspend() 동안에는 대여가 즉시 실패하고 검증/보충도 멈춘다.
+ */
+public class ConnectionPool {
+    /** 실제 연결 생성기 */
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /** 연결 상태 통지 (DB 장애 감지용) */
+    public interface HealthListener {
+        /** 연결 생성 실패 또는 사용 중 연결 오류 */
+        void onConnectionFailure(SQLException e);
+        /** 문장 실행(또는 commit)에 성공하고 연결 오류 없이 반납됨 */
+        void onConnectionSuccess();
+    }
+
+    /** 대여 대기 중 빈 자리(폐기된 연결) 재확인 주기 */
+    private static final long WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final String name;
+    private final ConnectionFactory factory;
+    private final int minSize;
+    private final int maxSize;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutNanos;
+    private final long leakThresholdNanos;
+
+    /** 유휴 연결 (앞쪽이 최근 반납 - 자주 쓰는 연결을 재사용하고 뒤쪽부터 정리) */
+    private final LinkedBlockingDeque<IdleEntry> idle = new LinkedBlockingDeque<>();
+    private final Set<Lease> leased = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger total = new AtomicInteger();
+    private final AtomicLong borrowCount = new AtomicLong();
+    private final AtomicLong timeoutCount = new AtomicLong();
+    private final AtomicLong leakCount = new AtomicLong();
+    private final AtomicLong brokenCount = new AtomicLong();
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    private final ScheduledExecutorService maintenance;
+    private volatile boolean closed = false;
+    private volatile boolean suspended = false;
+    private volatile HealthListener healthListener;
+
+    public ConnectionPool(String name, ConnectionFactory factory, int minSize, int maxSize,
+                          long borrowTimeoutMs, int validationIntervalSeconds,
+                          int idleTimeoutSeconds, int leakThresholdSeconds) {
+        this.name = name;
+        this.factory = factory;
+        this.maxSize = Math.max(1, maxSize);
+        this.minSize = Math.max(0, Math.min(minSize, this.maxSize));
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutNanos = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        this.leakThresholdNanos = TimeUnit.SECONDS.toNanos(leakThresholdSeconds);
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DB-Pool-" + name);
+            t.setDaemon(true);
+            return t;
+        });
+        maintenance.scheduleWithFixedDelay(() -> {
+            try {
+                maintain();
+            } catch (Throwable t) {
+                AppLogger.error("ConnectionPool", "[" + name + "] Maintenance failed: " + t.getMessage(), t);
+            }
+        }, validationIntervalSeconds, validationIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    public void setHealthListener(HealthListener healthListener) {
+        this.healthListener = healthListener;
+    }
+
+    /** 최소 연결 수만큼 미리 생성. 첫 연결부터 실패하면 예외 */
+    public void start() throws SQLException {
+        while (total.get() < minSize) {
+            idle.offerLast(new IdleEntry(createCounted()));
+        }
+        AppLogger.info("ConnectionPool", "[" + name + "] Started (min=" + minSize + ", max=" + maxSize + ")");
+    }
+
+    /**
+     * 연결 대여. 유휴 연결이 없고 최대 크기에 도달했으면 borrowTimeoutMs까지 대기.
+     * 반환된 연결은 반드시 close()로 반납할 것.
+     */
+    public Connection borrow() throws SQLException {
+        if (closed) throw new SQLException("Connection pool '" + name + "' is closed");
+        if (suspended) throw new UnavailableException("Connection pool '" + name + "' suspended (database unavailable)");
+        long start = System.nanoTime();
+
+        IdleEntry entry = idle.pollFirst();
+        Connection raw = (entry != null) ? entry.connection : tryCreate();
+        if (raw == null) {
+            raw = awaitConnection(start);
+        }
+
+        borrowWait.recordNanos(System.nanoTime() - start);
+        borrowCount.incrementAndGet();
+        Lease lease = new Lease(raw);
+        leased.add(lease);
+        lease.proxy = (Connection) Proxy.newProxyInstance(
+            ConnectionPool.class.getClassLoader(), new Class<?>[] {Connection.class}, lease);
+        return lease.proxy;
+    }
+
+    /**
+     * 유휴 연결 반납 또는 빈 자리를 borrowTimeoutMs까지 대기.
+     * 폐기(discard)로 생긴 빈 자리는 반납 통지가 없으므로 짧게 나눠 기다리며 새 연결 생성을 재시도
+     */
+    private Connection awaitConnection(long start) throws SQLException {
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMs);
+        while (true) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            IdleEntry entry;
+            try {
+                entry = idle.pollFirst(Math.min(remaining, WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SQLException("Interrupted while waiting for connection", e);
+            }
+            if (entry != null) return entry.connection;
+            if (closed) throw new SQLException("Connection pool '" + name + "' is closed");
+            if (suspended) throw new UnavailableException("Connection pool '" + name + "' suspended (database unavailable)");
+            Connection raw = tryCreate();
+            if (raw != null) return raw;
+        }
+        timeoutCount.incrementAndGet();
+        throw new UnavailableException("Connection pool '" + name + "' exhausted (max=" + maxSize
+            + ", waited " + borrowTimeoutMs + "ms)");
+    }
+
+    /** 최대 크기 미만이면 새 연결 생성, 아니면 null */
+    private Connection tryCreate() throws SQLException {
+        while (true) {
+            int current = total.get();
+            if (current >= maxSize) return null;
+            if (total.compareAndSet(current, current + 1)) break;
+        }
+        try {
+            return factory.create();
+        } catch (SQLException e) {
+            total.decrementAndGet();
+            notifyFailure(e);
+            throw e;
+        } catch (RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private Connection createCounted() throws SQLException {
+        total.incrementAndGet();
+        try {
+            return factory.create();
+        } catch (SQLException | RuntimeException e) {
+            total.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void release(Connection raw, boolean broken, boolean dirty, boolean executed) {
+        if (!closed && !broken && dirty) {
+            // 트랜잭션을 열어 둔 채 반납한 경우 원상복구
+            try {
+                if (!raw.getAutoCommit()) {
+                    raw.rollback();
+                    raw.setAutoCommit(true);
+                }
+            } catch (SQLException e) {
+                broken = true;
+            }
+        }
+        if (closed || broken || suspended) {
+            discard(raw);
+        } else {
+            idle.offerFirst(new IdleEntry(raw));
+        }
+        if (!broken && executed) {
+            HealthListener l = healthListener;
+            if (l != null) l.onConnectionSuccess();
+        }
+    }
+
+    private void notifyFailure(SQLException e) {
+        HealthListener l = healthListener;
+        if (l != null) l.onConnectionFailure(e);
+    }
+
+    /** 대여 중지 + 유휴 연결 폐기 (DB 장애 시). 대여 중인 연결은 반납 시 폐기 */
+    public void suspend() {
+        suspended = true;
+        IdleEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            discard(entry.connection);
+        }
+    }
+
+    /** 대여 재개. 최소 연결은 다음 대여/유지보수 시 다시 채워짐 */
+    public void resume() {
+        suspended = false;
+    }
+
+    public boolean isSuspended() {
+        return suspended;
+    }
+
+    private void discard(Connection raw) {
+        total.decrementAndGet();
+        try {
+            raw.close();
+        } catch (Exception ignore) {
+            // 이미 끊긴 연결
+        }
+    }
+
+    /** 유휴 연결 검증/정리, 최소 연결 보충, 누수 감지 */
+    private void maintain() {
+        if (closed) return;
+        long now = System.nanoTime();
+        boolean refill = !suspended;
+
+        // 1) 유휴 연결 검증 (오래된 쪽부터 한 바퀴)
+        List<IdleEntry> kept = new ArrayList<>();
+        int n = idle.size();
+        for (int i = 0; i < n; i++) {
+            IdleEntry entry = idle.pollLast();
+            if (entry == null) break;
+            boolean expired = suspended
+                || (total.get() > minSize && now - entry.returnedAt > idleTimeoutNanos);
+            if (expired || !isValid(entry.connection)) {
+                if (!expired) {
+                    brokenCount.incrementAndGet();
+                    AppLogger.warn("ConnectionPool", "[" + name + "] Dropped invalid idle connection");
+                }
+                discard(entry.connection);
+            } else {
+                kept.add(entry);
+            }
+        }
+        // 검증 중 반납된 연결보다 뒤쪽에 원래 순서대로 되돌림
+        for (int i = kept.size() - 1; i >= 0; i--) {
+            idle.offerLast(kept.get(i));
+        }
+
+        // 2) 최소 연결 보충
+        while (refill && !closed && !suspended && total.get() < minSize) {
+            try {
+                idle.offerLast(new IdleEntry(createCounted()));
+            } catch (SQLException e) {
+                AppLogger.warn("ConnectionPool", "[" + name + "] Refill failed: " + e.getMessage());
+                notifyFailure(e);
+                break;
+            }
+        }
+
+        // 3) 누수 감지
+        if (leakThresholdNanos > 0) {
+            for (Lease lease : leased) {
+                if (!lease.leakReported && now - lease.borrowedAt > leakThresholdNanos) {
+                    lease.leakReported = true;
+                    leakCount.incrementAndGet();
+                    AppLogger.warn("ConnectionPool", "[" + name + "] Possible connection leak: held "
+                        + TimeUnit.NANOSECONDS.toSeconds(now - lease.borrowedAt) + "s by "
+                        + lease.threadName + " at " + lease.borrowSite());
+                }
+            }
+        }
+    }
+
+    private static boolean isValid(Connection raw) {
+        try {
+            return !raw.isClosed() && raw.isValid(2);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    public String getName() { return name; }
+    public int getTotalCount() { return total.get(); }
+    public int getIdleCount() { return idle.size(); }
+    public int getActiveCount() { return leased.size(); }
+    public LatencyHistogram getBorrowWait() { return borrowWait; }
+
+    /** 풀 상태 JSON (/api/metrics) */
+    public String toJson() {
+        return "{\"name\":\"" + name + "\""
+            + ",\"min\":" + minSize
+            + ",\"max\":" + maxSize
+            + ",\"total\":" + getTotalCount()
+            + ",\"active\":" + getActiveCount()
+            + ",\"idle\":" + getIdleCount()
+            + ",\"borrows\":" + borrowCount.get()
+            + ",\"timeouts\":" + timeoutCount.get()
+            + ",\"leaks\":" + leakCount.get()
+            + ",\"broken\":" + brokenCount.get()
+            + ",\"suspended\":" + suspended
+            + ",\"borrowWait\":" + borrowWait.toJson()
+            + "}";
+    }
+
+    public void close() {
+        closed = true;
+        maintenance.shutdownNow();
+        IdleEntry entry;
+        while ((entry = idle.pollFirst()) != null) {
+            discard(entry.connection);
+        }
+        if (!leased.isEmpty()) {
+            AppLogger.warn("ConnectionPool", "[" + name + "] Closed with " + leased.size()
+                + " connection(s) still in use (closed on return)");
+        }
+        AppLogger.info("ConnectionPool", "[" + name + "] Closed");
+    }
+
+    private static final class IdleEntry {
+        final Connection connection;
+        final long returnedAt = System.nanoTime();
+
+        IdleEntry(Connection connection) {
+            this.connection = connection;
+        }
+    }
+
+    /** 대여 1건 (프록시 호출 처리) */
+    private final class Lease implements InvocationHandler {
+        final Connection raw;
+        Connection proxy;
+        final long borrowedAt = System.nanoTime();
+        final String threadName = Thread.currentThread().getName();
+        /** 누수 경고에 표시할 대여 위치 (누수 감지가 꺼져 있으면 수집하지 않음) */
+        final Throwable site = leakThresholdNanos > 0 ? new Throwable() : null;
+        volatile boolean leakReported = false;
+        boolean returned = false;
+        volatile boolean broken = false;
+        boolean dirty = false;
+        /** 문장 실행/commit이 한 번이라도 성공 (DB가 실제로 응답함) */
+        volatile boolean executed = false;
+
+        Lease(Connection raw) {
+            this.raw = raw;
+        }
+
+        String borrowSite() {
+            if (site == null) return "?";
+            for (StackTraceElement e : site.getStackTrace()) {
+                String cls = e.getClassName();
+                if (!cls.startsWith(ConnectionPool.class.getName()) && !cls.equals(DatabaseManager.class.getName())) {
+                    return e.toString();
+                }
+            }
+            return "?";
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (this) {
+                        if (returned) return null;
+                        returned = true;
+                    }
+                    leased.remove(this);
+                    release(raw, broken, dirty, executed);
+                    return null;
+                case "isClosed":
+                    return returned || raw.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + name + "]";
+                case "setAutoCommit":
+                    dirty = true;
+                    break;
+                default:
+            }
+            if (returned) throw new SQLException("Connection already returned to pool '" + name + "'");
+            Object result = call(raw, method, args);
+            if (method.getName().equals("commit")) executed = true;
+            return wrap(result);
+        }
+
+        /** 대상 호출. 연결 오류면 이 대여를 폐기 대상으로 표시하고 한 번만 통지 */
+        Object call(Object target, Method method, Object[] args) throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLNonTransientConnectionException
+                        || (cause instanceof SQLException && isConnectionError((SQLException) cause))) {
+                    markBroken((SQLException) cause);
+                }
+                throw cause;
+            }
+        }
+
+        private void markBroken(SQLException cause) {
+            synchronized (this) {
+                if (broken) return;
+                broken = true;
+            }
+            brokenCount.incrementAndGet();
+            notifyFailure(cause);
+        }
+
+        /** 문장/결과 집합은 이 대여에 묶인 프록시로 감싸서 반환 */
+        Object wrap(Object result) {
+            Class<?> type;
+            if (result instanceof CallableStatement) {
+                type = CallableStatement.class;
+            } else if (result instanceof PreparedStatement) {
+                type = PreparedStatement.class;
+            } else if (result instanceof Statement) {
+                type = Statement.class;
+            } else if (result instanceof ResultSet) {
+                type = ResultSet.class;
+            } else {
+                return result;
+            }
+            return Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(), new Class<?>[] {type},
+                new LeasedObject(this, result));
+        }
+    }
+
+    /** 대여 연결에서 만든 문장/결과 집합 (연결 오류를 대여에 반영, getConnection은 풀 프록시) */
+    private static final class LeasedObject implements InvocationHandler {
+        final Lease lease;
+        final Object target;
+
+        LeasedObject(Lease lease, Object target) {
+            this.lease = lease;
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String m = method.getName();
+            switch (m) {
+                case "getConnection":
+                    return lease.proxy;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+            }
+            Object result = lease.call(target, method, args);
+            if (m.startsWith("execute")) lease.executed = true;
+            return lease.wrap(result);
+        }
+    }
+
+    /** 풀/서킷이 요청을 거절함 (DB 오류가 아니므로 서킷 브레이커 실패로 세지 않음) */
+    static final class UnavailableException extends SQLTransientConnectionException {
+        private static final long serialVersionUID = 1L;
+
+        UnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /** SQLState 08xxx = 연결 오류 */
+    private static boolean isConnectionError(SQLException e) {
+        String state = e.getSQLState();
+        return state != null && state.startsWith("08");
+    }
+}
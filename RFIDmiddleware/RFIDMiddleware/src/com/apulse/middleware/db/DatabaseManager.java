@@ -2,17 +2,48 @@ package com.apulse.middleware.db;
 
 import com.apulse.middleware.config.DatabaseConfig;
 import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.CircuitBreaker;
 
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTransientConnectionException;
 import java.sql.Statement;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
+/**
+ * DB 연결 관리. 쓰기 풀(태그 배치 INSERT, 알림/자산 변경)과 읽기 풀(캐시 갱신, API/화면 조회)을
+ * 분리해 조회가 길어져도 태그 기록이 대기하지 않도록 한다.
+ * getWriteConnection()/getReadConnection()으로 받은 연결은 try-with-resources로 닫아 풀에 반납한다.
+ *
+ * DB 장애 시에는 서킷 브레이커가 OPEN되어 연결 요청이 드라이버 접속 타임아웃을 기다리지 않고 즉시 실패하며,
+ * 단일 백그라운드 재연결 루프(DB-Reconnect)가 지수 백오프로 접속을 시도한다. 접속이 되면 HALF_OPEN에서
+ * 시험 연결 1건이 성공해야 CLOSED로 돌아가며, 그동안 다른 연결 요청은 거절된다. 상태 전환은 addStateListener()로 통지된다.
+ * 서킷에는 실제 작업 결과만 반영한다: 풀은 문장 실행 중 연결 오류와 실행에 성공한 대여를 통지하고,
+ * 전용 연결 사용자는 reportConnectionFailure/reportConnectionSuccess로 알린다.
+ */
 public class DatabaseManager {
     private static final DatabaseManager INSTANCE = new DatabaseManager();
 
     private DatabaseConfig config;
-    private Connection connection;
-    private boolean initialized = false;
+    private ConnectionPool writerPool;
+    private ConnectionPool readerPool;
+    private CircuitBreaker breaker;
+    /** initialize() 완료 (DB 사용 설정됨, 장애 중이어도 true) */
+    private volatile boolean enabled = false;
+    private volatile boolean schemaReady = false;
+    private final Object reconnectLock = new Object();
+    private Thread reconnectThread;
+    private final List<CircuitBreaker.StateListener> stateListeners = new CopyOnWriteArrayList<>();
+    /** 풀이 이미 서킷에 반영한 오류 (호출자가 reportConnectionFailure로 다시 알려도 한 번만 셈) */
+    private final Map<Throwable, Boolean> countedFailures = Collections.synchronizedMap(new WeakHashMap<>());
 
     private DatabaseManager() {}
 
@@ -24,136 +55,287 @@ public class DatabaseManager {
         this.config = config;
         try {
             Class.forName("org.mariadb.jdbc.Driver");
-            connect();
-            if (connection != null) {
-                createTableIfNotExists();
-                initialized = true;
-                AppLogger.info("DatabaseManager", "Initialized successfully");
-            }
-        } catch (Exception e) {
+        } catch (ClassNotFoundException e) {
             AppLogger.error("DatabaseManager", "Init failed: " + e.getMessage());
             AppLogger.warn("DatabaseManager", "Program will continue without DB");
+            return;
         }
-    }
 
-    private void connect() {
+        breaker = new CircuitBreaker("database", config.getBreakerFailureThreshold());
+        breaker.addListener(this::onBreakerStateChanged);
+        writerPool = createPool("writer", config.getWriterPoolMin(), config.getWriterPoolMax());
+        readerPool = createPool("reader", config.getReaderPoolMin(), config.getReaderPoolMax());
+        enabled = true;
+        PartitionManager.getInstance().configure(config);
         try {
-            if (connection != null && !connection.isClosed()) {
-                return;
+            writerPool.start();
+            readerPool.start();
+            AppLogger.info("DatabaseManager", "Connected to " + config.getHost() + ":" + config.getPort());
+            try (Connection conn = writerPool.borrow()) {
+                schemaReady = SchemaMigrator.getInstance().migrate(conn);
             }
-            connection = DriverManager.getConnection(
-                config.getJdbcUrl(), config.getUser(), config.getPassword());
-            try (Statement s = connection.createStatement()) {
-                s.execute("SET NAMES utf8mb4 COLLATE utf8mb4_unicode_ci");
+            if (schemaReady) {
+                AppLogger.info("DatabaseManager", "Initialized successfully");
+            } else {
+                breaker.trip("Schema migration failed");
             }
-            AppLogger.info("DatabaseManager", "Connected to " + config.getHost() + ":" + config.getPort());
-        } catch (Exception e) {
-            connection = null;
-            AppLogger.error("DatabaseManager", "Connection failed: " + e.getMessage());
+        } catch (SQLException e) {
+            // 기동 시 DB가 내려가 있어도 재연결 루프가 복구하면 그때부터 기록
+            AppLogger.error("DatabaseManager", "Init failed: " + e.getMessage());
+            AppLogger.warn("DatabaseManager", "Database unreachable - writes are buffered until it recovers");
+            breaker.trip(e.getMessage());
         }
+        PartitionManager.getInstance().start(config.getPartitionMaintenanceMinutes());
     }
 
-    private void createTableIfNotExists() {
-        String[] sqls = {
-            "CREATE TABLE IF NOT EXISTS tag_reads ("
-                + "id BIGINT PRIMARY KEY AUTO_INCREMENT, "
-                + "epc VARCHAR(128) NOT NULL, "
-                + "reader_name VARCHAR(64) NOT NULL, "
-                + "rssi INT NOT NULL, "
-                + "antenna INT DEFAULT 0, "
-                + "read_time DATETIME NOT NULL, "
-                + "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, "
-                + "INDEX idx_epc (epc), "
-                + "INDEX idx_read_time (read_time), "
-                + "INDEX idx_reader (reader_name)"
-                + ") ENGINE=InnoDB",
-
-            "CREATE TABLE IF NOT EXISTS assets ("
-                + "id BIGINT PRIMARY KEY AUTO_INCREMENT, "
-                + "asset_number VARCHAR(64) NOT NULL, "
-                + "epc VARCHAR(128) NOT NULL, "
-                + "asset_name VARCHAR(128), "
-                + "department VARCHAR(64), "
-                + "possession TINYINT(1) DEFAULT 1, "
-                + "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, "
-                + "UNIQUE KEY uk_epc (epc), "
-                + "INDEX idx_asset_number (asset_number)"
-                + ") ENGINE=InnoDB",
-
-            "CREATE TABLE IF NOT EXISTS export_permissions ("
-                + "id BIGINT PRIMARY KEY AUTO_INCREMENT, "
-                + "epc VARCHAR(128) NOT NULL, "
-                + "permit_start DATETIME, "
-                + "permit_end DATETIME, "
-                + "reason VARCHAR(256), "
-                + "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, "
-                + "INDEX idx_epc (epc), "
-                + "INDEX idx_permit_period (permit_start, permit_end)"
-                + ") ENGINE=InnoDB",
-
-            "CREATE TABLE IF NOT EXISTS export_alerts ("
-                + "id BIGINT PRIMARY KEY AUTO_INCREMENT, "
-                + "epc VARCHAR(128) NOT NULL, "
-                + "asset_number VARCHAR(64), "
-                + "reader_name VARCHAR(64) NOT NULL, "
-                + "rssi INT, "
-                + "alert_time DATETIME NOT NULL, "
-                + "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, "
-                + "INDEX idx_alert_time (alert_time), "
-                + "INDEX idx_epc (epc)"
-                + ") ENGINE=InnoDB"
-        };
-
-        String[] tableNames = {"tag_reads", "assets", "export_permissions", "export_alerts"};
-        try (Statement stmt = connection.createStatement()) {
-            for (int i = 0; i < sqls.length; i++) {
-                stmt.execute(sqls[i]);
-                AppLogger.info("DatabaseManager", "Table '" + tableNames[i] + "' ready");
+    private ConnectionPool createPool(String name, int min, int max) {
+        ConnectionPool pool = new ConnectionPool(name, this::openRawConnection, min, max,
+            config.getPoolBorrowTimeoutMs(), config.getPoolValidationIntervalSeconds(),
+            config.getPoolIdleTimeoutSeconds(), config.getPoolLeakThresholdSeconds());
+        pool.setHealthListener(new ConnectionPool.HealthListener() {
+            @Override
+            public void onConnectionFailure(SQLException e) {
+                countedFailures.put(e, Boolean.TRUE);
+                breaker.recordFailure(e.getMessage());
+            }
+
+            @Override
+            public void onConnectionSuccess() {
+                breaker.recordSuccess();
             }
-            // 기존 assets 테이블에 possession 컬럼이 없으면 추가
+        });
+        return pool;
+    }
+
+    private void onBreakerStateChanged(CircuitBreaker.State from, CircuitBreaker.State to, String reason) {
+        switch (to) {
+            case OPEN:
+                AppLogger.warn("DatabaseManager", "Circuit OPEN (" + reason + ") - failing fast, reconnecting in background");
+                writerPool.suspend();
+                readerPool.suspend();
+                startReconnectLoop();
+                break;
+            case HALF_OPEN:
+                AppLogger.info("DatabaseManager", "Circuit HALF_OPEN - trying trial connection");
+                break;
+            case CLOSED:
+                AppLogger.info("DatabaseManager", "Circuit CLOSED - database recovered");
+                break;
+            default:
+        }
+        for (CircuitBreaker.StateListener l : stateListeners) {
             try {
-                stmt.execute("ALTER TABLE assets ADD COLUMN IF NOT EXISTS possession TINYINT(1) DEFAULT 1");
-            } catch (Exception ignore) {
-                // 이미 존재하거나 지원하지 않는 경우 무시
+                l.onStateChanged(from, to, reason);
+            } catch (Exception e) {
+                AppLogger.error("DatabaseManager", "State listener failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void startReconnectLoop() {
+        synchronized (reconnectLock) {
+            if (reconnectThread != null || !enabled) return;
+            reconnectThread = new Thread(this::reconnectLoop, "DB-Reconnect");
+            reconnectThread.setDaemon(true);
+            reconnectThread.start();
+        }
+    }
+
+    /** OPEN 동안 단 하나만 실행되는 재연결 루프 (지수 백오프) */
+    private void reconnectLoop() {
+        long delay = config.getBreakerRetryInitialMs();
+        int attempts = 0;
+        while (true) {
+            synchronized (reconnectLock) {
+                if (!enabled || breaker.getState() != CircuitBreaker.State.OPEN) {
+                    reconnectThread = null;
+                    return;
+                }
             }
-            // 기존 tag_reads 테이블에 antenna 컬럼이 없으면 추가
             try {
-                stmt.execute("ALTER TABLE tag_reads ADD COLUMN IF NOT EXISTS antenna INT DEFAULT 0");
-            } catch (Exception ignore) {
-                // 이미 존재하거나 지원하지 않는 경우 무시
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                synchronized (reconnectLock) {
+                    reconnectThread = null;
+                }
+                return;
             }
-        } catch (Exception e) {
-            AppLogger.error("DatabaseManager", "Create table failed: " + e.getMessage());
+            attempts++;
+
+            try (Connection probe = openRawConnection()) {
+                if (!probe.isValid(2)) throw new SQLException("Probe connection is not valid");
+            } catch (SQLException e) {
+                if (attempts == 1 || attempts % 10 == 0) {
+                    AppLogger.warn("DatabaseManager", "Reconnect attempt " + attempts + " failed: " + e.getMessage());
+                }
+                delay = Math.min(delay * 2, config.getBreakerRetryMaxMs());
+                continue;
+            }
+
+            AppLogger.info("DatabaseManager", "Database reachable after " + attempts + " attempt(s)");
+            writerPool.resume();
+            readerPool.resume();
+            if (!breaker.tryHalfOpen()) continue;
+
+            // 시험 연결 (HALF_OPEN 동안 유일한 호출): 성공하면 CLOSED, 실패하면 다시 OPEN.
+            // 스키마가 준비되지 않았으면 CLOSED 전에 같은 연결로 마이그레이션
+            try (Connection conn = writerPool.borrow()) {
+                if (!conn.isValid(2)) {
+                    breaker.recordFailure("Trial connection is not valid");
+                } else if (!schemaReady) {
+                    schemaReady = migrateSchema(conn);
+                    if (schemaReady) breaker.recordSuccess();
+                } else {
+                    breaker.recordSuccess();
+                }
+            } catch (SQLException e) {
+                breaker.recordFailure(e.getMessage());
+            }
+            delay = Math.min(delay * 2, config.getBreakerRetryMaxMs());
+        }
+    }
+
+    private Connection openRawConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(
+            config.getJdbcUrl(), config.getUser(), config.getPassword());
+        try (Statement s = conn.createStatement()) {
+            s.execute("SET NAMES utf8mb4 COLLATE utf8mb4_unicode_ci");
+        } catch (SQLException e) {
+            conn.close();
+            throw e;
         }
+        return conn;
+    }
+
+    /** 시험 연결에서 스키마 마이그레이션 (미적용 버전만). 실패하면 서킷을 다시 열어 재연결 루프가 재시도한다 */
+    private boolean migrateSchema(Connection conn) {
+        if (SchemaMigrator.getInstance().migrate(conn)) return true;
+        breaker.recordFailure("Schema migration failed");
+        return false;
     }
 
-    public Connection getConnection() {
-        if (!initialized) return null;
+    /** 쓰기 풀에서 연결 대여 (INSERT/UPDATE/DELETE). close()로 반납 */
+    public Connection getWriteConnection() throws SQLException {
+        checkAvailable();
+        return writerPool.borrow();
+    }
+
+    /** 읽기 풀에서 연결 대여 (SELECT). close()로 반납 */
+    public Connection getReadConnection() throws SQLException {
+        checkAvailable();
+        return readerPool.borrow();
+    }
+
+    private void checkAvailable() throws SQLException {
+        if (!enabled) throw new SQLException("Database not initialized");
+        if (!breaker.allowRequest()) {
+            throw new ConnectionPool.UnavailableException("Database unavailable (circuit " + breaker.getState() + ")");
+        }
+    }
+
+    /**
+     * 풀과 별개인 전용 연결 생성 (대용량 스트리밍 조회, 태그 bulk writer용).
+     * 수 분간 이어지는 스트리밍이 읽기 풀 연결을 점유하지 않도록 한다. 호출자가 close 책임
+     */
+    public Connection openDedicatedConnection() throws SQLException {
+        checkAvailable();
         try {
-            if (connection == null || connection.isClosed() || !connection.isValid(2)) {
-                AppLogger.info("DatabaseManager", "Reconnecting...");
-                connect();
+            return openRawConnection();
+        } catch (SQLException e) {
+            reportConnectionFailure(e);
+            throw e;
+        }
+    }
+
+    public ConnectionPool getWriterPool() {
+        return writerPool;
+    }
+
+    public ConnectionPool getReaderPool() {
+        return readerPool;
+    }
+
+    /**
+     * 작업 중 발생한 연결 오류를 서킷 브레이커에 반영.
+     * 풀 연결의 문장에서 난 오류는 풀이 이미 반영했으므로 다시 세지 않고, 서킷/풀이 요청을 거절한 것은 세지 않는다
+     */
+    public void reportConnectionFailure(SQLException e) {
+        if (breaker == null || !isConnectionFailure(e) || e instanceof ConnectionPool.UnavailableException) return;
+        if (countedFailures.remove(e) != null) return;
+        breaker.recordFailure(e.getMessage());
+    }
+
+    /** 풀 밖의 전용 연결에서 실제 작업이 성공했음을 서킷 브레이커에 반영 */
+    public void reportConnectionSuccess() {
+        if (breaker != null) breaker.recordSuccess();
+    }
+
+    /** DB 미설정/드라이버 없음이면 null */
+    public CircuitBreaker getCircuitBreaker() {
+        return breaker;
+    }
+
+    /** 서킷 상태 전환 통지 (재연결 후 보류 데이터 기록 등) */
+    public void addStateListener(CircuitBreaker.StateListener listener) {
+        stateListeners.add(listener);
+    }
+
+    /** 연결 계열 오류 여부 (SQLState 08xxx, 연결 예외, 서킷 OPEN/풀 고갈) - 재시도할 가치가 있는 실패 */
+    public static boolean isConnectionFailure(Throwable e) {
+        if (e instanceof SQLTransientConnectionException || e instanceof SQLNonTransientConnectionException) {
+            return true;
+        }
+        if (e instanceof SQLException) {
+            String state = ((SQLException) e).getSQLState();
+            return state != null && state.startsWith("08");
+        }
+        return false;
+    }
+
+    /**
+     * EXPLAIN 결과의 rows 값으로 조회 결과 건수를 추정 (COUNT(*) 전체 스캔 회피).
+     * 조인 쿼리는 첫 번째(구동) 테이블의 추정치를 사용. 실패 시 -1
+     */
+    public long estimateRowCount(String sql, Object... params) {
+        if (!isAvailable()) return -1;
+
+        try (Connection conn = getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (int i = 0; i < params.length; i++) {
+                pstmt.setObject(i + 1, params[i]);
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (rs.next()) return rs.getLong("rows");
             }
         } catch (Exception e) {
-            AppLogger.error("DatabaseManager", "Reconnect check failed: " + e.getMessage());
-            connect();
+            AppLogger.error("DatabaseManager", "Row estimate failed: " + e.getMessage());
         }
-        return connection;
+        return -1;
     }
 
+    /** 지금 연결을 요청할 수 있는지 (서킷 OPEN이거나 스키마 마이그레이션 전이면 false - 조회는 즉시 포기) */
     public boolean isAvailable() {
-        return initialized && connection != null;
+        return enabled && schemaReady && breaker.allowRequest();
+    }
+
+    /** DB 사용이 설정되어 있는지 (장애 중에도 true - 쓰기는 버퍼에 보류) */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void closePools() {
+        if (writerPool != null) writerPool.close();
+        if (readerPool != null) readerPool.close();
     }
 
     public void shutdown() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                AppLogger.info("DatabaseManager", "Connection closed");
-            }
-        } catch (Exception e) {
-            AppLogger.error("DatabaseManager", "Shutdown error: " + e.getMessage());
+        enabled = false;
+        SchemaMigrator.getInstance().stop();
+        PartitionManager.getInstance().stop();
+        synchronized (reconnectLock) {
+            if (reconnectThread != null) reconnectThread.interrupt();
         }
-        initialized = false;
+        closePools();
+        AppLogger.info("DatabaseManager", "Connection pools closed");
     }
 }
@@ -0,0 +1,291 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.JsonUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * EPC별 마지막 감지 위치 테이블 (tag_last_seen: 리더기, 안테나, RSSI, 최초/최종 감지, 읽기 수).
+ * 태그 파이프라인의 모든 읽기를 메모리에서 EPC별 1건으로 합쳐 두고(write-behind),
+ * flush 주기마다 EPC당 한 번만 upsert한다. 외부 시스템은 tag_reads를 스캔하지 않고
+ * 이 테이블에서 "자산 X가 마지막으로 어디서 보였는지"를 PK 조회로 얻는다.
+ * DB 장애 중에는 합친 값을 계속 메모리에 유지했다가 복구 후 기록한다.
+ */
+public class LastSeenRepository {
+    private static final LastSeenRepository INSTANCE = new LastSeenRepository();
+
+    /** upsert 트랜잭션당 최대 행 수 */
+    private static final int FLUSH_CHUNK_ROWS = 1000;
+    /** 메모리에 합쳐 둘 최대 EPC 수 (DB 장애가 길어질 때 초과분은 버림) */
+    private static final int MAX_PENDING_EPCS = 200000;
+
+    // 같은 EPC의 최신 값이 반영되도록 reader/antenna/rssi는 last_seen 비교 후 갱신하고, last_seen은 마지막에 갱신
+    private static final String UPSERT_SQL =
+        "INSERT INTO tag_last_seen (epc, reader_id, antenna, rssi, first_seen, last_seen, read_count) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "reader_id = IF(VALUES(last_seen) >= last_seen, VALUES(reader_id), reader_id), "
+            + "antenna = IF(VALUES(last_seen) >= last_seen, VALUES(antenna), antenna), "
+            + "rssi = IF(VALUES(last_seen) >= last_seen, VALUES(rssi), rssi), "
+            + "first_seen = LEAST(first_seen, VALUES(first_seen)), "
+            + "read_count = read_count + VALUES(read_count), "
+            + "last_seen = GREATEST(last_seen, VALUES(last_seen))";
+
+    private final ConcurrentHashMap<String, Entry> pending = new ConcurrentHashMap<>();
+    private ScheduledExecutorService scheduler;
+
+    private final AtomicLong readsCoalesced = new AtomicLong();
+    private final AtomicLong rowsUpserted = new AtomicLong();
+    private final AtomicLong droppedReads = new AtomicLong();
+    private volatile long lastFlushMs = 0;
+    private volatile String lastError;
+
+    private LastSeenRepository() {}
+
+    public static LastSeenRepository getInstance() {
+        return INSTANCE;
+    }
+
+    public void start(int flushIntervalMs) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LastSeen-Flush");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(100, flushIntervalMs);
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (Throwable t) {
+                AppLogger.error("LastSeenRepository", "Flush FATAL: " + t.getMessage(), t);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        AppLogger.info("LastSeenRepository", "Started (flush every " + interval + "ms)");
+    }
+
+    /** 태그 읽기 1건 반영 (EPC별 합치기만 수행) */
+    public void record(String epc, String readerName, int antenna, int rssi) {
+        if (!DatabaseManager.getInstance().isEnabled()) return;
+        if (pending.size() >= MAX_PENDING_EPCS && !pending.containsKey(epc)) {
+            droppedReads.incrementAndGet();
+            return;
+        }
+        long now = System.currentTimeMillis();
+        pending.compute(epc, (k, e) -> {
+            if (e == null) return new Entry(readerName, antenna, rssi, now);
+            e.readerName = readerName;
+            e.antenna = antenna;
+            e.rssi = rssi;
+            e.lastSeen = now;
+            e.count++;
+            return e;
+        });
+        readsCoalesced.incrementAndGet();
+    }
+
+    /**
+     * 합쳐 둔 EPC를 꺼내(remove) 청크 단위로 upsert. remove 이후의 읽기는 새 항목으로 쌓이므로
+     * 기록 도중의 읽기가 유실되지 않는다. 연결 오류면 꺼낸 항목을 다시 합쳐 두고 다음 주기에 재시도.
+     */
+    private void flush() {
+        if (pending.isEmpty() || !DatabaseManager.getInstance().isAvailable()) return;
+
+        List<String> epcs = new ArrayList<>(pending.keySet());
+        for (int from = 0; from < epcs.size(); from += FLUSH_CHUNK_ROWS) {
+            List<String> keys = new ArrayList<>();
+            List<Entry> entries = new ArrayList<>();
+            for (String epc : epcs.subList(from, Math.min(epcs.size(), from + FLUSH_CHUNK_ROWS))) {
+                Entry e = pending.remove(epc);
+                if (e == null) continue;
+                keys.add(epc);
+                entries.add(e);
+            }
+            if (keys.isEmpty()) continue;
+            try {
+                upsert(keys, entries);
+                rowsUpserted.addAndGet(keys.size());
+            } catch (SQLException ex) {
+                lastError = ex.getMessage();
+                if (DatabaseManager.isConnectionFailure(ex)) {
+                    DatabaseManager.getInstance().reportConnectionFailure(ex);
+                    for (int i = 0; i < keys.size(); i++) restore(keys.get(i), entries.get(i));
+                    // 나머지는 아직 pending에 있으므로 다음 주기에 기록
+                    return;
+                }
+                AppLogger.error("LastSeenRepository", "Upsert failed, " + keys.size() + " EPC(s) skipped: " + ex.getMessage());
+            }
+        }
+        lastFlushMs = System.currentTimeMillis();
+    }
+
+    private void upsert(List<String> keys, List<Entry> entries) throws SQLException {
+        // 리더기 id는 트랜잭션 밖에서 먼저 확정
+        int[] readerIds = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            readerIds[i] = ReaderDirectory.getInstance().idOf(entries.get(i).readerName);
+        }
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(UPSERT_SQL)) {
+            conn.setAutoCommit(false);
+            int rows = 0;
+            for (int i = 0; i < keys.size(); i++) {
+                Entry e = entries.get(i);
+                byte[] epc;
+                try {
+                    epc = TagWriter.epcBytes(keys.get(i));
+                } catch (SQLDataException ex) {
+                    continue;
+                }
+                pstmt.setBytes(1, epc);
+                pstmt.setInt(2, readerIds[i]);
+                pstmt.setInt(3, e.antenna);
+                pstmt.setInt(4, e.rssi);
+                pstmt.setTimestamp(5, new Timestamp(e.firstSeen));
+                pstmt.setTimestamp(6, new Timestamp(e.lastSeen));
+                pstmt.setLong(7, e.count);
+                pstmt.addBatch();
+                rows++;
+            }
+            if (rows > 0) pstmt.executeBatch();
+            conn.commit();
+        }
+    }
+
+    /** 기록하지 못한 항목을 그 사이 새로 쌓인 항목과 합쳐 되돌림 */
+    private void restore(String epc, Entry old) {
+        pending.merge(epc, old, (cur, prev) -> {
+            cur.firstSeen = Math.min(cur.firstSeen, prev.firstSeen);
+            cur.count += prev.count;
+            return cur;
+        });
+    }
+
+    /**
+     * EPC의 마지막 감지 정보 JSON (아직 기록 전인 읽기도 반영). 없으면 null
+     */
+    public String getLastSeenJson(String epc) {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        String reader = null;
+        int antenna = 0;
+        int rssi = 0;
+        long first = Long.MAX_VALUE;
+        long last = 0;
+        long count = 0;
+
+        DatabaseManager db = DatabaseManager.getInstance();
+        if (db.isAvailable()) {
+            String sql = "SELECT r.name, s.antenna, s.rssi, s.first_seen, s.last_seen, s.read_count "
+                + "FROM tag_last_seen s LEFT JOIN readers r ON r.id = s.reader_id WHERE s.epc = ?";
+            try (Connection conn = db.getReadConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setBytes(1, TagWriter.epcBytes(epc));
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) {
+                        reader = rs.getString(1);
+                        antenna = rs.getInt(2);
+                        rssi = rs.getInt(3);
+                        first = rs.getTimestamp(4).getTime();
+                        last = rs.getTimestamp(5).getTime();
+                        count = rs.getLong(6);
+                    }
+                }
+            } catch (SQLException e) {
+                db.reportConnectionFailure(e);
+                AppLogger.error("LastSeenRepository", "Query failed: " + e.getMessage());
+            }
+        }
+        // 항목 수정과 겹치지 않도록 compute 안에서 복사
+        Entry[] snapshot = new Entry[1];
+        pending.computeIfPresent(epc, (k, cur) -> {
+            snapshot[0] = cur.copy();
+            return cur;
+        });
+        Entry e = snapshot[0];
+        if (e != null) {
+            if (e.lastSeen >= last) {
+                reader = e.readerName;
+                antenna = e.antenna;
+                rssi = e.rssi;
+                last = e.lastSeen;
+            }
+            first = Math.min(first, e.firstSeen);
+            count += e.count;
+        }
+        if (reader == null && count == 0) return null;
+        return "{\"epc\":" + JsonUtils.toJsonString(epc)
+            + ",\"readerName\":" + JsonUtils.toJsonString(reader)
+            + ",\"antenna\":" + antenna
+            + ",\"rssi\":" + rssi
+            + ",\"firstSeen\":" + JsonUtils.toJsonString(sdf.format(new Date(first)))
+            + ",\"lastSeen\":" + JsonUtils.toJsonString(sdf.format(new Date(last)))
+            + ",\"readCount\":" + count
+            + "}";
+    }
+
+    public void shutdown() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    /** 합치기 상태 JSON (/api/metrics) */
+    public String toJson() {
+        long reads = readsCoalesced.get();
+        long rows = rowsUpserted.get();
+        return "{\"pendingEpcs\":" + pending.size()
+            + ",\"readsCoalesced\":" + reads
+            + ",\"rowsUpserted\":" + rows
+            + ",\"droppedReads\":" + droppedReads.get()
+            + ",\"lastFlush\":" + (lastFlushMs > 0
+                ? JsonUtils.toJsonString(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(lastFlushMs)))
+                : "null")
+            + ",\"lastError\":" + JsonUtils.toJsonString(lastError)
+            + "}";
+    }
+
+    /** EPC 1개의 합친 값 (pending.compute 안에서만 수정) */
+    private static class Entry {
+        String readerName;
+        int antenna;
+        int rssi;
+        long firstSeen;
+        long lastSeen;
+        long count;
+
+        Entry(String readerName, int antenna, int rssi, long seen) {
+            this.readerName = readerName;
+            this.antenna = antenna;
+            this.rssi = rssi;
+            this.firstSeen = seen;
+            this.lastSeen = seen;
+            this.count = 1;
+        }
+
+        Entry copy() {
+            Entry c = new Entry(readerName, antenna, rssi, lastSeen);
+            c.firstSeen = firstSeen;
+            c.count = count;
+            return c;
+        }
+    }
+}
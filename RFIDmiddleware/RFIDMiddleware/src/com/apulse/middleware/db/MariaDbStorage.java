@@ -0,0 +1,752 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.config.DatabaseConfig;
+import com.apulse.middleware.util.AppLogger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * MariaDB 저장소 백엔드 (storage.backend=mariadb).
+ * 태그 기록은 TagRepository의 샤드 저널/writer를 거쳐 기록하고, 나머지는 JDBC로 직접 읽고 쓴다.
+ */
+public class MariaDbStorage implements StorageBackend {
+    /** 스트리밍 조회 시 서버에서 한 번에 가져올 행 수 */
+    private static final int STREAM_FETCH_SIZE = 10000;
+
+    /**
+     * 압축 스키마(SchemaMigrator V2) 조회용: EPC는 16진 문자열로, 리더기 id는 이름으로 되돌린다.
+     * tag_reads가 구동 테이블이 되도록 LEFT JOIN (EXPLAIN 추정 건수도 tag_reads 기준)
+     */
+    static final String TAG_READS_COLUMNS =
+        "HEX(t.epc) AS epc, r.name AS reader_name, t.rssi, t.antenna, t.read_time";
+    static final String TAG_READS_FROM = "tag_reads t LEFT JOIN readers r ON r.id = t.reader_id ";
+
+    /** 기간 조회 공통 SELECT (PartitionManager가 프루닝 확인에 사용) */
+    static final String TAG_READS_PAGE_BASE =
+        "SELECT t.id, " + TAG_READS_COLUMNS + " FROM " + TAG_READS_FROM + "WHERE t.read_time BETWEEN ? AND ? ";
+
+    /** 변경 로그 보존 기간 (전체 재적재 때 이보다 오래된 행 정리) */
+    private static final int ASSET_CHANGES_RETENTION_HOURS = 24;
+    /** 한 번의 증분 동기화에서 읽을 최대 변경 로그 행 수 (넘으면 전체 재적재) */
+    private static final int ASSET_DELTA_MAX_ROWS = 50000;
+    /**
+     * 이전 동기화 직전 몇 초 안에 기록된 변경 로그는 다시 읽는다.
+     * seq는 INSERT 때 정해지고 보이는 것은 COMMIT 때라서, 작은 seq가 늦게 커밋되면 seq만으로는 놓친다.
+     */
+    private static final int ASSET_DELTA_GRACE_MS = 10_000;
+    /** IN 목록 한 번에 넣을 EPC 수 */
+    private static final int EPC_IN_CHUNK = 500;
+
+    private static final String ALERTS_PAGE_BASE =
+        "SELECT ea.id, ea.alert_time, ea.reader_name, ea.epc, ea.asset_number, "
+        + "a.asset_name, a.department, ea.rssi "
+        + "FROM export_alerts ea LEFT JOIN assets a ON ea.epc = a.epc "
+        + "WHERE ea.alert_time BETWEEN ? AND ? ";
+
+    private static final String PERMISSIONS_SELECT =
+        "SELECT ep.id, ep.epc, a.asset_number, a.asset_name, ep.permit_start, ep.permit_end, ep.reason, "
+        + "CASE WHEN ep.permit_start <= NOW() AND ep.permit_end >= NOW() THEN '유효' ELSE '만료' END AS status "
+        + "FROM export_permissions ep LEFT JOIN assets a ON ep.epc = a.epc ";
+
+    @Override
+    public String getName() {
+        return "mariadb";
+    }
+
+    @Override
+    public void start(DatabaseConfig config) {
+        DatabaseManager.getInstance().initialize(config);
+        TagRepository.getInstance().start(config);
+        TagArchiver.getInstance().start(config);
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return DatabaseManager.getInstance().isEnabled();
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return DatabaseManager.getInstance().isAvailable();
+    }
+
+    @Override
+    public void shutdown() {
+        TagArchiver.getInstance().stop();
+        TagRepository.getInstance().shutdown();
+        DatabaseManager.getInstance().shutdown();
+    }
+
+    @Override
+    public String toJson() {
+        return "{\"backend\":\"mariadb\",\"available\":" + isAvailable() + "}";
+    }
+
+    // --- 태그 이력 ---
+
+    @Override
+    public void insertTagRead(String epc, String readerName, int rssi, int antenna, String readTime) {
+        if (!DatabaseManager.getInstance().isEnabled()) return;
+        TagRepository.getInstance().appendToJournal(epc, readerName, rssi, antenna, readTime);
+    }
+
+    /**
+     * forward-only 결과를 fetchSize 단위로 받아 바로 handler에 넘기므로 결과를 모으지 않는다.
+     * limit이 0 이하면 커서 이후 기간 전체를 읽으며, 이때는 읽기 풀 대신 전용 연결을 쓴다.
+     * 커서 시간은 read_time(DATETIME(3))과 같은 밀리초 정밀도여야 같은 초의 행을 건너뛰지 않는다.
+     * EPC 지정 시 idx_epc_time 범위 스캔
+     */
+    @Override
+    public long streamTagReadsPage(String fromTime, String toTime, String epc, PageCursor after, int limit,
+                                   Predicate<String[]> handler) throws Exception {
+        String sql = TAG_READS_PAGE_BASE
+            + (epc == null ? "" : "AND t.epc = ? ")
+            + (after == null ? "" : "AND (t.read_time < ? OR (t.read_time = ? AND t.id < ?)) ")
+            + "ORDER BY t.read_time DESC, t.id DESC" + (limit > 0 ? " LIMIT ?" : "");
+        long count = 0;
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        SimpleDateFormat cursorFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        DatabaseManager db = DatabaseManager.getInstance();
+        try (Connection conn = limit > 0 ? db.getReadConnection() : db.openDedicatedConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(limit > 0 ? Math.min(limit, STREAM_FETCH_SIZE) : STREAM_FETCH_SIZE);
+            int idx = 1;
+            pstmt.setTimestamp(idx++, new Timestamp(sdf.parse(fromTime).getTime()));
+            pstmt.setTimestamp(idx++, new Timestamp(sdf.parse(toTime).getTime()));
+            if (epc != null) pstmt.setBytes(idx++, TagWriter.epcBytes(epc));
+            if (after != null) {
+                Timestamp before = Timestamp.valueOf(after.key);
+                pstmt.setTimestamp(idx++, before);
+                pstmt.setTimestamp(idx++, before);
+                pstmt.setLong(idx++, after.id);
+            }
+            if (limit > 0) pstmt.setInt(idx, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp readTime = rs.getTimestamp("read_time");
+                    String[] row = {
+                        sdf.format(readTime),
+                        rs.getString("reader_name"),
+                        rs.getString("epc"),
+                        String.valueOf(rs.getInt("rssi")),
+                        String.valueOf(rs.getInt("antenna")),
+                        String.valueOf(rs.getLong("id")),
+                        cursorFormat.format(readTime)
+                    };
+                    count++;
+                    if (!handler.test(row)) break;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** 전용 연결 + fetchSize로 서버 커서에서 나눠 읽으므로 결과 전체를 메모리에 올리지 않는다 */
+    @Override
+    public long streamTagReads(String fromTime, String toTime, Predicate<String[]> handler) throws Exception {
+        String sql = "SELECT t.read_time, r.name, HEX(t.epc), t.rssi, t.antenna FROM " + TAG_READS_FROM
+            + "WHERE t.read_time BETWEEN ? AND ? ORDER BY t.read_time";
+        long count = 0;
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(STREAM_FETCH_SIZE);
+            pstmt.setTimestamp(1, new Timestamp(sdf.parse(fromTime).getTime()));
+            pstmt.setTimestamp(2, new Timestamp(sdf.parse(toTime).getTime()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String readTime = rs.getString(1);
+                    // DATETIME 문자열이 소수점 초를 포함하면 잘라서 화면 형식과 맞춤
+                    if (readTime != null && readTime.length() > 19) readTime = readTime.substring(0, 19);
+                    String[] row = {
+                        readTime,
+                        rs.getString(2),
+                        rs.getString(3),
+                        String.valueOf(rs.getInt(4)),
+                        String.valueOf(rs.getInt(5))
+                    };
+                    count++;
+                    if (!handler.test(row)) break;
+                }
+            }
+        }
+        return count;
+    }
+
+    /** EXPLAIN 기반 추정 */
+    @Override
+    public long estimateTagReadCount(String fromTime, String toTime) {
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            return DatabaseManager.getInstance().estimateRowCount(TAG_READS_PAGE_BASE,
+                new Timestamp(sdf.parse(fromTime).getTime()), new Timestamp(sdf.parse(toTime).getTime()));
+        } catch (Exception e) {
+            AppLogger.error("MariaDbStorage", "Count estimate failed: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    /** TagReadCounters의 메모리 카운터 (집계 전에는 information_schema 추정치) */
+    @Override
+    public long getTagReadCount() {
+        return TagReadCounters.getInstance().getTotal(true);
+    }
+
+    // --- 반출 알림 ---
+
+    @Override
+    public void insertAlert(String epc, String assetNumber, String readerName, int rssi, String alertTime) throws Exception {
+        String sql = "INSERT INTO export_alerts (epc, asset_number, reader_name, rssi, alert_time) VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setString(1, epc);
+            pstmt.setString(2, assetNumber);
+            pstmt.setString(3, readerName);
+            pstmt.setInt(4, rssi);
+            pstmt.setTimestamp(5, Timestamp.valueOf(alertTime));
+            pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public long streamExportAlerts(String fromTime, String toTime, PageCursor after, int limit,
+                                   Predicate<String[]> handler) throws Exception {
+        String sql = ALERTS_PAGE_BASE
+            + (after == null ? "" : "AND (ea.alert_time < ? OR (ea.alert_time = ? AND ea.id < ?)) ")
+            + "ORDER BY ea.alert_time DESC, ea.id DESC" + (limit > 0 ? " LIMIT ?" : "");
+        long count = 0;
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        DatabaseManager db = DatabaseManager.getInstance();
+        try (Connection conn = limit > 0 ? db.getReadConnection() : db.openDedicatedConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql,
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(limit > 0 ? Math.min(limit, STREAM_FETCH_SIZE) : STREAM_FETCH_SIZE);
+            int idx = 1;
+            pstmt.setTimestamp(idx++, new Timestamp(sdf.parse(fromTime).getTime()));
+            pstmt.setTimestamp(idx++, new Timestamp(sdf.parse(toTime).getTime()));
+            if (after != null) {
+                Timestamp before = Timestamp.valueOf(after.key);
+                pstmt.setTimestamp(idx++, before);
+                pstmt.setTimestamp(idx++, before);
+                pstmt.setLong(idx++, after.id);
+            }
+            if (limit > 0) pstmt.setInt(idx, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp alertTime = rs.getTimestamp("alert_time");
+                    String[] row = {
+                        alertTime != null ? sdf.format(alertTime) : "",
+                        rs.getString("reader_name"),
+                        rs.getString("epc"),
+                        rs.getString("asset_number") != null ? rs.getString("asset_number") : "",
+                        rs.getString("asset_name") != null ? rs.getString("asset_name") : "",
+                        rs.getString("department") != null ? rs.getString("department") : "",
+                        String.valueOf(rs.getInt("rssi")),
+                        String.valueOf(rs.getLong("id"))
+                    };
+                    count++;
+                    if (!handler.test(row)) break;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long estimateExportAlertCount(String fromTime, String toTime) {
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            return DatabaseManager.getInstance().estimateRowCount(ALERTS_PAGE_BASE,
+                new Timestamp(sdf.parse(fromTime).getTime()), new Timestamp(sdf.parse(toTime).getTime()));
+        } catch (Exception e) {
+            AppLogger.error("MariaDbStorage", "Alert count estimate failed: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    // --- 자산 ---
+
+    @Override
+    public List<AssetRepository.AssetInfo> loadAssets() throws Exception {
+        List<AssetRepository.AssetInfo> results = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT epc, asset_number, asset_name, department, possession FROM assets");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                results.add(new AssetRepository.AssetInfo(
+                    rs.getString("epc"),
+                    rs.getString("asset_number"),
+                    rs.getString("asset_name"),
+                    rs.getString("department"),
+                    rs.getInt("possession") == 1
+                ));
+            }
+        }
+        return results;
+    }
+
+    /** 전용 연결 + fetchSize로 서버 커서에서 나눠 읽으므로 자산 전체를 메모리에 올리지 않는다 */
+    @Override
+    public long streamAssets(Predicate<String[]> handler) throws Exception {
+        long count = 0;
+        try (Connection conn = DatabaseManager.getInstance().openDedicatedConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT epc, asset_number, asset_name, department, possession FROM assets",
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            pstmt.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String[] row = {
+                        rs.getString(1),
+                        rs.getString(2),
+                        rs.getString(3),
+                        rs.getString(4),
+                        rs.getInt(5) == 1 ? "1" : "0"
+                    };
+                    count++;
+                    if (!handler.test(row)) break;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<String[]> queryAssets() throws Exception {
+        List<String[]> results = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT id, asset_number, epc, asset_name, department, possession, created_at FROM assets ORDER BY asset_number");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) results.add(assetRow(rs));
+        }
+        return results;
+    }
+
+    /** 자산번호순 keyset 페이징 (idx_asset_number 사용) */
+    @Override
+    public List<String[]> queryAssetsPage(PageCursor after, int limit) throws Exception {
+        List<String[]> results = new ArrayList<>();
+        String sql = "SELECT id, asset_number, epc, asset_name, department, possession, created_at FROM assets "
+            + (after == null ? "" : "WHERE asset_number > ? OR (asset_number = ? AND id > ?) ")
+            + "ORDER BY asset_number, id LIMIT ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            if (after != null) {
+                pstmt.setString(idx++, after.key);
+                pstmt.setString(idx++, after.key);
+                pstmt.setLong(idx++, after.id);
+            }
+            pstmt.setInt(idx, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) results.add(assetRow(rs));
+            }
+        }
+        return results;
+    }
+
+    private static String[] assetRow(ResultSet rs) throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        Timestamp ts = rs.getTimestamp("created_at");
+        return new String[] {
+            rs.getString("asset_number"),
+            rs.getString("epc"),
+            rs.getString("asset_name") != null ? rs.getString("asset_name") : "",
+            rs.getString("department") != null ? rs.getString("department") : "",
+            ts != null ? sdf.format(ts) : "",
+            rs.getInt("possession") == 1 ? "보유" : "미보유",
+            String.valueOf(rs.getLong("id"))
+        };
+    }
+
+    @Override
+    public boolean insertAsset(String assetNumber, String epc, String assetName, String department, int possession) throws Exception {
+        String sql = "INSERT INTO assets (asset_number, epc, asset_name, department, possession) VALUES (?, ?, ?, ?, ?)";
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, assetNumber);
+                pstmt.setString(2, epc);
+                pstmt.setString(3, assetName);
+                pstmt.setString(4, department);
+                pstmt.setInt(5, possession);
+                pstmt.executeUpdate();
+                logAssetChange(conn, 'A', epc);
+                conn.commit();
+                return true;
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public boolean updateAsset(long id, String assetNumber, String epc, String assetName, String department,
+                               Integer possession) throws Exception {
+        // 동적 UPDATE 쿼리 생성 (전달된 필드만 수정)
+        List<String> setClauses = new ArrayList<>();
+        List<Object> params = new ArrayList<>();
+        if (assetNumber != null) { setClauses.add("asset_number = ?"); params.add(assetNumber); }
+        if (epc != null) { setClauses.add("epc = ?"); params.add(epc); }
+        if (assetName != null) { setClauses.add("asset_name = ?"); params.add(assetName); }
+        if (department != null) { setClauses.add("department = ?"); params.add(department); }
+        if (possession != null) { setClauses.add("possession = ?"); params.add(possession); }
+
+        if (setClauses.isEmpty()) return false;
+
+        String sql = "UPDATE assets SET " + String.join(", ", setClauses) + " WHERE id = ?";
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // EPC가 바뀌면 이전 EPC의 캐시 항목도 지워야 하므로 수정 전 EPC를 잠가 둔다
+                String oldEpc = null;
+                try (PreparedStatement pstmt = conn.prepareStatement("SELECT epc FROM assets WHERE id = ? FOR UPDATE")) {
+                    pstmt.setLong(1, id);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) oldEpc = rs.getString(1);
+                    }
+                }
+                boolean updated;
+                try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                    for (int i = 0; i < params.size(); i++) {
+                        Object p = params.get(i);
+                        if (p instanceof String) pstmt.setString(i + 1, (String) p);
+                        else if (p instanceof Integer) pstmt.setInt(i + 1, (Integer) p);
+                    }
+                    pstmt.setLong(params.size() + 1, id);
+                    updated = pstmt.executeUpdate() > 0;
+                }
+                if (updated) {
+                    if (oldEpc != null) logAssetChange(conn, 'A', oldEpc);
+                    if (epc != null && !epc.equals(oldEpc)) logAssetChange(conn, 'A', epc);
+                }
+                conn.commit();
+                return updated;
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public long estimateAssetRowCount() {
+        return DatabaseManager.getInstance().estimateRowCount("SELECT id FROM assets");
+    }
+
+    // --- 반출허용 ---
+
+    /**
+     * idx_permit_end 범위 조회 (만료된 과거 허용은 읽지 않음).
+     * permit_start가 NULL인 행은 예전 판정(permit_start &lt;= NOW())처럼 허용으로 보지 않는다
+     */
+    @Override
+    public List<AssetRepository.PermitWindow> loadPermitWindows() throws Exception {
+        List<AssetRepository.PermitWindow> results = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT epc, permit_start, permit_end FROM export_permissions "
+                 + "WHERE permit_end >= NOW() AND permit_start IS NOT NULL");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) results.add(permitWindow(rs));
+        }
+        return results;
+    }
+
+    private static AssetRepository.PermitWindow permitWindow(ResultSet rs) throws Exception {
+        return new AssetRepository.PermitWindow(
+            rs.getString("epc"), rs.getTimestamp("permit_start").getTime(), rs.getTimestamp("permit_end").getTime());
+    }
+
+    @Override
+    public List<String[]> queryExportPermissions() throws Exception {
+        List<String[]> results = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(PERMISSIONS_SELECT + "ORDER BY ep.permit_end DESC");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) results.add(permissionRow(rs));
+        }
+        return results;
+    }
+
+    /**
+     * 허용종료 최신순 keyset 페이징.
+     * permit_end가 NULL인 행은 DESC 정렬상 마지막에 위치하므로 커서 키가 빈 문자열이면 NULL 구간으로 본다.
+     */
+    @Override
+    public List<String[]> queryExportPermissionsPage(PageCursor after, int limit) throws Exception {
+        List<String[]> results = new ArrayList<>();
+        String where = "";
+        if (after != null) {
+            where = after.key.isEmpty()
+                ? "WHERE ep.permit_end IS NULL AND ep.id < ? "
+                : "WHERE ep.permit_end < ? OR (ep.permit_end = ? AND ep.id < ?) OR ep.permit_end IS NULL ";
+        }
+        String sql = PERMISSIONS_SELECT + where + "ORDER BY ep.permit_end DESC, ep.id DESC LIMIT ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            int idx = 1;
+            if (after != null) {
+                if (!after.key.isEmpty()) {
+                    Timestamp end = new Timestamp(sdf.parse(after.key).getTime());
+                    pstmt.setTimestamp(idx++, end);
+                    pstmt.setTimestamp(idx++, end);
+                }
+                pstmt.setLong(idx++, after.id);
+            }
+            pstmt.setInt(idx, limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) results.add(permissionRow(rs));
+            }
+        }
+        return results;
+    }
+
+    private static String[] permissionRow(ResultSet rs) throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        Timestamp start = rs.getTimestamp("permit_start");
+        Timestamp end = rs.getTimestamp("permit_end");
+        return new String[] {
+            rs.getString("epc"),
+            rs.getString("asset_number") != null ? rs.getString("asset_number") : "",
+            rs.getString("asset_name") != null ? rs.getString("asset_name") : "",
+            start != null ? sdf.format(start) : "",
+            end != null ? sdf.format(end) : "",
+            rs.getString("reason") != null ? rs.getString("reason") : "",
+            rs.getString("status"),
+            String.valueOf(rs.getLong("id"))
+        };
+    }
+
+    @Override
+    public boolean insertPermission(String epc, String permitStart, String permitEnd, String reason) throws Exception {
+        String sql = "INSERT INTO export_permissions (epc, permit_start, permit_end, reason) VALUES (?, ?, ?, ?)";
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                pstmt.setString(1, epc);
+                pstmt.setTimestamp(2, Timestamp.valueOf(permitStart));
+                pstmt.setTimestamp(3, Timestamp.valueOf(permitEnd));
+                pstmt.setString(4, reason);
+                pstmt.executeUpdate();
+                logAssetChange(conn, 'P', epc);
+                conn.commit();
+                return true;
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public boolean deletePermission(long id) throws Exception {
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                String epc = null;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT epc FROM export_permissions WHERE id = ? FOR UPDATE")) {
+                    pstmt.setLong(1, id);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        if (rs.next()) epc = rs.getString(1);
+                    }
+                }
+                boolean deleted;
+                try (PreparedStatement pstmt = conn.prepareStatement("DELETE FROM export_permissions WHERE id = ?")) {
+                    pstmt.setLong(1, id);
+                    deleted = pstmt.executeUpdate() > 0;
+                }
+                if (deleted && epc != null) logAssetChange(conn, 'P', epc);
+                conn.commit();
+                return deleted;
+            } catch (Exception e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public long estimatePermissionRowCount() {
+        return DatabaseManager.getInstance().estimateRowCount("SELECT id FROM export_permissions");
+    }
+
+    // --- 자산/반출허용 증분 동기화 (SchemaMigrator V6 asset_changes) ---
+
+    /** 데이터 변경과 같은 트랜잭션에서 변경 로그 기록 (kind A: 자산, P: 반출허용) */
+    private static void logAssetChange(Connection conn, char kind, String epc) throws Exception {
+        try (PreparedStatement pstmt = conn.prepareStatement("INSERT INTO asset_changes (kind, epc) VALUES (?, ?)")) {
+            pstmt.setString(1, String.valueOf(kind));
+            pstmt.setString(2, epc);
+            pstmt.executeUpdate();
+        }
+    }
+
+    @Override
+    public boolean supportsAssetDelta() {
+        return true;
+    }
+
+    @Override
+    public AssetDelta markAssetChanges() throws Exception {
+        AssetDelta mark;
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT COALESCE(MAX(seq), 0), NOW(3) FROM asset_changes");
+             ResultSet rs = pstmt.executeQuery()) {
+            rs.next();
+            mark = new AssetDelta(rs.getLong(1), rs.getTimestamp(2));
+        }
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "DELETE FROM asset_changes WHERE changed_at < NOW(3) - INTERVAL ? HOUR")) {
+            pstmt.setInt(1, ASSET_CHANGES_RETENTION_HOURS);
+            int pruned = pstmt.executeUpdate();
+            if (pruned > 0) AppLogger.debug("MariaDbStorage", "Pruned " + pruned + " asset change rows");
+        } catch (Exception e) {
+            // 정리는 다음 전체 재적재 때 다시 시도 (동기화 기준점은 이미 확보)
+            AppLogger.error("MariaDbStorage", "Asset change prune failed: " + e.getMessage());
+        }
+        return mark;
+    }
+
+    @Override
+    public AssetDelta loadAssetDelta(long afterSeq, Timestamp since) throws Exception {
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection()) {
+            Timestamp now;
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT NOW(3)");
+                 ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                now = rs.getTimestamp(1);
+            }
+            if (since.getTime() < now.getTime() - ASSET_CHANGES_RETENTION_HOURS * 3_600_000L + ASSET_DELTA_GRACE_MS) {
+                // 그 사이 로그가 정리되었을 수 있음
+                AssetDelta delta = new AssetDelta(afterSeq, now);
+                delta.overflow = true;
+                return delta;
+            }
+
+            long seq = afterSeq;
+            int rows = 0;
+            Set<String> assetEpcs = new HashSet<>();
+            Set<String> permissionEpcs = new HashSet<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(
+                    "SELECT seq, kind, epc FROM asset_changes WHERE seq > ? OR changed_at >= ? LIMIT ?")) {
+                pstmt.setLong(1, afterSeq);
+                pstmt.setTimestamp(2, new Timestamp(since.getTime() - ASSET_DELTA_GRACE_MS));
+                pstmt.setInt(3, ASSET_DELTA_MAX_ROWS + 1);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        seq = Math.max(seq, rs.getLong(1));
+                        if ("P".equals(rs.getString(2))) {
+                            permissionEpcs.add(rs.getString(3));
+                        } else {
+                            assetEpcs.add(rs.getString(3));
+                        }
+                        rows++;
+                    }
+                }
+            }
+            AssetDelta delta = new AssetDelta(seq, now);
+            delta.changeRows = rows;
+            if (rows > ASSET_DELTA_MAX_ROWS) {
+                delta.overflow = true;
+                return delta;
+            }
+
+            for (String epc : assetEpcs) delta.assets.put(epc, null);
+            forEachEpcChunk(assetEpcs, chunk -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT epc, asset_number, asset_name, department, possession FROM assets WHERE epc IN ("
+                        + placeholders(chunk.size()) + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) pstmt.setString(i + 1, chunk.get(i));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            delta.assets.put(rs.getString("epc"), new AssetRepository.AssetInfo(
+                                rs.getString("epc"),
+                                rs.getString("asset_number"),
+                                rs.getString("asset_name"),
+                                rs.getString("department"),
+                                rs.getInt("possession") == 1));
+                        }
+                    }
+                }
+            });
+
+            // 유효기간 판정은 캐시가 읽기 시각으로 하므로 바뀐 EPC의 남은 기간만 다시 읽는다.
+            // 캐시는 정규화 키 단위로 교체되므로 같은 키가 되는 다른 EPC 표기의 기간도 함께 읽는다
+            for (String epc : permissionEpcs) delta.permissions.put(epc, new ArrayList<>());
+            Set<String> permitLookupEpcs = new HashSet<>();
+            for (String epc : permissionEpcs) addNormalizedVariants(permitLookupEpcs, epc);
+            forEachEpcChunk(permitLookupEpcs, chunk -> {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT epc, permit_start, permit_end FROM export_permissions WHERE permit_end >= ? "
+                        + "AND permit_start IS NOT NULL AND epc IN (" + placeholders(chunk.size()) + ")")) {
+                    pstmt.setTimestamp(1, now);
+                    for (int i = 0; i < chunk.size(); i++) pstmt.setString(i + 2, chunk.get(i));
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        while (rs.next()) {
+                            AssetRepository.PermitWindow w = permitWindow(rs);
+                            delta.permissions.computeIfAbsent(w.getEpc(), k -> new ArrayList<>()).add(w);
+                        }
+                    }
+                }
+            });
+            return delta;
+        }
+    }
+
+    /**
+     * 정규화(대문자, 4자리 경계까지 뒤에 0 패딩) 후 epc와 같은 키가 되는 저장 표기들.
+     * 대소문자 차이는 EPC 컬럼의 대소문자 무시 비교로 함께 걸린다.
+     */
+    private static void addNormalizedVariants(Set<String> out, String epc) {
+        if (epc == null) return;
+        out.add(epc);
+        String normalized = AssetRepository.normalizeEpc(epc);
+        out.add(normalized);
+        // 패딩으로 붙었을 수 있는 끝의 0을 1~3자리까지 떼어 본다 (뗀 길이가 4의 배수면 패딩 대상이 아님)
+        for (int len = normalized.length() - 1; len > normalized.length() - 4 && len > 0; len--) {
+            if (normalized.charAt(len) != '0') break;
+            out.add(normalized.substring(0, len));
+        }
+    }
+
+    private interface ChunkAction {
+        void run(List<String> chunk) throws Exception;
+    }
+
+    private static void forEachEpcChunk(Collection<String> epcs, ChunkAction action) throws Exception {
+        List<String> chunk = new ArrayList<>(Math.min(epcs.size(), EPC_IN_CHUNK));
+        for (Iterator<String> it = epcs.iterator(); it.hasNext(); ) {
+            chunk.add(it.next());
+            if (chunk.size() == EPC_IN_CHUNK || !it.hasNext()) {
+                action.run(chunk);
+                chunk.clear();
+            }
+        }
+    }
+
+    private static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 2);
+        for (int i = 0; i < n; i++) sb.append(i == 0 ? "?" : ",?");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,21 @@
+package com.apulse.middleware.db;
+
+/**
+ * Keyset 페이징 커서.
+ * 정렬 키 값(key)과 동률 해소용 id로 "마지막으로 읽은 행" 위치를 나타낸다.
+ * OFFSET 없이 (key, id) 비교만으로 다음 페이지를 인덱스 범위 스캔으로 조회한다.
+ */
+public final class PageCursor {
+    public final String key;
+    public final long id;
+
+    public PageCursor(String key, long id) {
+        this.key = key;
+        this.id = id;
+    }
+
+    @Override
+    public String toString() {
+        return key + "#" + id;
+    }
+}
@@ -0,0 +1,291 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.config.DatabaseConfig;
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.CircuitBreaker;
+import com.apulse.middleware.util.HexUtils;
+import com.apulse.middleware.util.JsonUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * tag_reads 기간 파티션 관리 (RANGE COLUMNS(read_time), 일/주 단위).
+ * - 현재 기간부터 precreate개 앞까지 파티션을 미리 만든다 (빈 p_future(MAXVALUE)를 REORGANIZE로 분할).
+ * - 보존 기간이 지난 파티션은 대량 DELETE 대신 DROP PARTITION으로 통째로 삭제한다.
+ * - 보관(TagArchiver)을 쓰면 보관 파일로 옮겨진 기간의 파티션만 삭제한다.
+ * - 점검 때마다 내장 기간 조회(TagRepository)를 EXPLAIN PARTITIONS로 확인해 프루닝 여부를 기록한다.
+ * 파티션 이름은 기간 시작일(p20261018)이며, 파티셔닝 이전 기간의 데이터는 p_hist에 있다.
+ */
+public class PartitionManager {
+    private static final PartitionManager INSTANCE = new PartitionManager();
+
+    static final String HISTORY_PARTITION = "p_hist";
+    static final String FUTURE_PARTITION = "p_future";
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMMdd");
+
+    private boolean weekly = false;
+    private int precreate = 7;
+    private int retentionDays = 0;
+    private ScheduledExecutorService scheduler;
+
+    // 점검 결과 (/api/metrics)
+    private volatile int partitionCount = 0;
+    private volatile String oldestBound;
+    private volatile String newestBound;
+    private final AtomicLong createdCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private volatile String lastRun;
+    private volatile String lastError;
+    private volatile String pruning = "unknown";
+
+    private PartitionManager() {}
+
+    public static PartitionManager getInstance() {
+        return INSTANCE;
+    }
+
+    /** 파티션 단위/개수/보존 기간 설정 (스키마 마이그레이션 전에 호출) */
+    void configure(DatabaseConfig config) {
+        weekly = "week".equalsIgnoreCase(config.getPartitionGranularity());
+        precreate = Math.max(1, config.getPartitionPrecreate());
+        retentionDays = Math.max(0, config.getPartitionRetentionDays());
+    }
+
+    /** 주기 점검 시작. DB 복구(서킷 CLOSED) 시에도 즉시 점검한다 */
+    void start(int intervalMinutes) {
+        if (scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TagDB-Partition");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, intervalMinutes);
+        scheduler.scheduleAtFixedRate(() -> {
+            try {
+                maintain();
+            } catch (Throwable t) {
+                // scheduleAtFixedRate는 예외 발생 시 이후 실행을 중단하므로 반드시 catch
+                AppLogger.error("PartitionManager", "Maintenance FATAL: " + t.getMessage(), t);
+            }
+        }, 0, interval, TimeUnit.MINUTES);
+        DatabaseManager.getInstance().addStateListener((from, to, reason) -> {
+            if (to == CircuitBreaker.State.CLOSED && !scheduler.isShutdown()) {
+                scheduler.execute(this::maintain);
+            }
+        });
+        AppLogger.info("PartitionManager", "Started (" + (weekly ? "weekly" : "daily") + " partitions, precreate "
+            + precreate + ", retention " + (retentionDays > 0 ? retentionDays + " days" : "unlimited") + ")");
+    }
+
+    void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    private LocalDate periodStart(LocalDate date) {
+        return weekly ? date.with(DayOfWeek.MONDAY) : date;
+    }
+
+    /** date가 속한 기간의 다음 기간 시작일 (date보다 항상 뒤) */
+    private LocalDate nextPeriod(LocalDate date) {
+        LocalDate start = periodStart(date);
+        return weekly ? start.plusWeeks(1) : start.plusDays(1);
+    }
+
+    /** 미리 만들어야 하는 마지막 파티션의 상한 */
+    private LocalDate precreateEnd(LocalDate today) {
+        LocalDate end = periodStart(today);
+        for (int i = 0; i <= precreate; i++) end = nextPeriod(end);
+        return end;
+    }
+
+    private static String partitionDef(String name, LocalDate lessThan) {
+        return "PARTITION " + name + " VALUES LESS THAN ('" + lessThan + " 00:00:00')";
+    }
+
+    /** from 이후 end까지 기간별 파티션 정의 (쉼표 구분) */
+    private String periodDefs(LocalDate from, LocalDate end, List<String> names) {
+        StringBuilder sb = new StringBuilder();
+        for (LocalDate p = from; p.isBefore(end); p = nextPeriod(p)) {
+            String name = NAME_FORMAT.format(p);
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(partitionDef(name, nextPeriod(p)));
+            names.add(name);
+        }
+        return sb.toString();
+    }
+
+    /** SchemaMigrator V3: 최초 파티션 절 (현재 기간 이전은 p_hist, 이후는 p_future) */
+    String initialPartitionClause(LocalDate today) {
+        LocalDate start = periodStart(today);
+        return "PARTITION BY RANGE COLUMNS(read_time) ("
+            + partitionDef(HISTORY_PARTITION, start) + ", "
+            + periodDefs(start, precreateEnd(today), new ArrayList<>())
+            + ", PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))";
+    }
+
+    /** 미래 파티션 생성 + 만료 파티션 삭제 + 프루닝 확인 */
+    public synchronized void maintain() {
+        DatabaseManager db = DatabaseManager.getInstance();
+        if (!db.isAvailable()) return;
+
+        try (Connection conn = db.getWriteConnection();
+             Statement stmt = conn.createStatement()) {
+            List<Partition> parts = loadPartitions(conn);
+            if (parts.isEmpty()) {
+                lastError = "tag_reads is not partitioned";
+                return;
+            }
+            LocalDate today = LocalDate.now();
+
+            // 1) 미래 파티션: 마지막 상한부터 precreateEnd까지
+            LocalDate lastBound = null;
+            boolean hasFuture = false;
+            for (Partition p : parts) {
+                if (p.bound == null) hasFuture = true;
+                else lastBound = p.bound;
+            }
+            if (lastBound == null) lastBound = periodStart(today);
+            List<String> added = new ArrayList<>();
+            String defs = periodDefs(lastBound, precreateEnd(today), added);
+            if (!added.isEmpty()) {
+                stmt.execute(hasFuture
+                    ? "ALTER TABLE tag_reads REORGANIZE PARTITION " + FUTURE_PARTITION + " INTO (" + defs
+                        + ", PARTITION " + FUTURE_PARTITION + " VALUES LESS THAN (MAXVALUE))"
+                    : "ALTER TABLE tag_reads ADD PARTITION (" + defs + ")");
+                createdCount.addAndGet(added.size());
+                AppLogger.info("PartitionManager", "Created partitions " + added);
+            }
+
+            // 2) 보존 기간 만료: 상한이 cutoff 이하인 파티션은 모든 행이 보존 기간 밖
+            if (retentionDays > 0) {
+                LocalDate cutoff = today.minusDays(retentionDays);
+                List<String> expired = new ArrayList<>();
+                LocalDate droppedBound = null;
+                for (Partition p : parts) {
+                    if (p.bound != null && !p.bound.isAfter(cutoff)) {
+                        // 보관(archive.enabled) 중이면 보관 파일로 옮겨진 기간까지만 삭제
+                        if (!TagArchiver.getInstance().isArchivedBefore(p.bound)) {
+                            AppLogger.info("PartitionManager", "Partition " + p.name
+                                + " is expired but not archived yet - drop deferred");
+                            break;
+                        }
+                        expired.add(p.name);
+                        droppedBound = p.bound;
+                    }
+                }
+                if (!expired.isEmpty()) {
+                    stmt.execute("ALTER TABLE tag_reads DROP PARTITION " + String.join(", ", expired));
+                    TagReadCounters.getInstance().dropBefore(droppedBound);
+                    droppedCount.addAndGet(expired.size());
+                    TagArchiver.getInstance().refreshLiveFrom();
+                    AppLogger.info("PartitionManager", "Dropped expired partitions " + expired
+                        + " (retention " + retentionDays + " days)");
+                }
+            }
+
+            parts = loadPartitions(conn);
+            partitionCount = parts.size();
+            oldestBound = parts.get(0).bound != null ? parts.get(0).bound.toString() : null;
+            newestBound = lastBound(parts);
+            verifyPruning(conn, parts.size());
+            lastRun = HexUtils.nowShort();
+            lastError = null;
+        } catch (SQLException e) {
+            lastError = e.getMessage();
+            AppLogger.error("PartitionManager", "Maintenance failed: " + e.getMessage());
+        }
+    }
+
+    private static String lastBound(List<Partition> parts) {
+        for (int i = parts.size() - 1; i >= 0; i--) {
+            if (parts.get(i).bound != null) return parts.get(i).bound.toString();
+        }
+        return null;
+    }
+
+    /**
+     * 오늘 구간의 내장 기간 조회를 EXPLAIN PARTITIONS로 확인.
+     * tag_reads(t) 행의 partitions 목록이 전체보다 적으면 프루닝된 것이다.
+     */
+    private void verifyPruning(Connection conn, int total) throws SQLException {
+        LocalDate today = LocalDate.now();
+        String partitions = null;
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN PARTITIONS " + MariaDbStorage.TAG_READS_PAGE_BASE)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(today.atStartOfDay()));
+            pstmt.setTimestamp(2, Timestamp.valueOf(today.plusDays(1).atStartOfDay()));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    if ("t".equals(rs.getString("table"))) partitions = rs.getString("partitions");
+                }
+            }
+        }
+        int scanned = partitions == null ? total : partitions.split(",").length;
+        boolean pruned = scanned < total;
+        if (!pruned && !pruning.startsWith("not-pruned")) {
+            AppLogger.warn("PartitionManager", "Time-range query scans all " + total + " partitions (no pruning)");
+        }
+        pruning = (pruned ? "ok" : "not-pruned") + " (" + scanned + "/" + total + ": " + partitions + ")";
+    }
+
+    /** tag_reads 파티션 목록 (정의 순서, bound가 null이면 MAXVALUE). 파티셔닝 전이면 빈 목록 */
+    private static List<Partition> loadPartitions(Connection conn) throws SQLException {
+        List<Partition> parts = new ArrayList<>();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT PARTITION_NAME, PARTITION_DESCRIPTION FROM information_schema.PARTITIONS "
+                    + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'tag_reads' AND PARTITION_NAME IS NOT NULL "
+                    + "ORDER BY PARTITION_ORDINAL_POSITION");
+             ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                // RANGE COLUMNS 설명은 '2026-10-18 00:00:00' 형태 (따옴표 포함) 또는 MAXVALUE
+                String desc = rs.getString(2).replace("'", "").trim();
+                LocalDate bound = desc.equalsIgnoreCase("MAXVALUE") ? null : LocalDate.parse(desc.substring(0, 10));
+                parts.add(new Partition(rs.getString(1), bound));
+            }
+        }
+        return parts;
+    }
+
+    static boolean isPartitioned(Connection conn) throws SQLException {
+        return !loadPartitions(conn).isEmpty();
+    }
+
+    /** 파티션 점검 상태 JSON (/api/metrics) */
+    public String toJson() {
+        return "{\"granularity\":\"" + (weekly ? "week" : "day") + "\""
+            + ",\"precreate\":" + precreate
+            + ",\"retentionDays\":" + retentionDays
+            + ",\"partitions\":" + partitionCount
+            + ",\"oldestBound\":" + JsonUtils.toJsonString(oldestBound)
+            + ",\"newestBound\":" + JsonUtils.toJsonString(newestBound)
+            + ",\"created\":" + createdCount.get()
+            + ",\"dropped\":" + droppedCount.get()
+            + ",\"pruning\":" + JsonUtils.toJsonString(pruning)
+            + ",\"lastRun\":" + JsonUtils.toJsonString(lastRun)
+            + ",\"lastError\":" + JsonUtils.toJsonString(lastError)
+            + "}";
+    }
+
+    private static class Partition {
+        final String name;
+        final LocalDate bound;
+
+        Partition(String name, LocalDate bound) {
+            this.name = name;
+            this.bound = bound;
+        }
+    }
+}
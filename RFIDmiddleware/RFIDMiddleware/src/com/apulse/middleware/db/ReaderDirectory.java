@@ -0,0 +1,55 @@
+package com.apulse.middleware.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * readers 차원 테이블의 리더기 이름 → SMALLINT id 캐시.
+ * 처음 보는 리더기는 INSERT IGNORE로 등록한 뒤 id를 조회한다. 태그 배치 트랜잭션과 별개로
+ * 쓰기 풀의 자동 커밋 연결에서 등록하므로, 배치가 롤백되어도 캐시한 id는 유효하다.
+ */
+public class ReaderDirectory {
+    private static final ReaderDirectory INSTANCE = new ReaderDirectory();
+
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+
+    private ReaderDirectory() {}
+
+    public static ReaderDirectory getInstance() {
+        return INSTANCE;
+    }
+
+    /** 리더기 id (없으면 등록). 연결 오류는 그대로 던져 호출자가 재시도하도록 한다 */
+    public int idOf(String readerName) throws SQLException {
+        Integer id = ids.get(readerName);
+        if (id != null) return id;
+        synchronized (this) {
+            id = ids.get(readerName);
+            if (id != null) return id;
+            int assigned = register(readerName);
+            ids.put(readerName, assigned);
+            return assigned;
+        }
+    }
+
+    private int register(String readerName) throws SQLException {
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            try (PreparedStatement pstmt = conn.prepareStatement("INSERT IGNORE INTO readers (name) VALUES (?)")) {
+                pstmt.setString(1, readerName);
+                pstmt.executeUpdate();
+            }
+            try (PreparedStatement pstmt = conn.prepareStatement("SELECT id FROM readers WHERE name = ?")) {
+                pstmt.setString(1, readerName);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (rs.next()) return rs.getInt(1);
+                }
+            }
+        }
+        // 이름이 컬럼 길이를 넘거나 id 범위(SMALLINT UNSIGNED)를 다 쓴 경우
+        throw new SQLDataException("Reader id not assigned: " + readerName);
+    }
+}
@@ -0,0 +1,234 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.HexUtils;
+import com.apulse.middleware.util.JsonUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 태그 읽기 통계 롤업 테이블 (tag_read_rollup_1m / 1h / 1d).
+ * 분 단위 행은 엔진의 RollupAggregator가 완료된 분마다 기록하고(ON DUPLICATE KEY UPDATE 누적),
+ * 기록된 구간의 시/일 행은 compact()가 하위 테이블 합계로 다시 계산해 덮어쓴다(재실행해도 같은 결과).
+ * 분 단위 행은 보존 기간이 지나면 삭제되고 시/일 행은 남는다.
+ * unique_epcs는 하위 구간 고유 EPC 수의 합이므로 시/일 단위에서는 상한값이다.
+ */
+public class RollupRepository {
+    private static final RollupRepository INSTANCE = new RollupRepository();
+
+    static final String[] TABLES = {"tag_read_rollup_1m", "tag_read_rollup_1h", "tag_read_rollup_1d"};
+    private static final String COUNTER_COLUMNS = "read_count, unique_epcs, asset_reads, alert_count, rssi_sum";
+    private static final String SUM_COLUMNS =
+        "SUM(read_count), SUM(unique_epcs), SUM(asset_reads), SUM(alert_count), SUM(rssi_sum)";
+    private static final String REPLACE_COUNTERS = "read_count = VALUES(read_count), "
+        + "unique_epcs = VALUES(unique_epcs), asset_reads = VALUES(asset_reads), "
+        + "alert_count = VALUES(alert_count), rssi_sum = VALUES(rssi_sum)";
+    private static final int PURGE_CHUNK_ROWS = 10000;
+
+    /** 분 단위 행 보존 기간 (일) */
+    private volatile int minuteRetentionDays = 7;
+    /** 마지막 compact() 이후 기록된 가장 이른 분 (epoch ms, 없으면 Long.MAX_VALUE) */
+    private final AtomicLong dirtyFrom = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private volatile String lastCompaction;
+    private volatile String lastError;
+
+    private RollupRepository() {}
+
+    public static RollupRepository getInstance() {
+        return INSTANCE;
+    }
+
+    public void setMinuteRetentionDays(int days) {
+        this.minuteRetentionDays = Math.max(1, days);
+    }
+
+    /** 분 단위 롤업 1행 (리더기, 안테나별) */
+    public static class MinuteRow {
+        public final String readerName;
+        public final int antenna;
+        public final long reads;
+        public final long uniqueEpcs;
+        public final long assetReads;
+        public final long alerts;
+        public final long rssiSum;
+
+        public MinuteRow(String readerName, int antenna, long reads, long uniqueEpcs,
+                         long assetReads, long alerts, long rssiSum) {
+            this.readerName = readerName;
+            this.antenna = antenna;
+            this.reads = reads;
+            this.uniqueEpcs = uniqueEpcs;
+            this.assetReads = assetReads;
+            this.alerts = alerts;
+            this.rssiSum = rssiSum;
+        }
+    }
+
+    /**
+     * 완료된 1분 구간 기록 (같은 키가 있으면 더함 - 재기동/다중 인스턴스 대비).
+     * @return 기록했으면 true, DB 장애 등으로 다시 시도해야 하면 false
+     */
+    public boolean writeMinute(long minuteStartMs, List<MinuteRow> rows) {
+        if (rows.isEmpty()) return true;
+        DatabaseManager db = DatabaseManager.getInstance();
+        if (!db.isAvailable()) return false;
+
+        String sql = "INSERT INTO tag_read_rollup_1m (bucket, reader_id, antenna, " + COUNTER_COLUMNS + ") "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE "
+            + "read_count = read_count + VALUES(read_count), unique_epcs = unique_epcs + VALUES(unique_epcs), "
+            + "asset_reads = asset_reads + VALUES(asset_reads), alert_count = alert_count + VALUES(alert_count), "
+            + "rssi_sum = rssi_sum + VALUES(rssi_sum)";
+        try {
+            // 리더기 id는 트랜잭션 밖에서 먼저 확정
+            int[] readerIds = new int[rows.size()];
+            for (int i = 0; i < rows.size(); i++) {
+                readerIds[i] = ReaderDirectory.getInstance().idOf(rows.get(i).readerName);
+            }
+            try (Connection conn = db.getWriteConnection();
+                 PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                conn.setAutoCommit(false);
+                Timestamp bucket = new Timestamp(minuteStartMs);
+                for (int i = 0; i < rows.size(); i++) {
+                    MinuteRow r = rows.get(i);
+                    pstmt.setTimestamp(1, bucket);
+                    pstmt.setInt(2, readerIds[i]);
+                    pstmt.setInt(3, r.antenna);
+                    pstmt.setLong(4, r.reads);
+                    pstmt.setLong(5, r.uniqueEpcs);
+                    pstmt.setLong(6, r.assetReads);
+                    pstmt.setLong(7, r.alerts);
+                    pstmt.setLong(8, r.rssiSum);
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            }
+            rowsWritten.addAndGet(rows.size());
+            markDirty(minuteStartMs);
+            return true;
+        } catch (SQLException e) {
+            lastError = e.getMessage();
+            if (DatabaseManager.isConnectionFailure(e)) {
+                db.reportConnectionFailure(e);
+                return false;
+            }
+            // 데이터 오류는 재시도해도 같으므로 버림
+            AppLogger.error("RollupRepository", "Minute rollup dropped: " + e.getMessage());
+            return true;
+        }
+    }
+
+    private void markDirty(long ms) {
+        dirtyFrom.accumulateAndGet(ms, Math::min);
+    }
+
+    /**
+     * 마지막 실행 이후 기록된 구간의 시/일 롤업을 다시 계산하고, 보존 기간이 지난 분 단위 행을 삭제.
+     * 실패하면 같은 구간을 다음 실행에서 다시 계산한다.
+     */
+    public void compact() {
+        DatabaseManager db = DatabaseManager.getInstance();
+        if (!db.isAvailable()) return;
+        long from = dirtyFrom.getAndSet(Long.MAX_VALUE);
+
+        try (Connection conn = db.getWriteConnection()) {
+            if (from != Long.MAX_VALUE) {
+                LocalDateTime start = new Timestamp(from).toLocalDateTime();
+                LocalDateTime hourFrom = start.truncatedTo(ChronoUnit.HOURS);
+                LocalDateTime hourTo = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+                rebuild(conn, TABLES[0], TABLES[1], "DATE_FORMAT(bucket, '%Y-%m-%d %H:00:00')", hourFrom, hourTo);
+
+                LocalDateTime dayFrom = start.toLocalDate().atStartOfDay();
+                LocalDateTime dayTo = LocalDate.now().plusDays(1).atStartOfDay();
+                rebuild(conn, TABLES[1], TABLES[2], "DATE(bucket)", dayFrom, dayTo);
+            }
+            purgeMinutes(conn);
+            lastCompaction = HexUtils.nowShort();
+        } catch (SQLException e) {
+            if (from != Long.MAX_VALUE) markDirty(from);
+            lastError = e.getMessage();
+            db.reportConnectionFailure(e);
+            AppLogger.error("RollupRepository", "Compaction failed: " + e.getMessage());
+        }
+    }
+
+    /** 하위 테이블 [from, to) 구간을 상위 단위로 합산해 상위 테이블에 덮어쓰기 */
+    private void rebuild(Connection conn, String source, String target, String bucketExpr,
+                         LocalDateTime from, LocalDateTime to) throws SQLException {
+        String sql = "INSERT INTO " + target + " (bucket, reader_id, antenna, " + COUNTER_COLUMNS + ") "
+            + "SELECT " + bucketExpr + ", reader_id, antenna, " + SUM_COLUMNS + " FROM " + source
+            + " WHERE bucket >= ? AND bucket < ? GROUP BY 1, reader_id, antenna "
+            + "ON DUPLICATE KEY UPDATE " + REPLACE_COUNTERS;
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(from));
+            pstmt.setTimestamp(2, Timestamp.valueOf(to));
+            pstmt.executeUpdate();
+        }
+    }
+
+    /** 보존 기간이 지난 분 단위 행 삭제 (시 단위 합산이 끝난 구간만, 청크 단위) */
+    private void purgeMinutes(Connection conn) throws SQLException {
+        LocalDateTime cutoff = LocalDate.now().minusDays(minuteRetentionDays).atStartOfDay();
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "DELETE FROM " + TABLES[0] + " WHERE bucket < ? LIMIT " + PURGE_CHUNK_ROWS)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(cutoff));
+            while (pstmt.executeUpdate() == PURGE_CHUNK_ROWS) {
+                // 다음 청크
+            }
+        }
+    }
+
+    /**
+     * 기간 내 리더기별 합계 {reads, uniqueEpcs, assetReads, alerts, rssiSum}.
+     * 분 단위 행이 남아 있는 기간이면 1m, 아니면 1h 테이블에서 합산 (from/to는 해당 단위로 내림).
+     */
+    public Map<String, long[]> getReaderTotals(LocalDateTime from, LocalDateTime to) {
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        DatabaseManager db = DatabaseManager.getInstance();
+        if (!db.isAvailable()) return totals;
+
+        boolean minutes = !from.isBefore(LocalDate.now().minusDays(minuteRetentionDays).atStartOfDay());
+        String table = minutes ? TABLES[0] : TABLES[1];
+        ChronoUnit unit = minutes ? ChronoUnit.MINUTES : ChronoUnit.HOURS;
+        String sql = "SELECT r.name, " + SUM_COLUMNS.replace("SUM(", "SUM(t.") + " FROM " + table + " t "
+            + "JOIN readers r ON r.id = t.reader_id WHERE t.bucket >= ? AND t.bucket < ? "
+            + "GROUP BY r.name ORDER BY r.name";
+        try (Connection conn = db.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setTimestamp(1, Timestamp.valueOf(from.truncatedTo(unit)));
+            pstmt.setTimestamp(2, Timestamp.valueOf(to));
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    totals.put(rs.getString(1), new long[] {
+                        rs.getLong(2), rs.getLong(3), rs.getLong(4), rs.getLong(5), rs.getLong(6)
+                    });
+                }
+            }
+        } catch (SQLException e) {
+            db.reportConnectionFailure(e);
+            AppLogger.error("RollupRepository", "Totals query failed: " + e.getMessage());
+        }
+        return totals;
+    }
+
+    /** 롤업 기록 상태 JSON (/api/metrics) */
+    public String toJson() {
+        return "{\"rowsWritten\":" + rowsWritten.get()
+            + ",\"minuteRetentionDays\":" + minuteRetentionDays
+            + ",\"lastCompaction\":" + JsonUtils.toJsonString(lastCompaction)
+            + ",\"lastError\":" + JsonUtils.toJsonString(lastError)
+            + "}";
+    }
+}
@@ -0,0 +1,514 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.JsonUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 버전 기반 스키마 마이그레이션.
+ * schema_version 테이블에 적용된 버전을 기록하고, 기동/재연결 시 미적용 단계만 순서대로 실행한다.
+ * 여러 인스턴스가 같은 DB를 쓰는 경우를 위해 GET_LOCK으로 한 번에 하나만 마이그레이션한다.
+ *
+ * V1: 기존 테이블 (tag_reads 원형, assets, export_permissions, export_alerts)
+ * V2: tag_reads 압축 - EPC는 VARBINARY, 리더기는 readers 차원 테이블의 SMALLINT id, read_time은 DATETIME(3).
+ *     새 테이블과 이름을 원자적으로 바꿔(RENAME) 기록은 즉시 새 형식으로 이어지고,
+ *     이전 데이터(tag_reads_legacy)는 백그라운드 스레드가 최신 id 구간부터 청크 단위로 옮긴 뒤 삭제한다.
+ *     복사가 끝나기 전까지 기간 조회에는 아직 옮기지 않은 과거 구간이 빠진다.
+ * V3: tag_reads를 read_time 기준 RANGE 파티션으로 전환 (이후 생성/삭제는 PartitionManager).
+ *     파티션 키가 모든 유니크 키에 포함되어야 하므로 PK는 (id, read_time)이 된다.
+ * V4: 리더기/안테나별 읽기 통계 롤업 테이블 (1분/1시간/1일, RollupRepository).
+ * V5: EPC별 마지막 감지 위치 테이블 tag_last_seen (LastSeenRepository).
+ * V6: 자산/반출허용 변경 로그 asset_changes (AssetRepository 증분 동기화).
+ */
+public class SchemaMigrator {
+    private static final SchemaMigrator INSTANCE = new SchemaMigrator();
+
+    /** 이 버전의 코드가 기대하는 스키마 버전 */
+    public static final int LATEST_VERSION = 6;
+    private static final String[] DESCRIPTIONS = {
+        "",
+        "baseline tables",
+        "compact tag_reads (binary EPC, reader ids, DATETIME(3))",
+        "partition tag_reads by read_time",
+        "tag read rollup tables (1m/1h/1d)",
+        "tag_last_seen table",
+        "asset_changes log"
+    };
+
+    private static final String LOCK_NAME = "rfid_middleware_schema";
+    private static final int LOCK_TIMEOUT_SECONDS = 30;
+    private static final String LEGACY_TABLE = "tag_reads_legacy";
+    private static final String COPY_CURSOR_KEY = "tag_reads_legacy_cursor";
+    /** 이전 데이터 복사 청크 (id 구간 폭) */
+    private static final int COPY_CHUNK_ROWS = 5000;
+    /** 옮길 수 있는 이전 EPC 조건 (홀수 길이는 TagWriter.epcBytes처럼 앞에 0을 붙여 변환) */
+    private static final String LEGACY_HEX_EPC = "l.epc REGEXP '^[0-9A-Fa-f]+$'";
+    /** 청크 사이 대기 - 운영 중 태그 기록과 I/O를 나눠 쓰도록 */
+    private static final long COPY_PAUSE_MS = 100;
+    /** DB 장애/오류 시 재시도 대기 */
+    private static final long COPY_RETRY_MS = 5000;
+
+    private volatile int version = 0;
+    private Thread copyThread;
+    private volatile boolean copying = false;
+    /** 다음 청크의 id 상한 (미포함), 복사 중이 아니면 -1 */
+    private volatile long copyCursor = -1;
+    private final AtomicLong copiedRows = new AtomicLong();
+    /** 16진수가 아니어서 옮기지 않은 이전 행 수 */
+    private final AtomicLong skippedRows = new AtomicLong();
+    private volatile String lastError;
+
+    private SchemaMigrator() {}
+
+    public static SchemaMigrator getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * 미적용 마이그레이션 실행. 이전 tag_reads 데이터가 남아 있으면 백그라운드 복사를 시작한다.
+     * @return 스키마가 최신이면 true
+     */
+    synchronized boolean migrate(Connection conn) {
+        try (Statement stmt = conn.createStatement()) {
+            if (!acquireLock(conn)) {
+                AppLogger.warn("SchemaMigrator", "Migration lock busy (another instance migrating?)");
+                return false;
+            }
+            try {
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_version ("
+                    + "version INT PRIMARY KEY, "
+                    + "description VARCHAR(128), "
+                    + "applied_at DATETIME DEFAULT CURRENT_TIMESTAMP"
+                    + ") ENGINE=InnoDB");
+                stmt.execute("CREATE TABLE IF NOT EXISTS schema_migration_state ("
+                    + "name VARCHAR(64) PRIMARY KEY, "
+                    + "value BIGINT NOT NULL"
+                    + ") ENGINE=InnoDB");
+
+                int current = readVersion(stmt);
+                if (current > LATEST_VERSION) {
+                    AppLogger.warn("SchemaMigrator", "Schema version " + current
+                        + " is newer than this build (" + LATEST_VERSION + ")");
+                }
+                for (int v = current + 1; v <= LATEST_VERSION; v++) {
+                    AppLogger.info("SchemaMigrator", "Applying V" + v + " (" + DESCRIPTIONS[v] + ")");
+                    apply(v, conn, stmt);
+                    try (PreparedStatement pstmt = conn.prepareStatement(
+                            "INSERT INTO schema_version (version, description) VALUES (?, ?)")) {
+                        pstmt.setInt(1, v);
+                        pstmt.setString(2, DESCRIPTIONS[v]);
+                        pstmt.executeUpdate();
+                    }
+                    current = v;
+                }
+                version = current;
+                AppLogger.info("SchemaMigrator", "Schema at V" + current);
+
+                if (tableExists(conn, LEGACY_TABLE)) startLegacyCopy();
+            } finally {
+                releaseLock(conn);
+            }
+            return true;
+        } catch (SQLException e) {
+            lastError = e.getMessage();
+            AppLogger.error("SchemaMigrator", "Migration failed: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private void apply(int v, Connection conn, Statement stmt) throws SQLException {
+        switch (v) {
+            case 1:
+                applyBaseline(stmt);
+                break;
+            case 2:
+                compactTagReads(conn, stmt);
+                break;
+            case 3:
+                partitionTagReads(conn, stmt);
+                break;
+            case 4:
+                createRollupTables(stmt);
+                break;
+            case 5:
+                createLastSeenTable(stmt);
+                break;
+            case 6:
+                createAssetChangesTable(stmt);
+                break;
+            default:
+                throw new SQLException("Unknown schema version " + v);
+        }
+    }
+
+    /** V1: 마이그레이터 도입 전 DatabaseManager가 만들던 테이블 (이미 있으면 빠진 컬럼/인덱스만 보완) */
+    private void applyBaseline(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS tag_reads ("
+            + "id BIGINT PRIMARY KEY AUTO_INCREMENT, "
+            + "epc VARCHAR(128) NOT NULL, "
+            + "reader_name VARCHAR(64) NOT NULL, "
+            + "rssi INT NOT NULL, "
+            + "antenna INT DEFAULT 0, "
+            + "read_time DATETIME NOT NULL, "
+            + "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, "
+            + "INDEX idx_epc (epc), "
+            + "INDEX idx_read_time (read_time), "
+            + "INDEX idx_reader (reader_name)"
+            + ") ENGINE=InnoDB");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS assets ("
+            + "id BIGINT PRIMARY KEY AUTO_INCREMENT, "
+            + "asset_number VARCHAR(64) NOT NULL, "
+            + "epc VARCHAR(128) NOT NULL, "
+            + "asset_name VARCHAR(128), "
+            + "department VARCHAR(64), "
+            + "possession TINYINT(1) DEFAULT 1, "
+            + "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, "
+            + "UNIQUE KEY uk_epc (epc), "
+            + "INDEX idx_asset_number (asset_number)"
+            + ") ENGINE=InnoDB");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS export_permissions ("
+            + "id BIGINT PRIMARY KEY AUTO_INCREMENT, "
+            + "epc VARCHAR(128) NOT NULL, "
+            + "permit_start DATETIME, "
+            + "permit_end DATETIME, "
+            + "reason VARCHAR(256), "
+            + "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, "
+            + "INDEX idx_epc (epc), "
+            + "INDEX idx_permit_period (permit_start, permit_end)"
+            + ") ENGINE=InnoDB");
+
+        stmt.execute("CREATE TABLE IF NOT EXISTS export_alerts ("
+            + "id BIGINT PRIMARY KEY AUTO_INCREMENT, "
+            + "epc VARCHAR(128) NOT NULL, "
+            + "asset_number VARCHAR(64), "
+            + "reader_name VARCHAR(64) NOT NULL, "
+            + "rssi INT, "
+            + "alert_time DATETIME NOT NULL, "
+            + "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, "
+            + "INDEX idx_alert_time (alert_time), "
+            + "INDEX idx_epc (epc)"
+            + ") ENGINE=InnoDB");
+
+        // 이전 버전에서 만든 테이블에 빠진 컬럼/인덱스 보완
+        stmt.execute("ALTER TABLE assets ADD COLUMN IF NOT EXISTS possession TINYINT(1) DEFAULT 1");
+        // 반출허용 목록 keyset 페이징용 (permit_end DESC, id DESC)
+        stmt.execute("ALTER TABLE export_permissions ADD INDEX IF NOT EXISTS idx_permit_end (permit_end)");
+        stmt.execute("ALTER TABLE tag_reads ADD COLUMN IF NOT EXISTS antenna INT DEFAULT 0");
+    }
+
+    /**
+     * V2: 압축 tag_reads를 만들어 기존 테이블과 이름을 맞바꾼다.
+     * 새 테이블의 AUTO_INCREMENT는 기존 최대 id 다음부터 시작해 복사할 행과 id가 겹치지 않는다.
+     * (DDL은 트랜잭션이 아니므로 중간에 중단되어도 다시 실행할 수 있게 작성)
+     */
+    private void compactTagReads(Connection conn, Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS readers ("
+            + "id SMALLINT UNSIGNED PRIMARY KEY AUTO_INCREMENT, "
+            + "name VARCHAR(64) NOT NULL, "
+            + "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, "
+            + "UNIQUE KEY uk_name (name)"
+            + ") ENGINE=InnoDB");
+
+        // 이전 실행이 이름 교체까지 마치고 버전 기록 전에 중단된 경우
+        if (columnExists(conn, "tag_reads", "reader_id")) return;
+
+        stmt.execute("DROP TABLE IF EXISTS tag_reads_compact");
+        stmt.execute("CREATE TABLE tag_reads_compact ("
+            + "id BIGINT PRIMARY KEY AUTO_INCREMENT, "
+            + "epc VARBINARY(32) NOT NULL, "
+            + "reader_id SMALLINT UNSIGNED NOT NULL, "
+            + "rssi SMALLINT NOT NULL, "
+            + "antenna TINYINT UNSIGNED NOT NULL DEFAULT 0, "
+            + "read_time DATETIME(3) NOT NULL, "
+            + "INDEX idx_read_time (read_time), "
+            + "INDEX idx_epc_time (epc, read_time), "
+            + "INDEX idx_reader_time (reader_id, read_time)"
+            + ") ENGINE=InnoDB");
+
+        long nextId = queryLong(stmt, "SELECT COALESCE(MAX(id), 0) + 1 FROM tag_reads");
+        stmt.execute("ALTER TABLE tag_reads_compact AUTO_INCREMENT = " + nextId);
+        stmt.execute("RENAME TABLE tag_reads TO " + LEGACY_TABLE + ", tag_reads_compact TO tag_reads");
+
+        // 교체 직전에 다른 인스턴스가 기록했을 수 있으므로 교체 후의 최대 id를 복사 시작점으로 사용
+        long legacyEnd = queryLong(stmt, "SELECT COALESCE(MAX(id), 0) + 1 FROM " + LEGACY_TABLE);
+        if (legacyEnd == 1) {
+            stmt.execute("DROP TABLE " + LEGACY_TABLE);
+            return;
+        }
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "INSERT INTO schema_migration_state (name, value) VALUES (?, ?) "
+                    + "ON DUPLICATE KEY UPDATE value = VALUES(value)")) {
+            pstmt.setString(1, COPY_CURSOR_KEY);
+            pstmt.setLong(2, legacyEnd);
+            pstmt.executeUpdate();
+        }
+        AppLogger.info("SchemaMigrator", "tag_reads swapped; " + (legacyEnd - 1)
+            + " legacy id(s) will be copied in background");
+    }
+
+    /**
+     * V3: PK를 (id, read_time)으로 바꾸고 파티션 적용 (테이블 재구성 - 기록은 마이그레이션 동안 저널에 보류).
+     * 현재 기간 이전 데이터는 p_hist, 이후는 설정된 단위의 파티션으로 나뉜다.
+     */
+    private void partitionTagReads(Connection conn, Statement stmt) throws SQLException {
+        if (PartitionManager.isPartitioned(conn)) return;
+        stmt.execute("ALTER TABLE tag_reads DROP PRIMARY KEY, ADD PRIMARY KEY (id, read_time) "
+            + PartitionManager.getInstance().initialPartitionClause(LocalDate.now()));
+    }
+
+    /** V4: 롤업 테이블 (단위만 다르고 구조는 같음) */
+    private void createRollupTables(Statement stmt) throws SQLException {
+        for (String table : RollupRepository.TABLES) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS " + table + " ("
+                + "bucket DATETIME NOT NULL, "
+                + "reader_id SMALLINT UNSIGNED NOT NULL, "
+                + "antenna TINYINT UNSIGNED NOT NULL, "
+                + "read_count INT UNSIGNED NOT NULL DEFAULT 0, "
+                + "unique_epcs INT UNSIGNED NOT NULL DEFAULT 0, "
+                + "asset_reads INT UNSIGNED NOT NULL DEFAULT 0, "
+                + "alert_count INT UNSIGNED NOT NULL DEFAULT 0, "
+                + "rssi_sum BIGINT NOT NULL DEFAULT 0, "
+                + "PRIMARY KEY (bucket, reader_id, antenna)"
+                + ") ENGINE=InnoDB");
+        }
+    }
+
+    /** V5: EPC당 1행 (PK 조회), 최근 감지 순/리더기별 조회용 인덱스 */
+    private void createLastSeenTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS tag_last_seen ("
+            + "epc VARBINARY(32) NOT NULL PRIMARY KEY, "
+            + "reader_id SMALLINT UNSIGNED NOT NULL, "
+            + "antenna TINYINT UNSIGNED NOT NULL, "
+            + "rssi SMALLINT NOT NULL, "
+            + "first_seen DATETIME(3) NOT NULL, "
+            + "last_seen DATETIME(3) NOT NULL, "
+            + "read_count BIGINT UNSIGNED NOT NULL DEFAULT 0, "
+            + "INDEX idx_last_seen (last_seen), "
+            + "INDEX idx_reader_last (reader_id, last_seen)"
+            + ") ENGINE=InnoDB");
+    }
+
+    /**
+     * V6: 자산/반출허용을 바꾼 EPC 기록 (kind A: 자산, P: 반출허용).
+     * seq 순으로 이어 읽고, 오래된 행은 전체 재적재 때 changed_at 기준으로 정리한다.
+     */
+    private void createAssetChangesTable(Statement stmt) throws SQLException {
+        stmt.execute("CREATE TABLE IF NOT EXISTS asset_changes ("
+            + "seq BIGINT PRIMARY KEY AUTO_INCREMENT, "
+            + "kind CHAR(1) NOT NULL, "
+            + "epc VARCHAR(128) NOT NULL, "
+            + "changed_at DATETIME(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), "
+            + "INDEX idx_changed_at (changed_at)"
+            + ") ENGINE=InnoDB");
+    }
+
+    private synchronized void startLegacyCopy() {
+        if (copyThread != null) return;
+        copying = true;
+        copyThread = new Thread(this::copyLoop, "Schema-Migrate");
+        copyThread.setDaemon(true);
+        copyThread.start();
+    }
+
+    /** 이전 tag_reads 데이터를 최신 id 구간부터 청크 단위로 옮기고, 다 옮기면 이전 테이블 삭제 */
+    private void copyLoop() {
+        DatabaseManager db = DatabaseManager.getInstance();
+        AppLogger.info("SchemaMigrator", "Legacy tag_reads copy started");
+        while (copying) {
+            try {
+                if (!db.isAvailable()) {
+                    Thread.sleep(COPY_RETRY_MS);
+                } else if (copyChunk(db)) {
+                    AppLogger.info("SchemaMigrator", "Legacy tag_reads copy completed ("
+                        + copiedRows.get() + " rows)");
+                    // 복사된 과거 행은 writer 커밋으로 세어지지 않으므로 다시 집계
+                    TagReadCounters.getInstance().requestBootstrap();
+                    break;
+                } else {
+                    Thread.sleep(COPY_PAUSE_MS);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (SQLException e) {
+                lastError = e.getMessage();
+                AppLogger.error("SchemaMigrator", "Legacy copy failed: " + e.getMessage());
+                try {
+                    Thread.sleep(COPY_RETRY_MS);
+                } catch (InterruptedException ie) {
+                    break;
+                }
+            }
+        }
+        synchronized (this) {
+            copying = false;
+            copyThread = null;
+        }
+    }
+
+    /**
+     * 한 청크 [lo, cursor) 복사. 리더기 등록, 행 복사, 커서 전진을 한 트랜잭션으로 처리해
+     * 중단 후 재시작해도 같은 구간을 중복/누락 없이 이어서 옮긴다 (INSERT IGNORE로 이미 있는 id는 건너뜀).
+     * @return 복사가 끝나 이전 테이블을 삭제했으면 true
+     */
+    private boolean copyChunk(DatabaseManager db) throws SQLException {
+        try (Connection conn = db.getWriteConnection();
+             Statement stmt = conn.createStatement()) {
+            long cursor = readCursor(conn);
+            long minId = queryLong(stmt, "SELECT COALESCE(MIN(id), 0) FROM " + LEGACY_TABLE);
+            if (cursor < 0 || minId == 0 || cursor <= minId) {
+                stmt.execute("DROP TABLE IF EXISTS " + LEGACY_TABLE);
+                stmt.execute("DELETE FROM schema_migration_state WHERE name = '" + COPY_CURSOR_KEY + "'");
+                copyCursor = -1;
+                return true;
+            }
+            long lo = Math.max(minId, cursor - COPY_CHUNK_ROWS);
+
+            conn.setAutoCommit(false);
+            try {
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT IGNORE INTO readers (name) SELECT DISTINCT reader_name FROM " + LEGACY_TABLE
+                            + " WHERE id >= ? AND id < ?")) {
+                    pstmt.setLong(1, lo);
+                    pstmt.setLong(2, cursor);
+                    pstmt.executeUpdate();
+                }
+                // 16진수가 아닌 EPC는 UNHEX가 NULL을 돌려주고 INSERT IGNORE가 빈 값으로 바꿔 넣으므로 제외
+                long skipped;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "SELECT COUNT(*) FROM " + LEGACY_TABLE
+                            + " l WHERE l.id >= ? AND l.id < ? AND (l.epc IS NULL OR NOT (" + LEGACY_HEX_EPC + "))")) {
+                    pstmt.setLong(1, lo);
+                    pstmt.setLong(2, cursor);
+                    try (ResultSet rs = pstmt.executeQuery()) {
+                        skipped = rs.next() ? rs.getLong(1) : 0;
+                    }
+                }
+                int rows;
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "INSERT IGNORE INTO tag_reads (id, epc, reader_id, rssi, antenna, read_time) "
+                            + "SELECT l.id, UNHEX(IF(LENGTH(l.epc) % 2 = 1, CONCAT('0', l.epc), l.epc)), "
+                            + "r.id, l.rssi, l.antenna, l.read_time FROM "
+                            + LEGACY_TABLE + " l JOIN readers r ON r.name = l.reader_name "
+                            + "WHERE l.id >= ? AND l.id < ? AND " + LEGACY_HEX_EPC)) {
+                    pstmt.setLong(1, lo);
+                    pstmt.setLong(2, cursor);
+                    rows = pstmt.executeUpdate();
+                }
+                try (PreparedStatement pstmt = conn.prepareStatement(
+                        "UPDATE schema_migration_state SET value = ? WHERE name = ?")) {
+                    pstmt.setLong(1, lo);
+                    pstmt.setString(2, COPY_CURSOR_KEY);
+                    pstmt.executeUpdate();
+                }
+                conn.commit();
+                copiedRows.addAndGet(rows);
+                if (skipped > 0) {
+                    skippedRows.addAndGet(skipped);
+                    AppLogger.warn("SchemaMigrator", "Skipped " + skipped + " legacy rows with non-hex EPC (id "
+                        + lo + " ~ " + (cursor - 1) + ")");
+                }
+                copyCursor = lo;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+            return false;
+        }
+    }
+
+    private long readCursor(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT value FROM schema_migration_state WHERE name = ?")) {
+            pstmt.setString(1, COPY_CURSOR_KEY);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : -1;
+            }
+        }
+    }
+
+    private boolean acquireLock(Connection conn) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT GET_LOCK(?, ?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.setInt(2, LOCK_TIMEOUT_SECONDS);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() && rs.getInt(1) == 1;
+            }
+        }
+    }
+
+    private void releaseLock(Connection conn) {
+        try (PreparedStatement pstmt = conn.prepareStatement("SELECT RELEASE_LOCK(?)")) {
+            pstmt.setString(1, LOCK_NAME);
+            pstmt.executeQuery().close();
+        } catch (SQLException e) {
+            AppLogger.error("SchemaMigrator", "Lock release failed: " + e.getMessage());
+        }
+    }
+
+    private static int readVersion(Statement stmt) throws SQLException {
+        return (int) queryLong(stmt, "SELECT COALESCE(MAX(version), 0) FROM schema_version");
+    }
+
+    private static long queryLong(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String table) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT 1 FROM information_schema.TABLES WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private static boolean columnExists(Connection conn, String table, String column) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                "SELECT 1 FROM information_schema.COLUMNS WHERE TABLE_SCHEMA = DATABASE() "
+                    + "AND TABLE_NAME = ? AND COLUMN_NAME = ?")) {
+            pstmt.setString(1, table);
+            pstmt.setString(2, column);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    /** 백그라운드 복사 중지 (다음 기동 시 저장된 커서부터 이어서 복사) */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            copying = false;
+            t = copyThread;
+        }
+        if (t != null) t.interrupt();
+    }
+
+    /** 스키마 버전/이전 데이터 복사 진행 JSON (/api/metrics) */
+    public String toJson() {
+        return "{\"version\":" + version
+            + ",\"latest\":" + LATEST_VERSION
+            + ",\"legacyCopy\":{\"running\":" + copying
+            + ",\"cursor\":" + copyCursor
+            + ",\"copiedRows\":" + copiedRows.get()
+            + ",\"skippedRows\":" + skippedRows.get()
+            + ",\"lastError\":" + JsonUtils.toJsonString(lastError)
+            + "}}";
+    }
+}
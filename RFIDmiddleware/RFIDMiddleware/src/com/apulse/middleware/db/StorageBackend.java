@@ -0,0 +1,136 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.config.DatabaseConfig;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 저장소 백엔드 SPI (태그 이력, 반출 알림, 자산, 반출허용).
+ * 구현: MariaDbStorage(storage.backend=mariadb), EmbeddedStorage(storage.backend=embedded, 외부 DB 없이 로컬 파일).
+ * 조회 행 형식과 커서는 백엔드와 무관하게 같다 (TagRepository/AssetRepository의 각 메서드 설명 참고).
+ * 조회/변경 메서드는 실패 시 예외를 던지고, 로그와 기본값 처리는 TagRepository/AssetRepository가 맡는다.
+ * 커서(PageCursor)는 같은 백엔드가 만든 것만 넘겨야 한다.
+ */
+public interface StorageBackend {
+
+    /** 설정 이름 (mariadb / embedded) */
+    String getName();
+
+    void start(DatabaseConfig config) throws Exception;
+
+    /** 기록을 받는 상태인지 (일시 장애 중에도 true - 호출자가 보류/재시도 판단) */
+    boolean isEnabled();
+
+    /** 지금 조회/변경이 가능한지 */
+    boolean isAvailable();
+
+    void shutdown();
+
+    /** 상태 JSON (/api/metrics) */
+    String toJson();
+
+    // --- 태그 이력 ---
+
+    /** 태그 기록 (비동기 기록 가능, 호출 스레드를 막지 않아야 함) */
+    void insertTagRead(String epc, String readerName, int rssi, int antenna, String readTime);
+
+    /**
+     * 최신순 keyset 스트리밍 조회. epc가 null이 아니면 해당 EPC만.
+     * 행 형식: {시간, 리더기, EPC, RSSI, 안테나, id, 커서 시간(밀리초)}. limit이 0 이하면 전체
+     */
+    long streamTagReadsPage(String fromTime, String toTime, String epc, PageCursor after, int limit,
+                            Predicate<String[]> handler) throws Exception;
+
+    /** 오래된 순 스트리밍 조회 (내보내기). 행 형식: {시간, 리더기, EPC, RSSI, 안테나} */
+    long streamTagReads(String fromTime, String toTime, Predicate<String[]> handler) throws Exception;
+
+    /** 기간 내 추정 건수 (실패 시 -1) */
+    long estimateTagReadCount(String fromTime, String toTime);
+
+    /** 전체 건수 (모르면 -1) */
+    long getTagReadCount();
+
+    // --- 반출 알림 ---
+
+    void insertAlert(String epc, String assetNumber, String readerName, int rssi, String alertTime) throws Exception;
+
+    /** 최신순 keyset 스트리밍 조회. 행 형식: {시간, 리더기, EPC, 자산번호, 자산명, 부서, RSSI, id} */
+    long streamExportAlerts(String fromTime, String toTime, PageCursor after, int limit,
+                            Predicate<String[]> handler) throws Exception;
+
+    long estimateExportAlertCount(String fromTime, String toTime);
+
+    // --- 자산 ---
+
+    /** 자산 전체 (EPC는 저장된 그대로, 정규화는 AssetRepository가 수행) */
+    List<AssetRepository.AssetInfo> loadAssets() throws Exception;
+
+    /**
+     * 자산 전체를 한 행씩 전달 (목록을 만들지 않음, 오프힙 색인 적재용).
+     * 행 형식: {EPC(저장된 그대로), 자산번호, 자산명, 부서, 보유여부 1/0}. handler가 false면 중단
+     */
+    default long streamAssets(Predicate<String[]> handler) throws Exception {
+        long count = 0;
+        for (AssetRepository.AssetInfo a : loadAssets()) {
+            count++;
+            if (!handler.test(new String[] {
+                a.getEpc(), a.getAssetNumber(), a.getAssetName(), a.getDepartment(), a.isPossession() ? "1" : "0"
+            })) break;
+        }
+        return count;
+    }
+
+    /** 행 형식: {자산번호, EPC, 자산명, 부서, 등록일시, 보유여부, id} (자산번호순) */
+    List<String[]> queryAssets() throws Exception;
+
+    List<String[]> queryAssetsPage(PageCursor after, int limit) throws Exception;
+
+    boolean insertAsset(String assetNumber, String epc, String assetName, String department, int possession) throws Exception;
+
+    /** null인 필드는 변경하지 않음 */
+    boolean updateAsset(long id, String assetNumber, String epc, String assetName, String department,
+                        Integer possession) throws Exception;
+
+    long estimateAssetRowCount();
+
+    // --- 반출허용 ---
+
+    /** 종료가 지나지 않은(지금 유효하거나 앞으로 유효해질) 반출허용 기간 (EPC는 저장된 그대로) */
+    List<AssetRepository.PermitWindow> loadPermitWindows() throws Exception;
+
+    /** 행 형식: {EPC, 자산번호, 자산명, 시작, 종료, 사유, 유효/만료, id} (종료 최신순) */
+    List<String[]> queryExportPermissions() throws Exception;
+
+    List<String[]> queryExportPermissionsPage(PageCursor after, int limit) throws Exception;
+
+    boolean insertPermission(String epc, String permitStart, String permitEnd, String reason) throws Exception;
+
+    boolean deletePermission(long id) throws Exception;
+
+    long estimatePermissionRowCount();
+
+    // --- 자산/반출허용 증분 동기화 ---
+
+    /** 변경 로그로 증분 동기화를 지원하는지 (false면 AssetRepository가 항상 전체 재적재) */
+    default boolean supportsAssetDelta() {
+        return false;
+    }
+
+    /**
+     * 전체 재적재 직전에 호출: 변경 로그의 현재 seq와 DB 시각 (변경 내용은 비어 있음).
+     * 오래된 변경 로그 정리도 여기서 한다.
+     */
+    default AssetDelta markAssetChanges() throws Exception {
+        throw new UnsupportedOperationException(getName() + " does not support asset delta sync");
+    }
+
+    /**
+     * afterSeq 이후 바뀐 자산과 반출허용 EPC의 현재 상태 (since는 이전 동기화의 DB 시각).
+     * 따라갈 수 없으면 overflow를 세운다 (호출자가 전체 재적재)
+     */
+    default AssetDelta loadAssetDelta(long afterSeq, Timestamp since) throws Exception {
+        throw new UnsupportedOperationException(getName() + " does not support asset delta sync");
+    }
+}
@@ -0,0 +1,66 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.config.DatabaseConfig;
+import com.apulse.middleware.db.embedded.EmbeddedStorage;
+import com.apulse.middleware.util.AppLogger;
+
+/**
+ * 저장소 백엔드 선택 (storage.backend).
+ * mariadb: 기존 DB 경로 (DatabaseManager + 태그 writer/저널).
+ * embedded: 외부 DB 없이 storage.embedded.dir 아래 파일에 기록 (소규모 현장/시험 장비용).
+ * 분 단위 통계, 마지막 감지 위치, 파티션, 행 수 카운터는 MariaDB 전용이다.
+ */
+public class StorageManager {
+    private static final StorageManager INSTANCE = new StorageManager();
+
+    /** 시작 전에는 MariaDB 백엔드(미초기화 상태라 모든 기록/조회가 무시됨) */
+    private volatile StorageBackend backend = new MariaDbStorage();
+    private volatile boolean embedded = false;
+
+    private StorageManager() {}
+
+    public static StorageManager getInstance() {
+        return INSTANCE;
+    }
+
+    /** 설정된 백엔드 시작. 실패하면 저장 없이 동작 (로그만 남김) */
+    public void start(DatabaseConfig config) {
+        embedded = "embedded".equalsIgnoreCase(config.getStorageBackend());
+        StorageBackend selected = embedded ? new EmbeddedStorage() : new MariaDbStorage();
+        try {
+            selected.start(config);
+            backend = selected;
+            AppLogger.info("StorageManager", "Storage backend: " + selected.getName());
+        } catch (Exception e) {
+            AppLogger.error("StorageManager", "Storage start failed (" + selected.getName() + "): " + e.getMessage());
+            if (embedded) {
+                // 시작 전 기본값(미초기화 MariaDB)으로 남겨 기록을 무시
+                selected.shutdown();
+            } else {
+                backend = selected;
+            }
+        }
+    }
+
+    public StorageBackend getBackend() {
+        return backend;
+    }
+
+    public boolean isAvailable() {
+        return backend.isAvailable();
+    }
+
+    /** 내장 파일 저장소로 설정됨 (MariaDB 전용 기능은 꺼짐) */
+    public boolean isEmbedded() {
+        return embedded;
+    }
+
+    public void shutdown() {
+        backend.shutdown();
+    }
+
+    /** 백엔드 상태 JSON (/api/metrics) */
+    public String toJson() {
+        return backend.toJson();
+    }
+}
@@ -0,0 +1,461 @@
+package com.apulse.middleware.db;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 하루치 tag_reads 열 지향 보관 파일 (tag_reads-yyyyMMdd.tca).
+ * 헤더 [magic(4)][version(4)][하루 시작 ms(8)] 뒤에 블록을 이어 붙이고, 완료 시 파일 끝에 블록 색인을 쓴다.
+ *
+ * 블록 = [본문 길이(4)][crc32(4)] + 본문, 본문 = [행 수(4)][최대 시각(8)][최소 시각(8)][마지막 id(8)] + deflate(열).
+ * 행은 (read_time, id) 내림차순(최신순)이며 열은 블록마다 독립적으로 인코딩한다.
+ * - EPC: 블록 사전 + 행별 사전 번호(varint)
+ * - 리더기: 블록 사전 + (번호, 반복 수) RLE
+ * - 시각/ id: 첫 값 + 앞 행과의 차이(zigzag varint)
+ * - RSSI: zigzag varint, 안테나: (값, 반복 수) RLE
+ *
+ * 작성 중에는 .part 파일에 블록 단위로 추가하고 fsync하며, 블록 앞부분만 읽으면 마지막으로 기록한
+ * 행의 커서(최소 시각, 마지막 id)를 알 수 있어 중단된 위치부터 이어 쓸 수 있다 (끊긴 블록은 잘라냄).
+ * 색인 = [magic(4)][블록 수(4)]([오프셋(8)][행 수(4)][최대 시각(8)][최소 시각(8)] x 블록 수)
+ *        [전체 행 수(8)][crc32(4)][색인 오프셋(8)][끝 magic(4)]
+ */
+final class TagArchiveFile {
+    static final String SUFFIX = ".tca";
+    static final String PART_SUFFIX = ".part";
+
+    private static final int MAGIC = 0x54434131; // "TCA1"
+    private static final int VERSION = 1;
+    private static final int INDEX_MAGIC = 0x54434149; // "TCAI"
+    private static final int END_MAGIC = 0x5443415A; // "TCAZ"
+    private static final int HEADER_SIZE = 16;
+    /** 블록 본문 중 압축하지 않는 앞부분 (행 수, 최대/최소 시각, 마지막 id) */
+    private static final int BLOCK_PREFIX = 28;
+    private static final int MAX_BLOCK_BYTES = 64 * 1024 * 1024;
+
+    private TagArchiveFile() {}
+
+    /** 블록 색인 항목 */
+    static final class BlockInfo {
+        final long offset;
+        final int rows;
+        final long maxTime;
+        final long minTime;
+        final long lastId;
+
+        BlockInfo(long offset, int rows, long maxTime, long minTime, long lastId) {
+            this.offset = offset;
+            this.rows = rows;
+            this.maxTime = maxTime;
+            this.minTime = minTime;
+            this.lastId = lastId;
+        }
+    }
+
+    /** 완료된 보관 파일의 색인 */
+    static final class Index {
+        final File file;
+        final long dayStartMs;
+        final List<BlockInfo> blocks;
+        final long rows;
+
+        Index(File file, long dayStartMs, List<BlockInfo> blocks, long rows) {
+            this.file = file;
+            this.dayStartMs = dayStartMs;
+            this.blocks = blocks;
+            this.rows = rows;
+        }
+    }
+
+    /** 블록 열 버퍼 (행을 최신순으로 add) */
+    static final class BlockBuilder {
+        private final List<String> epcDict = new ArrayList<>();
+        private final Map<String, Integer> epcIndex = new HashMap<>();
+        private final List<String> readerDict = new ArrayList<>();
+        private final Map<String, Integer> readerIndex = new HashMap<>();
+        private int[] epcs = new int[1024];
+        private int[] readers = new int[1024];
+        private long[] times = new long[1024];
+        private long[] ids = new long[1024];
+        private int[] rssis = new int[1024];
+        private int[] antennas = new int[1024];
+        private int rows = 0;
+
+        void add(long timeMs, long id, String epc, String reader, int rssi, int antenna) {
+            if (rows == times.length) grow();
+            epcs[rows] = epcIndex.computeIfAbsent(epc, k -> { epcDict.add(k); return epcDict.size() - 1; });
+            String r = reader != null ? reader : "";
+            readers[rows] = readerIndex.computeIfAbsent(r, k -> { readerDict.add(k); return readerDict.size() - 1; });
+            times[rows] = timeMs;
+            ids[rows] = id;
+            rssis[rows] = rssi;
+            antennas[rows] = antenna;
+            rows++;
+        }
+
+        int size() {
+            return rows;
+        }
+
+        long lastTime() {
+            return times[rows - 1];
+        }
+
+        long lastId() {
+            return ids[rows - 1];
+        }
+
+        private void grow() {
+            int n = times.length * 2;
+            epcs = Arrays.copyOf(epcs, n);
+            readers = Arrays.copyOf(readers, n);
+            times = Arrays.copyOf(times, n);
+            ids = Arrays.copyOf(ids, n);
+            rssis = Arrays.copyOf(rssis, n);
+            antennas = Arrays.copyOf(antennas, n);
+        }
+
+        /** 블록 본문 (압축하지 않는 앞부분 + deflate된 열) */
+        byte[] encode() throws IOException {
+            ByteArrayOutputStream cols = new ByteArrayOutputStream(rows * 8);
+            DataOutputStream out = new DataOutputStream(cols);
+            writeVarint(out, epcDict.size());
+            for (String e : epcDict) out.writeUTF(e);
+            for (int i = 0; i < rows; i++) writeVarint(out, epcs[i]);
+            writeVarint(out, readerDict.size());
+            for (String r : readerDict) out.writeUTF(r);
+            writeRle(out, readers, rows);
+            out.writeLong(times[0]);
+            for (int i = 1; i < rows; i++) writeVarint(out, zigzag(times[i - 1] - times[i]));
+            out.writeLong(ids[0]);
+            for (int i = 1; i < rows; i++) writeVarint(out, zigzag(ids[i - 1] - ids[i]));
+            for (int i = 0; i < rows; i++) writeVarint(out, zigzag(rssis[i]));
+            writeRle(out, antennas, rows);
+            out.flush();
+
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            deflater.setInput(cols.toByteArray());
+            deflater.finish();
+            ByteArrayOutputStream body = new ByteArrayOutputStream(BLOCK_PREFIX + cols.size() / 3);
+            DataOutputStream prefix = new DataOutputStream(body);
+            prefix.writeInt(rows);
+            prefix.writeLong(times[0]);
+            prefix.writeLong(times[rows - 1]);
+            prefix.writeLong(ids[rows - 1]);
+            byte[] chunk = new byte[64 * 1024];
+            while (!deflater.finished()) {
+                int n = deflater.deflate(chunk);
+                body.write(chunk, 0, n);
+            }
+            deflater.end();
+            return body.toByteArray();
+        }
+    }
+
+    /** 작성 중인 .part 파일 (블록 추가 후 finish로 색인을 붙여 .tca로 이름 변경) */
+    static final class Writer implements AutoCloseable {
+        private final File part;
+        private final File target;
+        private final RandomAccessFile raf;
+        private final List<BlockInfo> blocks = new ArrayList<>();
+        private long rows = 0;
+
+        /**
+         * .part를 새로 만들거나 이어서 연다. 기존 .part의 끊긴 마지막 블록은 잘라낸다.
+         * 이어 쓰는 경우 getResumeCursor()로 마지막 행 위치를 알 수 있다.
+         */
+        Writer(File dir, String baseName, long dayStartMs) throws IOException {
+            part = new File(dir, baseName + PART_SUFFIX);
+            target = new File(dir, baseName + SUFFIX);
+            raf = new RandomAccessFile(part, "rw");
+            if (raf.length() < HEADER_SIZE) {
+                raf.setLength(0);
+                raf.writeInt(MAGIC);
+                raf.writeInt(VERSION);
+                raf.writeLong(dayStartMs);
+                raf.getFD().sync();
+                return;
+            }
+            if (raf.readInt() != MAGIC || raf.readInt() != VERSION || raf.readLong() != dayStartMs) {
+                raf.close();
+                throw new IOException("Not an archive part for this day: " + part.getName());
+            }
+            long pos = HEADER_SIZE;
+            long length = raf.length();
+            CRC32 crc = new CRC32();
+            while (pos + 8 <= length) {
+                raf.seek(pos);
+                int len = raf.readInt();
+                int stored = raf.readInt();
+                if (len < BLOCK_PREFIX || len > MAX_BLOCK_BYTES || pos + 8 + len > length) break;
+                byte[] body = new byte[len];
+                raf.readFully(body);
+                crc.reset();
+                crc.update(body);
+                if ((int) crc.getValue() != stored) break;
+                ByteBuffer b = ByteBuffer.wrap(body);
+                BlockInfo info = new BlockInfo(pos, b.getInt(), b.getLong(), b.getLong(), b.getLong());
+                blocks.add(info);
+                rows += info.rows;
+                pos += 8 + len;
+            }
+            if (pos < length) raf.setLength(pos);
+        }
+
+        /** 이어 쓰기 커서 (마지막 블록의 최소 시각 ms, 마지막 id). 블록이 없으면 null */
+        long[] getResumeCursor() {
+            if (blocks.isEmpty()) return null;
+            BlockInfo last = blocks.get(blocks.size() - 1);
+            return new long[] {last.minTime, last.lastId};
+        }
+
+        long getRows() {
+            return rows;
+        }
+
+        void appendBlock(BlockBuilder block) throws IOException {
+            byte[] body = block.encode();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            long pos = raf.length();
+            raf.seek(pos);
+            ByteBuffer frame = ByteBuffer.allocate(8 + body.length);
+            frame.putInt(body.length).putInt((int) crc.getValue()).put(body);
+            raf.write(frame.array());
+            raf.getFD().sync();
+            blocks.add(new BlockInfo(pos, block.size(), block.times[0], block.lastTime(), block.lastId()));
+            rows += block.size();
+        }
+
+        /** 색인을 붙이고 .tca로 이름 변경 (이후 이 객체는 사용 불가) */
+        File finish() throws IOException {
+            long indexOffset = raf.length();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 + blocks.size() * 28);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(INDEX_MAGIC);
+            out.writeInt(blocks.size());
+            for (BlockInfo b : blocks) {
+                out.writeLong(b.offset);
+                out.writeInt(b.rows);
+                out.writeLong(b.maxTime);
+                out.writeLong(b.minTime);
+            }
+            out.writeLong(rows);
+            CRC32 crc = new CRC32();
+            crc.update(bytes.toByteArray());
+            out.writeInt((int) crc.getValue());
+            out.writeLong(indexOffset);
+            out.writeInt(END_MAGIC);
+            out.flush();
+            raf.seek(indexOffset);
+            raf.write(bytes.toByteArray());
+            raf.getFD().sync();
+            raf.close();
+            Files.move(part.toPath(), target.toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return target;
+        }
+
+        @Override
+        public void close() throws IOException {
+            raf.close();
+        }
+    }
+
+    /** 완료된 .tca의 색인 읽기 (손상되었으면 IOException) */
+    static Index readIndex(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            if (length < HEADER_SIZE + 32) throw new IOException(file.getName() + " is truncated");
+            if (raf.readInt() != MAGIC || raf.readInt() != VERSION) {
+                throw new IOException("Not an archive file: " + file.getName());
+            }
+            long dayStartMs = raf.readLong();
+            raf.seek(length - 12);
+            long indexOffset = raf.readLong();
+            if (raf.readInt() != END_MAGIC || indexOffset < HEADER_SIZE || indexOffset > length - 28) {
+                throw new IOException(file.getName() + " has no index");
+            }
+            byte[] index = new byte[(int) (length - 12 - indexOffset)];
+            raf.seek(indexOffset);
+            raf.readFully(index);
+            CRC32 crc = new CRC32();
+            crc.update(index, 0, index.length - 4);
+            ByteBuffer b = ByteBuffer.wrap(index);
+            if ((int) crc.getValue() != b.getInt(index.length - 4) || b.getInt() != INDEX_MAGIC) {
+                throw new IOException(file.getName() + " index checksum mismatch");
+            }
+            int count = b.getInt();
+            List<BlockInfo> blocks = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                blocks.add(new BlockInfo(b.getLong(), b.getInt(), b.getLong(), b.getLong(), 0));
+            }
+            return new Index(file, dayStartMs, blocks, b.getLong());
+        }
+    }
+
+    /** 블록 전체 디코딩. 행: {시각 ms, id, 사전 번호(epc), 사전 번호(reader), rssi, antenna} 열 배열 */
+    static Block readBlock(RandomAccessFile raf, BlockInfo info) throws IOException {
+        raf.seek(info.offset);
+        int len = raf.readInt();
+        int stored = raf.readInt();
+        if (len < BLOCK_PREFIX || len > MAX_BLOCK_BYTES) throw new IOException("Bad block length at " + info.offset);
+        byte[] body = new byte[len];
+        raf.readFully(body);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        if ((int) crc.getValue() != stored) throw new IOException("Block checksum mismatch at " + info.offset);
+
+        int rows = ByteBuffer.wrap(body).getInt();
+        Inflater inflater = new Inflater();
+        inflater.setInput(body, BLOCK_PREFIX, len - BLOCK_PREFIX);
+        ByteArrayOutputStream cols = new ByteArrayOutputStream(len * 4);
+        byte[] chunk = new byte[64 * 1024];
+        try {
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated block at " + info.offset);
+                }
+                cols.write(chunk, 0, n);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt block at " + info.offset + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer in = ByteBuffer.wrap(cols.toByteArray());
+        Block block = new Block(rows);
+        block.epcDict = new String[(int) readVarint(in)];
+        for (int i = 0; i < block.epcDict.length; i++) block.epcDict[i] = readUtf(in);
+        for (int i = 0; i < rows; i++) block.epcs[i] = (int) readVarint(in);
+        block.readerDict = new String[(int) readVarint(in)];
+        for (int i = 0; i < block.readerDict.length; i++) {
+            String r = readUtf(in);
+            block.readerDict[i] = r.isEmpty() ? null : r;
+        }
+        readRle(in, block.readers, rows);
+        block.times[0] = in.getLong();
+        for (int i = 1; i < rows; i++) block.times[i] = block.times[i - 1] - unzigzag(readVarint(in));
+        block.ids[0] = in.getLong();
+        for (int i = 1; i < rows; i++) block.ids[i] = block.ids[i - 1] - unzigzag(readVarint(in));
+        for (int i = 0; i < rows; i++) block.rssis[i] = (int) unzigzag(readVarint(in));
+        readRle(in, block.antennas, rows);
+        return block;
+    }
+
+    /** 디코딩된 블록 (행 i의 EPC는 epcDict[epcs[i]]) */
+    static final class Block {
+        final int rows;
+        String[] epcDict;
+        String[] readerDict;
+        final int[] epcs;
+        final int[] readers;
+        final long[] times;
+        final long[] ids;
+        final int[] rssis;
+        final int[] antennas;
+
+        Block(int rows) {
+            this.rows = rows;
+            epcs = new int[rows];
+            readers = new int[rows];
+            times = new long[rows];
+            ids = new long[rows];
+            rssis = new int[rows];
+            antennas = new int[rows];
+        }
+
+        /** EPC 사전 번호 (블록에 없으면 -1) */
+        int epcCode(String epc) {
+            for (int i = 0; i < epcDict.length; i++) {
+                if (epcDict[i].equals(epc)) return i;
+            }
+            return -1;
+        }
+    }
+
+    /** (값, 반복 수) 쌍: [쌍 수][값(zigzag), 반복 수] */
+    private static void writeRle(DataOutputStream out, int[] values, int rows) throws IOException {
+        List<long[]> runs = new ArrayList<>();
+        for (int i = 0; i < rows; ) {
+            int j = i + 1;
+            while (j < rows && values[j] == values[i]) j++;
+            runs.add(new long[] {values[i], j - i});
+            i = j;
+        }
+        writeVarint(out, runs.size());
+        for (long[] run : runs) {
+            writeVarint(out, zigzag(run[0]));
+            writeVarint(out, run[1]);
+        }
+    }
+
+    private static void readRle(ByteBuffer in, int[] values, int rows) throws IOException {
+        int runs = (int) readVarint(in);
+        int pos = 0;
+        for (int r = 0; r < runs; r++) {
+            int value = (int) unzigzag(readVarint(in));
+            long count = readVarint(in);
+            if (pos + count > rows) throw new IOException("RLE overrun");
+            for (long c = 0; c < count; c++) values[pos++] = value;
+        }
+        if (pos != rows) throw new IOException("RLE underrun");
+    }
+
+    private static void writeVarint(DataOutputStream out, long v) throws IOException {
+        while ((v & ~0x7FL) != 0) {
+            out.writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        out.writeByte((int) v);
+    }
+
+    private static long readVarint(ByteBuffer in) throws IOException {
+        long v = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!in.hasRemaining()) throw new EOFException("Truncated varint");
+            byte b = in.get();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+        }
+        throw new IOException("Varint too long");
+    }
+
+    private static long zigzag(long v) {
+        return (v << 1) ^ (v >> 63);
+    }
+
+    private static long unzigzag(long v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /** DataOutputStream.writeUTF 형식 (길이 2바이트 + modified UTF-8) */
+    private static String readUtf(ByteBuffer in) throws IOException {
+        int len = in.getShort() & 0xFFFF;
+        if (len > in.remaining()) throw new EOFException("Truncated string");
+        byte[] bytes = new byte[len + 2];
+        bytes[0] = (byte) (len >>> 8);
+        bytes[1] = (byte) len;
+        in.get(bytes, 2, len);
+        return new DataInputStream(new ByteArrayInputStream(bytes)).readUTF();
+    }
+}
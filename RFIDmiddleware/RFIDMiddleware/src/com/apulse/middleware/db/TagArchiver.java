@@ -0,0 +1,377 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.config.DatabaseConfig;
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.CircuitBreaker;
+import com.apulse.middleware.util.HexUtils;
+import com.apulse.middleware.util.JsonUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 오래된 tag_reads 보관 (archive.enabled, MariaDB 전용).
+ * 끝난 날(archive.min.age.days 이상 지난 날)의 태그 이력을 하루 단위 열 지향 파일(TagArchiveFile)로
+ * archive.dir에 옮겨 적는다. 하루를 archive.block.rows 행씩 keyset 페이지로 읽어 블록마다 fsync하므로
+ * 중단되면 다음 실행에서 .part의 마지막 블록 다음부터 이어 쓴다. 행이 없는 날도 빈 파일을 남겨
+ * "어느 날까지 보관했는지"를 파일 목록만으로 알 수 있게 한다.
+ *
+ * PartitionManager는 보관이 끝난 기간의 파티션만 삭제한다 (isArchivedBefore).
+ * 조회는 tag_reads에 남은 가장 오래된 시각(liveFrom)보다 이전 구간을 보관 파일에서 읽어 이어 붙인다.
+ */
+public class TagArchiver {
+    private static final TagArchiver INSTANCE = new TagArchiver();
+
+    private static final String FILE_PREFIX = "tag_reads-";
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private volatile boolean enabled = false;
+    private File dir;
+    private int minAgeDays = 1;
+    private int blockRows = 50000;
+    private ScheduledExecutorService scheduler;
+
+    /** tag_reads에 남은 가장 오래된 read_time (ms). 모르면 Long.MIN_VALUE (보관 파일로 이어 조회하지 않음) */
+    private volatile long liveFromMs = Long.MIN_VALUE;
+    /** 이 날 이전의 tag_reads 기간은 모두 보관됨 (한 번도 확인 전이면 null) */
+    private volatile LocalDate coveredUntil;
+    /** 완료된 보관 파일 색인 (파일 이름 → 색인, 완료 파일은 바뀌지 않음) */
+    private final Map<String, TagArchiveFile.Index> indexCache = new ConcurrentHashMap<>();
+
+    // 상태 (/api/metrics)
+    private final AtomicLong archivedDays = new AtomicLong();
+    private final AtomicLong archivedRows = new AtomicLong();
+    private volatile String currentDay;
+    private volatile String lastRun;
+    private volatile String lastError;
+
+    private TagArchiver() {}
+
+    public static TagArchiver getInstance() {
+        return INSTANCE;
+    }
+
+    /** 보관 스레드 시작 (archive.enabled=false면 아무것도 하지 않음) */
+    void start(DatabaseConfig config) {
+        if (scheduler != null || !config.isArchiveEnabled()) return;
+        dir = new File(config.getArchiveDir());
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            AppLogger.error("TagArchiver", "Cannot create archive directory: " + dir.getAbsolutePath());
+            return;
+        }
+        minAgeDays = Math.max(0, config.getArchiveMinAgeDays());
+        blockRows = Math.max(1000, config.getArchiveBlockRows());
+        enabled = true;
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "TagDB-Archive");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, config.getArchiveIntervalMinutes());
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                archive();
+            } catch (Throwable t) {
+                AppLogger.error("TagArchiver", "Archive FATAL: " + t.getMessage(), t);
+            }
+        }, 0, interval, TimeUnit.MINUTES);
+        DatabaseManager.getInstance().addStateListener((from, to, reason) -> {
+            if (to == CircuitBreaker.State.CLOSED && !scheduler.isShutdown()) {
+                scheduler.execute(this::archive);
+            }
+        });
+        AppLogger.info("TagArchiver", "Started (dir=" + dir.getPath() + ", days older than " + minAgeDays
+            + " day(s), " + blockRows + " rows/block)");
+    }
+
+    void stop() {
+        if (scheduler != null) scheduler.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * bound 이전의 tag_reads 기간이 모두 보관되었는지 (보관을 쓰지 않으면 항상 true).
+     * PartitionManager가 보존 기간 만료 파티션을 삭제하기 전에 확인한다.
+     */
+    boolean isArchivedBefore(LocalDate bound) {
+        if (!enabled) return true;
+        LocalDate covered = coveredUntil;
+        return covered != null && !covered.isBefore(bound);
+    }
+
+    /** tag_reads에 남은 가장 오래된 시각 (ms, 모르면 Long.MIN_VALUE) */
+    long getLiveFromMs() {
+        return liveFromMs;
+    }
+
+    /** 끝난 날 중 아직 보관 파일이 없는 날을 오래된 날부터 보관 */
+    private synchronized void archive() {
+        if (!enabled || !DatabaseManager.getInstance().isAvailable()) return;
+        try {
+            Long oldest = refreshLiveFrom();
+            LocalDate last = LocalDate.now().minusDays(minAgeDays + 1L);
+            if (oldest == null) {
+                coveredUntil = last.plusDays(1);
+                lastRun = HexUtils.nowShort();
+                lastError = null;
+                return;
+            }
+            LocalDate day = toDay(oldest);
+            coveredUntil = day;
+            for (; !day.isAfter(last); day = day.plusDays(1)) {
+                if (!archiveFile(day).isFile() && !archiveDay(day)) return;
+                coveredUntil = day.plusDays(1);
+            }
+            lastRun = HexUtils.nowShort();
+            lastError = null;
+        } catch (SQLException | IOException e) {
+            lastError = e.getMessage();
+            AppLogger.error("TagArchiver", "Archive failed: " + e.getMessage());
+        } finally {
+            currentDay = null;
+        }
+    }
+
+    /**
+     * tag_reads의 가장 오래된 read_time으로 liveFrom 갱신 (파티션 삭제 직후에도 호출).
+     * @return 가장 오래된 read_time (ms), 테이블이 비었으면 null
+     */
+    Long refreshLiveFrom() throws SQLException {
+        if (!enabled) return null;
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement("SELECT MIN(read_time) FROM tag_reads");
+             ResultSet rs = pstmt.executeQuery()) {
+            Timestamp min = rs.next() ? rs.getTimestamp(1) : null;
+            // 비어 있으면 지금 이전은 모두 보관 파일에서 찾는다
+            liveFromMs = min != null ? min.getTime() : System.currentTimeMillis();
+            return min != null ? min.getTime() : null;
+        }
+    }
+
+    /**
+     * 하루치를 블록 단위로 .part에 기록하고 완료되면 .tca로 바꾼다 (기존 .part가 있으면 이어서).
+     * @return 완료 여부 (종료 요청으로 중단되면 false, .part는 다음 실행에서 이어 씀)
+     */
+    private boolean archiveDay(LocalDate day) throws SQLException, IOException {
+        currentDay = day.toString();
+        long startMs = toMs(day);
+        long endMs = toMs(day.plusDays(1));
+        try (TagArchiveFile.Writer writer = new TagArchiveFile.Writer(dir, baseName(day), startMs)) {
+            long[] cursor = writer.getResumeCursor();
+            if (cursor != null) {
+                AppLogger.info("TagArchiver", "Resuming " + day + " after " + writer.getRows() + " row(s)");
+            }
+            long before = writer.getRows();
+            while (!Thread.currentThread().isInterrupted()) {
+                TagArchiveFile.BlockBuilder block = new TagArchiveFile.BlockBuilder();
+                readBlock(startMs, endMs, cursor, block);
+                if (block.size() == 0) break;
+                writer.appendBlock(block);
+                archivedRows.addAndGet(block.size());
+                cursor = new long[] {block.lastTime(), block.lastId()};
+                if (block.size() < blockRows) break;
+            }
+            if (Thread.currentThread().isInterrupted()) return false;
+            File done = writer.finish();
+            archivedDays.incrementAndGet();
+            AppLogger.info("TagArchiver", "Archived " + day + ": " + writer.getRows() + " row(s) ("
+                + (writer.getRows() - before) + " this run) -> " + done.getName() + ", " + done.length() + " bytes");
+            return true;
+        }
+    }
+
+    /** [startMs, endMs) 구간을 cursor(시각 ms, id) 이후부터 최신순으로 blockRows행 읽기 */
+    private void readBlock(long startMs, long endMs, long[] cursor, TagArchiveFile.BlockBuilder block)
+            throws SQLException {
+        String sql = "SELECT t.id, " + MariaDbStorage.TAG_READS_COLUMNS + " FROM " + MariaDbStorage.TAG_READS_FROM
+            + "WHERE t.read_time >= ? AND t.read_time < ? "
+            + (cursor == null ? "" : "AND (t.read_time < ? OR (t.read_time = ? AND t.id < ?)) ")
+            + "ORDER BY t.read_time DESC, t.id DESC LIMIT ?";
+        try (Connection conn = DatabaseManager.getInstance().getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            int idx = 1;
+            pstmt.setTimestamp(idx++, new Timestamp(startMs));
+            pstmt.setTimestamp(idx++, new Timestamp(endMs));
+            if (cursor != null) {
+                Timestamp before = new Timestamp(cursor[0]);
+                pstmt.setTimestamp(idx++, before);
+                pstmt.setTimestamp(idx++, before);
+                pstmt.setLong(idx++, cursor[1]);
+            }
+            pstmt.setInt(idx, blockRows);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    block.add(rs.getTimestamp("read_time").getTime(), rs.getLong("id"), rs.getString("epc"),
+                        rs.getString("reader_name"), rs.getInt("rssi"), rs.getInt("antenna"));
+                }
+            }
+        }
+    }
+
+    /**
+     * 보관 파일에서 태그 이력 최신순 조회 (행 형식은 TagRepository.getTagReadsPage와 같음).
+     * API의 source=archive 용으로 tag_reads에 남아 있는 기간도 보관된 만큼 읽는다
+     */
+    public long streamTagReadsPage(String fromTime, String toTime, String epc, PageCursor after, int limit,
+                                   Predicate<String[]> handler) throws Exception {
+        return streamTagReadsPage(fromTime, toTime, epc, after, limit, Long.MAX_VALUE, handler);
+    }
+
+    /** ceilingMs 미만 시각의 보관 행만 조회 (tag_reads 조회 뒤에 이어 붙일 때 liveFrom을 넘김) */
+    long streamTagReadsPage(String fromTime, String toTime, String epc, PageCursor after, int limit,
+                            long ceilingMs, Predicate<String[]> handler) throws Exception {
+        if (!enabled) return 0;
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        long fromMs = sdf.parse(fromTime).getTime();
+        // BETWEEN과 같이 종료 시각(초) 자체까지 포함
+        long toMs = Math.min(sdf.parse(toTime).getTime(), ceilingMs - 1);
+        long afterMs = after != null ? Timestamp.valueOf(after.key).getTime() : Long.MAX_VALUE;
+        long afterId = after != null ? after.id : Long.MAX_VALUE;
+        long upperMs = Math.min(toMs, afterMs);
+        if (fromMs > upperMs) return 0;
+
+        long count = 0;
+        // 같은 초의 행이 이어지므로 초 단위 문자열은 초가 바뀔 때만 만든다
+        long lastSecond = Long.MIN_VALUE;
+        String secondText = null;
+        for (TagArchiveFile.Index index : indexesBetween(toDay(fromMs), toDay(upperMs))) {
+            try (RandomAccessFile raf = new RandomAccessFile(index.file, "r")) {
+                for (TagArchiveFile.BlockInfo info : index.blocks) {
+                    if (info.minTime > upperMs) continue;
+                    if (info.maxTime < fromMs) break;
+                    TagArchiveFile.Block block = TagArchiveFile.readBlock(raf, info);
+                    int epcCode = epc != null ? block.epcCode(epc) : -1;
+                    if (epc != null && epcCode < 0) continue;
+                    for (int i = 0; i < block.rows; i++) {
+                        long t = block.times[i];
+                        if (t > toMs || (t > afterMs) || (t == afterMs && block.ids[i] >= afterId)) continue;
+                        if (t < fromMs) break;
+                        if (epc != null && block.epcs[i] != epcCode) continue;
+                        if (Math.floorDiv(t, 1000) != lastSecond) {
+                            lastSecond = Math.floorDiv(t, 1000);
+                            secondText = sdf.format(new Date(lastSecond * 1000));
+                        }
+                        int millis = Math.floorMod(t, 1000);
+                        String[] row = {
+                            secondText,
+                            block.readerDict[block.readers[i]],
+                            block.epcDict[block.epcs[i]],
+                            String.valueOf(block.rssis[i]),
+                            String.valueOf(block.antennas[i]),
+                            String.valueOf(block.ids[i]),
+                            secondText + (millis < 10 ? ".00" : millis < 100 ? ".0" : ".") + millis
+                        };
+                        count++;
+                        if (!handler.test(row) || (limit > 0 && count >= limit)) return count;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /** first~last 날의 완료된 보관 파일 색인 (최신 날부터). 손상된 파일은 경고 후 건너뜀 */
+    private List<TagArchiveFile.Index> indexesBetween(LocalDate first, LocalDate last) {
+        List<TagArchiveFile.Index> result = new ArrayList<>();
+        for (LocalDate day = last; !day.isBefore(first); day = day.minusDays(1)) {
+            File file = archiveFile(day);
+            if (!file.isFile()) continue;
+            TagArchiveFile.Index index = indexCache.get(file.getName());
+            if (index == null) {
+                try {
+                    index = TagArchiveFile.readIndex(file);
+                    indexCache.put(file.getName(), index);
+                } catch (IOException e) {
+                    AppLogger.error("TagArchiver", "Unreadable archive " + file.getName() + ": " + e.getMessage());
+                    continue;
+                }
+            }
+            result.add(index);
+        }
+        return result;
+    }
+
+    private File archiveFile(LocalDate day) {
+        return new File(dir, baseName(day) + TagArchiveFile.SUFFIX);
+    }
+
+    private static String baseName(LocalDate day) {
+        return FILE_PREFIX + DAY_FORMAT.format(day);
+    }
+
+    private static long toMs(LocalDate day) {
+        return day.atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static LocalDate toDay(long ms) {
+        return new Date(ms).toInstant().atZone(ZoneId.systemDefault()).toLocalDate();
+    }
+
+    /** 보관 파일 수와 날짜 범위 (archive.dir 목록) */
+    private String filesJson() {
+        File[] files = dir != null ? dir.listFiles((d, n) -> n.startsWith(FILE_PREFIX) && n.endsWith(TagArchiveFile.SUFFIX)) : null;
+        if (files == null || files.length == 0) return "{\"count\":0,\"bytes\":0,\"oldest\":null,\"newest\":null}";
+        String oldest = null;
+        String newest = null;
+        long bytes = 0;
+        for (File f : files) {
+            bytes += f.length();
+            String name = f.getName();
+            String stamp = name.substring(FILE_PREFIX.length(), name.length() - TagArchiveFile.SUFFIX.length());
+            try {
+                String day = LocalDate.parse(stamp, DAY_FORMAT).toString();
+                if (oldest == null || day.compareTo(oldest) < 0) oldest = day;
+                if (newest == null || day.compareTo(newest) > 0) newest = day;
+            } catch (DateTimeParseException ignore) {
+                // 관련 없는 파일
+            }
+        }
+        return "{\"count\":" + files.length + ",\"bytes\":" + bytes
+            + ",\"oldest\":" + JsonUtils.toJsonString(oldest)
+            + ",\"newest\":" + JsonUtils.toJsonString(newest) + "}";
+    }
+
+    /** 보관 상태 JSON (/api/metrics) */
+    public String toJson() {
+        if (!enabled) return "{\"enabled\":false}";
+        long live = liveFromMs;
+        return "{\"enabled\":true"
+            + ",\"dir\":" + JsonUtils.toJsonString(dir.getPath())
+            + ",\"minAgeDays\":" + minAgeDays
+            + ",\"files\":" + filesJson()
+            + ",\"coveredUntil\":" + JsonUtils.toJsonString(coveredUntil != null ? coveredUntil.toString() : null)
+            + ",\"liveFrom\":" + JsonUtils.toJsonString(live != Long.MIN_VALUE
+                ? new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS").format(new Date(live)) : null)
+            + ",\"archivedDays\":" + archivedDays.get()
+            + ",\"archivedRows\":" + archivedRows.get()
+            + ",\"currentDay\":" + JsonUtils.toJsonString(currentDay)
+            + ",\"lastRun\":" + JsonUtils.toJsonString(lastRun)
+            + ",\"lastError\":" + JsonUtils.toJsonString(lastError)
+            + "}";
+    }
+}
@@ -0,0 +1,408 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.JsonUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * 태그 기록 선행 저널 (append-only, memory-mapped 세그먼트 링).
+ * 수신한 태그 기록은 DB보다 먼저 여기에 기록되고, DB writer 스레드가 체크포인트 위치부터 읽어
+ * INSERT가 커밋된 뒤에만 체크포인트를 전진시킨다. DB/네트워크 장애 중에는 기록이 디스크에 쌓이므로
+ * 힙 사용량이 늘지 않고, 복구 후 또는 재시작 후 체크포인트부터 그대로 재생된다.
+ *
+ * 세그먼트 파일은 tags-NNN.seg 고정 슬롯(seq % maxSegments)을 재사용한다. 매핑된 파일은
+ * 해제/이름 변경이 불가능한 환경(Windows)이 있어 삭제 대신 슬롯을 덮어쓰는 방식으로 재활용한다.
+ *
+ * 세그먼트: [magic(4)][seq(8)][reserved(4)] 이후 레코드 반복
+ * 레코드:   [length(4)][crc32(4)][payload] - length 0은 데이터 끝, -1은 다음 세그먼트로 이동
+ * payload:  [epc][readerName][rssi(4)][antenna(4)][readTime] (문자열은 short 길이 + UTF-8)
+ */
+public class TagJournal {
+    private static final int MAGIC = 0x54414731; // "TAG1"
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_OVERHEAD = 8;
+    private static final int END_OF_DATA = 0;
+    private static final int END_OF_SEGMENT = -1;
+    private static final int CHECKPOINT_SIZE = 16;
+
+    private final File dir;
+    private final int segmentSize;
+    private final int maxSegments;
+    private final FileChannel[] channels;
+    private final MappedByteBuffer[] slots;
+    private final FileChannel checkpointChannel;
+    private final MappedByteBuffer checkpointBuf;
+
+    /** 쓰기 위치 (this 잠금으로 보호) */
+    private long writeSeq;
+    private int writeOffset;
+    /** 커밋(체크포인트) 위치 */
+    private volatile long commitSeq;
+    private volatile int commitOffset;
+    /** 읽기 위치 (writer 스레드 전용) */
+    private long readSeq;
+    private int readOffset;
+
+    private final Object signal = new Object();
+    private volatile boolean waiting = false;
+    private final AtomicLong appendedCount = new AtomicLong();
+    private final AtomicLong committedCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong corruptCount = new AtomicLong();
+
+    public TagJournal(File dir, int segmentSize, int maxSegments) throws IOException {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(2, maxSegments);
+        this.channels = new FileChannel[this.maxSegments];
+        this.slots = new MappedByteBuffer[this.maxSegments];
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create journal directory: " + dir.getAbsolutePath());
+        }
+        checkpointChannel = FileChannel.open(new File(dir, "checkpoint").toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        checkpointBuf = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, CHECKPOINT_SIZE);
+        recover();
+    }
+
+    /** 체크포인트와 세그먼트 헤더로 읽기/쓰기 위치 복원, 끊긴 마지막 레코드는 잘라냄 */
+    private void recover() throws IOException {
+        long cpSeq = checkpointBuf.getLong(0);
+        int cpOffset = checkpointBuf.getInt(8);
+        boolean hasCheckpoint = checkpointBuf.getInt(12) == checkpointCrc(cpSeq, cpOffset) && cpOffset >= HEADER_SIZE;
+
+        long maxSeq = -1;
+        long minSeq = Long.MAX_VALUE;
+        for (int i = 0; i < maxSegments; i++) {
+            File f = segmentFile(i);
+            if (!f.exists()) continue;
+            MappedByteBuffer b = slot(i);
+            if (b.getInt(0) != MAGIC) continue;
+            long seq = b.getLong(4);
+            if (seq % maxSegments != i) continue;
+            maxSeq = Math.max(maxSeq, seq);
+            minSeq = Math.min(minSeq, seq);
+        }
+
+        if (maxSeq < 0) {
+            // 빈 저널
+            long start = hasCheckpoint ? cpSeq : 0;
+            initSegment(start);
+            writeSeq = start;
+            writeOffset = HEADER_SIZE;
+            setCommit(start, HEADER_SIZE);
+        } else {
+            if (hasCheckpoint && cpSeq <= maxSeq && cpSeq > maxSeq - maxSegments) {
+                commitSeq = cpSeq;
+                commitOffset = cpOffset;
+            } else if (hasCheckpoint && cpSeq > maxSeq) {
+                // 체크포인트 이후 세그먼트가 아직 없음 (모두 커밋됨)
+                initSegment(cpSeq);
+                maxSeq = cpSeq;
+                commitSeq = cpSeq;
+                commitOffset = cpOffset;
+            } else {
+                commitSeq = Math.max(minSeq, maxSeq - maxSegments + 1);
+                commitOffset = HEADER_SIZE;
+            }
+            writeSeq = maxSeq;
+            writeOffset = scanEnd(maxSeq, commitSeq == maxSeq ? commitOffset : HEADER_SIZE);
+            slots[slotIndex(writeSeq)].putInt(writeOffset, END_OF_DATA);
+        }
+        readSeq = commitSeq;
+        readOffset = commitOffset;
+        AppLogger.info("TagJournal", "Opened " + dir.getPath() + " (checkpoint=" + commitSeq + ":" + commitOffset
+            + ", write=" + writeSeq + ":" + writeOffset + ", backlog=" + getBacklogBytes() + " bytes)");
+    }
+
+    /** 세그먼트에서 유효한 마지막 레코드 다음 위치 */
+    private int scanEnd(long seq, int from) throws IOException {
+        MappedByteBuffer b = slot(slotIndex(seq));
+        int pos = from;
+        while (pos + RECORD_OVERHEAD <= segmentSize) {
+            int len = b.getInt(pos);
+            if (len <= 0 || pos + RECORD_OVERHEAD + len + 4 > segmentSize) break;
+            byte[] payload = new byte[len];
+            b.get(pos + RECORD_OVERHEAD, payload);
+            if (crc(payload) != b.getInt(pos + 4)) {
+                AppLogger.warn("TagJournal", "Truncated torn record at segment " + seq + " offset " + pos);
+                break;
+            }
+            pos += RECORD_OVERHEAD + len;
+        }
+        return pos;
+    }
+
+    /**
+     * 기록 추가 (리더기 콜백 스레드에서 호출).
+     * @return 저널이 가득 차서(미커밋 세그먼트가 maxSegments개) 버렸으면 false
+     */
+    public boolean append(String epc, String readerName, int rssi, int antenna, String readTime) {
+        byte[] e = epc.getBytes(StandardCharsets.UTF_8);
+        byte[] r = readerName.getBytes(StandardCharsets.UTF_8);
+        byte[] t = readTime.getBytes(StandardCharsets.UTF_8);
+        byte[] payload = new byte[2 + e.length + 2 + r.length + 4 + 4 + 2 + t.length];
+        ByteBuffer p = ByteBuffer.wrap(payload);
+        p.putShort((short) e.length).put(e);
+        p.putShort((short) r.length).put(r);
+        p.putInt(rssi).putInt(antenna);
+        p.putShort((short) t.length).put(t);
+        int crc = crc(payload);
+
+        synchronized (this) {
+            int need = RECORD_OVERHEAD + payload.length + 4;
+            if (writeOffset + need > segmentSize && !roll()) {
+                if (droppedCount.incrementAndGet() % 10000 == 1) {
+                    AppLogger.warn("TagJournal", "Journal full (" + maxSegments + " segments uncommitted) - dropping tag reads ("
+                        + droppedCount.get() + " dropped)");
+                }
+                return false;
+            }
+            MappedByteBuffer b = slots[slotIndex(writeSeq)];
+            int pos = writeOffset;
+            b.put(pos + RECORD_OVERHEAD, payload);
+            b.putInt(pos + 4, crc);
+            b.putInt(pos + RECORD_OVERHEAD + payload.length, END_OF_DATA);
+            b.putInt(pos, payload.length);
+            writeOffset = pos + RECORD_OVERHEAD + payload.length;
+        }
+        appendedCount.incrementAndGet();
+        if (waiting) {
+            synchronized (signal) {
+                signal.notifyAll();
+            }
+        }
+        return true;
+    }
+
+    /** 다음 세그먼트로 전환 (this 잠금 보유 상태). 재사용할 슬롯이 아직 미커밋이면 false */
+    private boolean roll() {
+        long next = writeSeq + 1;
+        if (next - commitSeq >= maxSegments) return false;
+        try {
+            initSegment(next);
+        } catch (IOException e) {
+            AppLogger.error("TagJournal", "Segment roll failed: " + e.getMessage());
+            return false;
+        }
+        slots[slotIndex(writeSeq)].putInt(writeOffset, END_OF_SEGMENT);
+        writeSeq = next;
+        writeOffset = HEADER_SIZE;
+        return true;
+    }
+
+    private void initSegment(long seq) throws IOException {
+        MappedByteBuffer b = slot(slotIndex(seq));
+        b.putInt(HEADER_SIZE, END_OF_DATA);
+        b.putLong(4, seq);
+        b.putInt(0, MAGIC);
+    }
+
+    /**
+     * 읽기 위치부터 최대 maxRecords건 / 대략 maxBytes까지 out에 추가 (writer 스레드 전용).
+     * 커밋 전까지 체크포인트는 그대로이며 기록 실패 시 rewind()로 되돌린다.
+     * @return 읽은 레코드의 저널 바이트 수 (0이면 읽은 것 없음)
+     */
+    long read(int maxRecords, long maxBytes, List<TagRepository.TagRecord> out) {
+        long wSeq;
+        int wOffset;
+        synchronized (this) {
+            wSeq = writeSeq;
+            wOffset = writeOffset;
+        }
+        int n = 0;
+        long bytes = 0;
+        while (n < maxRecords && bytes < maxBytes && (readSeq < wSeq || readOffset < wOffset)) {
+            MappedByteBuffer b = slots[slotIndex(readSeq)];
+            if (b == null || (readOffset == HEADER_SIZE && (b.getInt(0) != MAGIC || b.getLong(4) != readSeq))) {
+                // 복구 시 빠진 세그먼트
+                if (readSeq >= wSeq) break;
+                readSeq++;
+                continue;
+            }
+            int len = b.getInt(readOffset);
+            if (len == END_OF_SEGMENT || (len <= 0 && readSeq < wSeq)) {
+                readSeq++;
+                readOffset = HEADER_SIZE;
+                continue;
+            }
+            if (len <= 0) break;
+
+            byte[] payload = new byte[len];
+            b.get(readOffset + RECORD_OVERHEAD, payload);
+            if (crc(payload) != b.getInt(readOffset + 4)) {
+                corruptCount.incrementAndGet();
+                AppLogger.error("TagJournal", "Corrupt record at segment " + readSeq + " offset " + readOffset
+                    + " - skipping rest of segment");
+                if (readSeq >= wSeq) break;
+                readSeq++;
+                readOffset = HEADER_SIZE;
+                continue;
+            }
+            ByteBuffer p = ByteBuffer.wrap(payload);
+            String epc = getString(p);
+            String readerName = getString(p);
+            int rssi = p.getInt();
+            int antenna = p.getInt();
+            String readTime = getString(p);
+            out.add(new TagRepository.TagRecord(epc, readerName, rssi, antenna, readTime));
+            readOffset += RECORD_OVERHEAD + len;
+            bytes += RECORD_OVERHEAD + len;
+            n++;
+        }
+        return bytes;
+    }
+
+    /** 현재 읽기 위치까지 기록 완료 - 체크포인트 저장 (이전 세그먼트 슬롯은 재사용 가능) */
+    void commit(int records) {
+        setCommit(readSeq, readOffset);
+        committedCount.addAndGet(records);
+    }
+
+    /** 기록 실패 - 마지막 체크포인트부터 다시 읽음 */
+    void rewind() {
+        readSeq = commitSeq;
+        readOffset = commitOffset;
+    }
+
+    private void setCommit(long seq, int offset) {
+        checkpointBuf.putLong(0, seq);
+        checkpointBuf.putInt(8, offset);
+        checkpointBuf.putInt(12, checkpointCrc(seq, offset));
+        commitSeq = seq;
+        commitOffset = offset;
+    }
+
+    /** 추가 기록이 들어오거나 timeoutMs가 지날 때까지 대기 */
+    void awaitAppend(long timeoutMs) throws InterruptedException {
+        synchronized (signal) {
+            waiting = true;
+            try {
+                if (!hasUnread()) signal.wait(timeoutMs);
+            } finally {
+                waiting = false;
+            }
+        }
+    }
+
+    private synchronized boolean hasUnread() {
+        return readSeq < writeSeq || readOffset < writeOffset;
+    }
+
+    /** 현재 세그먼트와 체크포인트를 디스크로 강제 기록 (전원 장애 대비) */
+    public void sync() {
+        MappedByteBuffer current;
+        synchronized (this) {
+            current = slots[slotIndex(writeSeq)];
+        }
+        current.force();
+        checkpointBuf.force();
+    }
+
+    /** 미커밋 데이터 크기 (바이트, 세그먼트 헤더 제외 근사치) */
+    public long getBacklogBytes() {
+        long wSeq;
+        int wOffset;
+        synchronized (this) {
+            wSeq = writeSeq;
+            wOffset = writeOffset;
+        }
+        return (wSeq - commitSeq) * (long) (segmentSize - HEADER_SIZE) + (wOffset - commitOffset);
+    }
+
+    /** 기동 후 추가된 레코드 수 */
+    public long getAppendedCount() {
+        return appendedCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    /** 저널 상태 JSON (/api/metrics) */
+    public String toJson() {
+        long wSeq;
+        synchronized (this) {
+            wSeq = writeSeq;
+        }
+        return "{\"dir\":" + JsonUtils.toJsonString(dir.getPath())
+            + ",\"segmentBytes\":" + segmentSize
+            + ",\"maxSegments\":" + maxSegments
+            + ",\"writeSegment\":" + wSeq
+            + ",\"checkpointSegment\":" + commitSeq
+            + ",\"backlogBytes\":" + getBacklogBytes()
+            + ",\"appended\":" + appendedCount.get()
+            + ",\"committed\":" + committedCount.get()
+            + ",\"dropped\":" + droppedCount.get()
+            + ",\"corrupt\":" + corruptCount.get()
+            + "}";
+    }
+
+    public void close() {
+        try {
+            sync();
+        } catch (Exception e) {
+            AppLogger.error("TagJournal", "Sync on close failed: " + e.getMessage());
+        }
+        for (FileChannel ch : channels) {
+            closeQuietly(ch);
+        }
+        closeQuietly(checkpointChannel);
+        AppLogger.info("TagJournal", "Closed (backlog=" + getBacklogBytes() + " bytes)");
+    }
+
+    private MappedByteBuffer slot(int index) throws IOException {
+        if (slots[index] == null) {
+            channels[index] = FileChannel.open(segmentFile(index).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            slots[index] = channels[index].map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+        return slots[index];
+    }
+
+    private int slotIndex(long seq) {
+        return (int) (seq % maxSegments);
+    }
+
+    private File segmentFile(int index) {
+        return new File(dir, String.format("tags-%03d.seg", index));
+    }
+
+    private static String getString(ByteBuffer p) {
+        int len = p.getShort() & 0xFFFF;
+        String s = new String(p.array(), p.position(), len, StandardCharsets.UTF_8);
+        p.position(p.position() + len);
+        return s;
+    }
+
+    private static int crc(byte[] data) {
+        CRC32 c = new CRC32();
+        c.update(data);
+        return (int) c.getValue();
+    }
+
+    private static int checkpointCrc(long seq, int offset) {
+        CRC32 c = new CRC32();
+        c.update(ByteBuffer.allocate(12).putLong(seq).putInt(offset).array());
+        return (int) c.getValue() ^ MAGIC;
+    }
+
+    private static void closeQuietly(FileChannel ch) {
+        if (ch == null) return;
+        try {
+            ch.close();
+        } catch (IOException ignore) {
+            // 종료 중
+        }
+    }
+}
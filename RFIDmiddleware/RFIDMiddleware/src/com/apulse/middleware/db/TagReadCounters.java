@@ -0,0 +1,300 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.db.TagRepository.TagRecord;
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.CircuitBreaker;
+import com.apulse.middleware.util.HexUtils;
+import com.apulse.middleware.util.JsonUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * tag_reads 행 수 카운터 (전체, 리더기별, 일별). COUNT(*) 전체 스캔 대신 메모리 값을 O(1)로 돌려준다.
+ * 기동 후 한 번 DB에서 집계(bootstrap)하고, 이후에는 TagWriter가 커밋할 때마다 커밋된 행만큼 더한다.
+ * 집계 스냅샷(START TRANSACTION WITH CONSISTENT SNAPSHOT)을 여는 순간과 커밋+증가 구간을 잠금으로
+ * 분리해, 스냅샷에 포함된 커밋은 집계로만, 이후 커밋은 증가로만 한 번씩 세어진다.
+ * 파티션 삭제는 해당 일자 분량을 빼고, V2 이전 데이터 복사가 끝나면 다시 집계한다.
+ * 집계 전에는 정확한 값이 없으므로 information_schema 추정치를 대신 쓸 수 있다.
+ */
+public class TagReadCounters {
+    private static final TagReadCounters INSTANCE = new TagReadCounters();
+
+    /** 리더기 행이 없는 tag_reads.reader_id 집계 키 */
+    private static final String UNKNOWN_READER = "(unknown)";
+    /** information_schema 추정치 캐시 유효 시간 */
+    private static final long APPROX_CACHE_MS = 60_000;
+
+    /** 커밋+증가(공유)와 집계 스냅샷/파티션 삭제 반영(배타) 분리 */
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder total = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> perReader = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> perDay = new ConcurrentHashMap<>();
+    /** 일자 -> 리더기별 (파티션 삭제 시 리더기 합계에서 빼기 위함) */
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, LongAdder>> perDayReader = new ConcurrentHashMap<>();
+
+    private volatile boolean exact = false;
+    /** 파티션 삭제 횟수 - 집계 도중 바뀌면 집계 결과를 버리고 다시 집계 */
+    private volatile int dropEpoch = 0;
+    private ExecutorService executor;
+
+    private volatile long approxTotal = -1;
+    private volatile long approxAt = 0;
+    private volatile String lastBootstrap;
+    private volatile long bootstrapMs = -1;
+    private volatile String lastError;
+
+    /** 커밋 동작 (연결의 commit 또는 autocommit INSERT) */
+    interface SqlCommit {
+        void run() throws SQLException;
+    }
+
+    private TagReadCounters() {}
+
+    public static TagReadCounters getInstance() {
+        return INSTANCE;
+    }
+
+    /** 집계 스레드 시작. DB가 아직 준비되지 않았으면 복구(서킷 CLOSED) 시 집계한다 */
+    void start() {
+        if (executor != null) return;
+        executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "TagDB-Counters");
+            t.setDaemon(true);
+            return t;
+        });
+        requestBootstrap();
+        DatabaseManager.getInstance().addStateListener((from, to, reason) -> {
+            if (to == CircuitBreaker.State.CLOSED && !exact) requestBootstrap();
+        });
+    }
+
+    void stop() {
+        if (executor != null) executor.shutdownNow();
+    }
+
+    /** 다시 집계 (비동기, 진행 중에는 isExact()가 false) */
+    void requestBootstrap() {
+        if (executor == null || executor.isShutdown()) return;
+        executor.execute(() -> {
+            try {
+                bootstrap();
+            } catch (Throwable t) {
+                AppLogger.error("TagReadCounters", "Bootstrap FATAL: " + t.getMessage(), t);
+            }
+        });
+    }
+
+    /**
+     * 커밋과 카운터 증가를 집계 스냅샷에 대해 원자적으로 수행.
+     * 커밋이 성공한 경우에만 rows 만큼 더한다.
+     */
+    void commitCounted(SqlCommit commit, List<TagRecord> rows) throws SQLException {
+        lock.readLock().lock();
+        try {
+            commit.run();
+            for (TagRecord rec : rows) {
+                String day = rec.readTime != null && rec.readTime.length() >= 10 ? rec.readTime.substring(0, 10) : "";
+                add(day, rec.readerName != null ? rec.readerName : UNKNOWN_READER, 1);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(String day, String reader, long n) {
+        total.add(n);
+        perReader.computeIfAbsent(reader, k -> new LongAdder()).add(n);
+        perDay.computeIfAbsent(day, k -> new LongAdder()).add(n);
+        perDayReader.computeIfAbsent(day, k -> new ConcurrentHashMap<>())
+            .computeIfAbsent(reader, k -> new LongAdder()).add(n);
+    }
+
+    /** DROP PARTITION 반영: bound(제외) 이전 일자의 행을 모두 뺀다 */
+    void dropBefore(LocalDate bound) {
+        String limit = bound.toString();
+        lock.writeLock().lock();
+        try {
+            dropEpoch++;
+            Iterator<Map.Entry<String, ConcurrentHashMap<String, LongAdder>>> it = perDayReader.entrySet().iterator();
+            while (it.hasNext()) {
+                Map.Entry<String, ConcurrentHashMap<String, LongAdder>> day = it.next();
+                if (day.getKey().compareTo(limit) >= 0) continue;
+                for (Map.Entry<String, LongAdder> r : day.getValue().entrySet()) {
+                    long n = r.getValue().sum();
+                    total.add(-n);
+                    LongAdder reader = perReader.get(r.getKey());
+                    if (reader != null) reader.add(-n);
+                }
+                perDay.remove(day.getKey());
+                it.remove();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 일자/리더기별 전체 집계. 잠금 안에서 스냅샷을 열고 그때까지의 증가분을 비운 뒤,
+     * 잠금 밖에서 스냅샷을 집계해 더한다 (집계 중 커밋은 증가분으로 따로 쌓인다).
+     */
+    private void bootstrap() {
+        DatabaseManager db = DatabaseManager.getInstance();
+        if (!db.isAvailable()) return;
+        exact = false;
+        long start = System.currentTimeMillis();
+
+        // 풀 연결을 오래 점유하지 않도록 전용 연결 (쓰기와 같은 서버)
+        try (Connection conn = db.openDedicatedConnection();
+             Statement stmt = conn.createStatement()) {
+            conn.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conn.setAutoCommit(false);
+            int epoch;
+            lock.writeLock().lock();
+            try {
+                stmt.execute("START TRANSACTION WITH CONSISTENT SNAPSHOT");
+                epoch = dropEpoch;
+                total.reset();
+                perReader.clear();
+                perDay.clear();
+                perDayReader.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            Map<String, Map<String, Long>> base = new TreeMap<>();
+            String sql = "SELECT x.d, r.name, x.c FROM (SELECT DATE(read_time) AS d, reader_id, COUNT(*) AS c "
+                + "FROM tag_reads GROUP BY d, reader_id) x LEFT JOIN readers r ON r.id = x.reader_id";
+            try (PreparedStatement pstmt = conn.prepareStatement(sql);
+                 ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    String day = rs.getString(1) != null ? rs.getString(1) : "";
+                    String reader = rs.getString(2) != null ? rs.getString(2) : UNKNOWN_READER;
+                    base.computeIfAbsent(day, k -> new TreeMap<>()).merge(reader, rs.getLong(3), Long::sum);
+                }
+            }
+            conn.commit();
+
+            lock.writeLock().lock();
+            try {
+                if (epoch != dropEpoch) {
+                    // 집계 중 파티션이 삭제됨 - 스냅샷에 삭제된 행이 섞여 있으므로 다시 집계
+                    requestBootstrap();
+                    return;
+                }
+                for (Map.Entry<String, Map<String, Long>> day : base.entrySet()) {
+                    for (Map.Entry<String, Long> r : day.getValue().entrySet()) {
+                        add(day.getKey(), r.getKey(), r.getValue());
+                    }
+                }
+                exact = true;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            bootstrapMs = System.currentTimeMillis() - start;
+            lastBootstrap = HexUtils.nowShort();
+            lastError = null;
+            AppLogger.info("TagReadCounters", "Bootstrapped " + total.sum() + " rows in " + bootstrapMs + "ms");
+        } catch (SQLException e) {
+            lastError = e.getMessage();
+            AppLogger.error("TagReadCounters", "Bootstrap failed: " + e.getMessage());
+        }
+    }
+
+    /** 집계가 끝나 정확한 값인지 */
+    public boolean isExact() {
+        return exact;
+    }
+
+    /** 전체 행 수 (집계 전이면 -1) */
+    public long getTotal() {
+        return exact ? total.sum() : -1;
+    }
+
+    /** 전체 행 수. 집계 전이고 allowApproximate면 information_schema 추정치 (실패 시 -1) */
+    public long getTotal(boolean allowApproximate) {
+        if (exact) return total.sum();
+        return allowApproximate ? getApproximateTotal() : -1;
+    }
+
+    /** 리더기별 행 수 (집계 전이면 -1) */
+    public long getReaderCount(String readerName) {
+        if (!exact) return -1;
+        LongAdder n = perReader.get(readerName);
+        return n != null ? n.sum() : 0;
+    }
+
+    /** 일자별 행 수 (집계 전이면 -1) */
+    public long getDayCount(LocalDate day) {
+        if (!exact) return -1;
+        LongAdder n = perDay.get(day.toString());
+        return n != null ? n.sum() : 0;
+    }
+
+    /** 리더기별 행 수 (이름순, 집계 전이면 빈 맵) */
+    public Map<String, Long> getReaderCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        if (!exact) return counts;
+        for (Map.Entry<String, LongAdder> e : perReader.entrySet()) {
+            long n = e.getValue().sum();
+            if (n > 0) counts.put(e.getKey(), n);
+        }
+        return counts;
+    }
+
+    /**
+     * information_schema.TABLES의 TABLE_ROWS 추정치 (InnoDB 통계 기반, 오차가 큼).
+     * 기동 직후처럼 집계 전일 때 대략적인 규모 표시용. 1분간 캐시
+     */
+    public long getApproximateTotal() {
+        long now = System.currentTimeMillis();
+        if (approxTotal >= 0 && now - approxAt < APPROX_CACHE_MS) return approxTotal;
+        DatabaseManager db = DatabaseManager.getInstance();
+        if (!db.isAvailable()) return approxTotal;
+
+        try (Connection conn = db.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT TABLE_ROWS FROM information_schema.TABLES "
+                     + "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = 'tag_reads'");
+             ResultSet rs = pstmt.executeQuery()) {
+            if (rs.next()) {
+                approxTotal = rs.getLong(1);
+                approxAt = now;
+            }
+        } catch (SQLException e) {
+            AppLogger.error("TagReadCounters", "Approximate count failed: " + e.getMessage());
+        }
+        return approxTotal;
+    }
+
+    /** 카운터 상태 JSON (/api/metrics) */
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\"exact\":").append(exact)
+            .append(",\"total\":").append(getTotal(true))
+            .append(",\"today\":").append(getDayCount(LocalDate.now()))
+            .append(",\"readers\":{");
+        boolean first = true;
+        for (Map.Entry<String, Long> e : getReaderCounts().entrySet()) {
+            if (!first) sb.append(",");
+            first = false;
+            sb.append(JsonUtils.toJsonString(e.getKey())).append(":").append(e.getValue());
+        }
+        return sb.append("},\"lastBootstrap\":").append(JsonUtils.toJsonString(lastBootstrap))
+            .append(",\"bootstrapMs\":").append(bootstrapMs)
+            .append(",\"lastError\":").append(JsonUtils.toJsonString(lastError))
+            .append("}").toString();
+    }
+}
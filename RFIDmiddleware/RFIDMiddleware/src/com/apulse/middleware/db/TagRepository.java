@@ -1,32 +1,41 @@
 package com.apulse.middleware.db;
 
-import com.apulse.middleware.reader.TagData;
+import com.apulse.middleware.config.DatabaseConfig;
 import com.apulse.middleware.util.AppLogger;
 
-import java.sql.Connection;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
+import java.io.File;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Date;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
+import java.util.Locale;
 import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
+/**
+ * 태그 이력 저장소.
+ * 태그 기록은 샤드별 저널을 거쳐 샤드별 writer 스레드(TagWriter)가 DB에 기록한다.
+ * 샤드는 리더기 이름(writer.partition=reader) 또는 EPC(writer.partition=epc) 해시로 정한다.
+ *
+ * 순서 보장: 같은 파티션 키(같은 리더기 또는 같은 EPC)의 기록은 수신 순서대로 커밋된다.
+ * 서로 다른 샤드 사이에는 순서가 보장되지 않으므로 tag_reads.id(AUTO_INCREMENT) 순서는 수신 순서와
+ * 다를 수 있다. 조회는 read_time 기준으로 정렬할 것. 샤드 수를 바꿔 재기동하면 이전 샤드의 잔여분은
+ * 별도 writer가 기록하므로 그동안은 같은 키라도 잔여분과 신규 기록의 순서가 섞일 수 있다.
+ */
 public class TagRepository {
     private static final TagRepository INSTANCE = new TagRepository();
-    private static final int BATCH_SIZE = 50;
-    private static final long BATCH_INTERVAL_MS = 500;
     private static final int RECENT_TAG_MAX = 200;
+    /** 종료 시 writer들의 잔여 기록 대기 한도 */
+    private static final long SHUTDOWN_TIMEOUT_MS = 5000;
 
-    private final BlockingQueue<TagRecord> queue = new LinkedBlockingQueue<>();
     private final ConcurrentLinkedDeque<RecentTag> recentTags = new ConcurrentLinkedDeque<>();
     private final AtomicLong recentTagSeq = new AtomicLong(0);
-    private Thread writerThread;
+    /** 신규 기록을 받는 샤드 writer */
+    private volatile TagWriter[] activeWriters = new TagWriter[0];
+    /** 전체 writer (이전 실행에서 샤드 수가 더 많았으면 잔여분만 기록하는 writer 포함) */
+    private final List<TagWriter> writers = new ArrayList<>();
+    private boolean partitionByEpc = false;
     private volatile boolean running = false;
 
     private TagRepository() {}
@@ -35,120 +44,206 @@ public class TagRepository {
         return INSTANCE;
     }
 
-    public void start() {
+    /**
+     * 샤드별 저널을 열고(이전 실행의 미기록분 복원) writer 스레드 시작.
+     * 샤드 0은 journal.dir, 샤드 n은 journal.dir/shard-n 을 사용한다.
+     * 저널을 열 수 없는 샤드는 제외되며, 모두 실패하면 태그 이력은 기록되지 않는다.
+     */
+    public void start(DatabaseConfig config) {
         if (running) return;
-        running = true;
-        writerThread = new Thread(this::writerLoop, "TagDB-Writer");
-        writerThread.setDaemon(true);
-        writerThread.start();
-        AppLogger.info("TagRepository", "Writer thread started");
-    }
+        int shards = Math.max(1, config.getWriterShards());
+        partitionByEpc = "epc".equalsIgnoreCase(config.getWriterPartition());
+        File root = new File(config.getJournalDir());
+        int total = Math.max(shards, highestExistingShard(root) + 1);
 
-    public void insertTagRead(String epc, String readerName, int rssi, int antenna, String readTime) {
-        if (!DatabaseManager.getInstance().isAvailable()) return;
-        queue.offer(new TagRecord(epc, readerName, rssi, antenna, readTime));
+        List<TagWriter> active = new ArrayList<>();
+        for (int i = 0; i < total; i++) {
+            File dir = i == 0 ? root : new File(root, "shard-" + i);
+            TagJournal journal;
+            try {
+                journal = new TagJournal(dir, config.getJournalSegmentMb() * 1024 * 1024, config.getJournalMaxSegments());
+            } catch (Exception e) {
+                AppLogger.error("TagRepository", "Journal open failed (shard " + i + "): " + e.getMessage());
+                continue;
+            }
+            TagWriter writer = new TagWriter(i, journal, config);
+            writers.add(writer);
+            if (i < shards) {
+                active.add(writer);
+            } else {
+                AppLogger.warn("TagRepository", "Shard " + i + " is beyond writer.shards=" + shards
+                    + " - draining its remaining journal only");
+            }
+        }
+        if (active.isEmpty()) {
+            AppLogger.error("TagRepository", "No journal available (tag reads will not be recorded)");
+        }
+        activeWriters = active.toArray(new TagWriter[0]);
+        running = true;
+        TagReadCounters.getInstance().start();
+        for (TagWriter w : writers) w.start();
+        AppLogger.info("TagRepository", "Started " + activeWriters.length + " writer(s) (mode="
+            + config.getWriterMode() + ", partition=" + (partitionByEpc ? "epc" : "reader") + ")");
     }
 
-    private void writerLoop() {
-        List<TagRecord> batch = new ArrayList<>();
-        while (running || !queue.isEmpty()) {
+    /** journal.dir 아래 shard-N 디렉토리 중 가장 큰 N (없으면 0) */
+    private static int highestExistingShard(File root) {
+        int max = 0;
+        File[] dirs = root.listFiles(f -> f.isDirectory() && f.getName().startsWith("shard-"));
+        if (dirs == null) return 0;
+        for (File d : dirs) {
             try {
-                TagRecord first = queue.poll(BATCH_INTERVAL_MS, TimeUnit.MILLISECONDS);
-                if (first != null) {
-                    batch.add(first);
-                    queue.drainTo(batch, BATCH_SIZE - 1);
-                    flushBatch(batch);
-                    batch.clear();
-                }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                break;
+                max = Math.max(max, Integer.parseInt(d.getName().substring("shard-".length())));
+            } catch (NumberFormatException ignore) {
+                // 관련 없는 디렉토리
             }
         }
-        // Flush remaining
-        queue.drainTo(batch);
-        if (!batch.isEmpty()) {
-            flushBatch(batch);
+        return max;
+    }
+
+    /** 태그 기록 - 설정된 저장소 백엔드로 전달 (호출 스레드를 막지 않음) */
+    public void insertTagRead(String epc, String readerName, int rssi, int antenna, String readTime) {
+        StorageManager.getInstance().getBackend().insertTagRead(epc, readerName, rssi, antenna, readTime);
+    }
+
+    /** MariaDB 기록 경로 - 파티션 키로 고른 샤드의 저널에 먼저 기록하고 해당 writer가 DB로 옮긴다 */
+    void appendToJournal(String epc, String readerName, int rssi, int antenna, String readTime) {
+        TagWriter[] w = activeWriters;
+        if (w.length == 0) return;
+        String key = partitionByEpc ? epc : readerName;
+        int shard = w.length == 1 ? 0 : Math.floorMod(key.hashCode(), w.length);
+        w[shard].getJournal().append(epc, readerName, rssi, antenna, readTime);
+    }
+
+    /** writer 처리량 JSON (/api/metrics) - 합계와 샤드별 상세 */
+    public String getWriterJson() {
+        long rows = 0;
+        double rate = 0;
+        StringBuilder sb = new StringBuilder("[");
+        for (TagWriter w : writers) {
+            rows += w.getRowsWritten();
+            rate += w.getRowsPerSec();
+            if (sb.length() > 1) sb.append(',');
+            sb.append(w.toJson());
         }
-        AppLogger.info("TagRepository", "Writer thread stopped");
-    }
-
-    private void flushBatch(List<TagRecord> batch) {
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null || batch.isEmpty()) return;
-
-        String sql = "INSERT INTO tag_reads (epc, reader_name, rssi, antenna, read_time) VALUES (?, ?, ?, ?, ?)";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            for (TagRecord rec : batch) {
-                pstmt.setString(1, rec.epc);
-                pstmt.setString(2, rec.readerName);
-                pstmt.setInt(3, rec.rssi);
-                pstmt.setInt(4, rec.antenna);
-                try {
-                    Date d = sdf.parse(rec.readTime);
-                    pstmt.setTimestamp(5, new Timestamp(d.getTime()));
-                } catch (Exception e) {
-                    pstmt.setTimestamp(5, new Timestamp(System.currentTimeMillis()));
-                }
-                pstmt.addBatch();
-            }
-            pstmt.executeBatch();
-        } catch (Exception e) {
-            AppLogger.error("TagRepository", "Batch insert failed: " + e.getMessage());
+        sb.append(']');
+        String mode = writers.isEmpty() ? "none" : (writers.get(0).isBulkMode() ? "bulk" : "batch");
+        return "{\"mode\":\"" + mode + "\""
+            + ",\"shards\":" + activeWriters.length
+            + ",\"partition\":\"" + (partitionByEpc ? "epc" : "reader") + "\""
+            + ",\"rowsWritten\":" + rows
+            + ",\"rowsPerSec\":" + String.format(Locale.ROOT, "%.1f", rate)
+            + ",\"writers\":" + sb
+            + "}";
+    }
+
+    /** 샤드별 태그 저널 상태 JSON 배열 (미기록 backlog 등) */
+    public String getJournalJson() {
+        StringBuilder sb = new StringBuilder("[");
+        for (TagWriter w : writers) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append(w.getJournal().toJson());
         }
+        return sb.append(']').toString();
     }
 
-    public List<TagData> getTagReads(String fromTime, String toTime) {
-        List<TagData> results = new ArrayList<>();
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return results;
-
-        String sql = "SELECT epc, reader_name, rssi, antenna, read_time FROM tag_reads "
-            + "WHERE read_time BETWEEN ? AND ? ORDER BY read_time DESC";
-        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
-            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            pstmt.setTimestamp(1, new Timestamp(sdf.parse(fromTime).getTime()));
-            pstmt.setTimestamp(2, new Timestamp(sdf.parse(toTime).getTime()));
-            try (ResultSet rs = pstmt.executeQuery()) {
-                while (rs.next()) {
-                    String epc = rs.getString("epc");
-                    String readerName = rs.getString("reader_name");
-                    int rssi = rs.getInt("rssi");
-                    int antenna = rs.getInt("antenna");
-                    String readTime = sdf.format(rs.getTimestamp("read_time"));
-                    results.add(new TagData(epc, readerName, rssi, antenna, readTime));
-                }
-            }
+    /**
+     * 태그 이력 페이지 조회 (최신순 keyset 페이징).
+     * after가 null이면 첫 페이지. 행 형식: {시간, 리더기, EPC, RSSI, 안테나, id, 커서 시간(밀리초)}
+     */
+    public List<String[]> getTagReadsPage(String fromTime, String toTime, PageCursor after, int limit) {
+        List<String[]> results = new ArrayList<>();
+        if (!StorageManager.getInstance().isAvailable()) return results;
+
+        try {
+            streamTagReadsPage(fromTime, toTime, after, limit, results::add);
         } catch (Exception e) {
-            AppLogger.error("TagRepository", "Query failed: " + e.getMessage());
+            AppLogger.error("TagRepository", "Page query failed: " + e.getMessage());
         }
         return results;
     }
 
-    public int getTagReadCount() {
-        Connection conn = DatabaseManager.getInstance().getConnection();
-        if (conn == null) return 0;
+    /**
+     * 태그 이력을 최신순 keyset 순서로 스트리밍 조회 (행 형식은 getTagReadsPage와 같음).
+     * 결과를 모으지 않고 바로 handler에 넘긴다. limit이 0 이하면 커서 이후 기간 전체.
+     * handler가 false를 반환하면 중단
+     * @return 전달한 행 수
+     */
+    public long streamTagReadsPage(String fromTime, String toTime, PageCursor after, int limit,
+                                   Predicate<String[]> handler) throws Exception {
+        return streamTagReadsPage(fromTime, toTime, null, after, limit, handler);
+    }
 
-        try (PreparedStatement pstmt = conn.prepareStatement("SELECT COUNT(*) FROM tag_reads");
-             ResultSet rs = pstmt.executeQuery()) {
-            if (rs.next()) return rs.getInt(1);
-        } catch (Exception e) {
-            AppLogger.error("TagRepository", "Count query failed: " + e.getMessage());
+    /**
+     * 특정 EPC의 태그 이력만 최신순 스트리밍 조회 (epc가 null이면 전체).
+     * 기간이 tag_reads에 남은 가장 오래된 시각(보관 후 삭제된 구간)보다 앞서면
+     * tag_reads 행 뒤에 보관 파일(TagArchiver)의 행을 같은 순서/커서로 이어 붙인다.
+     */
+    public long streamTagReadsPage(String fromTime, String toTime, String epc, PageCursor after, int limit,
+                                   Predicate<String[]> handler) throws Exception {
+        StorageBackend backend = StorageManager.getInstance().getBackend();
+        TagArchiver archiver = TagArchiver.getInstance();
+        long liveFrom = archiver.getLiveFromMs();
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        if (!archiver.isEnabled() || liveFrom == Long.MIN_VALUE || sdf.parse(fromTime).getTime() >= liveFrom) {
+            return backend.streamTagReadsPage(fromTime, toTime, epc, after, limit, handler);
         }
-        return 0;
+
+        long count = 0;
+        if (after == null || Timestamp.valueOf(after.key).getTime() >= liveFrom) {
+            boolean[] stopped = {false};
+            count = backend.streamTagReadsPage(fromTime, toTime, epc, after, limit, row -> {
+                if (handler.test(row)) return true;
+                stopped[0] = true;
+                return false;
+            });
+            if (stopped[0] || (limit > 0 && count >= limit)) return count;
+        }
+        return count + archiver.streamTagReadsPage(fromTime, toTime, epc, after,
+            limit > 0 ? (int) (limit - count) : 0, liveFrom, handler);
     }
 
+    /** 기간 내 태그 이력 추정 건수 (실패 시 -1) */
+    public long estimateTagReadCount(String fromTime, String toTime) {
+        return StorageManager.getInstance().getBackend().estimateTagReadCount(fromTime, toTime);
+    }
+
+    /**
+     * 기간 내 태그 이력을 스트리밍 조회 (시간 오름차순). 결과 전체를 메모리에 올리지 않는다.
+     * 행 형식: {시간, 리더기, EPC, RSSI, 안테나}. handler가 false를 반환하면 중단
+     * @return 전달한 행 수
+     */
+    public long streamTagReads(String fromTime, String toTime, Predicate<String[]> handler) throws Exception {
+        return StorageManager.getInstance().getBackend().streamTagReads(fromTime, toTime, handler);
+    }
+
+    /**
+     * 태그 이력 전체 행 수 (MariaDB는 TagReadCounters의 메모리 카운터, O(1)).
+     * 기동 직후 집계가 끝나기 전에는 추정치, 그것도 없으면 -1
+     */
+    public long getTagReadCount() {
+        return StorageManager.getInstance().getBackend().getTagReadCount();
+    }
+
+    /**
+     * 종료: 신규 기록을 막고 모든 writer에 중지를 요청한 뒤(각자 남은 저널을 병렬로 기록),
+     * 샤드 순서대로 종료를 기다리고 저널을 닫는다. 시간 안에 못 쓴 분량은 저널에 남아 다음 기동 시 재생된다.
+     */
     public void shutdown() {
         running = false;
-        if (writerThread != null) {
-            writerThread.interrupt();
+        activeWriters = new TagWriter[0];
+        for (TagWriter w : writers) w.stop();
+        long deadline = System.currentTimeMillis() + SHUTDOWN_TIMEOUT_MS;
+        for (TagWriter w : writers) {
             try {
-                writerThread.join(3000);
+                w.join(deadline - System.currentTimeMillis());
             } catch (InterruptedException e) {
                 Thread.currentThread().interrupt();
+                break;
             }
         }
+        for (TagWriter w : writers) w.getJournal().close();
+        TagReadCounters.getInstance().stop();
         AppLogger.info("TagRepository", "Shutdown complete");
     }
 
@@ -203,7 +298,8 @@ public class TagRepository {
         }
     }
 
-    private static class TagRecord {
+    /** 저널 레코드 1건 */
+    static class TagRecord {
         final String epc;
         final String readerName;
         final int rssi;
@@ -0,0 +1,359 @@
+package com.apulse.middleware.db;
+
+import com.apulse.middleware.config.DatabaseConfig;
+import com.apulse.middleware.db.TagRepository.TagRecord;
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.HexUtils;
+import com.apulse.middleware.util.LatencyHistogram;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLDataException;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 태그 이력 writer 1개 (샤드 1개).
+ * 자기 저널을 체크포인트부터 읽어 자기 연결로 기록한다 (bulk 모드: 샤드 전용 연결, batch 모드: 쓰기 풀 연결).
+ * 한 샤드 안에서는 저널에 추가된 순서대로 커밋되며, 샤드끼리는 서로 기다리지 않는다.
+ */
+class TagWriter {
+    private static final long BATCH_INTERVAL_MS = 500;
+    /** 다중 행 INSERT 한 문장의 최대 행 수 (2의 거듭제곱 단위로 나눠 문장 종류를 제한) */
+    private static final int MAX_ROWS_PER_STATEMENT = 512;
+    private static final String INSERT_PREFIX = "INSERT INTO tag_reads (epc, reader_id, rssi, antenna, read_time) VALUES ";
+    /** 저널 강제 기록(fsync) 주기 */
+    private static final long JOURNAL_SYNC_INTERVAL_MS = 1000;
+
+    private final int shard;
+    private final TagJournal journal;
+    private final boolean bulkMode;
+    private final int batchMaxRows;
+    private final long batchMaxBytes;
+    private final AdaptiveBatchController batchController;
+    private final ReaderDirectory readers = ReaderDirectory.getInstance();
+    private final TagReadCounters counters = TagReadCounters.getInstance();
+    private Thread thread;
+    private volatile boolean running = false;
+    /** 마지막으로 채운 배치의 저널 바이트 수 (backlog 행 수 추정용) */
+    private long lastBatchBytes = 0;
+
+    /** bulk 모드 전용 연결과 행 수별 다중 행 INSERT 문 (writer 스레드 전용, 연결 수명 동안 재사용) */
+    private Connection bulkConn;
+    private final Map<Integer, PreparedStatement> bulkStatements = new HashMap<>();
+
+    // 처리량/커밋 지연 통계
+    private final LatencyHistogram commitLatency = new LatencyHistogram();
+    private final AtomicLong rowsWritten = new AtomicLong();
+    private final AtomicLong batchesWritten = new AtomicLong();
+    private long rateWindowStart = System.nanoTime();
+    private long rateWindowRows = 0;
+    private volatile double rowsPerSec = 0;
+    private volatile double peakRowsPerSec = 0;
+
+    TagWriter(int shard, TagJournal journal, DatabaseConfig config) {
+        this.shard = shard;
+        this.journal = journal;
+        this.bulkMode = !"batch".equalsIgnoreCase(config.getWriterMode());
+        this.batchMaxRows = Math.max(1, config.getWriterBatchMaxRows());
+        this.batchMaxBytes = Math.max(1024, config.getWriterBatchMaxBytes());
+        long maxDelayMs = Math.max(0, config.getWriterBatchMaxDelayMs());
+        this.batchController = new AdaptiveBatchController(config.isWriterAdaptive(), config.getWriterBatchMinRows(),
+            batchMaxRows, maxDelayMs, config.getWriterCommitTargetMs());
+    }
+
+    void start() {
+        running = true;
+        thread = new Thread(this::run, "TagDB-Writer-" + shard);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** 중지 요청 (스레드는 남은 저널을 가능한 만큼 기록한 뒤 종료) */
+    void stop() {
+        running = false;
+        if (thread != null) thread.interrupt();
+    }
+
+    /** 스레드 종료 대기 */
+    void join(long timeoutMs) throws InterruptedException {
+        if (thread != null) thread.join(Math.max(1, timeoutMs));
+    }
+
+    int getShard() {
+        return shard;
+    }
+
+    boolean isBulkMode() {
+        return bulkMode;
+    }
+
+    TagJournal getJournal() {
+        return journal;
+    }
+
+    long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    double getRowsPerSec() {
+        return rowsPerSec;
+    }
+
+    /**
+     * 저널 체크포인트부터 배치를 읽어 DB에 기록하고, 커밋된 만큼만 체크포인트를 전진시킨다.
+     * 서킷이 OPEN이거나 연결 오류로 실패하면 저널에 그대로 두었다가 복구 후 이어서 기록한다.
+     */
+    private void run() {
+        List<TagRecord> batch = new ArrayList<>();
+        long lastSync = System.currentTimeMillis();
+        while (running) {
+            try {
+                if (!DatabaseManager.getInstance().isAvailable()) {
+                    closeBulkConnection();
+                    Thread.sleep(BATCH_INTERVAL_MS);
+                } else if (!fillBatch(batch)) {
+                    journal.awaitAppend(BATCH_INTERVAL_MS);
+                } else if (!writeBatch(batch)) {
+                    Thread.sleep(BATCH_INTERVAL_MS);
+                }
+                long now = System.currentTimeMillis();
+                if (now - lastSync >= JOURNAL_SYNC_INTERVAL_MS) {
+                    journal.sync();
+                    lastSync = now;
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                AppLogger.error("TagWriter", "Writer loop error: " + e.getMessage());
+            }
+        }
+        // 종료 전 가능한 만큼 기록 (나머지는 저널에 남아 다음 기동 시 재생)
+        Thread.interrupted();
+        while (DatabaseManager.getInstance().isAvailable() && journal.read(batchMaxRows, batchMaxBytes, batch) > 0) {
+            if (!writeBatch(batch)) break;
+        }
+        closeBulkConnection();
+        AppLogger.info("TagWriter", "[" + shard + "] Writer thread stopped");
+    }
+
+    /**
+     * 배치 채우기: 적응 제어기의 목표 행 수/바이트 한도에 닿거나 첫 레코드 이후 대기시간(linger)이
+     * 지날 때까지 저널에서 읽는다. 유입이 적으면 linger가 0이라 즉시 기록되고,
+     * 장애 후 backlog가 있으면 대기 없이 한도까지 바로 채워진다.
+     * @return 읽은 것이 있으면 true
+     */
+    private boolean fillBatch(List<TagRecord> batch) throws InterruptedException {
+        batchController.sampleArrivals(journal.getAppendedCount());
+        int rows = batchController.getTargetRows();
+        long bytes = journal.read(rows, batchMaxBytes, batch);
+        if (bytes == 0) return false;
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(batchController.getLingerMs());
+        while (batch.size() < rows && bytes < batchMaxBytes) {
+            long remainingMs = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remainingMs <= 0) break;
+            journal.awaitAppend(remainingMs);
+            bytes += journal.read(rows - batch.size(), batchMaxBytes - bytes, batch);
+        }
+        lastBatchBytes = bytes;
+        return true;
+    }
+
+    private boolean writeBatch(List<TagRecord> batch) {
+        long start = System.nanoTime();
+        boolean ok = bulkMode ? flushBulk(batch) : flushBatch(batch);
+        if (ok) {
+            long elapsed = System.nanoTime() - start;
+            journal.commit(batch.size());
+            commitLatency.recordNanos(elapsed);
+            recordThroughput(batch.size());
+            long avgRecordBytes = Math.max(1, lastBatchBytes / batch.size());
+            batchController.onCommit(batch.size(), elapsed, journal.getBacklogBytes() / avgRecordBytes);
+        } else {
+            journal.rewind();
+        }
+        batch.clear();
+        return ok;
+    }
+
+    /**
+     * bulk 모드: 전용 연결에서 다중 행 INSERT ... VALUES (...),(...) 를 한 트랜잭션으로 기록.
+     * 행 수는 512, 256, ... 1 단위로 나눠 미리 준비한 문장을 재사용한다.
+     * 데이터 오류면 풀 연결의 행 단위 기록(flushBatch)으로 넘겨 문제 행만 건너뛴다.
+     */
+    private boolean flushBulk(List<TagRecord> batch) {
+        if (batch.isEmpty()) return true;
+        DatabaseManager db = DatabaseManager.getInstance();
+        try {
+            if (bulkConn == null) {
+                bulkConn = db.openDedicatedConnection();
+                bulkConn.setAutoCommit(false);
+            }
+            int pos = 0;
+            while (pos < batch.size()) {
+                int rows = Integer.highestOneBit(Math.min(batch.size() - pos, MAX_ROWS_PER_STATEMENT));
+                PreparedStatement pstmt = bulkStatement(rows);
+                int idx = 1;
+                for (int i = pos; i < pos + rows; i++) {
+                    TagRecord rec = batch.get(i);
+                    pstmt.setBytes(idx++, epcBytes(rec.epc));
+                    pstmt.setInt(idx++, readers.idOf(rec.readerName));
+                    pstmt.setInt(idx++, rec.rssi);
+                    pstmt.setInt(idx++, rec.antenna);
+                    pstmt.setTimestamp(idx++, toTimestamp(rec.readTime));
+                }
+                pstmt.executeUpdate();
+                pos += rows;
+            }
+            counters.commitCounted(bulkConn::commit, batch);
+            db.reportConnectionSuccess();
+            return true;
+        } catch (SQLException e) {
+            boolean connectionFailure = DatabaseManager.isConnectionFailure(e);
+            if (connectionFailure) {
+                db.reportConnectionFailure(e);
+                closeBulkConnection();
+                return false;
+            }
+            try {
+                if (bulkConn != null) bulkConn.rollback();
+            } catch (SQLException re) {
+                closeBulkConnection();
+            }
+            AppLogger.error("TagWriter", "Bulk insert failed: " + e.getMessage() + " (falling back to row by row)");
+            return flushBatch(batch);
+        }
+    }
+
+    private PreparedStatement bulkStatement(int rows) throws SQLException {
+        PreparedStatement pstmt = bulkStatements.get(rows);
+        if (pstmt == null) {
+            StringBuilder sql = new StringBuilder(INSERT_PREFIX.length() + rows * 16).append(INSERT_PREFIX);
+            for (int i = 0; i < rows; i++) {
+                if (i > 0) sql.append(',');
+                sql.append("(?,?,?,?,?)");
+            }
+            pstmt = bulkConn.prepareStatement(sql.toString());
+            bulkStatements.put(rows, pstmt);
+        }
+        return pstmt;
+    }
+
+    private void closeBulkConnection() {
+        if (bulkConn == null) return;
+        bulkStatements.clear();
+        try {
+            bulkConn.close();
+        } catch (SQLException ignore) {
+            // 이미 끊긴 연결
+        }
+        bulkConn = null;
+    }
+
+    /** 16진 EPC 문자열 → 바이트 (홀수 길이는 앞에 0을 채움). 16진이 아니면 데이터 오류로 해당 행만 건너뛴다 */
+    static byte[] epcBytes(String epc) throws SQLDataException {
+        String hex = (epc.length() % 2 != 0) ? "0" + epc : epc;
+        try {
+            byte[] bytes = HexUtils.hexToBytes(hex);
+            if (bytes.length == 0) throw new SQLDataException("Empty EPC");
+            return bytes;
+        } catch (NumberFormatException e) {
+            throw new SQLDataException("EPC is not hex: " + epc);
+        }
+    }
+
+    /** 읽기 시각 문자열 → Timestamp. 형식이 틀리면 시각을 지어내지 않고 데이터 오류로 해당 행만 건너뛴다 */
+    private static Timestamp toTimestamp(String readTime) throws SQLDataException {
+        if (readTime == null) throw new SQLDataException("Missing read_time");
+        try {
+            return Timestamp.valueOf(readTime);
+        } catch (IllegalArgumentException e) {
+            throw new SQLDataException("Invalid read_time: " + readTime);
+        }
+    }
+
+    /** 1초 단위 구간으로 초당 기록 행 수 갱신 (writer 스레드 전용) */
+    private void recordThroughput(int rows) {
+        rowsWritten.addAndGet(rows);
+        batchesWritten.incrementAndGet();
+        rateWindowRows += rows;
+        long now = System.nanoTime();
+        long elapsed = now - rateWindowStart;
+        if (elapsed >= TimeUnit.SECONDS.toNanos(1)) {
+            rowsPerSec = rateWindowRows * 1e9 / elapsed;
+            peakRowsPerSec = Math.max(peakRowsPerSec, rowsPerSec);
+            rateWindowStart = now;
+            rateWindowRows = 0;
+        }
+    }
+
+    /**
+     * 배치를 한 트랜잭션으로 기록. 데이터 오류로 실패하면 행 단위로 다시 기록해 문제 행만 건너뛴다.
+     * @return 기록 완료(건너뛴 행 포함)면 true, 연결 계열 오류로 다시 시도해야 하면 false
+     */
+    private boolean flushBatch(List<TagRecord> batch) {
+        if (batch.isEmpty()) return true;
+
+        try (Connection conn = DatabaseManager.getInstance().getWriteConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                insertRows(conn, batch);
+                counters.commitCounted(conn::commit, batch);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                if (DatabaseManager.isConnectionFailure(e)) return false;
+                AppLogger.error("TagWriter", "Batch insert failed: " + e.getMessage() + " (retrying row by row)");
+            }
+            conn.setAutoCommit(true);
+            for (TagRecord rec : batch) {
+                try {
+                    List<TagRecord> one = Collections.singletonList(rec);
+                    counters.commitCounted(() -> insertRows(conn, one), one);
+                } catch (SQLException e) {
+                    if (DatabaseManager.isConnectionFailure(e)) return false;
+                    AppLogger.error("TagWriter", "Skipped tag read EPC=" + rec.epc + ": " + e.getMessage());
+                }
+            }
+            return true;
+        } catch (SQLException e) {
+            if (DatabaseManager.isConnectionFailure(e)) return false;
+            AppLogger.error("TagWriter", "Batch insert failed: " + e.getMessage());
+            return true;
+        }
+    }
+
+    private void insertRows(Connection conn, List<TagRecord> rows) throws SQLException {
+        try (PreparedStatement pstmt = conn.prepareStatement(INSERT_PREFIX + "(?, ?, ?, ?, ?)")) {
+            for (TagRecord rec : rows) {
+                pstmt.setBytes(1, epcBytes(rec.epc));
+                pstmt.setInt(2, readers.idOf(rec.readerName));
+                pstmt.setInt(3, rec.rssi);
+                pstmt.setInt(4, rec.antenna);
+                pstmt.setTimestamp(5, toTimestamp(rec.readTime));
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /** writer 처리량 JSON (/api/metrics) */
+    String toJson() {
+        return "{\"shard\":" + shard
+            + ",\"rowsWritten\":" + rowsWritten.get()
+            + ",\"batches\":" + batchesWritten.get()
+            + ",\"rowsPerSec\":" + String.format(Locale.ROOT, "%.1f", rowsPerSec)
+            + ",\"peakRowsPerSec\":" + String.format(Locale.ROOT, "%.1f", peakRowsPerSec)
+            + ",\"commitLatency\":" + commitLatency.toJson()
+            + ",\"adaptive\":" + batchController.toJson()
+            + "}";
+    }
+}
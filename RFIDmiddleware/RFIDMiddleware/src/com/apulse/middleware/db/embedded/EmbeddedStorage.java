@@ -0,0 +1,500 @@
+package com.apulse.middleware.db.embedded;
+
+import com.apulse.middleware.config.DatabaseConfig;
+import com.apulse.middleware.db.AssetRepository;
+import com.apulse.middleware.db.PageCursor;
+import com.apulse.middleware.db.StorageBackend;
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.JsonUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 내장 파일 저장소 백엔드 (storage.backend=embedded) - 외부 DB 없이 storage.embedded.dir 아래에 기록.
+ * reads/, alerts/: 태그 이력과 반출 알림 append-only 세그먼트 로그 (SegmentLog, 기간/EPC 블록 색인)
+ * assets.*, permissions.*: 자산과 반출허용 스냅샷 + 변경 로그 (RecordStore)
+ *
+ * 태그 기록은 호출 스레드에서 버퍼에 추가만 하고 storage.embedded.sync.ms 주기로 디스크에 내린다
+ * (비정상 종료 시 마지막 주기분까지 잃을 수 있음). 반출 알림과 자산/반출허용 변경은 기록 즉시 fsync.
+ * 레코드 id는 수신 순서이므로 최신순 조회와 커서는 id 기준이다.
+ */
+public class EmbeddedStorage implements StorageBackend {
+    private static final long MB = 1024L * 1024;
+    private static final long DAY_MS = 24L * 60 * 60 * 1000;
+
+    // 자산 필드
+    private static final int A_NUMBER = 0;
+    private static final int A_EPC = 1;
+    private static final int A_NAME = 2;
+    private static final int A_DEPARTMENT = 3;
+    private static final int A_POSSESSION = 4;
+    private static final int A_CREATED = 5;
+    // 반출허용 필드
+    private static final int P_EPC = 0;
+    private static final int P_START = 1;
+    private static final int P_END = 2;
+    private static final int P_REASON = 3;
+
+    private File dir;
+    private SegmentLog reads;
+    private SegmentLog alerts;
+    private RecordStore assets;
+    private RecordStore permissions;
+    private ScheduledExecutorService syncer;
+    private int retentionDays;
+    private volatile boolean open = false;
+
+    private final AtomicLong writeErrors = new AtomicLong();
+    private volatile String lastError;
+
+    @Override
+    public String getName() {
+        return "embedded";
+    }
+
+    @Override
+    public void start(DatabaseConfig config) throws IOException {
+        dir = new File(config.getEmbeddedStorageDir());
+        long segmentBytes = Math.max(1, config.getEmbeddedSegmentMb()) * MB;
+        try {
+            reads = new SegmentLog(new File(dir, "reads"), "reads", segmentBytes);
+            alerts = new SegmentLog(new File(dir, "alerts"), "alerts", segmentBytes);
+            assets = new RecordStore(dir, "assets");
+            permissions = new RecordStore(dir, "permissions");
+        } catch (IOException e) {
+            shutdown();
+            throw e;
+        }
+        retentionDays = config.getEmbeddedRetentionDays();
+
+        syncer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Storage-Sync");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(100, config.getEmbeddedSyncMs());
+        syncer.scheduleWithFixedDelay(() -> {
+            try {
+                reads.sync();
+                alerts.sync();
+                if (retentionDays > 0) {
+                    long cutoff = System.currentTimeMillis() - retentionDays * DAY_MS;
+                    int dropped = reads.deleteBefore(cutoff) + alerts.deleteBefore(cutoff);
+                    if (dropped > 0) {
+                        AppLogger.info("EmbeddedStorage", "Retention: deleted " + dropped + " segment(s) older than "
+                            + retentionDays + " days");
+                    }
+                }
+            } catch (Throwable t) {
+                lastError = t.getMessage();
+                AppLogger.error("EmbeddedStorage", "Sync failed: " + t.getMessage(), t);
+            }
+        }, interval, interval, TimeUnit.MILLISECONDS);
+        open = true;
+        AppLogger.info("EmbeddedStorage", "Opened " + dir.getAbsolutePath() + " (sync every " + interval + "ms"
+            + (retentionDays > 0 ? ", retention " + retentionDays + " days" : "") + ")");
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return open;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return open;
+    }
+
+    @Override
+    public void shutdown() {
+        open = false;
+        if (syncer != null) {
+            syncer.shutdownNow();
+            try {
+                syncer.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (reads != null) reads.close();
+        if (alerts != null) alerts.close();
+        if (assets != null) assets.close();
+        if (permissions != null) permissions.close();
+        AppLogger.info("EmbeddedStorage", "Shutdown complete");
+    }
+
+    @Override
+    public String toJson() {
+        if (reads == null) return "{\"backend\":\"embedded\",\"available\":false}";
+        return "{\"backend\":\"embedded\""
+            + ",\"available\":" + open
+            + ",\"dir\":" + JsonUtils.toJsonString(dir.getAbsolutePath())
+            + ",\"tagReads\":" + reads.toJson()
+            + ",\"alerts\":" + alerts.toJson()
+            + ",\"assets\":" + assets.size()
+            + ",\"permissions\":" + permissions.size()
+            + ",\"writeErrors\":" + writeErrors.get()
+            + ",\"lastError\":" + JsonUtils.toJsonString(lastError)
+            + "}";
+    }
+
+    // --- 태그 이력: payload [EPC][리더기][RSSI(2)][안테나(1)] ---
+
+    @Override
+    public void insertTagRead(String epc, String readerName, int rssi, int antenna, String readTime) {
+        if (!open) return;
+        byte[] e = epc.getBytes(StandardCharsets.UTF_8);
+        byte[] r = readerName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(4 + e.length + r.length + 3);
+        putBytes(payload, e);
+        putBytes(payload, r);
+        payload.putShort((short) rssi).put((byte) antenna);
+        try {
+            reads.append(parseTime(readTime), SegmentLog.keyHash(epc), payload.array());
+        } catch (IOException ex) {
+            lastError = ex.getMessage();
+            // 읽기마다 호출되므로 1000건에 한 번만 로그
+            if (writeErrors.incrementAndGet() % 1000 == 1) {
+                AppLogger.error("EmbeddedStorage", "Tag read append failed: " + ex.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public long streamTagReadsPage(String fromTime, String toTime, String epc, PageCursor after, int limit,
+                                   Predicate<String[]> handler) throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        SimpleDateFormat cursorFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS");
+        long[] count = {0};
+        reads.scanBackward(sdf.parse(fromTime).getTime(), sdf.parse(toTime).getTime(),
+            after == null ? Long.MAX_VALUE : after.id,
+            epc != null, epc != null ? SegmentLog.keyHash(epc) : 0,
+            (id, time, payload) -> {
+                String tagEpc = getString(payload);
+                if (epc != null && !epc.equalsIgnoreCase(tagEpc)) return true;
+                String reader = getString(payload);
+                Timestamp ts = new Timestamp(time);
+                String[] row = {
+                    sdf.format(ts),
+                    reader,
+                    tagEpc,
+                    String.valueOf(payload.getShort()),
+                    String.valueOf(payload.get()),
+                    String.valueOf(id),
+                    cursorFormat.format(ts)
+                };
+                count[0]++;
+                return handler.test(row) && (limit <= 0 || count[0] < limit);
+            });
+        return count[0];
+    }
+
+    @Override
+    public long streamTagReads(String fromTime, String toTime, Predicate<String[]> handler) throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        long[] count = {0};
+        reads.scanForward(sdf.parse(fromTime).getTime(), sdf.parse(toTime).getTime(), (id, time, payload) -> {
+            String tagEpc = getString(payload);
+            String reader = getString(payload);
+            String[] row = {
+                sdf.format(new Timestamp(time)),
+                reader,
+                tagEpc,
+                String.valueOf(payload.getShort()),
+                String.valueOf(payload.get())
+            };
+            count[0]++;
+            return handler.test(row);
+        });
+        return count[0];
+    }
+
+    /** 기간과 겹치는 색인 블록의 건수 합 */
+    @Override
+    public long estimateTagReadCount(String fromTime, String toTime) {
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            return reads.estimateCount(sdf.parse(fromTime).getTime(), sdf.parse(toTime).getTime());
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public long getTagReadCount() {
+        return reads != null ? reads.getRecordCount() : -1;
+    }
+
+    // --- 반출 알림: payload [EPC][자산번호][리더기][RSSI(4)] ---
+
+    @Override
+    public void insertAlert(String epc, String assetNumber, String readerName, int rssi, String alertTime) throws IOException {
+        byte[] e = epc.getBytes(StandardCharsets.UTF_8);
+        byte[] a = (assetNumber != null ? assetNumber : "").getBytes(StandardCharsets.UTF_8);
+        byte[] r = readerName.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer payload = ByteBuffer.allocate(6 + e.length + a.length + r.length + 4);
+        putBytes(payload, e);
+        putBytes(payload, a);
+        putBytes(payload, r);
+        payload.putInt(rssi);
+        alerts.append(parseTime(alertTime), SegmentLog.keyHash(epc), payload.array());
+        alerts.sync();
+    }
+
+    @Override
+    public long streamExportAlerts(String fromTime, String toTime, PageCursor after, int limit,
+                                   Predicate<String[]> handler) throws Exception {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        Map<String, String[]> assetByEpc = new HashMap<>();
+        for (Map.Entry<Long, String[]> e : assets.entries()) assetByEpc.put(e.getValue()[A_EPC], e.getValue());
+        long[] count = {0};
+        alerts.scanBackward(sdf.parse(fromTime).getTime(), sdf.parse(toTime).getTime(),
+            after == null ? Long.MAX_VALUE : after.id, false, 0,
+            (id, time, payload) -> {
+                String epc = getString(payload);
+                String assetNumber = getString(payload);
+                String reader = getString(payload);
+                String[] asset = assetByEpc.get(epc);
+                String[] row = {
+                    sdf.format(new Timestamp(time)),
+                    reader,
+                    epc,
+                    assetNumber,
+                    asset != null ? orEmpty(asset[A_NAME]) : "",
+                    asset != null ? orEmpty(asset[A_DEPARTMENT]) : "",
+                    String.valueOf(payload.getInt()),
+                    String.valueOf(id)
+                };
+                count[0]++;
+                return handler.test(row) && (limit <= 0 || count[0] < limit);
+            });
+        return count[0];
+    }
+
+    @Override
+    public long estimateExportAlertCount(String fromTime, String toTime) {
+        try {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            return alerts.estimateCount(sdf.parse(fromTime).getTime(), sdf.parse(toTime).getTime());
+        } catch (ParseException e) {
+            return -1;
+        }
+    }
+
+    // --- 자산 ---
+
+    @Override
+    public List<AssetRepository.AssetInfo> loadAssets() {
+        List<AssetRepository.AssetInfo> results = new ArrayList<>();
+        for (Map.Entry<Long, String[]> e : assets.entries()) {
+            String[] f = e.getValue();
+            results.add(new AssetRepository.AssetInfo(
+                f[A_EPC], f[A_NUMBER], f[A_NAME], f[A_DEPARTMENT], "1".equals(f[A_POSSESSION])));
+        }
+        return results;
+    }
+
+    @Override
+    public List<String[]> queryAssets() {
+        return queryAssetsPage(null, 0);
+    }
+
+    /** 자산번호, id 순 (limit이 0 이하면 전체) */
+    @Override
+    public List<String[]> queryAssetsPage(PageCursor after, int limit) {
+        List<Map.Entry<Long, String[]>> sorted = assets.entries();
+        sorted.sort(Comparator.comparing((Map.Entry<Long, String[]> e) -> e.getValue()[A_NUMBER])
+            .thenComparing(Map.Entry::getKey));
+        List<String[]> results = new ArrayList<>();
+        for (Map.Entry<Long, String[]> e : sorted) {
+            String number = e.getValue()[A_NUMBER];
+            if (after != null) {
+                int c = number.compareTo(after.key);
+                if (c < 0 || (c == 0 && e.getKey() <= after.id)) continue;
+            }
+            results.add(assetRow(e.getKey(), e.getValue()));
+            if (limit > 0 && results.size() >= limit) break;
+        }
+        return results;
+    }
+
+    private static String[] assetRow(long id, String[] f) {
+        return new String[] {
+            f[A_NUMBER],
+            f[A_EPC],
+            orEmpty(f[A_NAME]),
+            orEmpty(f[A_DEPARTMENT]),
+            orEmpty(f[A_CREATED]),
+            "1".equals(f[A_POSSESSION]) ? "보유" : "미보유",
+            String.valueOf(id)
+        };
+    }
+
+    /** EPC는 MariaDB의 uk_epc와 같이 중복 불가 */
+    @Override
+    public boolean insertAsset(String assetNumber, String epc, String assetName, String department, int possession)
+            throws IOException {
+        synchronized (assets) {
+            if (findAssetByEpc(epc) >= 0) throw new IllegalArgumentException("Duplicate asset EPC: " + epc);
+            assets.insert(new String[] {
+                assetNumber, epc, assetName, department, String.valueOf(possession),
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date())
+            });
+            return true;
+        }
+    }
+
+    @Override
+    public boolean updateAsset(long id, String assetNumber, String epc, String assetName, String department,
+                               Integer possession) throws IOException {
+        if (assetNumber == null && epc == null && assetName == null && department == null && possession == null) {
+            return false;
+        }
+        synchronized (assets) {
+            String[] f = assets.get(id);
+            if (f == null) return false;
+            if (epc != null) {
+                long owner = findAssetByEpc(epc);
+                if (owner >= 0 && owner != id) throw new IllegalArgumentException("Duplicate asset EPC: " + epc);
+                f[A_EPC] = epc;
+            }
+            if (assetNumber != null) f[A_NUMBER] = assetNumber;
+            if (assetName != null) f[A_NAME] = assetName;
+            if (department != null) f[A_DEPARTMENT] = department;
+            if (possession != null) f[A_POSSESSION] = String.valueOf(possession);
+            return assets.update(id, f);
+        }
+    }
+
+    /** EPC를 가진 자산 id (없으면 -1) */
+    private long findAssetByEpc(String epc) {
+        for (Map.Entry<Long, String[]> e : assets.entries()) {
+            if (epc.equals(e.getValue()[A_EPC])) return e.getKey();
+        }
+        return -1;
+    }
+
+    @Override
+    public long estimateAssetRowCount() {
+        return assets != null ? assets.size() : -1;
+    }
+
+    // --- 반출허용 ---
+
+    /** 시작/종료는 "yyyy-MM-dd HH:mm:ss"로 저장하므로 문자열 비교가 시각 비교와 같다 */
+    @Override
+    public List<AssetRepository.PermitWindow> loadPermitWindows() throws ParseException {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        String now = sdf.format(new Date());
+        List<AssetRepository.PermitWindow> results = new ArrayList<>();
+        for (Map.Entry<Long, String[]> e : permissions.entries()) {
+            String[] f = e.getValue();
+            if (f[P_END].compareTo(now) < 0) continue;
+            results.add(new AssetRepository.PermitWindow(
+                f[P_EPC], sdf.parse(f[P_START]).getTime(), sdf.parse(f[P_END]).getTime()));
+        }
+        return results;
+    }
+
+    @Override
+    public List<String[]> queryExportPermissions() {
+        return queryExportPermissionsPage(null, 0);
+    }
+
+    /** 종료 최신순, 같은 종료는 id 역순 (limit이 0 이하면 전체). 종료가 빈 행은 없으므로 빈 커서 키는 끝 */
+    @Override
+    public List<String[]> queryExportPermissionsPage(PageCursor after, int limit) {
+        List<String[]> results = new ArrayList<>();
+        if (after != null && after.key.isEmpty()) return results;
+        List<Map.Entry<Long, String[]>> sorted = permissions.entries();
+        sorted.sort(Comparator.comparing((Map.Entry<Long, String[]> e) -> e.getValue()[P_END])
+            .thenComparing(Map.Entry::getKey).reversed());
+        Map<String, String[]> assetByEpc = new HashMap<>();
+        for (Map.Entry<Long, String[]> e : assets.entries()) assetByEpc.put(e.getValue()[A_EPC], e.getValue());
+        String now = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date());
+        for (Map.Entry<Long, String[]> e : sorted) {
+            String[] f = e.getValue();
+            if (after != null) {
+                int c = f[P_END].compareTo(after.key);
+                if (c > 0 || (c == 0 && e.getKey() >= after.id)) continue;
+            }
+            String[] asset = assetByEpc.get(f[P_EPC]);
+            boolean valid = f[P_START].compareTo(now) <= 0 && f[P_END].compareTo(now) >= 0;
+            results.add(new String[] {
+                f[P_EPC],
+                asset != null ? asset[A_NUMBER] : "",
+                asset != null ? orEmpty(asset[A_NAME]) : "",
+                f[P_START],
+                f[P_END],
+                orEmpty(f[P_REASON]),
+                valid ? "유효" : "만료",
+                String.valueOf(e.getKey())
+            });
+            if (limit > 0 && results.size() >= limit) break;
+        }
+        return results;
+    }
+
+    @Override
+    public boolean insertPermission(String epc, String permitStart, String permitEnd, String reason) throws IOException {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        // MariaDB 경로와 같이 Timestamp 형식만 허용하고, 비교를 위해 초 단위 형식으로 맞춤
+        String start = sdf.format(Timestamp.valueOf(permitStart));
+        String end = sdf.format(Timestamp.valueOf(permitEnd));
+        permissions.insert(new String[] {epc, start, end, reason});
+        return true;
+    }
+
+    @Override
+    public boolean deletePermission(long id) throws IOException {
+        return permissions.delete(id);
+    }
+
+    @Override
+    public long estimatePermissionRowCount() {
+        return permissions != null ? permissions.size() : -1;
+    }
+
+    // --- payload 인코딩 ---
+
+    /** 기록 시각 문자열 → epoch ms (형식이 다르면 현재 시각) */
+    private static long parseTime(String time) {
+        try {
+            return Timestamp.valueOf(time).getTime();
+        } catch (IllegalArgumentException e) {
+            return System.currentTimeMillis();
+        }
+    }
+
+    private static void putBytes(ByteBuffer buf, byte[] b) {
+        buf.putShort((short) b.length).put(b);
+    }
+
+    private static String getString(ByteBuffer buf) {
+        int len = buf.getShort() & 0xFFFF;
+        String s = new String(buf.array(), buf.arrayOffset() + buf.position(), len, StandardCharsets.UTF_8);
+        buf.position(buf.position() + len);
+        return s;
+    }
+
+    private static String orEmpty(String s) {
+        return s != null ? s : "";
+    }
+}
@@ -0,0 +1,232 @@
+package com.apulse.middleware.db.embedded;
+
+import com.apulse.middleware.util.AppLogger;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * 내장 저장소의 id-레코드 저장 (자산, 반출허용): 메모리 맵 + 스냅샷 + 변경 로그.
+ * 변경은 로그(name.log)에 [본문 길이(4)][crc32(4)][op(1)][id(8)][필드 수(2)][필드...] 로 추가하고
+ * fsync한 뒤 메모리에 반영한다 (필드: [있음(1)][modified UTF-8], 수정은 전체 필드를 다시 기록).
+ * 로그가 COMPACT_ENTRIES건을 넘으면 전체를 스냅샷(name.snap)으로 새로 쓰고(임시 파일 후 이름 변경) 로그를 비운다.
+ * 기동 시 스냅샷을 읽고 로그를 재생하며, 끊긴 마지막 로그 항목은 잘라낸다.
+ * 스냅샷 교체 후 로그를 비우기 전에 중단되어도 로그 항목은 멱등(전체 기록/삭제)이라 다시 재생해도 같다.
+ */
+final class RecordStore {
+    private static final int SNAPSHOT_MAGIC = 0x52535450;
+    private static final int COMPACT_ENTRIES = 1000;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+
+    private final String name;
+    private final File snapshotFile;
+    private final File logFile;
+    private final TreeMap<Long, String[]> records = new TreeMap<>();
+    private long nextId = 1;
+    private int logEntries = 0;
+    private FileOutputStream log;
+
+    RecordStore(File dir, String name) throws IOException {
+        this.name = name;
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory: " + dir.getAbsolutePath());
+        }
+        snapshotFile = new File(dir, name + ".snap");
+        logFile = new File(dir, name + ".log");
+        if (snapshotFile.isFile()) loadSnapshot();
+        if (logFile.isFile()) replayLog();
+        log = new FileOutputStream(logFile, true);
+        AppLogger.info("RecordStore", name + ": " + records.size() + " record(s), " + logEntries + " log entries");
+    }
+
+    synchronized long insert(String[] fields) throws IOException {
+        long id = nextId;
+        put(id, fields);
+        return id;
+    }
+
+    /** 전체 필드 교체. 없는 id면 false */
+    synchronized boolean update(long id, String[] fields) throws IOException {
+        if (!records.containsKey(id)) return false;
+        put(id, fields);
+        return true;
+    }
+
+    synchronized boolean delete(long id) throws IOException {
+        if (!records.containsKey(id)) return false;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeByte(OP_DELETE);
+        data.writeLong(id);
+        appendLog(bytes.toByteArray());
+        records.remove(id);
+        compactIfNeeded();
+        return true;
+    }
+
+    synchronized String[] get(long id) {
+        String[] f = records.get(id);
+        return f != null ? f.clone() : null;
+    }
+
+    /** id 오름차순 전체 사본 (배열은 공유하지 않음) */
+    synchronized List<Map.Entry<Long, String[]>> entries() {
+        List<Map.Entry<Long, String[]>> list = new ArrayList<>(records.size());
+        for (Map.Entry<Long, String[]> e : records.entrySet()) {
+            list.add(Map.entry(e.getKey(), e.getValue().clone()));
+        }
+        return list;
+    }
+
+    synchronized int size() {
+        return records.size();
+    }
+
+    synchronized void close() {
+        try {
+            log.close();
+        } catch (IOException e) {
+            AppLogger.error("RecordStore", name + " close failed: " + e.getMessage());
+        }
+    }
+
+    private void put(long id, String[] fields) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeByte(OP_PUT);
+        data.writeLong(id);
+        writeFields(data, fields);
+        appendLog(bytes.toByteArray());
+        records.put(id, fields.clone());
+        nextId = Math.max(nextId, id + 1);
+        compactIfNeeded();
+    }
+
+    private void appendLog(byte[] body) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        ByteBuffer frame = ByteBuffer.allocate(8 + body.length);
+        frame.putInt(body.length).putInt((int) crc.getValue()).put(body);
+        log.write(frame.array());
+        log.getChannel().force(false);
+        logEntries++;
+    }
+
+    private static void writeFields(DataOutputStream data, String[] fields) throws IOException {
+        data.writeShort(fields.length);
+        for (String f : fields) {
+            data.writeBoolean(f != null);
+            if (f != null) data.writeUTF(f);
+        }
+    }
+
+    private static String[] readFields(DataInputStream data) throws IOException {
+        String[] fields = new String[data.readShort()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = data.readBoolean() ? data.readUTF() : null;
+        }
+        return fields;
+    }
+
+    private void compactIfNeeded() throws IOException {
+        if (logEntries < COMPACT_ENTRIES || logEntries < records.size()) return;
+        writeSnapshot();
+        log.close();
+        log = new FileOutputStream(logFile, false);
+        log.getChannel().force(false);
+        logEntries = 0;
+        AppLogger.info("RecordStore", name + ": compacted " + records.size() + " record(s) into snapshot");
+    }
+
+    /** 스냅샷: [magic(4)][nextId(8)][건수(4)] + ([id(8)][필드...] x 건수) + [crc32(4)] */
+    private void writeSnapshot() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(SNAPSHOT_MAGIC);
+        data.writeLong(nextId);
+        data.writeInt(records.size());
+        for (Map.Entry<Long, String[]> e : records.entrySet()) {
+            data.writeLong(e.getKey());
+            writeFields(data, e.getValue());
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        data.writeInt((int) crc.getValue());
+        data.flush();
+
+        File tmp = new File(snapshotFile.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(bytes.toByteArray());
+            fos.getFD().sync();
+        }
+        Files.move(tmp.toPath(), snapshotFile.toPath(),
+            StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** 스냅샷은 이름 변경으로만 교체되므로 손상되어 있으면 복구하지 않고 기동을 멈춘다 */
+    private void loadSnapshot() throws IOException {
+        byte[] all = Files.readAllBytes(snapshotFile.toPath());
+        if (all.length < 20) throw new IOException(snapshotFile.getName() + " is truncated");
+        CRC32 crc = new CRC32();
+        crc.update(all, 0, all.length - 4);
+        if ((int) crc.getValue() != ByteBuffer.wrap(all).getInt(all.length - 4)) {
+            throw new IOException(snapshotFile.getName() + " checksum mismatch");
+        }
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(all, 0, all.length - 4));
+        if (data.readInt() != SNAPSHOT_MAGIC) throw new IOException("Not a snapshot file: " + snapshotFile.getName());
+        nextId = data.readLong();
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            long id = data.readLong();
+            records.put(id, readFields(data));
+        }
+    }
+
+    private void replayLog() throws IOException {
+        byte[] all = Files.readAllBytes(logFile.toPath());
+        ByteBuffer buf = ByteBuffer.wrap(all);
+        int valid = 0;
+        CRC32 crc = new CRC32();
+        while (buf.remaining() >= 8) {
+            int len = buf.getInt();
+            int stored = buf.getInt();
+            if (len <= 0 || len > buf.remaining()) break;
+            crc.reset();
+            crc.update(all, buf.position(), len);
+            if ((int) crc.getValue() != stored) break;
+            DataInputStream data = new DataInputStream(new ByteArrayInputStream(all, buf.position(), len));
+            byte op = data.readByte();
+            long id = data.readLong();
+            if (op == OP_PUT) {
+                records.put(id, readFields(data));
+                nextId = Math.max(nextId, id + 1);
+            } else if (op == OP_DELETE) {
+                records.remove(id);
+            }
+            buf.position(buf.position() + len);
+            valid = buf.position();
+            logEntries++;
+        }
+        if (valid < all.length) {
+            try (RandomAccessFile raf = new RandomAccessFile(logFile, "rw")) {
+                raf.setLength(valid);
+            }
+            AppLogger.warn("RecordStore", name + ".log: dropped " + (all.length - valid) + " byte(s) of torn tail");
+        }
+    }
+}
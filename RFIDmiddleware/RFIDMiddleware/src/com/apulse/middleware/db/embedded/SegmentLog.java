@@ -0,0 +1,592 @@
+package com.apulse.middleware.db.embedded;
+
+import com.apulse.middleware.util.AppLogger;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 내장 저장소의 append-only 세그먼트 로그 (태그 이력, 반출 알림).
+ * 레코드에는 추가 순서대로 id가 매겨지고 수신 시각으로 기록되므로 id 순서를 시간 순서로 본다.
+ *
+ * 세그먼트 파일(name-NNNNNNNN.seg): [magic(4)][seq(8)] 뒤에 레코드가 이어진다.
+ * 레코드: [payload 길이(4)][crc32(4)][id(8)][시각 ms(8)][키 해시(8)][payload] - crc는 id부터 payload까지.
+ * 레코드 BLOCK_RECORDS건마다 블록 색인(파일 위치, 첫 id, 건수, 최소/최대 시각, 누적 최대 시각, 키 bloom filter)을
+ * 메모리에 두고, 세그먼트가 가득 차 닫히면(sealed) 같은 이름의 .idx 파일로 남긴다.
+ * - 기간 조회: 시각 범위가 겹치지 않는 블록은 읽지 않고, 최신순 조회는 누적 최대 시각이 시작 시각보다
+ *   작아지는 블록에서 멈춘다 (그 이전 블록은 모두 더 과거).
+ * - 키(EPC) 조회: bloom filter에 없는 블록은 읽지 않는다.
+ * 기동 시 마지막(활성) 세그먼트와 색인이 없는 세그먼트는 처음부터 읽어 색인을 만들고, 끊긴 꼬리는 잘라낸다.
+ * 기록은 버퍼에 쌓이고 sync()에서 디스크로 내린다. 조회는 시작 시점까지 기록된 레코드를 본다.
+ */
+final class SegmentLog {
+    static final int BLOCK_RECORDS = 512;
+    private static final int BLOOM_WORDS = 64;
+    private static final int BLOOM_BITS = BLOOM_WORDS * 64;
+    private static final int BLOOM_HASHES = 3;
+    private static final int SEGMENT_MAGIC = 0x52534547;
+    private static final int INDEX_MAGIC = 0x52494458;
+    private static final int SEGMENT_HEADER = 12;
+    private static final int RECORD_HEADER = 32;
+    private static final int MAX_PAYLOAD = 4096;
+
+    /** 레코드 방문자. payload는 레코드 본문만 보이는 버퍼. false를 반환하면 중단 */
+    interface RecordVisitor {
+        boolean visit(long id, long timeMs, ByteBuffer payload);
+    }
+
+    private final File dir;
+    private final String name;
+    private final long segmentBytes;
+
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment active;
+    private FileOutputStream activeFile;
+    private BufferedOutputStream out;
+    private final ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER);
+    private final CRC32 crc = new CRC32();
+
+    private long nextId = 1;
+    private long runningMax = Long.MIN_VALUE;
+    private long recordCount = 0;
+    private long diskBytes = 0;
+    private long truncatedBytes = 0;
+    private long corruptRecords = 0;
+    private boolean closed = false;
+
+    SegmentLog(File dir, String name, long segmentBytes) throws IOException {
+        this.dir = dir;
+        this.name = name;
+        this.segmentBytes = Math.max(1024 * 1024, segmentBytes);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory: " + dir.getAbsolutePath());
+        }
+        File[] files = dir.listFiles((d, n) -> n.startsWith(name + "-") && n.endsWith(".seg"));
+        if (files == null) files = new File[0];
+        Arrays.sort(files, (a, b) -> Long.compare(seqOf(a), seqOf(b)));
+
+        for (int i = 0; i < files.length; i++) {
+            boolean last = i == files.length - 1;
+            if (files[i].length() < SEGMENT_HEADER) {
+                // 헤더도 다 쓰기 전에 중단된 새 세그먼트
+                if (!files[i].delete()) throw new IOException("Cannot remove empty segment: " + files[i].getName());
+                continue;
+            }
+            Segment seg = new Segment(seqOf(files[i]), files[i]);
+            if (last || !loadIndex(seg)) {
+                scan(seg);
+                if (!last) writeIndex(seg);
+            }
+            segments.add(seg);
+            for (Block b : seg.blocks) {
+                recordCount += b.count;
+                runningMax = Math.max(runningMax, b.maxTime);
+                nextId = Math.max(nextId, b.firstId + b.count);
+            }
+            diskBytes += seg.size;
+        }
+        if (segments.isEmpty()) {
+            openNewSegment(1);
+        } else {
+            active = segments.get(segments.size() - 1);
+            activeFile = new FileOutputStream(active.file, true);
+            out = new BufferedOutputStream(activeFile, 64 * 1024);
+        }
+        AppLogger.info("SegmentLog", name + ": " + segments.size() + " segment(s), " + recordCount + " record(s)"
+            + (truncatedBytes > 0 ? ", truncated " + truncatedBytes + " byte(s) of torn tail" : ""));
+    }
+
+    private long seqOf(File f) {
+        String n = f.getName();
+        try {
+            return Long.parseLong(n.substring(name.length() + 1, n.length() - 4));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /** EPC 등 조회 키의 64비트 해시 (FNV-1a, 대소문자 무시) */
+    static long keyHash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= Character.toUpperCase(key.charAt(i));
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** 레코드 추가. 세그먼트가 가득 차면 닫고(.idx 기록) 새 세그먼트로 넘어간다 */
+    synchronized long append(long timeMs, long keyHash, byte[] payload) throws IOException {
+        if (closed) throw new IOException(name + " log is closed");
+        if (payload.length > MAX_PAYLOAD) throw new IOException("Record too large: " + payload.length);
+        int recordBytes = RECORD_HEADER + payload.length;
+        if (active.size + recordBytes > segmentBytes && active.size > SEGMENT_HEADER) {
+            rollSegment();
+        }
+        long id = nextId++;
+        header.clear();
+        header.putInt(payload.length).putInt(0).putLong(id).putLong(timeMs).putLong(keyHash);
+        crc.reset();
+        crc.update(header.array(), 8, RECORD_HEADER - 8);
+        crc.update(payload, 0, payload.length);
+        header.putInt(4, (int) crc.getValue());
+        out.write(header.array(), 0, RECORD_HEADER);
+        out.write(payload);
+
+        addToIndex(active, active.size, recordBytes, id, timeMs, keyHash);
+        recordCount++;
+        diskBytes += recordBytes;
+        return id;
+    }
+
+    private void addToIndex(Segment seg, long offset, int recordBytes, long id, long timeMs, long keyHash) {
+        Block b = seg.blocks.isEmpty() ? null : seg.blocks.get(seg.blocks.size() - 1);
+        if (b == null || b.count >= BLOCK_RECORDS) {
+            b = new Block(offset, id);
+            seg.blocks.add(b);
+        }
+        b.count++;
+        b.end = offset + recordBytes;
+        b.minTime = Math.min(b.minTime, timeMs);
+        b.maxTime = Math.max(b.maxTime, timeMs);
+        runningMax = Math.max(runningMax, timeMs);
+        b.runningMax = runningMax;
+        int h1 = (int) keyHash;
+        int h2 = (int) (keyHash >>> 32);
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            int bit = Math.floorMod(h1 + i * h2, BLOOM_BITS);
+            b.bloom[bit >>> 6] |= 1L << (bit & 63);
+        }
+        seg.size = b.end;
+    }
+
+    private void rollSegment() throws IOException {
+        out.flush();
+        activeFile.getFD().sync();
+        out.close();
+        writeIndex(active);
+        openNewSegment(active.seq + 1);
+    }
+
+    private void openNewSegment(long seq) throws IOException {
+        File file = new File(dir, String.format("%s-%08d.seg", name, seq));
+        activeFile = new FileOutputStream(file);
+        out = new BufferedOutputStream(activeFile, 64 * 1024);
+        ByteBuffer h = ByteBuffer.allocate(SEGMENT_HEADER).putInt(SEGMENT_MAGIC).putLong(seq);
+        out.write(h.array());
+        active = new Segment(seq, file);
+        active.size = SEGMENT_HEADER;
+        segments.add(active);
+        diskBytes += SEGMENT_HEADER;
+    }
+
+    /** 버퍼를 디스크로 내림. fsync는 잠금 밖에서 수행해 그동안의 추가를 막지 않는다 */
+    void sync() throws IOException {
+        FileOutputStream f;
+        synchronized (this) {
+            if (closed) return;
+            out.flush();
+            f = activeFile;
+        }
+        try {
+            f.getChannel().force(false);
+        } catch (ClosedChannelException e) {
+            // 그 사이 세그먼트가 바뀜 - 닫을 때 이미 sync됨
+        }
+    }
+
+    /**
+     * 최신순(id 내림차순)으로 [fromMs, toMs] 레코드 방문. beforeId 이상인 레코드는 건너뛴다(페이지 커서).
+     * hasKey면 키 해시가 같은 레코드만 (bloom filter로 블록을 먼저 거름)
+     * @return 방문자에 넘긴 레코드 수
+     */
+    long scanBackward(long fromMs, long toMs, long beforeId, boolean hasKey, long keyHash,
+                      RecordVisitor visitor) throws IOException {
+        List<SegmentView> views = snapshot();
+        long visited = 0;
+        for (int s = views.size() - 1; s >= 0; s--) {
+            SegmentView view = views.get(s);
+            try (FileChannel ch = openChannel(view.file)) {
+                if (ch == null) continue;
+                for (int i = view.blocks.size() - 1; i >= 0; i--) {
+                    Block b = view.blocks.get(i);
+                    if (b.runningMax < fromMs) return visited;
+                    if (b.firstId >= beforeId || b.minTime > toMs || b.maxTime < fromMs) continue;
+                    if (hasKey && !b.mightContain(keyHash)) continue;
+                    ByteBuffer buf = readBlock(ch, b);
+                    int[] positions = recordPositions(buf, b.count);
+                    for (int r = positions.length - 1; r >= 0; r--) {
+                        int p = positions[r];
+                        long id = buf.getLong(p + 8);
+                        long time = buf.getLong(p + 16);
+                        if (id >= beforeId || time < fromMs || time > toMs) continue;
+                        if (hasKey && buf.getLong(p + 24) != keyHash) continue;
+                        visited++;
+                        if (!visitor.visit(id, time, payloadOf(buf, p))) return visited;
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * 오래된 순(id 오름차순)으로 [fromMs, toMs] 레코드 방문
+     * @return 방문자에 넘긴 레코드 수
+     */
+    long scanForward(long fromMs, long toMs, RecordVisitor visitor) throws IOException {
+        List<SegmentView> views = snapshot();
+        long visited = 0;
+        for (SegmentView view : views) {
+            try (FileChannel ch = openChannel(view.file)) {
+                if (ch == null) continue;
+                for (Block b : view.blocks) {
+                    if (b.minTime > toMs || b.maxTime < fromMs) continue;
+                    ByteBuffer buf = readBlock(ch, b);
+                    for (int p : recordPositions(buf, b.count)) {
+                        long time = buf.getLong(p + 16);
+                        if (time < fromMs || time > toMs) continue;
+                        visited++;
+                        if (!visitor.visit(buf.getLong(p + 8), time, payloadOf(buf, p))) return visited;
+                    }
+                }
+            }
+        }
+        return visited;
+    }
+
+    /** 기간과 겹치는 블록의 레코드 수 합 (블록 경계만큼 많게 나올 수 있는 추정치) */
+    synchronized long estimateCount(long fromMs, long toMs) {
+        long count = 0;
+        for (Segment seg : segments) {
+            for (Block b : seg.blocks) {
+                if (b.minTime <= toMs && b.maxTime >= fromMs) count += b.count;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 마지막 기록 시각이 cutoffMs 이전인 닫힌 세그먼트 삭제 (보존 기간)
+     * @return 삭제한 세그먼트 수
+     */
+    int deleteBefore(long cutoffMs) {
+        List<Segment> expired = new ArrayList<>();
+        synchronized (this) {
+            while (segments.size() > 1) {
+                Segment seg = segments.get(0);
+                if (seg.blocks.isEmpty() || seg.blocks.get(seg.blocks.size() - 1).runningMax >= cutoffMs) break;
+                segments.remove(0);
+                expired.add(seg);
+                for (Block b : seg.blocks) recordCount -= b.count;
+                diskBytes -= seg.size;
+            }
+        }
+        for (Segment seg : expired) {
+            if (!seg.file.delete() || !indexFile(seg).delete()) {
+                AppLogger.warn("SegmentLog", "Could not delete expired segment " + seg.file.getName());
+            }
+        }
+        return expired.size();
+    }
+
+    synchronized long getRecordCount() {
+        return recordCount;
+    }
+
+    synchronized void close() {
+        if (closed) return;
+        closed = true;
+        try {
+            out.flush();
+            activeFile.getFD().sync();
+            out.close();
+        } catch (IOException e) {
+            AppLogger.error("SegmentLog", name + " close failed: " + e.getMessage());
+        }
+    }
+
+    synchronized String toJson() {
+        return "{\"segments\":" + segments.size()
+            + ",\"records\":" + recordCount
+            + ",\"bytes\":" + diskBytes
+            + ",\"nextId\":" + nextId
+            + ",\"corruptRecords\":" + corruptRecords
+            + ",\"truncatedBytes\":" + truncatedBytes
+            + "}";
+    }
+
+    // --- 조회 보조 ---
+
+    /** 조회 시점의 세그먼트/블록 목록 (버퍼를 내려 파일에서 읽을 수 있게 함). 자라는 마지막 블록만 복사 */
+    private synchronized List<SegmentView> snapshot() throws IOException {
+        if (!closed) out.flush();
+        List<SegmentView> views = new ArrayList<>(segments.size());
+        for (Segment seg : segments) {
+            List<Block> blocks = seg.blocks;
+            if (seg == active && !blocks.isEmpty()) {
+                blocks = new ArrayList<>(blocks);
+                blocks.set(blocks.size() - 1, blocks.get(blocks.size() - 1).copy());
+            }
+            views.add(new SegmentView(seg.file, blocks));
+        }
+        return views;
+    }
+
+    /** 보존 기간 정리로 파일이 사라졌으면 null */
+    private static FileChannel openChannel(File file) throws IOException {
+        try {
+            return FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        } catch (java.nio.file.NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer readBlock(FileChannel ch, Block b) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate((int) (b.end - b.offset));
+        while (buf.hasRemaining()) {
+            if (ch.read(buf, b.offset + buf.position()) < 0) throw new EOFException("Segment shorter than index");
+        }
+        buf.flip();
+        return buf;
+    }
+
+    /** 블록 안 레코드 시작 위치 (crc가 맞지 않는 레코드는 제외) */
+    private int[] recordPositions(ByteBuffer buf, int count) {
+        int[] positions = new int[count];
+        int n = 0;
+        int p = 0;
+        CRC32 check = new CRC32();
+        while (n < count && p + RECORD_HEADER <= buf.limit()) {
+            int len = buf.getInt(p);
+            if (len < 0 || p + RECORD_HEADER + len > buf.limit()) break;
+            check.reset();
+            check.update(buf.array(), p + 8, RECORD_HEADER - 8 + len);
+            if ((int) check.getValue() == buf.getInt(p + 4)) {
+                positions[n++] = p;
+            } else {
+                synchronized (this) {
+                    corruptRecords++;
+                }
+            }
+            p += RECORD_HEADER + len;
+        }
+        return n == count ? positions : Arrays.copyOf(positions, n);
+    }
+
+    private static ByteBuffer payloadOf(ByteBuffer buf, int p) {
+        int len = buf.getInt(p);
+        return buf.duplicate().limit(p + RECORD_HEADER + len).position(p + RECORD_HEADER).slice();
+    }
+
+    // --- 기동 시 색인 ---
+
+    /** 세그먼트를 처음부터 읽어 블록 색인 생성. 끊기거나 손상된 꼬리는 잘라낸다 */
+    private void scan(Segment seg) throws IOException {
+        long valid = SEGMENT_HEADER;
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(seg.file), 1024 * 1024))) {
+            if (in.readInt() != SEGMENT_MAGIC) throw new IOException("Not a segment file: " + seg.file.getName());
+            in.readLong();
+            byte[] payload = new byte[MAX_PAYLOAD];
+            CRC32 check = new CRC32();
+            ByteBuffer h = ByteBuffer.allocate(RECORD_HEADER - 8);
+            while (true) {
+                int len;
+                try {
+                    len = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (len < 0 || len > MAX_PAYLOAD) break;
+                int stored;
+                long id;
+                long time;
+                long key;
+                try {
+                    stored = in.readInt();
+                    id = in.readLong();
+                    time = in.readLong();
+                    key = in.readLong();
+                    in.readFully(payload, 0, len);
+                } catch (EOFException e) {
+                    break;
+                }
+                h.clear();
+                h.putLong(id).putLong(time).putLong(key);
+                check.reset();
+                check.update(h.array(), 0, h.capacity());
+                check.update(payload, 0, len);
+                if ((int) check.getValue() != stored) break;
+                addToIndex(seg, valid, RECORD_HEADER + len, id, time, key);
+                valid += RECORD_HEADER + len;
+            }
+        } catch (FileNotFoundException e) {
+            throw new IOException("Cannot open segment: " + seg.file.getName());
+        }
+        long length = seg.file.length();
+        if (length > valid) {
+            try (RandomAccessFile raf = new RandomAccessFile(seg.file, "rw")) {
+                raf.setLength(valid);
+            }
+            truncatedBytes += length - valid;
+            AppLogger.warn("SegmentLog", seg.file.getName() + ": truncated " + (length - valid)
+                + " byte(s) after last valid record");
+        }
+        seg.size = valid;
+    }
+
+    private static File indexFile(Segment seg) {
+        String n = seg.file.getName();
+        return new File(seg.file.getParentFile(), n.substring(0, n.length() - 4) + ".idx");
+    }
+
+    /** 닫힌 세그먼트의 블록 색인 기록 (임시 파일에 쓰고 이름 변경) */
+    private void writeIndex(Segment seg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(INDEX_MAGIC);
+        data.writeLong(seg.size);
+        data.writeInt(seg.blocks.size());
+        for (Block b : seg.blocks) {
+            data.writeLong(b.offset);
+            data.writeLong(b.end);
+            data.writeLong(b.firstId);
+            data.writeInt(b.count);
+            data.writeLong(b.minTime);
+            data.writeLong(b.maxTime);
+            data.writeLong(b.runningMax);
+            for (long w : b.bloom) data.writeLong(w);
+        }
+        CRC32 check = new CRC32();
+        check.update(bytes.toByteArray());
+        data.writeInt((int) check.getValue());
+        data.flush();
+
+        File target = indexFile(seg);
+        File tmp = new File(target.getPath() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(tmp)) {
+            fos.write(bytes.toByteArray());
+            fos.getFD().sync();
+        }
+        Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** .idx가 있고 세그먼트 크기와 맞으면 색인 로드 (아니면 false - 다시 읽어 생성) */
+    private boolean loadIndex(Segment seg) {
+        File file = indexFile(seg);
+        if (!file.isFile()) return false;
+        try {
+            byte[] all = Files.readAllBytes(file.toPath());
+            if (all.length < 20) return false;
+            CRC32 check = new CRC32();
+            check.update(all, 0, all.length - 4);
+            ByteBuffer buf = ByteBuffer.wrap(all);
+            if ((int) check.getValue() != buf.getInt(all.length - 4)) return false;
+            if (buf.getInt() != INDEX_MAGIC) return false;
+            long size = buf.getLong();
+            if (size != seg.file.length()) return false;
+            int blocks = buf.getInt();
+            List<Block> loaded = new ArrayList<>(blocks);
+            for (int i = 0; i < blocks; i++) {
+                Block b = new Block(buf.getLong(), 0);
+                b.end = buf.getLong();
+                b.firstId = buf.getLong();
+                b.count = buf.getInt();
+                b.minTime = buf.getLong();
+                b.maxTime = buf.getLong();
+                b.runningMax = buf.getLong();
+                for (int w = 0; w < BLOOM_WORDS; w++) b.bloom[w] = buf.getLong();
+                loaded.add(b);
+            }
+            seg.blocks.addAll(loaded);
+            seg.size = size;
+            return true;
+        } catch (IOException | RuntimeException e) {
+            AppLogger.warn("SegmentLog", "Index " + file.getName() + " unreadable, rebuilding: " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static final class Segment {
+        final long seq;
+        final File file;
+        final List<Block> blocks = new ArrayList<>();
+        long size;
+
+        Segment(long seq, File file) {
+            this.seq = seq;
+            this.file = file;
+        }
+    }
+
+    /** 조회용 세그먼트 사본 */
+    private static final class SegmentView {
+        final File file;
+        final List<Block> blocks;
+
+        SegmentView(File file, List<Block> blocks) {
+            this.file = file;
+            this.blocks = blocks;
+        }
+    }
+
+    /** 레코드 BLOCK_RECORDS건 단위 색인 */
+    private static final class Block {
+        final long offset;
+        long end;
+        long firstId;
+        int count;
+        long minTime = Long.MAX_VALUE;
+        long maxTime = Long.MIN_VALUE;
+        /** 이 블록까지(로그 처음부터)의 최대 시각 */
+        long runningMax = Long.MIN_VALUE;
+        final long[] bloom = new long[BLOOM_WORDS];
+
+        Block(long offset, long firstId) {
+            this.offset = offset;
+            this.firstId = firstId;
+        }
+
+        boolean mightContain(long keyHash) {
+            int h1 = (int) keyHash;
+            int h2 = (int) (keyHash >>> 32);
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = Math.floorMod(h1 + i * h2, BLOOM_BITS);
+                if ((bloom[bit >>> 6] & (1L << (bit & 63))) == 0) return false;
+            }
+            return true;
+        }
+
+        Block copy() {
+            Block c = new Block(offset, firstId);
+            c.end = end;
+            c.count = count;
+            c.minTime = minTime;
+            c.maxTime = maxTime;
+            c.runningMax = runningMax;
+            System.arraycopy(bloom, 0, c.bloom, 0, BLOOM_WORDS);
+            return c;
+        }
+    }
+}
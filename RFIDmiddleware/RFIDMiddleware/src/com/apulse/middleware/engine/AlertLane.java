@@ -0,0 +1,142 @@
+package com.apulse.middleware.engine;
+
+import com.apulse.middleware.reader.ReaderConnection;
+import com.apulse.middleware.reader.WarningLightController;
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 반출 알림 fast lane.
+ * 미허가 반출 판정 직후 리더기 SDK 콜백 스레드에서 바로 릴레이(경광등/부저) 명령을 최고 우선순위
+ * 리더기별 전용 스레드로 넘기고, DB 기록/로그/화면 통지는 별도 후속 스레드에서 비동기로 처리한다.
+ * 릴레이 명령은 리더기 연결에서 동기로 블로킹되므로, 응답이 늦거나 끊긴 리더기가 다른 게이트의
+ * 알림을 붙잡지 않도록 리더기마다 직렬 실행기를 따로 둔다 (같은 리더기 명령 순서는 유지).
+ * 보고 수신 → 릴레이 명령 완료까지의 지연은 히스토그램으로 측정해 /api/metrics로 노출한다.
+ */
+public class AlertLane {
+    /** 게이트 요구사항: 감지 후 100ms 이내 경광등 점등 */
+    public static final long TARGET_LATENCY_MS = 100;
+
+    /** 한동안 알림이 없는 리더기의 릴레이 스레드는 정리 (다음 알림 때 다시 생성) */
+    private static final long RELAY_IDLE_SECONDS = 60;
+
+    /** 리더기 이름 → 그 리더기 전용 릴레이 실행기 (스레드 1개) */
+    private final Map<String, ThreadPoolExecutor> relayExecutors = new ConcurrentHashMap<>();
+    private final ExecutorService followUpExecutor;
+    private final LatencyHistogram relayLatency = new LatencyHistogram();
+    private volatile boolean shutdown = false;
+
+    public AlertLane() {
+        followUpExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "Alert-FollowUp");
+                t.setDaemon(true);
+                return t;
+            });
+    }
+
+    /**
+     * 릴레이 명령 발행 (SDK 콜백 스레드에서 호출, 즉시 반환).
+     * @param receivedNanos 태그 보고 수신 시각 (System.nanoTime)
+     */
+    public void fireRelay(ReaderConnection connection, long receivedNanos) {
+        boolean light = connection.getConfig().isWarningLightEnabled();
+        boolean buzzer = connection.getConfig().isBuzzerEnabled();
+        if (!light && !buzzer) return;
+
+        if (shutdown) return;
+        try {
+            relayExecutor(connection.getConfig().getName()).execute(() -> relay(connection, light, buzzer, receivedNanos));
+        } catch (RejectedExecutionException e) {
+            // 종료 중 도착한 보고: SDK 콜백 스레드로 예외를 던지지 않고 버림
+            AppLogger.warn("AlertLane", "Relay dropped (shutting down): " + connection.getConfig().getName());
+        }
+    }
+
+    /** 릴레이 명령 실행 (리더기 전용 스레드) */
+    private void relay(ReaderConnection connection, boolean light, boolean buzzer, long receivedNanos) {
+        try {
+            // 경광등을 먼저 켜고 지연을 기록 (부저는 뒤따라도 무방)
+            if (light) {
+                WarningLightController.getInstance().triggerWarningLight(connection);
+                recordLatency(connection, receivedNanos);
+            }
+            if (buzzer) {
+                WarningLightController.getInstance().triggerBuzzer(connection);
+                if (!light) recordLatency(connection, receivedNanos);
+            }
+        } catch (Exception e) {
+            AppLogger.error("AlertLane", "Relay command failed: " + e.getMessage());
+        }
+    }
+
+    private ThreadPoolExecutor relayExecutor(String readerName) {
+        return relayExecutors.computeIfAbsent(readerName, name -> {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, RELAY_IDLE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "Alert-Relay-" + name);
+                    t.setDaemon(true);
+                    t.setPriority(Thread.MAX_PRIORITY);
+                    return t;
+                });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        });
+    }
+
+    private void recordLatency(ReaderConnection connection, long receivedNanos) {
+        long elapsed = System.nanoTime() - receivedNanos;
+        relayLatency.recordNanos(elapsed);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(elapsed);
+        if (elapsedMs > TARGET_LATENCY_MS) {
+            AppLogger.warn("AlertLane", "Relay latency " + elapsedMs + "ms exceeds target "
+                + TARGET_LATENCY_MS + "ms (" + connection.getConfig().getName() + ")");
+        }
+    }
+
+    /** 알림 후속 처리 (DB 기록, 로그, 리스너 통지) */
+    public void submitFollowUp(Runnable task) {
+        if (shutdown) return;
+        try {
+            followUpExecutor.execute(() -> {
+                try {
+                    task.run();
+                } catch (Exception e) {
+                    AppLogger.error("AlertLane", "Alert follow-up failed: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            AppLogger.warn("AlertLane", "Alert follow-up dropped (shutting down)");
+        }
+    }
+
+    public LatencyHistogram getRelayLatency() {
+        return relayLatency;
+    }
+
+    /** 모든 리더기의 대기 중인 릴레이 명령 수 */
+    public int getPendingRelays() {
+        int pending = 0;
+        for (ThreadPoolExecutor executor : relayExecutors.values()) pending += executor.getQueue().size();
+        return pending;
+    }
+
+    public void shutdown() {
+        shutdown = true;
+        for (ThreadPoolExecutor executor : relayExecutors.values()) executor.shutdown();
+        followUpExecutor.shutdown();
+        try {
+            followUpExecutor.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
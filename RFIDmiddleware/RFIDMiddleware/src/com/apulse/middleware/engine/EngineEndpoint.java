@@ -0,0 +1,27 @@
+package com.apulse.middleware.engine;
+
+import com.apulse.middleware.config.ReaderConfig;
+import com.apulse.middleware.reader.ReaderControl;
+
+import java.util.List;
+
+/**
+ * GUI가 붙는 엔진 접점.
+ * 같은 프로세스의 MiddlewareEngine 또는 원격 미들웨어에 붙는 RemoteEngineClient가 구현한다.
+ */
+public interface EngineEndpoint extends ReaderControl {
+    void addListener(EngineListener listener);
+
+    void removeListener(EngineListener listener);
+
+    /** 현재 리더기 설정 목록 (원격이면 마지막으로 수신한 스냅샷) */
+    List<ReaderConfig> getReaderConfigs();
+
+    /** true면 DB/설정 파일이 원격 서버에 있어 로컬 전용 기능은 사용할 수 없음 */
+    boolean isRemote();
+
+    /** 화면 태그 초기화 시 엔진 측 정리 (로컬: DB 중복제거 캐시 초기화) */
+    void clearTags();
+
+    void shutdown();
+}
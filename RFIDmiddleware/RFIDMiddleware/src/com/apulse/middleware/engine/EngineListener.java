@@ -0,0 +1,29 @@
+package com.apulse.middleware.engine;
+
+import com.apulse.middleware.config.ReaderConfig;
+import com.apulse.middleware.reader.ReaderStatus;
+
+import java.util.List;
+
+/**
+ * 엔진 이벤트 수신자 (GUI, SSE 이벤트 스트림, 원격 클라이언트).
+ * 호출 스레드는 리더기 SDK 콜백/엔진 내부 스레드이므로 Swing 갱신은 수신 측에서 EDT로 넘겨야 한다.
+ */
+public interface EngineListener {
+    /** 리더기 목록이 (재)구성됨 - 인덱스 기반 이벤트는 이 목록 기준 */
+    void onReadersReloaded(List<ReaderConfig> configs);
+
+    void onReaderStatus(int index, ReaderStatus status, boolean beepEnabled);
+
+    void onLightChanged(int index, boolean lightOn);
+
+    void onBuzzerChanged(int index, boolean buzzerOn);
+
+    /** 운영 로그 (source: 리더기명, 없으면 null) */
+    void onLog(String source, String message);
+
+    void onTag(TagEvent event);
+
+    /** 미허가 반출 알림 (경광등/부저 트리거 후) */
+    void onAlert(TagEvent event);
+}
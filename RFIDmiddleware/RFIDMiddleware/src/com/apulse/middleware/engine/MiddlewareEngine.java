@@ -0,0 +1,342 @@
+package com.apulse.middleware.engine;
+
+import com.apulse.middleware.api.ApiServer;
+import com.apulse.middleware.config.DatabaseConfig;
+import com.apulse.middleware.config.ReaderConfig;
+import com.apulse.middleware.db.AssetRepository;
+import com.apulse.middleware.db.DatabaseManager;
+import com.apulse.middleware.db.LastSeenRepository;
+import com.apulse.middleware.db.StorageManager;
+import com.apulse.middleware.db.TagRepository;
+import com.apulse.middleware.reader.ReaderConnection;
+import com.apulse.middleware.reader.ReaderManager;
+import com.apulse.middleware.reader.ReaderStatus;
+import com.apulse.middleware.reader.WarningLightController;
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.HexUtils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 미들웨어 엔진 (GUI와 분리된 처리 본체).
+ * DB/캐시 초기화, 리더기 연결 관리, 태그 파이프라인(마스크 필터 → 자산 매칭 → 저장 정책 판정 → DB 저장 → 반출 알림),
+ * REST API 서버를 소유한다. GUI 없이(--headless) 단독 실행할 수 있고,
+ * 같은 프로세스의 MainFrame 또는 원격 콘솔은 EngineListener로 이벤트를 받는다.
+ */
+public class MiddlewareEngine implements EngineEndpoint {
+    public static final String CONFIG_FILE = "config" + File.separator + "readers.cfg";
+    public static final String STATUS_PERMITTED = "반출허용";
+    public static final String STATUS_ALERT = "반출알림";
+
+    private final ReaderManager readerManager = new ReaderManager();
+    private final AlertLane alertLane = new AlertLane();
+    private final List<EngineListener> listeners = new CopyOnWriteArrayList<>();
+
+    /** 신규 태그 판정 (TTL 내 동일 EPC 재감지는 화면/이벤트에서 신규로 표시하지 않음) */
+    private Cache<String, Boolean> dbDedupCache;
+    /** 리더기/구역별 tag_reads 저장 정책 */
+    private volatile StoragePolicyEngine storagePolicy;
+    /** MariaDB 백엔드 사용 중 (분 단위 통계, 마지막 감지 위치 기록) */
+    private volatile boolean sqlAnalytics = false;
+    private volatile List<ReaderConfig> configs = new ArrayList<>();
+    private ApiServer apiServer;
+
+    /** DB/저장소/리더기/API 서버 시작. 초기 이벤트를 받으려면 리스너를 먼저 등록할 것 */
+    public void start() {
+        DatabaseConfig dbConfig = new DatabaseConfig();
+        // DB 서킷 상태 전환을 화면 로그와 /api/events(log)로 알림
+        DatabaseManager.getInstance().addStateListener((from, to, reason) ->
+            log(null, "DB circuit " + from + " -> " + to + (reason != null ? " (" + reason + ")" : "")));
+        StorageManager.getInstance().start(dbConfig);
+        // 분 단위 통계/마지막 감지 위치는 MariaDB 전용
+        sqlAnalytics = !StorageManager.getInstance().isEmbedded();
+        if (sqlAnalytics) {
+            RollupAggregator.getInstance().start(dbConfig.getRollupMinuteRetentionDays());
+            LastSeenRepository.getInstance().start(dbConfig.getLastSeenFlushMs());
+        }
+        AssetRepository.getInstance().start(dbConfig.getAssetSyncSeconds(), dbConfig.getAssetFullSyncMinutes(),
+            dbConfig.getAssetSnapshotDir(), dbConfig.getAssetSnapshotPersistSeconds(), dbConfig.isAssetIndexOffHeap());
+
+        dbDedupCache = Caffeine.newBuilder()
+            .expireAfterWrite(dbConfig.getCacheTtlSeconds(), TimeUnit.SECONDS)
+            .maximumSize(dbConfig.getCacheMaxSize())
+            .build();
+        storagePolicy = new StoragePolicyEngine(dbConfig.getPersistPolicies(),
+            dbConfig.getCacheTtlSeconds(), dbConfig.getCacheMaxSize());
+
+        configs = ReaderConfig.loadFromFile(CONFIG_FILE);
+        log(null, "Config loaded: " + configs.size() + " reader(s)");
+        initializeReaders();
+
+        // REST API server
+        try {
+            apiServer = new ApiServer(this);
+            apiServer.start();
+        } catch (Exception e) {
+            AppLogger.error("MiddlewareEngine", "API Server start failed: " + e.getMessage());
+        }
+    }
+
+    public ReaderManager getReaderManager() {
+        return readerManager;
+    }
+
+    public AlertLane getAlertLane() {
+        return alertLane;
+    }
+
+    public StoragePolicyEngine getStoragePolicy() {
+        return storagePolicy;
+    }
+
+    public String getConfigFile() {
+        return CONFIG_FILE;
+    }
+
+    @Override
+    public List<ReaderConfig> getReaderConfigs() {
+        return configs;
+    }
+
+    @Override
+    public boolean isRemote() {
+        return false;
+    }
+
+    @Override
+    public void addListener(EngineListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(EngineListener listener) {
+        listeners.remove(listener);
+    }
+
+    /** 설정 대화상자 등에서 변경된 리더기 목록 적용 (저장 후 연결 재구성) */
+    public void applyConfigs(List<ReaderConfig> newConfigs) {
+        configs = newConfigs;
+        saveConfig();
+        log(null, "Config saved: " + configs.size() + " reader(s)");
+        initializeReaders();
+    }
+
+    private void initializeReaders() {
+        ReaderConnection.ReaderConnectionListener statusListener = new ReaderConnection.ReaderConnectionListener() {
+            @Override
+            public void onStatusChanged(ReaderConnection connection, ReaderStatus oldStatus, ReaderStatus newStatus) {
+                int index = findConnectionIndex(connection);
+                if (index >= 0) {
+                    boolean beep = connection.getConfig().isBeepEnabled();
+                    for (EngineListener l : listeners) l.onReaderStatus(index, newStatus, beep);
+                }
+                if (newStatus == ReaderStatus.CONNECTED) {
+                    saveConfig();
+                }
+            }
+
+            @Override
+            public void onLightChanged(ReaderConnection connection, boolean lightOn) {
+                int index = findConnectionIndex(connection);
+                if (index >= 0) {
+                    for (EngineListener l : listeners) l.onLightChanged(index, lightOn);
+                }
+            }
+
+            @Override
+            public void onBuzzerChanged(ReaderConnection connection, boolean buzzerOn) {
+                int index = findConnectionIndex(connection);
+                if (index >= 0) {
+                    for (EngineListener l : listeners) l.onBuzzerChanged(index, buzzerOn);
+                }
+            }
+
+            @Override
+            public void onLog(ReaderConnection connection, String message) {
+                // ReaderConnection이 이미 AppLogger에 기록하므로 전달만
+                for (EngineListener l : listeners) l.onLog(connection.getConfig().getName(), message);
+            }
+        };
+
+        readerManager.initialize(configs, statusListener, this::onTagRead);
+        WarningLightController.getInstance().setAutoOffDelayMs(ReaderConfig.getWarningDuration() * 1000);
+
+        List<ReaderConfig> snapshot = configs;
+        for (EngineListener l : listeners) l.onReadersReloaded(snapshot);
+    }
+
+    /**
+     * 태그 파이프라인 (리더기 SDK 콜백 스레드에서 호출).
+     * 반출 판정과 릴레이 발행을 가장 먼저 수행하고, DB 저장/로그/화면 통지는 그 뒤에 처리한다.
+     */
+    private void onTagRead(ReaderConnection connection, String epc, int rssi, int antenna) {
+        long receivedNanos = System.nanoTime();
+        long receivedMillis = System.currentTimeMillis();
+        String readerName = connection.getConfig().getName();
+        String mask = ReaderConfig.getEpcMask();
+        if (!mask.isEmpty() && !epc.regionMatches(true, 0, mask, 0, mask.length())) {
+            log(readerName, "MASK filtered: EPC=" + epc + " (mask=" + mask + ")");
+            return;
+        }
+
+        // Alert fast lane: 판정 즉시 릴레이 명령 발행
+        // 자산 정보와 허용 여부는 한 번의 스냅샷 조회로 함께 판정
+        AssetRepository.ExportCheck check = AssetRepository.getInstance().checkExport(epc, receivedMillis);
+        AssetRepository.AssetInfo assetInfo = check != null ? check.getAsset() : null;
+        AssetRepository.AssetInfo unauthorizedAsset = (check != null && check.isUnauthorized()) ? assetInfo : null;
+        boolean alert = unauthorizedAsset != null && AssetRepository.getInstance().shouldAlert(epc);
+        if (alert) {
+            alertLane.fireRelay(connection, receivedNanos);
+        }
+
+        String assetStatus = null;
+        if (assetInfo != null) {
+            assetStatus = (unauthorizedAsset != null) ? STATUS_ALERT : STATUS_PERMITTED;
+        }
+        String assetNumber = assetInfo != null ? assetInfo.getAssetNumber() : null;
+        String assetName = assetInfo != null ? assetInfo.getAssetName() : null;
+        String department = assetInfo != null ? assetInfo.getDepartment() : null;
+
+        // 분 단위 통계는 중복제거와 무관하게 모든 읽기를 집계
+        if (sqlAnalytics) {
+            RollupAggregator.getInstance().record(readerName, antenna, epc, rssi, assetInfo != null, alert);
+            LastSeenRepository.getInstance().record(epc, readerName, antenna, rssi);
+        }
+
+        // putIfAbsent로 동시 콜백에서도 TTL당 한 번만 신규 처리
+        boolean isNew = (dbDedupCache.asMap().putIfAbsent(epc, Boolean.TRUE) == null);
+        // tag_reads 기록 여부는 리더기/구역 정책이 신규 판정과 별도로 결정
+        boolean persist = storagePolicy.shouldPersist(readerName, epc, assetInfo != null);
+        // DB에는 밀리초까지 기록 (DATETIME(3)), 화면/이벤트는 초 단위
+        String readTimeMs = HexUtils.now();
+        String readTime = readTimeMs.substring(0, 19);
+        TagEvent event = new TagEvent(readTime, readerName, epc, rssi, antenna,
+            assetNumber, assetName, department, assetStatus, isNew);
+
+        if (alert) {
+            boolean light = connection.getConfig().isWarningLightEnabled();
+            boolean buzzer = connection.getConfig().isBuzzerEnabled();
+            alertLane.submitFollowUp(() -> {
+                if (light) {
+                    log(readerName, "WARNING LIGHT ON: EPC=" + epc
+                        + ", 자산번호=" + unauthorizedAsset.getAssetNumber());
+                }
+                if (buzzer) {
+                    log(readerName, "BUZZER ON: EPC=" + epc
+                        + ", 자산번호=" + unauthorizedAsset.getAssetNumber());
+                }
+
+                AssetRepository.getInstance().insertAlert(
+                    epc, unauthorizedAsset.getAssetNumber(), readerName, rssi, readTime);
+
+                String message = "UNAUTHORIZED EXPORT: EPC=" + epc
+                    + ", Asset=" + unauthorizedAsset.getAssetNumber()
+                    + " (" + (unauthorizedAsset.getAssetName() != null ? unauthorizedAsset.getAssetName() : "") + ")";
+                AppLogger.warn(readerName, message);
+                log(readerName, message);
+                for (EngineListener l : listeners) l.onAlert(event);
+            });
+        }
+
+        if (persist) {
+            TagRepository.getInstance().insertTagRead(epc, readerName, rssi, antenna, readTimeMs);
+        }
+        if (isNew) {
+            TagRepository.getInstance().addRecentTag(
+                readTime, readerName, epc, rssi, antenna,
+                assetNumber, assetName, department, assetStatus);
+
+            if (assetNumber != null) {
+                log(readerName,
+                    "ASSET READ: EPC=" + epc
+                    + ", 자산번호=" + assetNumber
+                    + ", 자산명=" + (assetName != null ? assetName : "")
+                    + ", 부서=" + (department != null ? department : ""));
+            } else {
+                log(readerName, "TAG READ: EPC=" + epc + ", RSSI=" + rssi + ", ANT=" + antenna);
+            }
+        }
+
+        for (EngineListener l : listeners) l.onTag(event);
+    }
+
+    private void log(String source, String message) {
+        AppLogger.debug(source != null ? source : "MiddlewareEngine", message);
+        for (EngineListener l : listeners) l.onLog(source, message);
+    }
+
+    private int findConnectionIndex(ReaderConnection connection) {
+        List<ReaderConnection> connections = readerManager.getConnections();
+        for (int i = 0; i < connections.size(); i++) {
+            if (connections.get(i) == connection) return i;
+        }
+        return -1;
+    }
+
+    private void saveConfig() {
+        ReaderConfig.saveToFile(CONFIG_FILE, configs);
+    }
+
+    public Set<String> getTagDedupKeys() {
+        return dbDedupCache != null ? new HashSet<>(dbDedupCache.asMap().keySet()) : new HashSet<>();
+    }
+
+    public long getTagDedupSize() {
+        return dbDedupCache != null ? dbDedupCache.estimatedSize() : 0;
+    }
+
+    @Override
+    public void clearTags() {
+        if (dbDedupCache != null) dbDedupCache.invalidateAll();
+        if (storagePolicy != null) storagePolicy.clear();
+    }
+
+    // --- ReaderControl (로컬 ReaderManager에 위임) ---
+
+    @Override public void connectAll() { readerManager.connectAll(); }
+    @Override public void disconnectAll() { readerManager.disconnectAll(); }
+    @Override public void startInventoryAll() { readerManager.startInventoryAll(); }
+    @Override public void stopInventoryAll() { readerManager.stopInventoryAll(); }
+    @Override public void connect(int index) { readerManager.connect(index); }
+    @Override public void disconnect(int index) { readerManager.disconnect(index); }
+    @Override public void startInventory(int index) { readerManager.startInventory(index); }
+    @Override public void stopInventory(int index) { readerManager.stopInventory(index); }
+    @Override public void lightOn(int index) { readerManager.lightOn(index); }
+    @Override public void lightOff(int index) { readerManager.lightOff(index); }
+    @Override public void buzzerOn(int index) { readerManager.buzzerOn(index); }
+    @Override public void buzzerOff(int index) { readerManager.buzzerOff(index); }
+
+    @Override
+    public void setAntennaConfig(int index, int[] powers) {
+        readerManager.setAntennaConfig(index, powers);
+        saveConfig();
+    }
+
+    @Override
+    public void setDwellTime(int index, short onTime, short offTime) {
+        readerManager.setDwellTime(index, onTime, offTime);
+        saveConfig();
+    }
+
+    @Override
+    public void shutdown() {
+        log(null, "Shutting down...");
+        if (apiServer != null) apiServer.shutdown();
+        readerManager.shutdown();
+        alertLane.shutdown();
+        WarningLightController.getInstance().shutdown();
+        AssetRepository.getInstance().shutdown();
+        RollupAggregator.getInstance().shutdown();
+        LastSeenRepository.getInstance().shutdown();
+        StorageManager.getInstance().shutdown();
+    }
+}
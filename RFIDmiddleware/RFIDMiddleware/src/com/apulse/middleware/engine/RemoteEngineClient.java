@@ -0,0 +1,289 @@
+package com.apulse.middleware.engine;
+
+import com.apulse.middleware.config.ReaderConfig;
+import com.apulse.middleware.reader.ReaderStatus;
+import com.apulse.middleware.util.AppLogger;
+import com.apulse.middleware.util.JsonUtils;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+/**
+ * 원격 미들웨어 엔진 클라이언트 (--remote 모드의 MainFrame용 thin client).
+ * 리더기 상태/태그/알림/로그는 GET /api/events(SSE)로 받아 EngineListener로 전달하고,
+ * 제어 명령은 POST /api/control/... REST 호출로 보낸다. 연결이 끊기면 자동 재접속하며
+ * 재접속 시 서버가 보내는 리더기 스냅샷으로 화면 상태를 다시 맞춘다.
+ */
+public class RemoteEngineClient implements EngineEndpoint {
+    private static final long RECONNECT_DELAY_MS = 3000;
+
+    private final String baseUrl;
+    private final HttpClient http;
+    private final List<EngineListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile List<ReaderConfig> configs = new ArrayList<>();
+    private volatile boolean running = false;
+    private Thread eventThread;
+
+    // 스냅샷 수신 중인 리더기 목록 (readers → reader × count)
+    private ReaderConfig[] pendingConfigs;
+    private ReaderStatus[] pendingStatuses;
+    private int pendingRemaining;
+
+    /** @param baseUrl 예: http://192.168.0.10:18080 */
+    public RemoteEngineClient(String baseUrl) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.http = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /** 이벤트 스트림 수신 시작 */
+    public void start() {
+        if (running) return;
+        running = true;
+        eventThread = new Thread(this::eventLoop, "RemoteEngine-Events");
+        eventThread.setDaemon(true);
+        eventThread.start();
+    }
+
+    private void eventLoop() {
+        while (running) {
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/events"))
+                    .header("Accept", "text/event-stream")
+                    .GET()
+                    .build();
+                HttpResponse<Stream<String>> response = http.send(request, HttpResponse.BodyHandlers.ofLines());
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("HTTP " + response.statusCode());
+                }
+                fireLog("Connected to " + baseUrl);
+
+                String eventName = null;
+                StringBuilder data = new StringBuilder();
+                Iterator<String> lines = response.body().iterator();
+                while (running && lines.hasNext()) {
+                    String line = lines.next();
+                    if (line.isEmpty()) {
+                        if (eventName != null) dispatch(eventName, data.toString());
+                        eventName = null;
+                        data.setLength(0);
+                    } else if (line.startsWith("event:")) {
+                        eventName = line.substring(6).trim();
+                    } else if (line.startsWith("data:")) {
+                        if (data.length() > 0) data.append('\n');
+                        data.append(line.substring(5).trim());
+                    }
+                    // ':' 로 시작하는 heartbeat 주석은 무시
+                }
+                if (running) fireLog("Event stream closed by server");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                AppLogger.warn("RemoteEngineClient", "Event stream error: " + e.getMessage());
+                fireLog("Connection failed (" + e.getMessage() + "), retrying...");
+            }
+
+            try {
+                Thread.sleep(RECONNECT_DELAY_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void dispatch(String eventName, String json) {
+        Map<String, String> f = JsonUtils.parseFields(json);
+        try {
+            switch (eventName) {
+                case "readers":
+                    int count = Integer.parseInt(f.get("count"));
+                    pendingConfigs = new ReaderConfig[count];
+                    pendingStatuses = new ReaderStatus[count];
+                    pendingRemaining = count;
+                    if (count == 0) completeSnapshot();
+                    break;
+                case "reader":
+                    onReaderSnapshot(f);
+                    break;
+                case "status":
+                    for (EngineListener l : listeners) {
+                        l.onReaderStatus(Integer.parseInt(f.get("index")),
+                            ReaderStatus.valueOf(f.get("status")), Boolean.parseBoolean(f.get("beepEnabled")));
+                    }
+                    break;
+                case "light":
+                    for (EngineListener l : listeners) {
+                        l.onLightChanged(Integer.parseInt(f.get("index")), Boolean.parseBoolean(f.get("on")));
+                    }
+                    break;
+                case "buzzer":
+                    for (EngineListener l : listeners) {
+                        l.onBuzzerChanged(Integer.parseInt(f.get("index")), Boolean.parseBoolean(f.get("on")));
+                    }
+                    break;
+                case "log":
+                    for (EngineListener l : listeners) l.onLog(f.get("source"), f.get("message"));
+                    break;
+                case "tag": {
+                    TagEvent event = toTagEvent(f);
+                    for (EngineListener l : listeners) l.onTag(event);
+                    break;
+                }
+                case "alert": {
+                    TagEvent event = toTagEvent(f);
+                    for (EngineListener l : listeners) l.onAlert(event);
+                    break;
+                }
+                default:
+                    // 알 수 없는 이벤트는 무시 (서버가 더 최신 버전인 경우)
+            }
+        } catch (Exception e) {
+            AppLogger.warn("RemoteEngineClient", "Bad event '" + eventName + "': " + e.getMessage());
+        }
+    }
+
+    private void onReaderSnapshot(Map<String, String> f) {
+        int index = Integer.parseInt(f.get("index"));
+        if (pendingConfigs == null || index < 0 || index >= pendingConfigs.length) return;
+
+        ReaderConfig cfg = new ReaderConfig(f.get("name"), f.get("ip"), Integer.parseInt(f.get("port")));
+        cfg.setBuzzerEnabled(Boolean.parseBoolean(f.get("buzzer")));
+        cfg.setWarningLightEnabled(Boolean.parseBoolean(f.get("warningLight")));
+        cfg.setBeepEnabled(Boolean.parseBoolean(f.get("beepEnabled")));
+        cfg.setDwellTime(Integer.parseInt(f.get("dwellTime")));
+        cfg.setAntennaPowers(new int[] {
+            Integer.parseInt(f.get("antennaPower1")), Integer.parseInt(f.get("antennaPower2")),
+            Integer.parseInt(f.get("antennaPower3")), Integer.parseInt(f.get("antennaPower4"))
+        });
+        if (pendingConfigs[index] == null) pendingRemaining--;
+        pendingConfigs[index] = cfg;
+        pendingStatuses[index] = ReaderStatus.valueOf(f.get("status"));
+        if (pendingRemaining == 0) completeSnapshot();
+    }
+
+    private void completeSnapshot() {
+        List<ReaderConfig> snapshot = new ArrayList<>(Arrays.asList(pendingConfigs));
+        ReaderStatus[] statuses = pendingStatuses;
+        configs = snapshot;
+        pendingConfigs = null;
+        pendingStatuses = null;
+        for (EngineListener l : listeners) {
+            l.onReadersReloaded(snapshot);
+            for (int i = 0; i < statuses.length; i++) {
+                l.onReaderStatus(i, statuses[i], snapshot.get(i).isBeepEnabled());
+            }
+        }
+    }
+
+    private static TagEvent toTagEvent(Map<String, String> f) {
+        return new TagEvent(f.get("time"), f.get("readerName"), f.get("epc"),
+            Integer.parseInt(f.get("rssi")), Integer.parseInt(f.get("antenna")),
+            f.get("assetNumber"), f.get("assetName"), f.get("department"),
+            f.get("status"), Boolean.parseBoolean(f.get("isNew")));
+    }
+
+    private void fireLog(String message) {
+        for (EngineListener l : listeners) l.onLog("Remote", message);
+    }
+
+    /** 제어 명령 비동기 전송 (EDT에서 호출해도 블로킹 없음) */
+    private void post(String path, String body) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+            .timeout(Duration.ofSeconds(10))
+            .header("Content-Type", "application/json")
+            .POST(body != null ? HttpRequest.BodyPublishers.ofString(body) : HttpRequest.BodyPublishers.noBody())
+            .build();
+        http.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+            .whenComplete((response, error) -> {
+                if (error != null) {
+                    fireLog("Command failed: " + path + " (" + error.getMessage() + ")");
+                } else if (response.statusCode() != 200) {
+                    fireLog("Command failed: " + path + " (HTTP " + response.statusCode() + ")");
+                }
+            });
+    }
+
+    private void postReader(String action, int index, String body) {
+        post("/api/control/" + action + "?index=" + index, body);
+    }
+
+    // --- EngineEndpoint ---
+
+    @Override
+    public void addListener(EngineListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(EngineListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public List<ReaderConfig> getReaderConfigs() {
+        return configs;
+    }
+
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
+    @Override
+    public void clearTags() {
+        // 서버의 DB 중복제거 캐시는 다른 콘솔과 공유하므로 원격에서 초기화하지 않음
+    }
+
+    @Override public void connectAll() { post("/api/control/connect-all", null); }
+    @Override public void disconnectAll() { post("/api/control/disconnect-all", null); }
+    @Override public void startInventoryAll() { post("/api/control/start-inventory", null); }
+    @Override public void stopInventoryAll() { post("/api/control/stop-inventory", null); }
+    @Override public void connect(int index) { postReader("connect", index, null); }
+    @Override public void disconnect(int index) { postReader("disconnect", index, null); }
+    @Override public void startInventory(int index) { postReader("start-inventory", index, null); }
+    @Override public void stopInventory(int index) { postReader("stop-inventory", index, null); }
+    @Override public void lightOn(int index) { postReader("light-on", index, null); }
+    @Override public void lightOff(int index) { postReader("light-off", index, null); }
+    @Override public void buzzerOn(int index) { postReader("buzzer-on", index, null); }
+    @Override public void buzzerOff(int index) { postReader("buzzer-off", index, null); }
+
+    @Override
+    public void setAntennaConfig(int index, int[] powers) {
+        StringBuilder body = new StringBuilder("{");
+        for (int i = 0; i < powers.length; i++) {
+            if (i > 0) body.append(",");
+            body.append("\"antennaPower").append(i + 1).append("\":").append(powers[i]);
+        }
+        body.append("}");
+        postReader("antenna", index, body.toString());
+    }
+
+    @Override
+    public void setDwellTime(int index, short onTime, short offTime) {
+        postReader("dwell", index, "{\"onTime\":" + onTime + ",\"offTime\":" + offTime + "}");
+    }
+
+    @Override
+    public void shutdown() {
+        running = false;
+        if (eventThread != null) eventThread.interrupt();
+        AppLogger.info("RemoteEngineClient", "Shutdown complete");
+    }
+}
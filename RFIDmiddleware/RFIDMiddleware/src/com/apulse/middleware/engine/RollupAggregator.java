@@ -0,0 +1,298 @@
+package com.apulse.middleware.engine;
+
+import com.apulse.middleware.db.RollupRepository;
+import com.apulse.middleware.util.AppLogger;
+
+import java.text.SimpleDateFormat;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 분 단위 태그 읽기 통계 집계 (리더기 x 안테나별: 읽기 수, 고유 EPC, 자산 읽기, 반출 알림, RSSI 합).
+ * 태그 파이프라인에서 record()로 현재 분 버킷의 배열 카운터만 올리고, 분이 바뀌면 완료된 버킷을
+ * 백그라운드 스레드(Rollup-Flush)가 tag_read_rollup_1m에 기록한 뒤 시/일 롤업을 갱신한다.
+ * DB 장애 중에는 완료된 버킷을 최대 하루치 보관했다가 복구 후 기록한다.
+ * 읽기 수는 DB 중복제거(TTL)와 무관하게 리더기가 보고한 모든 읽기를 센다.
+ */
+public class RollupAggregator {
+    private static final RollupAggregator INSTANCE = new RollupAggregator();
+
+    private static final long MINUTE_MS = 60_000;
+    private static final long FLUSH_INTERVAL_MS = 5000;
+    /** DB 장애 중 보관할 완료 버킷 수 (분) */
+    private static final int MAX_PENDING_MINUTES = 1440;
+    private static final int INITIAL_SLOTS = 16;
+
+    // 슬롯 = (리더기, 안테나). 슬롯 번호는 기동 중 늘기만 한다
+    private final Map<String, Integer> slotIndex = new HashMap<>();
+    private String[] slotReader = new String[INITIAL_SLOTS];
+    private int[] slotAntenna = new int[INITIAL_SLOTS];
+    private int slotCount = 0;
+
+    private Bucket current;
+    private final ArrayDeque<Bucket> completed = new ArrayDeque<>();
+    private long droppedMinutes = 0;
+    private ScheduledExecutorService scheduler;
+
+    private RollupAggregator() {}
+
+    public static RollupAggregator getInstance() {
+        return INSTANCE;
+    }
+
+    public void start(int minuteRetentionDays) {
+        if (scheduler != null) return;
+        RollupRepository.getInstance().setMinuteRetentionDays(minuteRetentionDays);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "Rollup-Flush");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                flush(false);
+            } catch (Throwable t) {
+                AppLogger.error("RollupAggregator", "Flush FATAL: " + t.getMessage(), t);
+            }
+        }, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        AppLogger.info("RollupAggregator", "Started (1m buckets, minute rows kept " + minuteRetentionDays + " days)");
+    }
+
+    /** 태그 읽기 1건 반영 (리더기 콜백 스레드, 배열 증가만 수행) */
+    public synchronized void record(String readerName, int antenna, String epc, int rssi,
+                                    boolean asset, boolean alert) {
+        long minute = System.currentTimeMillis() / MINUTE_MS;
+        if (current == null || current.minute != minute) rollover(minute);
+        int slot = slotOf(readerName, antenna);
+        current.ensure(slotCount);
+        current.reads[slot]++;
+        current.rssiSum[slot] += rssi;
+        if (asset) current.assetReads[slot]++;
+        if (alert) current.alerts[slot]++;
+        if (current.epcs[slot].add(hash64(epc))) current.uniqueEpcs[slot]++;
+    }
+
+    private int slotOf(String readerName, int antenna) {
+        String key = readerName + '\u0000' + antenna;
+        Integer slot = slotIndex.get(key);
+        if (slot != null) return slot;
+        if (slotCount == slotReader.length) {
+            slotReader = Arrays.copyOf(slotReader, slotCount * 2);
+            slotAntenna = Arrays.copyOf(slotAntenna, slotCount * 2);
+        }
+        slotReader[slotCount] = readerName;
+        slotAntenna[slotCount] = antenna;
+        slotIndex.put(key, slotCount);
+        return slotCount++;
+    }
+
+    /** 현재 버킷을 완료 목록으로 넘기고 새 분 버킷 시작 (lock 보유 상태) */
+    private void rollover(long minute) {
+        if (current != null && current.hasData()) {
+            if (completed.size() >= MAX_PENDING_MINUTES) {
+                completed.pollFirst();
+                droppedMinutes++;
+            }
+            completed.addLast(current);
+        }
+        current = new Bucket(minute, Math.max(INITIAL_SLOTS, slotCount));
+    }
+
+    /**
+     * 완료된 버킷 기록 후 시/일 롤업 갱신. includeCurrent면 진행 중인 분도 기록한다 (종료 시).
+     * 기록 실패 시 버킷을 순서대로 되돌려 다음 주기에 다시 시도한다.
+     */
+    private void flush(boolean includeCurrent) {
+        List<Bucket> ready = new ArrayList<>();
+        String[] readers;
+        int[] antennas;
+        synchronized (this) {
+            long minute = System.currentTimeMillis() / MINUTE_MS;
+            if (current != null && (includeCurrent || current.minute != minute)) rollover(minute);
+            ready.addAll(completed);
+            completed.clear();
+            readers = Arrays.copyOf(slotReader, slotCount);
+            antennas = Arrays.copyOf(slotAntenna, slotCount);
+        }
+        if (ready.isEmpty()) return;
+
+        RollupRepository repo = RollupRepository.getInstance();
+        int written = 0;
+        for (Bucket b : ready) {
+            if (!repo.writeMinute(b.minute * MINUTE_MS, b.toRows(readers, antennas))) break;
+            written++;
+        }
+        if (written < ready.size()) {
+            synchronized (this) {
+                for (int i = ready.size() - 1; i >= written; i--) completed.addFirst(ready.get(i));
+                while (completed.size() > MAX_PENDING_MINUTES) {
+                    completed.pollFirst();
+                    droppedMinutes++;
+                }
+            }
+        }
+        if (written > 0) repo.compact();
+    }
+
+    /**
+     * 기간 내 리더기별 합계 {reads, uniqueEpcs, assetReads, alerts, rssiSum} - DB 롤업 + 미기록 분.
+     * 롤업 테이블 범위 조회라 원본 tag_reads를 읽지 않는다.
+     */
+    public Map<String, long[]> getReaderTotals(LocalDateTime from, LocalDateTime to) {
+        Map<String, long[]> totals = RollupRepository.getInstance().getReaderTotals(from, to);
+        for (Map.Entry<String, long[]> e : getUnflushedTotals(from, to).entrySet()) {
+            long[] t = totals.computeIfAbsent(e.getKey(), k -> new long[5]);
+            for (int i = 0; i < t.length; i++) t[i] += e.getValue()[i];
+        }
+        return totals;
+    }
+
+    /**
+     * 아직 DB에 기록되지 않은 분(진행 중 + 보류) 중 [from, to) 구간의 리더기별 합계.
+     * DB 롤업 합계와 더하면 "오늘 리더기별 읽기 수"를 실시간으로 낼 수 있다.
+     */
+    private synchronized Map<String, long[]> getUnflushedTotals(LocalDateTime from, LocalDateTime to) {
+        ZoneId zone = ZoneId.systemDefault();
+        long fromMinute = from.atZone(zone).toInstant().toEpochMilli() / MINUTE_MS;
+        long toMs = to.atZone(zone).toInstant().toEpochMilli();
+        Map<String, long[]> totals = new LinkedHashMap<>();
+        List<Bucket> buckets = new ArrayList<>(completed);
+        if (current != null) buckets.add(current);
+        for (Bucket b : buckets) {
+            if (b.minute < fromMinute || b.minute * MINUTE_MS >= toMs) continue;
+            for (int s = 0; s < b.reads.length && s < slotCount; s++) {
+                if (b.reads[s] == 0) continue;
+                long[] t = totals.computeIfAbsent(slotReader[s], k -> new long[5]);
+                t[0] += b.reads[s];
+                t[1] += b.uniqueEpcs[s];
+                t[2] += b.assetReads[s];
+                t[3] += b.alerts[s];
+                t[4] += b.rssiSum[s];
+            }
+        }
+        return totals;
+    }
+
+    public void shutdown() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush(true);
+    }
+
+    /** 집계 상태 JSON (/api/metrics) */
+    public synchronized String toJson() {
+        return "{\"slots\":" + slotCount
+            + ",\"currentMinute\":" + (current != null
+                ? "\"" + new SimpleDateFormat("yyyy-MM-dd HH:mm").format(new Date(current.minute * MINUTE_MS)) + "\""
+                : "null")
+            + ",\"pendingMinutes\":" + completed.size()
+            + ",\"droppedMinutes\":" + droppedMinutes
+            + ",\"repository\":" + RollupRepository.getInstance().toJson()
+            + "}";
+    }
+
+    /** EPC 문자열의 64비트 FNV-1a 해시 (고유 EPC 집합 키) */
+    private static long hash64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h == 0 ? 1 : h;
+    }
+
+    /** 1분 구간의 슬롯별 카운터 (슬롯 번호로 인덱스) */
+    private static final class Bucket {
+        final long minute;
+        long[] reads;
+        long[] uniqueEpcs;
+        long[] assetReads;
+        long[] alerts;
+        long[] rssiSum;
+        LongSet[] epcs;
+
+        Bucket(long minute, int slots) {
+            this.minute = minute;
+            reads = new long[slots];
+            uniqueEpcs = new long[slots];
+            assetReads = new long[slots];
+            alerts = new long[slots];
+            rssiSum = new long[slots];
+            epcs = new LongSet[slots];
+            for (int i = 0; i < slots; i++) epcs[i] = new LongSet();
+        }
+
+        void ensure(int slots) {
+            if (slots <= reads.length) return;
+            int n = Math.max(slots, reads.length * 2);
+            int old = reads.length;
+            reads = Arrays.copyOf(reads, n);
+            uniqueEpcs = Arrays.copyOf(uniqueEpcs, n);
+            assetReads = Arrays.copyOf(assetReads, n);
+            alerts = Arrays.copyOf(alerts, n);
+            rssiSum = Arrays.copyOf(rssiSum, n);
+            epcs = Arrays.copyOf(epcs, n);
+            for (int i = old; i < n; i++) epcs[i] = new LongSet();
+        }
+
+        boolean hasData() {
+            for (long r : reads) if (r > 0) return true;
+            return false;
+        }
+
+        List<RollupRepository.MinuteRow> toRows(String[] readers, int[] antennas) {
+            List<RollupRepository.MinuteRow> rows = new ArrayList<>();
+            for (int s = 0; s < reads.length && s < readers.length; s++) {
+                if (reads[s] == 0) continue;
+                rows.add(new RollupRepository.MinuteRow(readers[s], antennas[s], reads[s],
+                    uniqueEpcs[s], assetReads[s], alerts[s], rssiSum[s]));
+            }
+            return rows;
+        }
+    }
+
+    /** 0을 빈 칸으로 쓰는 open addressing long 집합 (분당 고유 EPC 판정용) */
+    private static final class LongSet {
+        private long[] table = new long[16];
+        private int size = 0;
+
+        /** @return 새로 추가됐으면 true */
+        boolean add(long key) {
+            if ((size + 1) * 2 > table.length) grow();
+            int mask = table.length - 1;
+            int i = (int) (key ^ (key >>> 32)) & mask;
+            while (table[i] != 0) {
+                if (table[i] == key) return false;
+                i = (i + 1) & mask;
+            }
+            table[i] = key;
+            size++;
+            return true;
+        }
+
+        private void grow() {
+            long[] old = table;
+            table = new long[old.length * 2];
+            size = 0;
+            for (long k : old) {
+                if (k != 0) add(k);
+            }
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package com.apulse.middleware.engine;
+
+import com.apulse.middleware.util.AppLogger;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 리더기/구역별 태그 이력 저장 정책 (database.cfg의 persist.*).
+ * 태그 파이프라인에서 읽기마다 shouldPersist()로 tag_reads 기록 여부를 판정한다.
+ * 정책 선택 순서: persist.reader.&lt;리더기&gt; → 리더기가 속한 persist.zone.&lt;구역&gt;.policy → persist.default.
+ * <ul>
+ *   <li>all: 모든 읽기</li>
+ *   <li>first-seen[:초]: 같은 규칙 안에서 EPC당 TTL(초)마다 한 번 (기존 cache.ttl.seconds 동작)</li>
+ *   <li>presence[:초]: 리더기 x EPC가 초 이상 보이지 않다가 다시 보일 때(도착)만</li>
+ *   <li>sample:N: 규칙에 들어온 읽기 N건 중 1건</li>
+ *   <li>assets[:초]: 등록 자산 태그만, EPC당 TTL(초)마다 한 번 (0이면 모든 자산 읽기)</li>
+ *   <li>none: 기록하지 않음</li>
+ * </ul>
+ * 규칙마다 판정/저장/생략 건수를 세어 /api/metrics에 보고한다.
+ */
+public class StoragePolicyEngine {
+    private final Rule defaultRule;
+    private final Map<String, Rule> readerRules = new LinkedHashMap<>();
+    private final Map<String, Rule> zoneRulesByReader = new LinkedHashMap<>();
+    private final List<Rule> rules = new ArrayList<>();
+    /** 리더기 이름 → 적용 규칙 (첫 읽기 때 결정) */
+    private final Map<String, Rule> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * @param settings persist. 접두어를 뺀 설정 (default, reader.&lt;이름&gt;, zone.&lt;구역&gt;.readers, zone.&lt;구역&gt;.policy)
+     * @param defaultTtlSeconds 초를 생략한 정책의 기본 TTL (cache.ttl.seconds)
+     * @param maxSize 규칙별 EPC 추적 최대 수 (cache.max.size)
+     */
+    public StoragePolicyEngine(Map<String, String> settings, int defaultTtlSeconds, int maxSize) {
+        defaultRule = parseRule("default", settings.getOrDefault("default", "first-seen"), defaultTtlSeconds, maxSize);
+        rules.add(defaultRule);
+
+        for (Map.Entry<String, String> e : settings.entrySet()) {
+            String key = e.getKey();
+            if (!key.startsWith("zone.") || !key.endsWith(".policy")) continue;
+            String zone = key.substring("zone.".length(), key.length() - ".policy".length());
+            String readers = settings.get("zone." + zone + ".readers");
+            if (readers == null || readers.isBlank()) {
+                AppLogger.warn("StoragePolicyEngine", "Zone '" + zone + "' has no readers (persist.zone." + zone + ".readers)");
+                continue;
+            }
+            Rule rule = parseRule("zone:" + zone, e.getValue(), defaultTtlSeconds, maxSize);
+            rules.add(rule);
+            for (String reader : readers.split(",")) {
+                String name = reader.trim();
+                if (name.isEmpty()) continue;
+                Rule previous = zoneRulesByReader.putIfAbsent(name, rule);
+                if (previous != null) {
+                    AppLogger.warn("StoragePolicyEngine", name + " is in several zones, using " + previous.name);
+                }
+            }
+        }
+
+        for (Map.Entry<String, String> e : settings.entrySet()) {
+            String key = e.getKey();
+            if (!key.startsWith("reader.")) continue;
+            String reader = key.substring("reader.".length()).trim();
+            Rule rule = parseRule("reader:" + reader, e.getValue(), defaultTtlSeconds, maxSize);
+            rules.add(rule);
+            readerRules.put(reader, rule);
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for (Rule r : rules) {
+            if (sb.length() > 0) sb.append(", ");
+            sb.append(r.name).append('=').append(r.spec);
+        }
+        AppLogger.info("StoragePolicyEngine", "Persist policies: " + sb);
+    }
+
+    /** 이 읽기를 tag_reads에 기록할지 판정 (리더기 콜백 스레드) */
+    public boolean shouldPersist(String readerName, String epc, boolean asset) {
+        Rule rule = resolved.computeIfAbsent(readerName, this::ruleFor);
+        rule.evaluated.increment();
+        boolean persist = rule.decide(readerName, epc, asset);
+        if (persist) {
+            rule.persisted.increment();
+        } else {
+            rule.skipped.increment();
+        }
+        return persist;
+    }
+
+    /** 리더기에 적용되는 정책 이름 (예: "zone:dock=presence:60") */
+    public String describe(String readerName) {
+        Rule rule = resolved.computeIfAbsent(readerName, this::ruleFor);
+        return rule.name + "=" + rule.spec;
+    }
+
+    /** 태그 초기화: TTL/도착 추적을 비워 다음 읽기부터 다시 판정 */
+    public void clear() {
+        for (Rule r : rules) {
+            if (r.seen != null) r.seen.invalidateAll();
+        }
+    }
+
+    public String toJson() {
+        StringBuilder sb = new StringBuilder("{\"rules\":[");
+        for (int i = 0; i < rules.size(); i++) {
+            Rule r = rules.get(i);
+            if (i > 0) sb.append(',');
+            sb.append("{\"name\":\"").append(r.name.replace("\\", "\\\\").replace("\"", "\\\""))
+                .append("\",\"policy\":\"").append(r.spec)
+                .append("\",\"evaluated\":").append(r.evaluated.sum())
+                .append(",\"persisted\":").append(r.persisted.sum())
+                .append(",\"skipped\":").append(r.skipped.sum())
+                .append(",\"tracked\":").append(r.seen != null ? r.seen.estimatedSize() : 0)
+                .append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    private Rule ruleFor(String readerName) {
+        Rule rule = readerRules.get(readerName);
+        if (rule == null) rule = zoneRulesByReader.get(readerName);
+        return rule != null ? rule : defaultRule;
+    }
+
+    /** "이름[:값]" 해석. 잘못된 값이면 경고 후 first-seen(기본 TTL) */
+    private static Rule parseRule(String name, String value, int defaultTtlSeconds, int maxSize) {
+        String v = value.trim().toLowerCase();
+        int colon = v.indexOf(':');
+        String kind = colon >= 0 ? v.substring(0, colon).trim() : v;
+        String arg = colon >= 0 ? v.substring(colon + 1).trim() : null;
+        try {
+            switch (kind) {
+                case "all":
+                    return new Rule(name, Kind.ALL, 0, maxSize);
+                case "none":
+                    return new Rule(name, Kind.NONE, 0, maxSize);
+                case "first-seen":
+                    return new Rule(name, Kind.FIRST_SEEN, arg != null ? Integer.parseInt(arg) : defaultTtlSeconds, maxSize);
+                case "presence":
+                    return new Rule(name, Kind.PRESENCE, arg != null ? Integer.parseInt(arg) : defaultTtlSeconds, maxSize);
+                case "assets":
+                    return new Rule(name, Kind.ASSETS, arg != null ? Integer.parseInt(arg) : defaultTtlSeconds, maxSize);
+                case "sample":
+                    if (arg == null) throw new NumberFormatException("sample needs N");
+                    return new Rule(name, Kind.SAMPLE, Integer.parseInt(arg), maxSize);
+                default:
+                    break;
+            }
+        } catch (IllegalArgumentException e) {
+            AppLogger.warn("StoragePolicyEngine", "Invalid persist policy " + name + "=" + value + ": " + e.getMessage());
+            return new Rule(name, Kind.FIRST_SEEN, defaultTtlSeconds, maxSize);
+        }
+        AppLogger.warn("StoragePolicyEngine", "Unknown persist policy " + name + "=" + value + " (using first-seen)");
+        return new Rule(name, Kind.FIRST_SEEN, defaultTtlSeconds, maxSize);
+    }
+
+    private enum Kind { ALL, NONE, FIRST_SEEN, PRESENCE, SAMPLE, ASSETS }
+
+    private static final class Rule {
+        final String name;
+        final String spec;
+        final Kind kind;
+        final int arg;
+        /** first-seen/assets: EPC, presence: 리더기 + EPC (값 없음, 키만 사용) */
+        final Cache<String, Boolean> seen;
+        final AtomicLong sampleSeq = new AtomicLong();
+        final LongAdder evaluated = new LongAdder();
+        final LongAdder persisted = new LongAdder();
+        final LongAdder skipped = new LongAdder();
+
+        Rule(String name, Kind kind, int arg, int maxSize) {
+            if (arg < 0 || (kind == Kind.SAMPLE && arg < 1)) {
+                throw new IllegalArgumentException("out of range: " + arg);
+            }
+            this.name = name;
+            this.kind = kind;
+            this.arg = arg;
+            this.spec = kind.name().toLowerCase().replace('_', '-')
+                + (kind == Kind.ALL || kind == Kind.NONE ? "" : ":" + arg);
+            boolean tracks = kind == Kind.FIRST_SEEN || kind == Kind.PRESENCE || (kind == Kind.ASSETS && arg > 0);
+            this.seen = tracks
+                ? Caffeine.newBuilder().expireAfterWrite(arg, TimeUnit.SECONDS).maximumSize(maxSize).build()
+                : null;
+        }
+
+        boolean decide(String readerName, String epc, boolean asset) {
+            switch (kind) {
+                case ALL:
+                    return true;
+                case NONE:
+                    return false;
+                case SAMPLE:
+                    return sampleSeq.getAndIncrement() % arg == 0;
+                case ASSETS:
+                    if (!asset) return false;
+                    if (seen == null) return true;
+                    return seen.asMap().putIfAbsent(epc, Boolean.TRUE) == null;
+                case PRESENCE:
+                    // 읽을 때마다 기록 시각을 갱신하므로 계속 보이는 동안은 만료되지 않는다 (도착만 기록)
+                    return seen.asMap().put(readerName + '|' + epc, Boolean.TRUE) == null;
+                case FIRST_SEEN:
+                default:
+                    // putIfAbsent로 동시 콜백에서도 TTL당 한 번만 기록
+                    return seen.asMap().putIfAbsent(epc, Boolean.TRUE) == null;
+            }
+        }
+    }
+}
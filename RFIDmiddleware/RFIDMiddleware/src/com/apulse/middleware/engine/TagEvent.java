@@ -0,0 +1,32 @@
+package com.apulse.middleware.engine;
+
+/** 엔진이 처리한 태그 읽기 1건 (화면 표시/원격 전송용 불변 데이터) */
+public class TagEvent {
+    public final String time;
+    public final String readerName;
+    public final String epc;
+    public final int rssi;
+    public final int antenna;
+    public final String assetNumber;
+    public final String assetName;
+    public final String department;
+    /** null=일반태그, "반출허용", "반출알림" */
+    public final String status;
+    /** DB 중복제거 TTL 내 첫 감지 여부 (true면 tag_reads에 저장됨) */
+    public final boolean isNew;
+
+    public TagEvent(String time, String readerName, String epc, int rssi, int antenna,
+                    String assetNumber, String assetName, String department,
+                    String status, boolean isNew) {
+        this.time = time;
+        this.readerName = readerName;
+        this.epc = epc;
+        this.rssi = rssi;
+        this.antenna = antenna;
+        this.assetNumber = assetNumber;
+        this.assetName = assetName;
+        this.department = department;
+        this.status = status;
+        this.isNew = isNew;
+    }
+}
@@ -0,0 +1,16 @@
+package com.apulse.middleware.export;
+
+import java.io.IOException;
+
+/**
+ * 내보내기 출력 형식별 행 단위 writer.
+ * 행을 받는 즉시 출력 스트림으로 내보내며 전체 데이터를 메모리에 모으지 않는다.
+ */
+interface RowWriter {
+    void writeHeader(String[] columns) throws IOException;
+
+    void writeRow(String[] row) throws IOException;
+
+    /** 남은 버퍼/메타데이터 기록 (출력 스트림은 닫지 않음) */
+    void finish() throws IOException;
+}
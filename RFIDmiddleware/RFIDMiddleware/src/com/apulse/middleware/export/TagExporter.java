@@ -0,0 +1,188 @@
+package com.apulse.middleware.export;
+
+import com.apulse.middleware.db.AssetRepository;
+import com.apulse.middleware.db.TagRepository;
+import com.apulse.middleware.reader.TagData;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.function.Predicate;
+
+/**
+ * 태그 데이터 내보내기 엔진 (GUI 저장, REST API 다운로드 공용).
+ * 원본(메모리 이력 또는 DB 커서)에서 한 행씩 읽어 CSV/XLSX writer로 바로 흘려보내므로
+ * 행 수와 무관하게 메모리 사용량이 일정하다. 호출 스레드에서 동기 실행되며
+ * 진행률 콜백이 false를 반환하면 CancellationException으로 중단된다.
+ */
+public class TagExporter {
+    /** 진행률 콜백 간격 (행) */
+    private static final int PROGRESS_INTERVAL = 2000;
+
+    public enum Format {
+        CSV("csv", "text/csv; charset=UTF-8"),
+        XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+
+        private final String extension;
+        private final String contentType;
+
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+
+        public String getExtension() { return extension; }
+        public String getContentType() { return contentType; }
+
+        /** "csv"/"xlsx" 문자열 파싱 (알 수 없으면 null) */
+        public static Format parse(String s) {
+            if (s == null) return null;
+            for (Format f : values()) {
+                if (f.extension.equalsIgnoreCase(s.trim())) return f;
+            }
+            return null;
+        }
+    }
+
+    /** 진행률 콜백. false를 반환하면 내보내기 취소 */
+    public interface ProgressListener {
+        boolean onProgress(long written, long totalEstimate);
+    }
+
+    /** 내보낼 행 공급자 */
+    public interface RowSource {
+        String[] getColumns();
+
+        /** XLSX에서 숫자 셀로 기록할 컬럼 */
+        boolean[] getNumericColumns();
+
+        /** 전체 행 수 추정치 (모르면 -1) */
+        long estimateTotal();
+
+        /** 각 행을 sink에 전달. sink가 false를 반환하면 즉시 중단 */
+        void forEach(Predicate<String[]> sink) throws Exception;
+    }
+
+    private TagExporter() {}
+
+    /**
+     * 내보내기 실행. out은 닫지 않는다.
+     * @return 기록한 데이터 행 수
+     * @throws CancellationException 진행률 콜백이 취소를 요청한 경우
+     */
+    public static long export(RowSource source, Format format, OutputStream out,
+                              ProgressListener listener) throws Exception {
+        RowWriter writer = (format == Format.XLSX)
+            ? new XlsxRowWriter(out, source.getNumericColumns())
+            : new CsvRowWriter(out);
+        long total = source.estimateTotal();
+        long[] written = {0};
+        boolean[] cancelled = {false};
+        IOException[] failure = {null};
+
+        writer.writeHeader(source.getColumns());
+        if (listener != null && !listener.onProgress(0, total)) {
+            throw new CancellationException();
+        }
+        source.forEach(row -> {
+            try {
+                writer.writeRow(row);
+            } catch (IOException e) {
+                failure[0] = e;
+                return false;
+            }
+            written[0]++;
+            if (listener != null && written[0] % PROGRESS_INTERVAL == 0
+                    && !listener.onProgress(written[0], total)) {
+                cancelled[0] = true;
+                return false;
+            }
+            return true;
+        });
+        if (failure[0] != null) throw failure[0];
+        if (cancelled[0]) throw new CancellationException();
+
+        writer.finish();
+        if (listener != null) listener.onProgress(written[0], written[0]);
+        return written[0];
+    }
+
+    /** 화면 태그 이력(메모리) 원본 - TagDataPanel 컬럼 구성과 동일 */
+    public static RowSource fromTagData(List<TagData> data) {
+        return new RowSource() {
+            @Override
+            public String[] getColumns() {
+                return new String[] {"시간", "리더기", "EPC", "RSSI", "안테나", "횟수", "자산번호", "자산명", "부서", "상태"};
+            }
+
+            @Override
+            public boolean[] getNumericColumns() {
+                return new boolean[] {false, false, false, true, true, true, false, false, false, false};
+            }
+
+            @Override
+            public long estimateTotal() {
+                return data.size();
+            }
+
+            @Override
+            public void forEach(Predicate<String[]> sink) {
+                for (TagData tag : data) {
+                    String[] row = {
+                        tag.getLastSeen(),
+                        tag.getReaderName(),
+                        tag.getEpc(),
+                        String.valueOf(tag.getRssi()),
+                        String.valueOf(tag.getAntenna()),
+                        String.valueOf(tag.getCount()),
+                        nullToEmpty(tag.getAssetNumber()),
+                        nullToEmpty(tag.getAssetName()),
+                        nullToEmpty(tag.getDepartment()),
+                        nullToEmpty(tag.getAssetStatus())
+                    };
+                    if (!sink.test(row)) return;
+                }
+            }
+        };
+    }
+
+    /** DB tag_reads 기간 조회 원본 (스트리밍 커서, 자산 정보는 캐시에서 매칭) */
+    public static RowSource fromDatabase(String fromTime, String toTime) {
+        return new RowSource() {
+            @Override
+            public String[] getColumns() {
+                return new String[] {"시간", "리더기", "EPC", "RSSI", "안테나", "자산번호", "자산명", "부서"};
+            }
+
+            @Override
+            public boolean[] getNumericColumns() {
+                return new boolean[] {false, false, false, true, true, false, false, false};
+            }
+
+            @Override
+            public long estimateTotal() {
+                return TagRepository.getInstance().estimateTagReadCount(fromTime, toTime);
+            }
+
+            @Override
+            public void forEach(Predicate<String[]> sink) throws Exception {
+                AssetRepository assets = AssetRepository.getInstance();
+                TagRepository.getInstance().streamTagReads(fromTime, toTime, r -> {
+                    AssetRepository.AssetInfo info = assets.getAssetInfo(r[2]);
+                    String[] row = {
+                        r[0], r[1], r[2], r[3], r[4],
+                        info != null ? nullToEmpty(info.getAssetNumber()) : "",
+                        info != null ? nullToEmpty(info.getAssetName()) : "",
+                        info != null ? nullToEmpty(info.getDepartment()) : ""
+                    };
+                    return sink.test(row);
+                });
+            }
+        };
+    }
+
+    private static String nullToEmpty(String s) {
+        return s != null ? s : "";
+    }
+}
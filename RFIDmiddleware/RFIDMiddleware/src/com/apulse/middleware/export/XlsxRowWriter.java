@@ -0,0 +1,185 @@
+package com.apulse.middleware.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 스트리밍 XLSX(SpreadsheetML) writer.
+ * 시트 XML을 ZIP 엔트리에 행 단위로 바로 기록하고 문자열은 inlineStr로 넣어
+ * 공유 문자열 테이블 없이 행 수와 무관하게 일정한 메모리로 동작한다.
+ * Excel 시트 행 제한(1,048,576)에 도달하면 다음 시트로 넘어간다.
+ */
+class XlsxRowWriter implements RowWriter {
+    private static final int MAX_ROWS_PER_SHEET = 1_048_576;
+
+    private final ZipOutputStream zip;
+    private final Writer writer;
+    private final boolean[] numericColumns;
+    private String[] header;
+    private int sheetCount = 0;
+    private int sheetRows = 0;
+
+    /**
+     * @param numericColumns 숫자 셀로 기록할 컬럼 (null이면 모두 문자열)
+     */
+    XlsxRowWriter(OutputStream out, boolean[] numericColumns) {
+        // finish()는 zip.finish()만 호출하고 닫지 않으므로 호출자의 스트림은 열린 채 유지
+        zip = new ZipOutputStream(out);
+        zip.setLevel(1);  // 속도 우선 (압축률 차이는 크지 않음)
+        writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), 64 * 1024);
+        this.numericColumns = numericColumns;
+    }
+
+    @Override
+    public void writeHeader(String[] columns) throws IOException {
+        this.header = columns;
+        startSheet();
+    }
+
+    @Override
+    public void writeRow(String[] row) throws IOException {
+        if (sheetCount == 0 || sheetRows >= MAX_ROWS_PER_SHEET) {
+            if (sheetCount > 0) endSheet();
+            startSheet();
+        }
+        writeCells(row, 0);
+    }
+
+    private void startSheet() throws IOException {
+        sheetCount++;
+        sheetRows = 0;
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet" + sheetCount + ".xml"));
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+            + "<sheetViews><sheetView workbookViewId=\"0\">"
+            + "<pane ySplit=\"1\" topLeftCell=\"A2\" activePane=\"bottomLeft\" state=\"frozen\"/>"
+            + "</sheetView></sheetViews><sheetData>");
+        if (header != null) {
+            writeCells(header, 1);
+        }
+    }
+
+    private void endSheet() throws IOException {
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    private void writeCells(String[] row, int style) throws IOException {
+        sheetRows++;
+        writer.write("<row>");
+        for (int i = 0; i < row.length; i++) {
+            String v = row[i];
+            if (v == null || v.isEmpty()) {
+                writer.write("<c/>");
+            } else if (style == 0 && numericColumns != null && i < numericColumns.length
+                    && numericColumns[i] && isNumber(v)) {
+                writer.write("<c><v>");
+                writer.write(v);
+                writer.write("</v></c>");
+            } else {
+                writer.write(style == 0 ? "<c t=\"inlineStr\"><is><t>" : "<c s=\"1\" t=\"inlineStr\"><is><t>");
+                writeEscaped(v);
+                writer.write("</t></is></c>");
+            }
+        }
+        writer.write("</row>");
+    }
+
+    private static boolean isNumber(String v) {
+        int start = (v.charAt(0) == '-') ? 1 : 0;
+        if (start == v.length()) return false;
+        for (int i = start; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c < '0' || c > '9') return false;
+        }
+        return true;
+    }
+
+    private void writeEscaped(String v) throws IOException {
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '&': writer.write("&amp;"); break;
+                case '<': writer.write("&lt;"); break;
+                case '>': writer.write("&gt;"); break;
+                case '"': writer.write("&quot;"); break;
+                default:
+                    // XML 1.0에서 허용되지 않는 제어문자는 제거
+                    if (c >= 0x20 || c == '\t' || c == '\n' || c == '\r') writer.write(c);
+            }
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (sheetCount == 0) startSheet();
+        endSheet();
+
+        StringBuilder types = new StringBuilder()
+            .append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n")
+            .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+            .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+            .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+            .append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+            .append("<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        StringBuilder sheets = new StringBuilder();
+        StringBuilder rels = new StringBuilder()
+            .append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n")
+            .append("<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">");
+        for (int i = 1; i <= sheetCount; i++) {
+            types.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+                .append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+            sheets.append("<sheet name=\"Tags").append(sheetCount > 1 ? "_" + i : "")
+                .append("\" sheetId=\"").append(i).append("\" r:id=\"rId").append(i).append("\"/>");
+            rels.append("<Relationship Id=\"rId").append(i)
+                .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet")
+                .append(i).append(".xml\"/>");
+        }
+        types.append("</Types>");
+        rels.append("<Relationship Id=\"rId").append(sheetCount + 1)
+            .append("\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>")
+            .append("</Relationships>");
+
+        putEntry("[Content_Types].xml", types.toString());
+        putEntry("_rels/.rels",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+            + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+            + "</Relationships>");
+        putEntry("xl/workbook.xml",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" "
+            + "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+            + "<sheets>" + sheets + "</sheets></workbook>");
+        putEntry("xl/_rels/workbook.xml.rels", rels.toString());
+        // 스타일 0: 기본, 1: 굵게 (헤더)
+        putEntry("xl/styles.xml",
+            "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+            + "<styleSheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\">"
+            + "<fonts count=\"2\"><font><sz val=\"11\"/><name val=\"Calibri\"/></font>"
+            + "<font><b/><sz val=\"11\"/><name val=\"Calibri\"/></font></fonts>"
+            + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill>"
+            + "<fill><patternFill patternType=\"gray125\"/></fill></fills>"
+            + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+            + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+            + "<cellXfs count=\"2\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+            + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/></cellXfs>"
+            + "</styleSheet>");
+        zip.finish();
+        zip.flush();
+    }
+
+    private void putEntry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        writer.write(content);
+        writer.flush();
+        zip.closeEntry();
+    }
+}
@@ -1,11 +1,19 @@
 package com.apulse.middleware.gui;
 
+import com.apulse.middleware.db.AssetRepository;
+import com.apulse.middleware.db.PageCursor;
+import com.apulse.middleware.db.StorageManager;
+
 import javax.swing.*;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
-import java.util.ArrayList;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class ExportAlertPanel extends JPanel {
     private final AlertTableModel tableModel;
@@ -13,14 +21,21 @@ public class ExportAlertPanel extends JPanel {
     private final JLabel countLabel;
     private final JLabel blinkIndicator;
     private final Timer blinkTimer;
+    private final long aggregateWindowMs;
     private boolean blinkState = false;
     private int alertCount = 0;
 
-    public ExportAlertPanel() {
+    /**
+     * @param maxRows 화면에 유지하는 최대 알림 행 수 (초과 시 오래된 행부터 제거)
+     * @param aggregateWindowSeconds 같은 EPC가 이 시간(초) 내 재알림되면 기존 행에 반복 건수로 합침
+     */
+    public ExportAlertPanel(int maxRows, int aggregateWindowSeconds) {
         setLayout(new BorderLayout());
         setBorder(BorderFactory.createTitledBorder("반출 알림"));
 
-        tableModel = new AlertTableModel();
+        this.aggregateWindowMs = Math.max(0, aggregateWindowSeconds) * 1000L;
+
+        tableModel = new AlertTableModel(Math.max(1, maxRows));
         table = new JTable(tableModel);
         table.setFont(new Font("맑은 고딕", Font.PLAIN, 12));
         table.setRowHeight(24);
@@ -35,6 +50,7 @@ public class ExportAlertPanel extends JPanel {
         table.getColumnModel().getColumn(3).setPreferredWidth(80);   // 자산번호
         table.getColumnModel().getColumn(4).setPreferredWidth(80);   // 자산명
         table.getColumnModel().getColumn(5).setPreferredWidth(40);   // RSSI
+        table.getColumnModel().getColumn(6).setPreferredWidth(60);   // 반복
 
         // 빨간 배경 행 렌더러
         AlertRowRenderer alertRenderer = new AlertRowRenderer();
@@ -60,29 +76,33 @@ public class ExportAlertPanel extends JPanel {
         clearButton.setFont(new Font("맑은 고딕", Font.PLAIN, 11));
         clearButton.addActionListener(e -> clearAlerts());
 
+        JButton historyButton = new JButton("전체 이력");
+        historyButton.setFont(new Font("맑은 고딕", Font.PLAIN, 11));
+        historyButton.addActionListener(e -> showHistoryDialog());
+
         bottomPanel.add(blinkIndicator);
         bottomPanel.add(countLabel);
         bottomPanel.add(Box.createHorizontalStrut(15));
         bottomPanel.add(clearButton);
+        bottomPanel.add(historyButton);
         add(bottomPanel, BorderLayout.SOUTH);
 
-        // 깜빡임 타이머 (500ms)
+        // 깜빡임 타이머 (500ms) - 알림이 있을 때만 동작
         blinkTimer = new Timer(500, e -> {
-            if (alertCount > 0) {
-                blinkState = !blinkState;
-                blinkIndicator.setText(blinkState ? "!" : " ");
-            } else {
-                blinkIndicator.setText(" ");
-            }
+            blinkState = !blinkState;
+            blinkIndicator.setText(blinkState ? "!" : " ");
         });
-        blinkTimer.start();
     }
 
     /** 반출알림 추가 (EDT에서 호출) */
     public void addAlert(String time, String readerName, String epc, String assetNumber, String assetName, int rssi) {
-        tableModel.addRow(new AlertRow(time, readerName, epc, assetNumber, assetName, rssi));
+        tableModel.addAlert(new AlertRow(time, readerName, epc, assetNumber, assetName, rssi),
+            System.currentTimeMillis());
         alertCount++;
         countLabel.setText("알림: " + alertCount + "건");
+        if (!blinkTimer.isRunning()) {
+            blinkTimer.start();
+        }
     }
 
     /** 알림 초기화 */
@@ -90,6 +110,7 @@ public class ExportAlertPanel extends JPanel {
         tableModel.clear();
         alertCount = 0;
         countLabel.setText("알림: 0건");
+        blinkTimer.stop();
         blinkState = false;
         blinkIndicator.setText(" ");
     }
@@ -98,14 +119,79 @@ public class ExportAlertPanel extends JPanel {
         return alertCount;
     }
 
+    /** DB export_alerts 전체 이력 (LazyTableModel로 스크롤 시 페이지 단위 로드) */
+    private void showHistoryDialog() {
+        if (!StorageManager.getInstance().isAvailable()) {
+            JOptionPane.showMessageDialog(this, "데이터베이스에 연결되어 있지 않습니다.",
+                "반출알림 이력", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        String[] cols = {"알림시간", "리더기", "EPC", "자산번호", "자산명", "부서", "RSSI"};
+        LazyTableModel historyModel = new LazyTableModel(cols);
+        JTable historyTable = new JTable(historyModel);
+        Theme.styleTable(historyTable);
+
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        String today = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+        JTextField fromField = new JTextField(today + " 00:00:00", 16);
+        JTextField toField = new JTextField(sdf.format(new Date()), 16);
+        JButton queryBtn = new JButton("조회");
+        JLabel statusLabel = new JLabel(" ");
+        historyModel.setStatusListener(() -> statusLabel.setText(historyModel.getStatusText()));
+
+        queryBtn.addActionListener(e -> {
+            String from = fromField.getText().trim();
+            String to = toField.getText().trim();
+            historyModel.load(new LazyTableModel.PageSource() {
+                @Override
+                public List<String[]> fetchPage(PageCursor after, int limit) {
+                    return AssetRepository.getInstance().queryExportAlertsPage(from, to, after, limit);
+                }
+
+                @Override
+                public PageCursor cursorOf(String[] row) {
+                    return new PageCursor(row[0], Long.parseLong(row[7]));
+                }
+
+                @Override
+                public long estimateCount() {
+                    return AssetRepository.getInstance().estimateExportAlertCount(from, to);
+                }
+            });
+        });
+
+        JPanel filterPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        filterPanel.add(new JLabel("시작:"));
+        filterPanel.add(fromField);
+        filterPanel.add(new JLabel("  종료:"));
+        filterPanel.add(toField);
+        filterPanel.add(queryBtn);
+
+        JPanel panel = new JPanel(new BorderLayout());
+        panel.add(filterPanel, BorderLayout.NORTH);
+        panel.add(new JScrollPane(historyTable), BorderLayout.CENTER);
+        panel.add(statusLabel, BorderLayout.SOUTH);
+        panel.setPreferredSize(new Dimension(750, 450));
+
+        queryBtn.doClick();
+        JOptionPane.showMessageDialog(SwingUtilities.getWindowAncestor(this), panel,
+            "반출알림 이력", JOptionPane.PLAIN_MESSAGE);
+    }
+
     /** 알림 행 데이터 */
     private static class AlertRow {
-        final String time;
-        final String readerName;
+        String time;
+        String readerName;
         final String epc;
         final String assetNumber;
         final String assetName;
-        final int rssi;
+        int rssi;
+        /** 합쳐진 추가 알림 수 (0이면 단일 알림) */
+        int repeatCount;
+        /** 링버퍼 삽입 순번 (행 위치 계산용) */
+        long seq;
+        long lastAlertMs;
 
         AlertRow(String time, String readerName, String epc, String assetNumber, String assetName, int rssi) {
             this.time = time;
@@ -117,23 +203,77 @@ public class ExportAlertPanel extends JPanel {
         }
     }
 
-    /** 테이블 모델 */
+    /**
+     * 테이블 모델 - 고정 크기 링버퍼 (최신 알림이 row 0).
+     * 삽입/제거 O(1), 같은 EPC 재알림은 기존 행을 갱신하여 합침.
+     */
     private class AlertTableModel extends AbstractTableModel {
-        private final String[] columns = {"시간", "리더기", "EPC", "자산번호", "자산명", "RSSI"};
-        private final List<AlertRow> data = new ArrayList<>();
+        private static final long serialVersionUID = 1L;
+
+        private final String[] columns = {"시간", "리더기", "EPC", "자산번호", "자산명", "RSSI", "반복"};
+        private final AlertRow[] ring;
+        private final Map<String, AlertRow> latestByEpc = new HashMap<>();
+        /** 다음 삽입 위치 */
+        private int head = 0;
+        private int size = 0;
+        /** 마지막으로 삽입된 행의 순번 */
+        private long lastSeq = 0;
+
+        AlertTableModel(int capacity) {
+            ring = new AlertRow[capacity];
+        }
+
+        void addAlert(AlertRow row, long nowMs) {
+            AlertRow existing = latestByEpc.get(row.epc);
+            if (existing != null && nowMs - existing.lastAlertMs <= aggregateWindowMs) {
+                existing.repeatCount++;
+                existing.time = row.time;
+                existing.readerName = row.readerName;
+                existing.rssi = row.rssi;
+                existing.lastAlertMs = nowMs;
+                int index = indexOf(existing);
+                fireTableRowsUpdated(index, index);
+                return;
+            }
+
+            row.lastAlertMs = nowMs;
+            row.seq = ++lastSeq;
+            if (size == ring.length) {
+                // 가장 오래된 행 제거
+                int oldestPos = (head - size + ring.length) % ring.length;
+                AlertRow evicted = ring[oldestPos];
+                ring[oldestPos] = null;
+                size--;
+                if (latestByEpc.get(evicted.epc) == evicted) {
+                    latestByEpc.remove(evicted.epc);
+                }
+                fireTableRowsDeleted(size, size);
+            }
+            ring[head] = row;
+            head = (head + 1) % ring.length;
+            size++;
+            latestByEpc.put(row.epc, row);
+            fireTableRowsInserted(0, 0);  // 최신 알림을 맨 위에
+        }
+
+        private int indexOf(AlertRow row) {
+            return (int) (lastSeq - row.seq);
+        }
 
-        void addRow(AlertRow row) {
-            data.add(0, row);  // 최신 알림을 맨 위에
-            fireTableRowsInserted(0, 0);
+        private AlertRow get(int index) {
+            return ring[(head - 1 - index + ring.length) % ring.length];
         }
 
         void clear() {
-            data.clear();
+            Arrays.fill(ring, null);
+            latestByEpc.clear();
+            head = 0;
+            size = 0;
             fireTableDataChanged();
         }
 
         @Override
-        public int getRowCount() { return data.size(); }
+        public int getRowCount() { return size; }
 
         @Override
         public int getColumnCount() { return columns.length; }
@@ -143,7 +283,7 @@ public class ExportAlertPanel extends JPanel {
 
         @Override
         public Object getValueAt(int row, int col) {
-            AlertRow r = data.get(row);
+            AlertRow r = get(row);
             switch (col) {
                 case 0: return r.time;
                 case 1: return r.readerName;
@@ -151,6 +291,7 @@ public class ExportAlertPanel extends JPanel {
                 case 3: return r.assetNumber;
                 case 4: return r.assetName;
                 case 5: return r.rssi;
+                case 6: return r.repeatCount > 0 ? "외 " + r.repeatCount + "건" : "";
                 default: return "";
             }
         }
@@ -0,0 +1,187 @@
+package com.apulse.middleware.gui;
+
+import com.apulse.middleware.db.PageCursor;
+import com.apulse.middleware.util.AppLogger;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * DB 조회 결과를 페이지 단위로 지연 로드하는 테이블 모델.
+ * - 조회는 백그라운드 스레드(DB-PageLoader)에서 keyset 페이징으로 수행 (EDT 블로킹 없음)
+ * - 전체 건수는 EXPLAIN 추정치로 표시 (COUNT(*) 전체 스캔 회피)
+ * - 스크롤이 로드된 끝에 가까워지면 다음 페이지를 미리 조회
+ * 모든 상태 변경은 EDT에서만 일어난다.
+ */
+public class LazyTableModel extends AbstractTableModel {
+    private static final long serialVersionUID = 1L;
+
+    public static final int DEFAULT_PAGE_SIZE = 200;
+    /** 로드된 마지막 행까지 이 행 수 이내로 스크롤되면 다음 페이지 prefetch */
+    private static final int PREFETCH_ROWS = 50;
+
+    private static final ExecutorService LOADER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "DB-PageLoader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /** 페이지 데이터 공급자 (백그라운드 스레드에서 호출됨) */
+    public interface PageSource {
+        /** after 다음 행부터 최대 limit건 조회 (after가 null이면 첫 페이지) */
+        List<String[]> fetchPage(PageCursor after, int limit);
+
+        /** 행에서 다음 페이지 조회용 커서 추출 */
+        PageCursor cursorOf(String[] row);
+
+        /** 전체 건수 추정치 (모르면 -1) */
+        long estimateCount();
+    }
+
+    private final String[] columns;
+    private final int pageSize;
+    private final List<String[]> rows = new ArrayList<>();
+    private PageSource source;
+    private PageCursor nextCursor;
+    private boolean loading = false;
+    private boolean exhausted = true;
+    private long estimatedCount = -1;
+    /** load() 호출마다 증가 - 이전 조회 결과가 늦게 도착하면 폐기 */
+    private int generation = 0;
+    private Runnable statusListener;
+
+    public LazyTableModel(String[] columns) {
+        this(columns, DEFAULT_PAGE_SIZE);
+    }
+
+    public LazyTableModel(String[] columns, int pageSize) {
+        this.columns = columns;
+        this.pageSize = pageSize;
+    }
+
+    /** 페이지 로드/건수 추정 완료 시 EDT에서 호출될 콜백 (상태 라벨 갱신용) */
+    public void setStatusListener(Runnable statusListener) {
+        this.statusListener = statusListener;
+    }
+
+    /** 새 조건으로 다시 조회 (기존 행 폐기 후 첫 페이지와 건수 추정을 백그라운드에서 요청) */
+    public void load(PageSource source) {
+        this.source = source;
+        generation++;
+        rows.clear();
+        nextCursor = null;
+        loading = false;
+        exhausted = false;
+        estimatedCount = -1;
+        fireTableDataChanged();
+
+        final int gen = generation;
+        LOADER.execute(() -> {
+            long estimate = source.estimateCount();
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) return;
+                estimatedCount = estimate;
+                notifyStatus();
+            });
+        });
+        requestNextPage();
+    }
+
+    private void requestNextPage() {
+        if (loading || exhausted || source == null) return;
+        loading = true;
+        notifyStatus();
+
+        final int gen = generation;
+        final PageSource src = source;
+        final PageCursor after = nextCursor;
+        LOADER.execute(() -> {
+            List<String[]> page;
+            try {
+                page = src.fetchPage(after, pageSize);
+            } catch (Exception e) {
+                AppLogger.error("LazyTableModel", "Page load failed: " + e.getMessage());
+                page = new ArrayList<>();
+            }
+            final List<String[]> result = page;
+            SwingUtilities.invokeLater(() -> appendPage(gen, result));
+        });
+    }
+
+    private void appendPage(int gen, List<String[]> page) {
+        if (gen != generation) return;
+        loading = false;
+        if (page.size() < pageSize) {
+            exhausted = true;
+        }
+        if (!page.isEmpty()) {
+            int first = rows.size();
+            rows.addAll(page);
+            nextCursor = source.cursorOf(page.get(page.size() - 1));
+            fireTableRowsInserted(first, rows.size() - 1);
+        }
+        notifyStatus();
+    }
+
+    private void notifyStatus() {
+        if (statusListener != null) statusListener.run();
+    }
+
+    /** 원본 행 (화면 컬럼 뒤에 붙은 id 등 포함) */
+    public String[] getRow(int row) {
+        return rows.get(row);
+    }
+
+    public int getLoadedCount() {
+        return rows.size();
+    }
+
+    public boolean isLoading() {
+        return loading;
+    }
+
+    /** "총 N건" 또는 "약 N건 중 M건 로드" 형식의 상태 문자열 */
+    public String getStatusText() {
+        if (exhausted && !loading) {
+            return "총 " + rows.size() + "건";
+        }
+        String loaded = rows.size() + "건 로드" + (loading ? " (조회 중...)" : "");
+        if (estimatedCount >= 0) {
+            return "약 " + Math.max(estimatedCount, rows.size()) + "건 중 " + loaded;
+        }
+        return loaded;
+    }
+
+    @Override
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    @Override
+    public String getColumnName(int col) {
+        return columns[col];
+    }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        if (row >= rows.size() - PREFETCH_ROWS) {
+            requestNextPage();
+        }
+        String[] r = rows.get(row);
+        return col < r.length ? r[col] : "";
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int col) {
+        return false;
+    }
+}
@@ -1,18 +1,17 @@
 package com.apulse.middleware.gui;
 
-import com.apulse.middleware.api.ApiServer;
-import com.apulse.middleware.config.DatabaseConfig;
+import com.apulse.middleware.config.AppConfig;
 import com.apulse.middleware.config.LogConfig;
 import com.apulse.middleware.config.ReaderConfig;
 import com.apulse.middleware.db.AssetRepository;
-import com.apulse.middleware.db.DatabaseManager;
-import com.apulse.middleware.db.TagRepository;
-import com.apulse.middleware.reader.ReaderConnection;
-import com.apulse.middleware.reader.ReaderManager;
+import com.apulse.middleware.db.PageCursor;
+import com.apulse.middleware.db.StorageManager;
+import com.apulse.middleware.engine.EngineEndpoint;
+import com.apulse.middleware.engine.EngineListener;
+import com.apulse.middleware.engine.MiddlewareEngine;
+import com.apulse.middleware.engine.TagEvent;
 import com.apulse.middleware.reader.ReaderStatus;
-import com.apulse.middleware.reader.WarningLightController;
 import com.apulse.middleware.util.AppLogger;
-import com.apulse.middleware.util.HexUtils;
 
 import javax.swing.*;
 import javax.swing.table.DefaultTableCellRenderer;
@@ -24,49 +23,47 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
-public class MainFrame extends JFrame {
-    private static final String CONFIG_FILE = "config" + File.separator + "readers.cfg";
-
-    private final ReaderManager readerManager;
+/**
+ * 메인 화면. 처리 본체는 EngineEndpoint(같은 프로세스의 MiddlewareEngine 또는
+ * 원격 엔진에 붙는 RemoteEngineClient)가 담당하고 이 화면은 이벤트 표시와 제어 명령 전달만 한다.
+ */
+public class MainFrame extends JFrame implements EngineListener {
+    /** 캐시 조회 화면의 자산 표시 상한 */
+    private static final int CACHE_VIEW_MAX_ROWS = 10000;
+
+    private final EngineEndpoint endpoint;
+    /** 같은 프로세스 엔진 (원격 모드에서는 null) */
+    private final MiddlewareEngine localEngine;
     private final ReaderStatusPanel statusPanel;
     private final TagDataPanel tagDataPanel;
+    private final ExportAlertPanel exportAlertPanel;
     private final LogPanel logPanel;
 
-    private ApiServer apiServer;
-    private List<ReaderConfig> configs;
+    private JButton configBtn;
 
-    public MainFrame() {
-        super("RFID \ubbf8\ub4e4\uc6e8\uc5b4");
+    /** 생성 후 엔진 시작 전에 endpoint.addListener(frame)로 등록해야 초기 리더기 목록을 받는다 */
+    public MainFrame(EngineEndpoint endpoint) {
+        super(endpoint.isRemote()
+            ? "RFID \ubbf8\ub4e4\uc6e8\uc5b4 (\uc6d0\uaca9)"
+            : "RFID \ubbf8\ub4e4\uc6e8\uc5b4");
+        this.endpoint = endpoint;
+        this.localEngine = (endpoint instanceof MiddlewareEngine) ? (MiddlewareEngine) endpoint : null;
         setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
         setSize(900, 700);
         setMinimumSize(new Dimension(700, 500));
         setLocationRelativeTo(null);
 
-        // DB/cache init
-        DatabaseConfig dbConfig = new DatabaseConfig();
-        DatabaseManager.getInstance().initialize(dbConfig);
-        TagRepository.getInstance().start();
-        AssetRepository.getInstance().start(30);
-
-        readerManager = new ReaderManager();
         statusPanel = new ReaderStatusPanel();
-        tagDataPanel = new TagDataPanel(dbConfig.getCacheTtlSeconds(), dbConfig.getCacheMaxSize());
+        tagDataPanel = new TagDataPanel();
+        tagDataPanel.setClearAction(endpoint::clearTags);
+        AppConfig appConfig = new AppConfig();
+        exportAlertPanel = new ExportAlertPanel(appConfig.getAlertMaxRows(), appConfig.getAlertAggregateSeconds());
         logPanel = new LogPanel();
         logPanel.initFileLogging(new LogConfig());
 
         initLayout();
-        loadConfig();
-
-        // REST API server
-        try {
-            apiServer = new ApiServer(readerManager, configs, CONFIG_FILE);
-            apiServer.start();
-        } catch (Exception e) {
-            AppLogger.error("MainFrame", "API Server start failed: " + e.getMessage());
-        }
 
         addWindowListener(new WindowAdapter() {
             @Override
@@ -79,12 +76,8 @@ public class MainFrame extends JFrame {
                 );
                 if (result == JOptionPane.YES_OPTION) {
                     logPanel.appendLog("Shutting down...");
-                    if (apiServer != null) apiServer.shutdown();
-                    readerManager.shutdown();
-                    WarningLightController.getInstance().shutdown();
-                    AssetRepository.getInstance().shutdown();
-                    TagRepository.getInstance().shutdown();
-                    DatabaseManager.getInstance().shutdown();
+                    endpoint.removeListener(MainFrame.this);
+                    endpoint.shutdown();
                     AppLogger.shutdown();
                     dispose();
                     System.exit(0);
@@ -140,19 +133,19 @@ public class MainFrame extends JFrame {
 
         JButton connectAllBtn = Theme.createHeaderButton("전체 연결", Theme.createHeaderIcon("connect"), e -> {
             logPanel.appendLog("Connect all readers...");
-            readerManager.connectAll();
+            endpoint.connectAll();
         });
         JButton disconnectAllBtn = Theme.createHeaderButton("전체 해제", Theme.createHeaderIcon("disconnect"), e -> {
             logPanel.appendLog("Disconnect all readers...");
-            readerManager.disconnectAll();
+            endpoint.disconnectAll();
         });
         JButton startInvBtn = Theme.createHeaderButton("인벤토리 시작", Theme.createHeaderIcon("play"), e -> {
             logPanel.appendLog("Start inventory all...");
-            readerManager.startInventoryAll();
+            endpoint.startInventoryAll();
         });
         JButton stopInvBtn = Theme.createHeaderButton("인벤토리 중지", Theme.createHeaderIcon("stop"), e -> {
             logPanel.appendLog("Stop inventory all...");
-            readerManager.stopInventoryAll();
+            endpoint.stopInventoryAll();
         });
         JButton clearTagsBtn = Theme.createHeaderButton("태그 초기화", Theme.createHeaderIcon("clear"), e -> tagDataPanel.clearTags());
         JButton assetDbBtn = Theme.createHeaderButton("자산 DB", Theme.createHeaderIcon("database"), e -> showAssetDbDialog());
@@ -175,7 +168,10 @@ public class MainFrame extends JFrame {
         JButton finderBtn = Theme.createHeaderButton("리더기 검색", Theme.createHeaderIcon("search"), e -> openReaderFinderDialog());
         JButton helpBtn = Theme.createHeaderButton("도움말", Theme.createHeaderIcon("help"), e -> showHelpDialog());
         JButton flowBtn = Theme.createHeaderButton("흐름도", Theme.createHeaderIcon("flow"), e -> openFlowDiagram());
-        JButton configBtn = Theme.createHeaderButton("설정", Theme.createHeaderIcon("settings"), e -> openConfigDialog());
+        configBtn = Theme.createHeaderButton("설정", Theme.createHeaderIcon("settings"), e -> openConfigDialog());
+        // 리더기 설정 파일은 엔진 호스트에 있으므로 원격 모드에서는 변경 불가
+        configBtn.setEnabled(localEngine != null);
+        assetDbBtn.setEnabled(localEngine != null);
 
         rightButtons.add(finderBtn);
         rightButtons.add(helpBtn);
@@ -193,7 +189,12 @@ public class MainFrame extends JFrame {
 
         contentPanel.add(statusPanel, BorderLayout.NORTH);
 
-        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, tagDataPanel, logPanel);
+        JSplitPane tagSplit = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, tagDataPanel, exportAlertPanel);
+        tagSplit.setResizeWeight(0.7);
+        tagSplit.setDividerSize(5);
+        tagSplit.setBorder(null);
+
+        JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, tagSplit, logPanel);
         splitPane.setResizeWeight(0.7);
         splitPane.setDividerSize(5);
         splitPane.setBorder(null);
@@ -218,158 +219,67 @@ public class MainFrame extends JFrame {
         return sep;
     }
 
-    private void loadConfig() {
-        configs = ReaderConfig.loadFromFile(CONFIG_FILE);
-        logPanel.appendLog("Config loaded: " + configs.size() + " reader(s)");
-        initializeReaders();
-        WarningLightController.getInstance().setAutoOffDelayMs(ReaderConfig.getWarningDuration() * 1000);
-    }
+    // --- EngineListener (엔진 스레드에서 호출되므로 EDT로 전달) ---
 
-    private void initializeReaders() {
-        ReaderConnection.ReaderConnectionListener statusListener = new ReaderConnection.ReaderConnectionListener() {
-            @Override
-            public void onStatusChanged(ReaderConnection connection, ReaderStatus oldStatus, ReaderStatus newStatus) {
-                SwingUtilities.invokeLater(() -> {
-                    int index = findConnectionIndex(connection);
-                    if (index >= 0) {
-                        statusPanel.updateStatus(index, newStatus);
-                        // Beep icon active state depends on READING status
-                        statusPanel.updateBeepEnabled(index, connection.getConfig().isBeepEnabled());
-                    }
-                    if (newStatus == ReaderStatus.CONNECTED) {
-                        saveConfig();
-                    }
-                });
-            }
-
-            @Override
-            public void onLightChanged(ReaderConnection connection, boolean lightOn) {
-                SwingUtilities.invokeLater(() -> {
-                    int index = findConnectionIndex(connection);
-                    if (index >= 0) {
-                        statusPanel.updateLightStatus(index, lightOn);
-                    }
-                });
-            }
+    @Override
+    public void onReadersReloaded(List<ReaderConfig> configs) {
+        SwingUtilities.invokeLater(() -> {
+            statusPanel.initialize(configs, endpoint, null);
 
-            @Override
-            public void onBuzzerChanged(ReaderConnection connection, boolean buzzerOn) {
-                SwingUtilities.invokeLater(() -> {
-                    int index = findConnectionIndex(connection);
-                    if (index >= 0) {
-                        statusPanel.updateBuzzerStatus(index, buzzerOn);
-                    }
-                });
+            // Pass config state (buzzer/light/beep) to icons
+            for (int i = 0; i < configs.size(); i++) {
+                ReaderConfig cfg = configs.get(i);
+                statusPanel.updateConfigState(i,
+                    cfg.isBuzzerEnabled(), cfg.isWarningLightEnabled(), cfg.isBeepEnabled());
             }
+        });
+    }
 
-            @Override
-            public void onLog(ReaderConnection connection, String message) {
-                SwingUtilities.invokeLater(() ->
-                    logPanel.appendLog(connection.getConfig().getName(), message)
-                );
-            }
-        };
+    @Override
+    public void onReaderStatus(int index, ReaderStatus status, boolean beepEnabled) {
+        SwingUtilities.invokeLater(() -> {
+            statusPanel.updateStatus(index, status);
+            // Beep icon active state depends on READING status
+            statusPanel.updateBeepEnabled(index, beepEnabled);
+        });
+    }
 
-        ReaderConnection.TagDataListener tagListener = (connection, epc, rssi, antenna) -> {
-            String mask = ReaderConfig.getEpcMask();
-            if (!mask.isEmpty() && !epc.toUpperCase().startsWith(mask.toUpperCase())) {
-                SwingUtilities.invokeLater(() ->
-                    logPanel.appendLog(connection.getConfig().getName(),
-                        "MASK filtered: EPC=" + epc + " (mask=" + mask + ")")
-                );
-                return;
-            }
+    @Override
+    public void onLightChanged(int index, boolean lightOn) {
+        SwingUtilities.invokeLater(() -> statusPanel.updateLightStatus(index, lightOn));
+    }
 
-            AssetRepository.AssetInfo assetInfo = AssetRepository.getInstance().getAssetInfo(epc);
-            AssetRepository.AssetInfo unauthorizedAsset = AssetRepository.getInstance().checkUnauthorizedExport(epc);
+    @Override
+    public void onBuzzerChanged(int index, boolean buzzerOn) {
+        SwingUtilities.invokeLater(() -> statusPanel.updateBuzzerStatus(index, buzzerOn));
+    }
 
-            String assetStatus = null;
-            if (assetInfo != null) {
-                assetStatus = (unauthorizedAsset != null)
-                    ? TagDataPanel.STATUS_ALERT
-                    : TagDataPanel.STATUS_PERMITTED;
+    @Override
+    public void onLog(String source, String message) {
+        SwingUtilities.invokeLater(() -> {
+            if (source != null) {
+                logPanel.appendLog(source, message);
+            } else {
+                logPanel.appendLog(message);
             }
-
-            final String finalStatus = assetStatus;
-            SwingUtilities.invokeLater(() -> {
-                String assetNumber = assetInfo != null ? assetInfo.getAssetNumber() : null;
-                String assetName = assetInfo != null ? assetInfo.getAssetName() : null;
-                String department = assetInfo != null ? assetInfo.getDepartment() : null;
-
-                boolean isNew = tagDataPanel.addTag(
-                    connection.getConfig().getName(), epc, rssi, antenna,
-                    assetNumber, assetName, department, finalStatus);
-                if (isNew) {
-                    String readTime = HexUtils.nowShort();
-                    String readerName = connection.getConfig().getName();
-                    TagRepository.getInstance().insertTagRead(
-                        epc, readerName, rssi, antenna, readTime);
-                    TagRepository.getInstance().addRecentTag(
-                        readTime, readerName, epc, rssi, antenna,
-                        assetNumber, assetName, department, finalStatus);
-
-                    if (assetNumber != null) {
-                        logPanel.appendLog(readerName,
-                            "ASSET READ: EPC=" + epc
-                            + ", 자산번호=" + assetNumber
-                            + ", 자산명=" + (assetName != null ? assetName : "")
-                            + ", 부서=" + (department != null ? department : ""));
-                    } else {
-                        logPanel.appendLog(readerName,
-                            "TAG READ: EPC=" + epc + ", RSSI=" + rssi + ", ANT=" + antenna);
-                    }
-                }
-
-                if (unauthorizedAsset != null && AssetRepository.getInstance().shouldAlert(epc)) {
-                    String time = HexUtils.nowShort();
-                    String readerName = connection.getConfig().getName();
-
-                    if (connection.getConfig().isWarningLightEnabled()) {
-                        WarningLightController.getInstance().triggerWarningLight(connection);
-                        logPanel.appendLog(readerName,
-                            "WARNING LIGHT ON: EPC=" + epc
-                            + ", 자산번호=" + unauthorizedAsset.getAssetNumber());
-                    }
-
-                    if (connection.getConfig().isBuzzerEnabled()) {
-                        WarningLightController.getInstance().triggerBuzzer(connection);
-                        logPanel.appendLog(readerName,
-                            "BUZZER ON: EPC=" + epc
-                            + ", 자산번호=" + unauthorizedAsset.getAssetNumber());
-                    }
-
-                    AssetRepository.getInstance().insertAlert(
-                        epc, unauthorizedAsset.getAssetNumber(), readerName, rssi, time);
-
-                    logPanel.appendLog(readerName,
-                        "UNAUTHORIZED EXPORT: EPC=" + epc
-                        + ", Asset=" + unauthorizedAsset.getAssetNumber()
-                        + " (" + (unauthorizedAsset.getAssetName() != null ? unauthorizedAsset.getAssetName() : "") + ")");
-                }
-            });
-        };
-
-        readerManager.initialize(configs, statusListener, tagListener);
-        statusPanel.initialize(configs, readerManager, this::saveConfig);
-
-        // Pass config state (buzzer/light/beep) to icons
-        for (int i = 0; i < configs.size(); i++) {
-            ReaderConfig cfg = configs.get(i);
-            statusPanel.updateConfigState(i,
-                cfg.isBuzzerEnabled(), cfg.isWarningLightEnabled(), cfg.isBeepEnabled());
-        }
+        });
     }
 
-    private int findConnectionIndex(ReaderConnection connection) {
-        List<ReaderConnection> connections = readerManager.getConnections();
-        for (int i = 0; i < connections.size(); i++) {
-            if (connections.get(i) == connection) return i;
-        }
-        return -1;
+    @Override
+    public void onTag(TagEvent event) {
+        SwingUtilities.invokeLater(() ->
+            tagDataPanel.addTag(event.time, event.readerName, event.epc, event.rssi, event.antenna,
+                event.assetNumber, event.assetName, event.department, event.status)
+        );
     }
 
-    private void saveConfig() {
-        ReaderConfig.saveToFile(CONFIG_FILE, configs);
+    @Override
+    public void onAlert(TagEvent event) {
+        // 경광등/부저/DB 기록은 엔진에서 처리, 화면은 반출 알림 패널에 추가
+        SwingUtilities.invokeLater(() ->
+            exportAlertPanel.addAlert(event.time, event.readerName, event.epc,
+                event.assetNumber, event.assetName, event.rssi)
+        );
     }
 
     private void showHelpDialog() {
@@ -606,7 +516,7 @@ public class MainFrame extends JFrame {
     }
 
     private void showAssetDbDialog() {
-        if (!DatabaseManager.getInstance().isAvailable()) {
+        if (!StorageManager.getInstance().isAvailable()) {
             JOptionPane.showMessageDialog(this,
                 "\ub370\uc774\ud130\ubca0\uc774\uc2a4\uc5d0 \uc5f0\uacb0\ub418\uc5b4 \uc788\uc9c0 \uc54a\uc2b5\ub2c8\ub2e4.",
                 "\uc790\uc0b0 DB", JOptionPane.WARNING_MESSAGE);
@@ -629,15 +539,9 @@ public class MainFrame extends JFrame {
     private JPanel createAssetsTab() {
         JPanel panel = new JPanel(new BorderLayout());
         String[] cols = {"\uc790\uc0b0\ubc88\ud638", "EPC", "\uc790\uc0b0\uba85", "\ubd80\uc11c", "\ub4f1\ub85d\uc77c\uc2dc", "\ubcf4\uc720\uc5ec\ubd80"};
-        List<String[]> data = AssetRepository.getInstance().queryAssets();
+        LazyTableModel model = new LazyTableModel(cols);
 
-        Object[][] rows = new Object[data.size()][cols.length];
-        for (int i = 0; i < data.size(); i++) {
-            String[] row = data.get(i);
-            rows[i] = new String[] { row[0], row[1], row[2], row[3], row[4], row[5] };
-        }
-
-        JTable table = createStyledTable(rows, cols);
+        JTable table = createStyledTable(model);
         table.getColumnModel().getColumn(0).setPreferredWidth(80);
         table.getColumnModel().getColumn(1).setPreferredWidth(200);
         table.getColumnModel().getColumn(2).setPreferredWidth(120);
@@ -645,8 +549,26 @@ public class MainFrame extends JFrame {
         table.getColumnModel().getColumn(4).setPreferredWidth(130);
         table.getColumnModel().getColumn(5).setPreferredWidth(60);
 
-        JLabel countLabel = new JLabel("  \ucd1d " + data.size() + "\uac74");
+        JLabel countLabel = new JLabel(" ");
         countLabel.setFont(Theme.SMALL);
+        model.setStatusListener(() -> countLabel.setText("  " + model.getStatusText()));
+
+        model.load(new LazyTableModel.PageSource() {
+            @Override
+            public List<String[]> fetchPage(PageCursor after, int limit) {
+                return AssetRepository.getInstance().queryAssetsPage(after, limit);
+            }
+
+            @Override
+            public PageCursor cursorOf(String[] row) {
+                return new PageCursor(row[0], Long.parseLong(row[6]));
+            }
+
+            @Override
+            public long estimateCount() {
+                return AssetRepository.getInstance().estimateAssetRowCount();
+            }
+        });
 
         panel.add(new JScrollPane(table), BorderLayout.CENTER);
         panel.add(countLabel, BorderLayout.SOUTH);
@@ -656,12 +578,9 @@ public class MainFrame extends JFrame {
     private JPanel createPermissionsTab() {
         JPanel panel = new JPanel(new BorderLayout());
         String[] cols = {"EPC", "\uc790\uc0b0\ubc88\ud638", "\uc790\uc0b0\uba85", "\ud5c8\uc6a9\uc2dc\uc791", "\ud5c8\uc6a9\uc885\ub8cc", "\uc0ac\uc720", "\uc0c1\ud0dc"};
-        List<String[]> data = AssetRepository.getInstance().queryExportPermissions();
-
-        Object[][] rows = new Object[data.size()][cols.length];
-        for (int i = 0; i < data.size(); i++) rows[i] = data.get(i);
+        LazyTableModel model = new LazyTableModel(cols);
 
-        JTable table = createStyledTable(rows, cols);
+        JTable table = createStyledTable(model);
         table.getColumnModel().getColumn(0).setPreferredWidth(180);
         table.getColumnModel().getColumn(1).setPreferredWidth(70);
         table.getColumnModel().getColumn(2).setPreferredWidth(90);
@@ -687,8 +606,26 @@ public class MainFrame extends JFrame {
             }
         });
 
-        JLabel countLabel = new JLabel("  \ucd1d " + data.size() + "\uac74");
+        JLabel countLabel = new JLabel(" ");
         countLabel.setFont(Theme.SMALL);
+        model.setStatusListener(() -> countLabel.setText("  " + model.getStatusText()));
+
+        model.load(new LazyTableModel.PageSource() {
+            @Override
+            public List<String[]> fetchPage(PageCursor after, int limit) {
+                return AssetRepository.getInstance().queryExportPermissionsPage(after, limit);
+            }
+
+            @Override
+            public PageCursor cursorOf(String[] row) {
+                return new PageCursor(row[4], Long.parseLong(row[7]));
+            }
+
+            @Override
+            public long estimateCount() {
+                return AssetRepository.getInstance().estimatePermissionRowCount();
+            }
+        });
 
         panel.add(new JScrollPane(table), BorderLayout.CENTER);
         panel.add(countLabel, BorderLayout.SOUTH);
@@ -715,7 +652,8 @@ public class MainFrame extends JFrame {
         filterPanel.add(queryBtn);
 
         String[] cols = {"\uc54c\ub9bc\uc2dc\uac04", "\ub9ac\ub354\uae30", "EPC", "\uc790\uc0b0\ubc88\ud638", "\uc790\uc0b0\uba85", "\ubd80\uc11c", "RSSI"};
-        JTable table = createStyledTable(new Object[0][cols.length], cols);
+        LazyTableModel model = new LazyTableModel(cols);
+        JTable table = createStyledTable(model);
         table.getColumnModel().getColumn(0).setPreferredWidth(130);
         table.getColumnModel().getColumn(1).setPreferredWidth(70);
         table.getColumnModel().getColumn(2).setPreferredWidth(200);
@@ -726,24 +664,27 @@ public class MainFrame extends JFrame {
 
         JLabel countLabel = new JLabel("  \uc870\ud68c \ubc84\ud2bc\uc744 \ub204\ub974\uc138\uc694");
         countLabel.setFont(Theme.SMALL);
+        model.setStatusListener(() -> countLabel.setText("  " + model.getStatusText()));
 
         queryBtn.addActionListener(e -> {
-            List<String[]> data = AssetRepository.getInstance()
-                .queryExportAlerts(fromField.getText().trim(), toField.getText().trim());
-            Object[][] rows = new Object[data.size()][cols.length];
-            for (int i = 0; i < data.size(); i++) rows[i] = data.get(i);
-            table.setModel(new javax.swing.table.DefaultTableModel(rows, cols) {
-                @Override public boolean isCellEditable(int r, int c) { return false; }
+            String from = fromField.getText().trim();
+            String to = toField.getText().trim();
+            model.load(new LazyTableModel.PageSource() {
+                @Override
+                public List<String[]> fetchPage(PageCursor after, int limit) {
+                    return AssetRepository.getInstance().queryExportAlertsPage(from, to, after, limit);
+                }
+
+                @Override
+                public PageCursor cursorOf(String[] row) {
+                    return new PageCursor(row[0], Long.parseLong(row[7]));
+                }
+
+                @Override
+                public long estimateCount() {
+                    return AssetRepository.getInstance().estimateExportAlertCount(from, to);
+                }
             });
-            Theme.styleTable(table);
-            table.getColumnModel().getColumn(0).setPreferredWidth(130);
-            table.getColumnModel().getColumn(1).setPreferredWidth(70);
-            table.getColumnModel().getColumn(2).setPreferredWidth(200);
-            table.getColumnModel().getColumn(3).setPreferredWidth(80);
-            table.getColumnModel().getColumn(4).setPreferredWidth(100);
-            table.getColumnModel().getColumn(5).setPreferredWidth(70);
-            table.getColumnModel().getColumn(6).setPreferredWidth(40);
-            countLabel.setText("  \ucd1d " + data.size() + "\uac74");
         });
 
         queryBtn.doClick();
@@ -794,12 +735,12 @@ public class MainFrame extends JFrame {
         Runnable loadCacheData = () -> {
             AssetRepository repo = AssetRepository.getInstance();
 
-            Map<String, AssetRepository.AssetInfo> assetMap = repo.getAssetMapCopy();
+            // 자산이 수백만 건이면 전체 복사 대신 앞부분만 표시 (건수는 요약에 전체)
+            List<AssetRepository.AssetInfo> assets = repo.getAssetsPreview(CACHE_VIEW_MAX_ROWS);
             List<String[]> assetRows = new ArrayList<>();
-            for (Map.Entry<String, AssetRepository.AssetInfo> entry : assetMap.entrySet()) {
-                AssetRepository.AssetInfo info = entry.getValue();
+            for (AssetRepository.AssetInfo info : assets) {
                 assetRows.add(new String[]{
-                    entry.getKey(),
+                    info.getEpc(),
                     info.getAssetNumber() != null ? info.getAssetNumber() : "",
                     info.getAssetName() != null ? info.getAssetName() : "",
                     info.getDepartment() != null ? info.getDepartment() : ""
@@ -819,7 +760,7 @@ public class MainFrame extends JFrame {
                 @Override public boolean isCellEditable(int r, int c) { return false; }
             });
 
-            Set<String> tagKeys = tagDataPanel.getDbDedupCacheKeys();
+            Set<String> tagKeys = localEngine.getTagDedupKeys();
             Object[][] tRows = new Object[tagKeys.size()][1];
             int ti = 0;
             for (String epc : tagKeys) tRows[ti++] = new Object[]{epc};
@@ -837,8 +778,8 @@ public class MainFrame extends JFrame {
 
             summaryLabel.setText(String.format(
                 "\uc790\uc0b0: %d\uac74  |  \ubc18\ucd9c\ud5c8\uc6a9: %d\uac74  |  \ud0dc\uadf8 DB\uce90\uc2dc: %d\uac74  |  \uc54c\ub9bc\uce90\uc2dc: %d\uac74",
-                assetMap.size(), permitted.size(),
-                tagDataPanel.getDbDedupCacheSize(), repo.getAlertDedupSize()));
+                repo.getAssetCount(), permitted.size(),
+                localEngine.getTagDedupSize(), repo.getAlertDedupSize()));
         };
 
         refreshBtn.addActionListener(e -> {
@@ -857,7 +798,11 @@ public class MainFrame extends JFrame {
 
     /** Styled table with zebra striping */
     private JTable createStyledTable(Object[][] rows, String[] cols) {
-        JTable table = new JTable(rows, cols) {
+        return createStyledTable(new javax.swing.table.DefaultTableModel(rows, cols));
+    }
+
+    private JTable createStyledTable(javax.swing.table.TableModel model) {
+        JTable table = new JTable(model) {
             @Override public boolean isCellEditable(int row, int col) { return false; }
             @Override
             public Component prepareRenderer(javax.swing.table.TableCellRenderer renderer, int row, int column) {
@@ -896,15 +841,12 @@ public class MainFrame extends JFrame {
     }
 
     private void openConfigDialog() {
-        ConfigDialog dialog = new ConfigDialog(this, configs);
+        if (localEngine == null) return;
+        ConfigDialog dialog = new ConfigDialog(this, localEngine.getReaderConfigs());
         dialog.setVisible(true);
 
         if (dialog.isConfirmed()) {
-            configs = dialog.getConfigs();
-            ReaderConfig.saveToFile(CONFIG_FILE, configs);
-            logPanel.appendLog("Config saved: " + configs.size() + " reader(s)");
-            initializeReaders();
-            WarningLightController.getInstance().setAutoOffDelayMs(ReaderConfig.getWarningDuration() * 1000);
+            localEngine.applyConfigs(dialog.getConfigs());
             showToast("설정이 저장되었습니다.");
         }
     }
@@ -1,7 +1,7 @@
 package com.apulse.middleware.gui;
 
 import com.apulse.middleware.config.ReaderConfig;
-import com.apulse.middleware.reader.ReaderManager;
+import com.apulse.middleware.reader.ReaderControl;
 import com.apulse.middleware.reader.ReaderStatus;
 
 import javax.swing.*;
@@ -68,7 +68,7 @@ public class ReaderStatusPanel extends JPanel {
         });
     }
 
-    public void initialize(List<ReaderConfig> configs, ReaderManager manager, Runnable onConfigChanged) {
+    public void initialize(List<ReaderConfig> configs, ReaderControl manager, Runnable onConfigChanged) {
         iconContainer.removeAll();
         icons.clear();
 
@@ -1,32 +1,28 @@
 package com.apulse.middleware.gui;
 
-import com.apulse.middleware.db.DatabaseManager;
+import com.apulse.middleware.db.PageCursor;
+import com.apulse.middleware.db.StorageManager;
 import com.apulse.middleware.db.TagRepository;
+import com.apulse.middleware.engine.MiddlewareEngine;
+import com.apulse.middleware.export.TagExporter;
 import com.apulse.middleware.reader.TagData;
-import com.apulse.middleware.util.HexUtils;
-
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
+import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
-import java.io.PrintWriter;
-import java.nio.charset.StandardCharsets;
+import java.io.OutputStream;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CancellationException;
 
 public class TagDataPanel extends JPanel {
     private final TagTableModel tableModel;
@@ -34,18 +30,16 @@ public class TagDataPanel extends JPanel {
     private final JLabel countLabel;
     private final JCheckBox deduplicateCheck;
 
-    private Cache<String, Boolean> dbDedupCache;
     private final Map<String, TagData> tagDedup = new LinkedHashMap<>();
     private final List<TagData> tagList = new ArrayList<>();
 
-    public static final String STATUS_PERMITTED = "\ubc18\ucd9c\ud5c8\uc6a9";
-    public static final String STATUS_ALERT = "\ubc18\ucd9c\uc54c\ub9bc";
+    /** 초기화 시 함께 실행할 동작 (엔진 DB 중복제거 캐시 초기화 등) */
+    private Runnable clearAction;
 
-    public TagDataPanel() {
-        this(30, 10000);
-    }
+    public static final String STATUS_PERMITTED = MiddlewareEngine.STATUS_PERMITTED;
+    public static final String STATUS_ALERT = MiddlewareEngine.STATUS_ALERT;
 
-    public TagDataPanel(int cacheTtlSeconds, int cacheMaxSize) {
+    public TagDataPanel() {
         setLayout(new BorderLayout());
         setOpaque(true);
         setBackground(Theme.CONTENT_BG);
@@ -71,7 +65,7 @@ public class TagDataPanel extends JPanel {
             + "\u25b6 \ud558\ub2e8 \ubc84\ud2bc\n"
             + "  \u2022 \uc911\ubcf5\uc81c\uac70: \ub3d9\uc77c EPC \ud0dc\uadf8 \ubcd1\ud569 \ud45c\uc2dc (ON/OFF)\n"
             + "  \u2022 \ucd08\uae30\ud654: \ud14c\uc774\ube14 \ub370\uc774\ud130 \uc804\uccb4 \uc0ad\uc81c\n"
-            + "  \u2022 \uc5d1\uc140 \uc800\uc7a5: \ud604\uc7ac \ub370\uc774\ud130\ub97c .xls \ud30c\uc77c\ub85c \ub0b4\ubcf4\ub0b4\uae30\n"
+            + "  \u2022 \ub0b4\ubcf4\ub0b4\uae30: \ud654\uba74 \ubaa9\ub85d \ub610\ub294 DB \uae30\uac04 \ub370\uc774\ud130\ub97c CSV/XLSX\ub85c \uc800\uc7a5 (\ubc31\uadf8\ub77c\uc6b4\ub4dc, \ucde8\uc18c \uac00\ub2a5)\n"
             + "  \u2022 DB \uc870\ud68c: \uae30\uac04\ubcc4 tag_reads \ud14c\uc774\ube14 \uc870\ud68c\n\n"
             + "\u25b6 \ud654\uba74 \ud45c\uc2dc vs DB \uc800\uc7a5\n"
             + "  \u2022 \ud654\uba74 \uadf8\ub9ac\ub4dc: \ud0dc\uadf8 \uac10\uc9c0 \uc989\uc2dc \uc2e4\uc2dc\uac04 \ud45c\uc2dc\n"
@@ -82,18 +76,13 @@ public class TagDataPanel extends JPanel {
             + "       \u2192 \ud654\uba74\uc5d0\ub9cc \uc5c5\ub370\uc774\ud2b8, DB \uc800\uc7a5 \uc548 \ud568\n"
             + "     - TTL \ub9cc\ub8cc \ud6c4 \ub3d9\uc77c EPC \uc7ac\uac10\uc9c0\n"
             + "       \u2192 \uc2e0\uaddc \ub370\uc774\ud130\ub85c DB INSERT\n"
-            + "  2) \uc2e0\uaddc \ud0dc\uadf8\ub9cc BlockingQueue\uc5d0 \ub123\uc74c (\uc989\uc2dc DB \uc4f0\uae30 \uc544\ub2d8)\n"
-            + "  3) TagDB-Writer \ubc31\uadf8\ub77c\uc6b4\ub4dc \uc2a4\ub808\ub4dc\uac00 \ubc30\uce58 \ucc98\ub9ac\n"
-            + "     - 50\uac74 \ubaa8\uc774\uac70\ub098 500ms \uacbd\uacfc \uc2dc executeBatch()\n"
-            + "  4) \uc800\uc7a5 \ucee8\ub7fc: EPC, \ub9ac\ub354\uae30\uba85, RSSI, \uc548\ud14c\ub098, \uc77d\uae30\uc2dc\uac01\n"
-            + "  5) \uc885\ub8cc \uc2dc \ub300\uae30 \uc911\uc778 \ub370\uc774\ud130 \uc790\ub3d9 flush"
+            + "  2) \uc2e0\uaddc \ud0dc\uadf8\ub294 \ub514\uc2a4\ud06c \uc800\ub110\uc5d0 \uba3c\uc800 \uae30\ub85d (DB \uc7a5\uc560 \uc911\uc5d0\ub3c4 \ubcf4\uc874)\n"
+            + "  3) TagDB-Writer \uc2a4\ub808\ub4dc\uac00 \uc800\ub110\uc744 \ubc30\uce58\ub85c \uc77d\uc5b4 INSERT\n"
+            + "     - \uc720\uc785\ub7c9/\ucee4\ubc0b \uc9c0\uc5f0\uc5d0 \ub530\ub77c \ubc30\uce58 \ud06c\uae30\uc640 \ub300\uae30\uc2dc\uac04 \uc790\ub3d9 \uc870\uc808\n"
+            + "  4) \uc800\uc7a5 \uceec\ub7fc: EPC(\ubc14\uc774\ub108\ub9ac), \ub9ac\ub354\uae30 id(readers \ud14c\uc774\ube14), RSSI, \uc548\ud14c\ub098, \uc77d\uae30\uc2dc\uac01(\ubc00\ub9ac\ucd08)\n"
+            + "  5) \uc885\ub8cc \uc2dc \ubabb \uc4f4 \ub370\uc774\ud130\ub294 \uc800\ub110\uc5d0 \ub0a8\uc544 \ub2e4\uc74c \uae30\ub3d9 \uc2dc \uae30\ub85d"
         ), BorderLayout.NORTH);
 
-        dbDedupCache = Caffeine.newBuilder()
-            .expireAfterWrite(cacheTtlSeconds, TimeUnit.SECONDS)
-            .maximumSize(cacheMaxSize)
-            .build();
-
         tableModel = new TagTableModel();
         table = new JTable(tableModel) {
             @Override
@@ -159,7 +148,7 @@ public class TagDataPanel extends JPanel {
         rightPanel.setOpaque(false);
 
         JButton clearButton = Theme.createFlatButton("\ucd08\uae30\ud654", e -> clearTags());
-        JButton exportButton = Theme.createFlatButton("\uc5d1\uc140 \uc800\uc7a5", e -> exportToExcel());
+        JButton exportButton = Theme.createFlatButton("\ub0b4\ubcf4\ub0b4\uae30", e -> exportTags());
         JButton dbQueryButton = Theme.createFlatButton("DB \uc870\ud68c", e -> showDbQueryDialog());
 
         rightPanel.add(clearButton);
@@ -178,16 +167,10 @@ public class TagDataPanel extends JPanel {
         add(centerPanel, BorderLayout.CENTER);
     }
 
-    public boolean addTag(String readerName, String epc, int rssi, int antenna,
-                          String assetNumber, String assetName, String department,
-                          String assetStatus) {
-        String time = HexUtils.nowShort();
-
-        boolean isNew = (dbDedupCache.getIfPresent(epc) == null);
-        if (isNew) {
-            dbDedupCache.put(epc, Boolean.TRUE);
-        }
-
+    /** 엔진이 처리한 태그를 화면에 반영 (EDT에서 호출) */
+    public void addTag(String time, String readerName, String epc, int rssi, int antenna,
+                       String assetNumber, String assetName, String department,
+                       String assetStatus) {
         TagData existing = tagDedup.get(epc);
         if (existing != null) {
             existing.update(rssi, antenna, time, readerName);
@@ -204,7 +187,6 @@ public class TagDataPanel extends JPanel {
 
         tableModel.refresh();
         updateCountLabel();
-        return isNew;
     }
 
     private void onDeduplicateToggle() {
@@ -231,16 +213,12 @@ public class TagDataPanel extends JPanel {
         }
     }
 
-    public Set<String> getDbDedupCacheKeys() {
-        return new HashSet<>(dbDedupCache.asMap().keySet());
-    }
-
-    public long getDbDedupCacheSize() {
-        return dbDedupCache.estimatedSize();
+    public void setClearAction(Runnable clearAction) {
+        this.clearAction = clearAction;
     }
 
     public void clearTags() {
-        dbDedupCache.invalidateAll();
+        if (clearAction != null) clearAction.run();
         tagDedup.clear();
         tagList.clear();
         tableModel.refresh();
@@ -248,7 +226,7 @@ public class TagDataPanel extends JPanel {
     }
 
     private void showDbQueryDialog() {
-        if (!DatabaseManager.getInstance().isAvailable()) {
+        if (!StorageManager.getInstance().isAvailable()) {
             JOptionPane.showMessageDialog(this,
                 "\ub370\uc774\ud130\ubca0\uc774\uc2a4\uc5d0 \uc5f0\uacb0\ub418\uc5b4 \uc788\uc9c0 \uc54a\uc2b5\ub2c8\ub2e4.",
                 "DB \uc870\ud68c", JOptionPane.WARNING_MESSAGE);
@@ -270,103 +248,143 @@ public class TagDataPanel extends JPanel {
             "DB \uc870\ud68c - \uae30\uac04 \uc120\ud0dd", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
         if (result != JOptionPane.OK_OPTION) return;
 
-        List<TagData> dbData = TagRepository.getInstance()
-            .getTagReads(fromField.getText().trim(), toField.getText().trim());
-
-        if (dbData.isEmpty()) {
-            JOptionPane.showMessageDialog(this,
-                "\uc870\ud68c\ub41c \ub370\uc774\ud130\uac00 \uc5c6\uc2b5\ub2c8\ub2e4.",
-                "DB \uc870\ud68c", JOptionPane.INFORMATION_MESSAGE);
-            return;
-        }
+        String from = fromField.getText().trim();
+        String to = toField.getText().trim();
 
         String[] cols = {"\uc2dc\uac04", "\ub9ac\ub354\uae30", "EPC", "RSSI", "\uc548\ud14c\ub098"};
-        Object[][] rows = new Object[dbData.size()][5];
-        for (int i = 0; i < dbData.size(); i++) {
-            TagData t = dbData.get(i);
-            rows[i][0] = t.getLastSeen();
-            rows[i][1] = t.getReaderName();
-            rows[i][2] = t.getEpc();
-            rows[i][3] = t.getRssi();
-            rows[i][4] = t.getAntenna();
-        }
-
-        JTable resultTable = new JTable(rows, cols);
+        LazyTableModel model = new LazyTableModel(cols);
+        JTable resultTable = new JTable(model);
         Theme.styleTable(resultTable);
 
+        JLabel statusLabel = new JLabel(" ");
+        statusLabel.setFont(Theme.SMALL);
+        model.setStatusListener(() -> statusLabel.setText("  " + model.getStatusText()));
+        model.load(new LazyTableModel.PageSource() {
+            @Override
+            public List<String[]> fetchPage(PageCursor after, int limit) {
+                return TagRepository.getInstance().getTagReadsPage(from, to, after, limit);
+            }
+
+            @Override
+            public PageCursor cursorOf(String[] row) {
+                return new PageCursor(row[6], Long.parseLong(row[5]));
+            }
+
+            @Override
+            public long estimateCount() {
+                return TagRepository.getInstance().estimateTagReadCount(from, to);
+            }
+        });
+
+        JPanel resultPanel = new JPanel(new BorderLayout());
         JScrollPane sp = new JScrollPane(resultTable);
         sp.setPreferredSize(new Dimension(600, 400));
+        resultPanel.add(sp, BorderLayout.CENTER);
+        resultPanel.add(statusLabel, BorderLayout.SOUTH);
 
         JOptionPane.showMessageDialog(
-            SwingUtilities.getWindowAncestor(this), sp,
-            "DB \uc870\ud68c \uacb0\uacfc (" + dbData.size() + "\uac74)", JOptionPane.PLAIN_MESSAGE);
+            SwingUtilities.getWindowAncestor(this), resultPanel,
+            "DB \uc870\ud68c \uacb0\uacfc (" + from + " ~ " + to + ")", JOptionPane.PLAIN_MESSAGE);
     }
 
-    private void exportToExcel() {
-        List<TagData> data = getCurrentData();
-        if (data.isEmpty()) {
-            JOptionPane.showMessageDialog(this, "\ub0b4\ubcf4\ub0bc \ud0dc\uadf8 \ub370\uc774\ud130\uac00 \uc5c6\uc2b5\ub2c8\ub2e4.",
-                "\uc54c\ub9bc", JOptionPane.INFORMATION_MESSAGE);
-            return;
+    private void exportTags() {
+        SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+        String today = new SimpleDateFormat("yyyy-MM-dd").format(new Date());
+        JRadioButton memoryRadio = new JRadioButton("\ud654\uba74 \ubaa9\ub85d", true);
+        JRadioButton dbRadio = new JRadioButton("DB \uae30\uac04 \uc870\ud68c");
+        ButtonGroup sourceGroup = new ButtonGroup();
+        sourceGroup.add(memoryRadio);
+        sourceGroup.add(dbRadio);
+        JTextField fromField = new JTextField(today + " 00:00:00");
+        JTextField toField = new JTextField(sdf.format(new Date()));
+        JComboBox<TagExporter.Format> formatCombo = new JComboBox<>(TagExporter.Format.values());
+        formatCombo.setSelectedItem(TagExporter.Format.XLSX);
+        dbRadio.setEnabled(StorageManager.getInstance().isAvailable());
+
+        JPanel panel = new JPanel(new GridLayout(5, 2, 5, 5));
+        panel.add(memoryRadio);
+        panel.add(dbRadio);
+        panel.add(new JLabel("\uc2dc\uc791 \uc2dc\uac04 (DB):"));
+        panel.add(fromField);
+        panel.add(new JLabel("\uc885\ub8cc \uc2dc\uac04 (DB):"));
+        panel.add(toField);
+        panel.add(new JLabel("\ud615\uc2dd:"));
+        panel.add(formatCombo);
+
+        int result = JOptionPane.showConfirmDialog(this, panel,
+            "\ub0b4\ubcf4\ub0b4\uae30", JOptionPane.OK_CANCEL_OPTION, JOptionPane.PLAIN_MESSAGE);
+        if (result != JOptionPane.OK_OPTION) return;
+
+        TagExporter.RowSource source;
+        if (dbRadio.isSelected()) {
+            source = TagExporter.fromDatabase(fromField.getText().trim(), toField.getText().trim());
+        } else {
+            List<TagData> data = getCurrentData();
+            if (data.isEmpty()) {
+                JOptionPane.showMessageDialog(this, "\ub0b4\ubcf4\ub0bc \ud0dc\uadf8 \ub370\uc774\ud130\uac00 \uc5c6\uc2b5\ub2c8\ub2e4.",
+                    "\uc54c\ub9bc", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            source = TagExporter.fromTagData(data);
         }
 
-        String defaultName = "tags_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + ".xls";
+        TagExporter.Format format = (TagExporter.Format) formatCombo.getSelectedItem();
+        String ext = format.getExtension();
+        String defaultName = "tags_" + new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date()) + "." + ext;
         JFileChooser chooser = new JFileChooser(".");
         chooser.setSelectedFile(new File(defaultName));
-        chooser.setFileFilter(new FileNameExtensionFilter("Excel (*.xls)", "xls"));
+        chooser.setFileFilter(new FileNameExtensionFilter(ext.toUpperCase() + " (*." + ext + ")", ext));
 
         if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
             return;
         }
 
-        File file = chooser.getSelectedFile();
-        if (!file.getName().toLowerCase().endsWith(".xls")) {
-            file = new File(file.getAbsolutePath() + ".xls");
-        }
+        File chosen = chooser.getSelectedFile();
+        File file = chosen.getName().toLowerCase().endsWith("." + ext)
+            ? chosen : new File(chosen.getAbsolutePath() + "." + ext);
 
-        try (PrintWriter pw = new PrintWriter(
-                new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+        ProgressMonitor monitor = new ProgressMonitor(SwingUtilities.getWindowAncestor(this),
+            "\ub0b4\ubcf4\ub0b4\ub294 \uc911: " + file.getName(), "", 0, 1000);
+        monitor.setMillisToDecideToPopup(200);
 
-            pw.println("<html>");
-            pw.println("<head><meta charset=\"UTF-8\">");
-            pw.println("<style>td,th { mso-number-format:\\@; }</style>");
-            pw.println("</head>");
-            pw.println("<body>");
-            pw.println("<table border=\"1\">");
-
-            pw.println("<tr>");
-            for (String col : tableModel.columns) {
-                pw.println("  <th>" + col + "</th>");
-            }
-            pw.println("</tr>");
-
-            for (TagData tag : data) {
-                pw.println("<tr>");
-                pw.println("  <td>" + tag.getLastSeen() + "</td>");
-                pw.println("  <td>" + tag.getReaderName() + "</td>");
-                pw.println("  <td>" + tag.getEpc() + "</td>");
-                pw.println("  <td>" + tag.getRssi() + "</td>");
-                pw.println("  <td>" + tag.getAntenna() + "</td>");
-                pw.println("  <td>" + tag.getCount() + "</td>");
-                pw.println("  <td>" + (tag.getAssetNumber() != null ? tag.getAssetNumber() : "") + "</td>");
-                pw.println("  <td>" + (tag.getAssetName() != null ? tag.getAssetName() : "") + "</td>");
-                pw.println("  <td>" + (tag.getDepartment() != null ? tag.getDepartment() : "") + "</td>");
-                pw.println("  <td>" + (tag.getAssetStatus() != null ? tag.getAssetStatus() : "") + "</td>");
-                pw.println("</tr>");
+        new SwingWorker<Long, Void>() {
+            @Override
+            protected Long doInBackground() throws Exception {
+                try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file), 256 * 1024)) {
+                    return TagExporter.export(source, format, os, (written, total) -> {
+                        SwingUtilities.invokeLater(() -> {
+                            if (total > 0) {
+                                monitor.setProgress((int) Math.min(999, written * 1000 / Math.max(total, written + 1)));
+                            }
+                            monitor.setNote(written + "\uac74");
+                        });
+                        return !monitor.isCanceled();
+                    });
+                }
             }
 
-            pw.println("</table>");
-            pw.println("</body></html>");
-
-            JOptionPane.showMessageDialog(this,
-                "\uc800\uc7a5 \uc644\ub8cc: " + file.getAbsolutePath() + "\n(" + data.size() + "\uac74)",
-                "\uc5d1\uc140 \uc800\uc7a5", JOptionPane.INFORMATION_MESSAGE);
-
-        } catch (Exception ex) {
-            JOptionPane.showMessageDialog(this,
-                "\uc800\uc7a5 \uc2e4\ud328: " + ex.getMessage(),
-                "\uc624\ub958", JOptionPane.ERROR_MESSAGE);
-        }
+            @Override
+            protected void done() {
+                monitor.close();
+                try {
+                    long count = get();
+                    JOptionPane.showMessageDialog(TagDataPanel.this,
+                        "\uc800\uc7a5 \uc644\ub8cc: " + file.getAbsolutePath() + "\n(" + count + "\uac74)",
+                        "\ub0b4\ubcf4\ub0b4\uae30", JOptionPane.INFORMATION_MESSAGE);
+                } catch (Exception ex) {
+                    Throwable cause = (ex.getCause() != null) ? ex.getCause() : ex;
+                    file.delete();
+                    if (cause instanceof CancellationException) {
+                        JOptionPane.showMessageDialog(TagDataPanel.this, "\ub0b4\ubcf4\ub0b4\uae30\uac00 \ucde8\uc18c\ub418\uc5c8\uc2b5\ub2c8\ub2e4.",
+                            "\ub0b4\ubcf4\ub0b4\uae30", JOptionPane.INFORMATION_MESSAGE);
+                    } else {
+                        JOptionPane.showMessageDialog(TagDataPanel.this,
+                            "\uc800\uc7a5 \uc2e4\ud328: " + cause.getMessage(),
+                            "\uc624\ub958", JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }
+        }.execute();
     }
 
     private class TagTableModel extends AbstractTableModel {
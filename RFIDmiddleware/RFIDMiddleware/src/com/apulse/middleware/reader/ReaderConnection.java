@@ -570,12 +570,13 @@ public class ReaderConnection {
                 rssi = reportData[offset];  // signed byte
             }
 
-            AppLogger.debug(config.getName(), String.format("EPC=%s, RSSI=%d, Ant=%d, PC=0x%04X",
-                epc, rssi, antenna, pc));
-
+            // 리스너(반출 알림 판정)를 먼저 호출하고 디버그 로그 포맷은 그 뒤에 수행
             for (TagDataListener l : tagListeners) {
                 l.onTagRead(this, epc, rssi, antenna);
             }
+
+            AppLogger.debug(config.getName(), String.format("EPC=%s, RSSI=%d, Ant=%d, PC=0x%04X",
+                epc, rssi, antenna, pc));
         } catch (Exception e) {
             log("Report parse error: " + HexUtils.bytesToHex(reportData, 0, reportDataLen));
         }
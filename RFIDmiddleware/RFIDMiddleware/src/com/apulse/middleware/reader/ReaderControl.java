@@ -0,0 +1,24 @@
+package com.apulse.middleware.reader;
+
+/**
+ * 리더기 제어 명령.
+ * 로컬 ReaderManager와 원격 엔진 클라이언트(REST 전송)가 같은 인터페이스로 구현하여
+ * GUI 아이콘/버튼이 실행 위치와 무관하게 명령을 보낼 수 있도록 한다.
+ */
+public interface ReaderControl {
+    void connectAll();
+    void disconnectAll();
+    void startInventoryAll();
+    void stopInventoryAll();
+
+    void connect(int index);
+    void disconnect(int index);
+    void startInventory(int index);
+    void stopInventory(int index);
+    void lightOn(int index);
+    void lightOff(int index);
+    void buzzerOn(int index);
+    void buzzerOff(int index);
+    void setAntennaConfig(int index, int[] powers);
+    void setDwellTime(int index, short onTime, short offTime);
+}
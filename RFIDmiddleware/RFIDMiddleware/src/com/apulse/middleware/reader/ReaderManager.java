@@ -8,7 +8,7 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
-public class ReaderManager {
+public class ReaderManager implements ReaderControl {
     private final List<ReaderConnection> connections = new ArrayList<>();
     private ExecutorService executor = createExecutor();
 
@@ -0,0 +1,111 @@
+package com.apulse.middleware.util;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 서킷 브레이커 (CLOSED → OPEN → HALF_OPEN → CLOSED).
+ * 연속 실패가 임계값에 도달하면 OPEN으로 전환되어 호출자가 즉시 실패(fail fast)하도록 하고,
+ * 외부 복구 루프가 tryHalfOpen()으로 시험 호출 1건을 직접 수행한 뒤 그 결과로 CLOSED/OPEN을 결정한다
+ * (HALF_OPEN 동안 다른 호출은 허용하지 않음).
+ * recordSuccess/recordFailure에는 실제로 실행한 작업의 결과만 알려야 한다.
+ * 상태 전환은 등록된 리스너에 통지된다.
+ */
+public class CircuitBreaker {
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    public interface StateListener {
+        void onStateChanged(State from, State to, String reason);
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final AtomicReference<State> state = new AtomicReference<>(State.CLOSED);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicLong openCount = new AtomicLong();
+    private final List<StateListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile long stateSince = System.currentTimeMillis();
+    private volatile String lastError;
+
+    public CircuitBreaker(String name, int failureThreshold) {
+        this.name = name;
+        this.failureThreshold = Math.max(1, failureThreshold);
+    }
+
+    public void addListener(StateListener listener) {
+        listeners.add(listener);
+    }
+
+    /** 호출 허용 여부 (CLOSED일 때만 true - HALF_OPEN의 시험 호출은 tryHalfOpen()을 부른 쪽만 수행) */
+    public boolean allowRequest() {
+        return state.get() == State.CLOSED;
+    }
+
+    public void recordSuccess() {
+        consecutiveFailures.set(0);
+        transition(State.HALF_OPEN, State.CLOSED, "trial call succeeded");
+    }
+
+    public void recordFailure(String reason) {
+        lastError = reason;
+        if (transition(State.HALF_OPEN, State.OPEN, reason)) return;
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            transition(State.CLOSED, State.OPEN, reason);
+        }
+    }
+
+    /** 강제 OPEN (초기 연결 실패 등) */
+    public void trip(String reason) {
+        lastError = reason;
+        if (!transition(State.CLOSED, State.OPEN, reason)) {
+            transition(State.HALF_OPEN, State.OPEN, reason);
+        }
+    }
+
+    /**
+     * 복구 루프가 대상 회복을 확인한 뒤 HALF_OPEN으로 전환. true를 받은 호출자가 유일한 시험 호출을 수행하고
+     * 결과를 recordSuccess/recordFailure로 알려야 한다
+     */
+    public boolean tryHalfOpen() {
+        return transition(State.OPEN, State.HALF_OPEN, "probe succeeded");
+    }
+
+    private boolean transition(State from, State to, String reason) {
+        if (!state.compareAndSet(from, to)) return false;
+        stateSince = System.currentTimeMillis();
+        if (to == State.OPEN) openCount.incrementAndGet();
+        if (to == State.CLOSED) consecutiveFailures.set(0);
+        for (StateListener l : listeners) {
+            try {
+                l.onStateChanged(from, to, reason);
+            } catch (Exception e) {
+                AppLogger.error("CircuitBreaker", "[" + name + "] Listener failed: " + e.getMessage());
+            }
+        }
+        return true;
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    /** {"state":..,"since":..,"consecutiveFailures":..,"opens":..,"lastError":..} */
+    public String toJson() {
+        return "{\"state\":\"" + state.get() + "\""
+            + ",\"since\":" + JsonUtils.toJsonString(
+                new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date(stateSince)))
+            + ",\"consecutiveFailures\":" + consecutiveFailures.get()
+            + ",\"opens\":" + openCount.get()
+            + ",\"lastError\":" + JsonUtils.toJsonString(lastError)
+            + "}";
+    }
+}
@@ -0,0 +1,102 @@
+package com.apulse.middleware.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** 외부 라이브러리 없는 최소 JSON 유틸 (REST API 서버/원격 클라이언트 공용) */
+public class JsonUtils {
+    private JsonUtils() {}
+
+    public static String escape(String s) {
+        if (s == null) return "";
+        return s.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n").replace("\r", "\\r").replace("\t", "\\t");
+    }
+
+    public static String toJsonString(String value) {
+        if (value == null) return "null";
+        return "\"" + escape(value) + "\"";
+    }
+
+    /** 평면 JSON 객체의 필드 추출 (중첩 객체/배열 미지원) */
+    public static Map<String, String> parseFields(String json) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        if (json == null || json.trim().isEmpty()) return fields;
+
+        json = json.trim();
+        if (json.startsWith("{")) json = json.substring(1);
+        if (json.endsWith("}")) json = json.substring(0, json.length() - 1);
+
+        int i = 0;
+        while (i < json.length()) {
+            // find key
+            int keyStart = json.indexOf('"', i);
+            if (keyStart < 0) break;
+            int keyEnd = json.indexOf('"', keyStart + 1);
+            if (keyEnd < 0) break;
+            String key = json.substring(keyStart + 1, keyEnd);
+
+            // find colon
+            int colon = json.indexOf(':', keyEnd + 1);
+            if (colon < 0) break;
+
+            // find value
+            int valStart = colon + 1;
+            while (valStart < json.length() && json.charAt(valStart) == ' ') valStart++;
+
+            String value;
+            if (valStart < json.length() && json.charAt(valStart) == '"') {
+                // string value
+                int valEnd = findClosingQuote(json, valStart + 1);
+                value = unescape(json.substring(valStart + 1, valEnd));
+                i = valEnd + 1;
+            } else if (valStart < json.length() && json.startsWith("null", valStart)) {
+                value = null;
+                i = valStart + 4;
+            } else {
+                // number or boolean
+                int valEnd = valStart;
+                while (valEnd < json.length() && json.charAt(valEnd) != ',' && json.charAt(valEnd) != '}') {
+                    valEnd++;
+                }
+                value = json.substring(valStart, valEnd).trim();
+                i = valEnd;
+            }
+
+            fields.put(key, value);
+
+            // skip comma
+            while (i < json.length() && (json.charAt(i) == ',' || json.charAt(i) == ' ')) i++;
+        }
+        return fields;
+    }
+
+    private static String unescape(String s) {
+        if (s.indexOf('\\') < 0) return s;
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '\\' && i + 1 < s.length()) {
+                char n = s.charAt(++i);
+                switch (n) {
+                    case 'n': sb.append('\n'); break;
+                    case 'r': sb.append('\r'); break;
+                    case 't': sb.append('\t'); break;
+                    default: sb.append(n);
+                }
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int findClosingQuote(String s, int from) {
+        for (int i = from; i < s.length(); i++) {
+            if (s.charAt(i) == '"' && (i == 0 || s.charAt(i - 1) != '\\')) {
+                return i;
+            }
+        }
+        return s.length();
+    }
+}
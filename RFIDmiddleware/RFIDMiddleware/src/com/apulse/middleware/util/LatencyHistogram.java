@@ -0,0 +1,110 @@
+package com.apulse.middleware.util;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 지연시간 히스토그램 (lock-free, 고정 메모리).
+ * 마이크로초 단위로 2의 거듭제곱 구간마다 8개 하위 구간을 두어 상대 오차 12.5% 이내로 기록한다.
+ * 1us ~ 약 17분 범위이며, 초과 값은 마지막 구간에 누적된다.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    /** 이 값 미만은 1us 단위 구간에 그대로 기록 */
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    private static final int MAX_MSB = 30;
+    private static final int BUCKET_COUNT = LINEAR_LIMIT + (MAX_MSB - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        recordMicros(Math.max(0, nanos / 1000));
+    }
+
+    public void recordMicros(long micros) {
+        buckets.incrementAndGet(indexOf(micros));
+        count.incrementAndGet();
+        sumMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    private static int indexOf(long v) {
+        if (v < LINEAR_LIMIT) return (int) v;
+        int msb = 63 - Long.numberOfLeadingZeros(v);
+        if (msb > MAX_MSB) return BUCKET_COUNT - 1;
+        int sub = (int) (v >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_LIMIT + (msb - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + sub;
+    }
+
+    /** 구간 상한값 (us) */
+    private static long upperBoundOf(int index) {
+        if (index < LINEAR_LIMIT) return index;
+        int msb = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        long base = (long) (SUB_BUCKETS + sub) << (msb - SUB_BUCKET_BITS);
+        return base + (1L << (msb - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getMaxMicros() {
+        return maxMicros.get();
+    }
+
+    public double getMeanMicros() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sumMicros.get() / n;
+    }
+
+    /** 백분위수 (us, 구간 상한 기준). 기록이 없으면 0 */
+    public long percentileMicros(double percentile) {
+        long n = count.get();
+        if (n == 0) return 0;
+        long target = Math.max(1, (long) Math.ceil(n * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= target) return Math.min(upperBoundOf(i), maxMicros.get());
+        }
+        return maxMicros.get();
+    }
+
+    /** thresholdMicros를 확실히 넘은 기록 수 (구간 하한이 임계값 초과인 구간 합계) */
+    public long countAbove(long thresholdMicros) {
+        long over = 0;
+        for (int i = indexOf(thresholdMicros) + 1; i < BUCKET_COUNT; i++) {
+            over += buckets.get(i);
+        }
+        return over;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) buckets.set(i, 0);
+        count.set(0);
+        sumMicros.set(0);
+        maxMicros.set(0);
+    }
+
+    /** {"count":..,"meanMs":..,"p50Ms":..,"p90Ms":..,"p99Ms":..,"p999Ms":..,"maxMs":..} */
+    public String toJson() {
+        return "{\"count\":" + getCount()
+            + ",\"meanMs\":" + ms((long) getMeanMicros())
+            + ",\"p50Ms\":" + ms(percentileMicros(50))
+            + ",\"p90Ms\":" + ms(percentileMicros(90))
+            + ",\"p99Ms\":" + ms(percentileMicros(99))
+            + ",\"p999Ms\":" + ms(percentileMicros(99.9))
+            + ",\"maxMs\":" + ms(getMaxMicros())
+            + "}";
+    }
+
+    private static String ms(long micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / 1000.0);
+    }
+}